@@ -14,6 +14,7 @@ plugins {
     `jacoco`
     alias(libs.plugins.errorprone)
     alias(libs.plugins.spotless)
+    alias(libs.plugins.jmh)
     id("cl.franciscosolis.sonatype-central-upload") version "1.0.2"
 }
 
@@ -35,6 +36,8 @@ dependencies {
     testImplementation(libs.junit.jupiter.api)
     testImplementation(libs.errorprone.check.api)
     testImplementation(libs.errorprone.test.helpers)
+
+    jmh(libs.errorprone.core)
 }
 
 java {
@@ -77,7 +80,14 @@ val createJavadocOptionFile by tasks.registering {
 }
 
 
+// tests compile sources using virtual threads, which need JDK 21
+val testJavaVersion = JavaLanguageVersion.of(21)
+
 tasks {
+    compileTestJava {
+        javaCompiler.set(javaToolchains.compilerFor { languageVersion.set(testJavaVersion) })
+    }
+
     withType<JavaCompile> {
         options.compilerArgs.addAll(exportsArgs)
         options.errorprone.check("MemoizeConstantVisitorStateLookups", CheckSeverity.ERROR)
@@ -91,12 +101,21 @@ tasks {
     }
 
     withType<Test> {
+        javaLauncher.set(javaToolchains.launcherFor { languageVersion.set(testJavaVersion) })
         useJUnitPlatform()
         jvmArgs = exportsArgs + listOf("--add-opens", "jdk.compiler/com.sun.tools.javac.comp=ALL-UNNAMED")
         finalizedBy(named("jacocoTestReport"))
     }
 }
 
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    // allocation rate per checker is reported by the gc profiler
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    jvmArgsAppend.addAll(exportsArgs + listOf("--add-opens", "jdk.compiler/com.sun.tools.javac.comp=ALL-UNNAMED", "-Xmx4g"))
+}
+
 spotless {
     java {
         googleJavaFormat()
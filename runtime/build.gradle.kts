@@ -0,0 +1,101 @@
+import cl.franciscosolis.sonatypecentralupload.SonatypeCentralUploadTask
+
+plugins {
+    `java-library`
+    `maven-publish`
+    id("cl.franciscosolis.sonatype-central-upload")
+}
+
+group = "io.github.wreulicke"
+version = rootProject.version
+
+base {
+    archivesName.set("errorprone-concurrency-runtime")
+}
+
+repositories {
+    mavenCentral()
+}
+
+dependencies {
+    testRuntimeOnly(libs.junit.jupiter.engine)
+
+    testImplementation(libs.junit.jupiter.api)
+}
+
+java {
+    toolchain {
+        languageVersion.set(JavaLanguageVersion.of(21))
+    }
+    withSourcesJar()
+    withJavadocJar()
+}
+
+tasks {
+    compileJava {
+        // the applications which use the suggested fixes may run on Java 17
+        options.release.set(17)
+    }
+
+    withType<Test> {
+        useJUnitPlatform()
+    }
+}
+
+publishing {
+    publications {
+        register<MavenPublication>("maven") {
+            artifactId = "errorprone-concurrency-runtime"
+            from(components["java"])
+            pom {
+                name.set("errorprone-concurrency-runtime")
+                description.set("Instrumented executors for the fixes of errorprone-concurrency")
+                url.set("https://github.com/wreulicke/errorprone-concurrency")
+
+                licenses {
+                    license {
+                        name.set("MIT License")
+                        url.set("https://github.com/wreulicke/errorprone-concurrency/blob/master/LICENSE")
+                        distribution.set("repo")
+                    }
+                }
+                developers {
+                    developer {
+                        id.set("wreulicke")
+                        name.set("wreulicke")
+                        email.set("wreulicke@gmail.com")
+                    }
+                }
+                scm {
+                    connection.set("scm:git:git@github.com:wreulicke/errorprone-concurrency.git")
+                    developerConnection.set("scm:git:git@github.com:wreulicke/errorprone-concurrency.git")
+                    url.set("https://github.com/wreulicke/errorprone-concurrency")
+                }
+                issueManagement {
+                    system.set("GitHub Issues")
+                    url.set("https://github.com/wreulicke/errorprone-concurrency/issues")
+                }
+            }
+        }
+    }
+}
+
+tasks.named<SonatypeCentralUploadTask>("sonatypeCentralUpload") {
+    // same as the upload of the plugin
+    dependsOn("jar", "sourcesJar", "javadocJar", "generatePomFileForMavenPublication")
+
+    username = System.getenv("SONATYPE_CENTRAL_USERNAME")
+    password = System.getenv("SONATYPE_CENTRAL_PASSWORD")
+
+    archives = files(
+        tasks.named("jar"),
+        tasks.named("sourcesJar"),
+        tasks.named("javadocJar"),
+    )
+    pom = file(
+        tasks.named("generatePomFileForMavenPublication").get().outputs.files.single()
+    )
+
+    signingKey = System.getenv("PGP_SIGNING_KEY")
+    signingKeyPassphrase = System.getenv("PGP_SIGNING_KEY_PASSPHRASE")
+}
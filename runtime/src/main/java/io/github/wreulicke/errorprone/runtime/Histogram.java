@@ -0,0 +1,82 @@
+package io.github.wreulicke.errorprone.runtime;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of durations in nanoseconds. The bucket {@code i} counts the values in
+ * {@code [2^(i-1), 2^i)}, so that the percentiles are accurate within a factor of two, which is
+ * enough to tell a pool waiting for microseconds from a pool waiting for seconds.
+ */
+public final class Histogram {
+
+  static final int BUCKETS = 64;
+
+  private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+  private final LongAdder count = new LongAdder();
+
+  private final LongAdder sum = new LongAdder();
+
+  /** Records the duration. Negative durations, from a clock going backwards, are recorded as 0. */
+  public void record(long nanos) {
+    long value = Math.max(nanos, 0);
+    buckets.incrementAndGet(bucketOf(value));
+    count.increment();
+    sum.add(value);
+  }
+
+  public long count() {
+    return count.sum();
+  }
+
+  /** Returns the mean in nanoseconds, or 0 when nothing is recorded. */
+  public long mean() {
+    long n = count.sum();
+    return n == 0 ? 0 : sum.sum() / n;
+  }
+
+  /**
+   * Returns the upper bound of the bucket which holds the given percentile, in nanoseconds, or 0
+   * when nothing is recorded.
+   */
+  public long percentile(double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("percentile must be in [0, 100]: " + percentile);
+    }
+    long[] snapshot = snapshot();
+    long total = 0;
+    for (long c : snapshot) {
+      total += c;
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        return upperBound(i);
+      }
+    }
+    return upperBound(BUCKETS - 1);
+  }
+
+  /** Returns the counts of the buckets. The buckets are read one by one, not atomically. */
+  public long[] snapshot() {
+    long[] snapshot = new long[BUCKETS];
+    for (int i = 0; i < BUCKETS; i++) {
+      snapshot[i] = buckets.get(i);
+    }
+    return snapshot;
+  }
+
+  static int bucketOf(long value) {
+    return value == 0 ? 0 : BUCKETS - Long.numberOfLeadingZeros(value);
+  }
+
+  static long upperBound(int bucket) {
+    return bucket >= BUCKETS - 1 ? Long.MAX_VALUE : (1L << bucket) - 1;
+  }
+}
@@ -0,0 +1,112 @@
+package io.github.wreulicke.errorprone.runtime;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Factory methods of the pools which record {@link PoolMetrics}, named in the suggested fixes of
+ * DoNotDependDefaultThreadFactory. The name of the pool is the prefix of the thread names and the
+ * name of the MXBean, so that a finding of the checks can be tied to the metrics of the pool.
+ *
+ * <p>The wait and execution time are recorded for one in 16 tasks by default. Set the system
+ * property {@value #SAMPLE_EVERY_PROPERTY} to change it; 1 records every task.
+ */
+public final class InstrumentedExecutors {
+
+  public static final String SAMPLE_EVERY_PROPERTY = "errorprone.concurrency.sampleEvery";
+
+  private static final int DEFAULT_SAMPLE_EVERY = 16;
+
+  private InstrumentedExecutors() {}
+
+  /** Same as {@code Executors.newFixedThreadPool(nThreads)}, with the metrics. */
+  public static ExecutorService newFixedThreadPool(String name, int nThreads) {
+    return new InstrumentedThreadPoolExecutor(
+        name,
+        nThreads,
+        nThreads,
+        0L,
+        TimeUnit.MILLISECONDS,
+        new LinkedBlockingQueue<>(),
+        new ThreadPoolExecutor.AbortPolicy(),
+        sampleEvery());
+  }
+
+  /** Same as {@code Executors.newSingleThreadExecutor()}, with the metrics. */
+  public static ExecutorService newSingleThreadExecutor(String name) {
+    return newFixedThreadPool(name, 1);
+  }
+
+  /** Returns a pool with the queue bounded to the given capacity. */
+  public static InstrumentedThreadPoolExecutor newThreadPool(
+      String name,
+      int corePoolSize,
+      int maximumPoolSize,
+      int queueCapacity,
+      RejectedExecutionHandler handler) {
+    return new InstrumentedThreadPoolExecutor(
+        name,
+        corePoolSize,
+        maximumPoolSize,
+        60L,
+        TimeUnit.SECONDS,
+        new ArrayBlockingQueue<>(queueCapacity),
+        handler,
+        sampleEvery());
+  }
+
+  /**
+   * Returns a ForkJoinPool whose queue depth, active count and pool size are exported. The tasks
+   * forked inside the pool do not go through the pool methods, so their time is not recorded.
+   * ForkJoinPool has no hook on the termination, so the pool stays registered.
+   */
+  public static ForkJoinPool newForkJoinPool(String name, int parallelism) {
+    AtomicInteger counter = new AtomicInteger();
+    ForkJoinPool pool =
+        new ForkJoinPool(
+            parallelism,
+            p -> {
+              ForkJoinWorkerThread thread =
+                  ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+              thread.setName(name + "-" + counter.incrementAndGet());
+              return thread;
+            },
+            null,
+            false);
+    PoolRegistry.register(
+        new PoolMetrics(
+            name,
+            sampleEvery(),
+            () -> queueDepth(pool),
+            pool::getActiveThreadCount,
+            pool::getPoolSize));
+    return pool;
+  }
+
+  /** Returns the thread factory which names the threads {@code <name>-N}. */
+  public static ThreadFactory threadFactory(String name) {
+    AtomicInteger counter = new AtomicInteger();
+    return r -> {
+      Thread thread = new Thread(r, name + "-" + counter.incrementAndGet());
+      thread.setDaemon(false);
+      return thread;
+    };
+  }
+
+  private static int queueDepth(ForkJoinPool pool) {
+    long depth = pool.getQueuedSubmissionCount() + pool.getQueuedTaskCount();
+    return (int) Math.min(depth, Integer.MAX_VALUE);
+  }
+
+  static int sampleEvery() {
+    return Integer.getInteger(SAMPLE_EVERY_PROPERTY, DEFAULT_SAMPLE_EVERY);
+  }
+}
@@ -0,0 +1,124 @@
+package io.github.wreulicke.errorprone.runtime;
+
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ThreadPoolExecutor which records {@link PoolMetrics}. The threads are named {@code <name>-N}, and
+ * the pool is registered to {@link PoolRegistry} until it terminates.
+ *
+ * <p>The sampled tasks are wrapped to record the wait and execution time, so the wrappers, not the
+ * submitted tasks, are passed to the rejection handler and returned from {@link #shutdownNow()}.
+ */
+public class InstrumentedThreadPoolExecutor extends ThreadPoolExecutor {
+
+  private final PoolMetrics metrics;
+
+  private final String key;
+
+  public InstrumentedThreadPoolExecutor(
+      String name,
+      int corePoolSize,
+      int maximumPoolSize,
+      long keepAliveTime,
+      TimeUnit unit,
+      BlockingQueue<Runnable> workQueue,
+      RejectedExecutionHandler handler,
+      int sampleEvery) {
+    super(
+        corePoolSize,
+        maximumPoolSize,
+        keepAliveTime,
+        unit,
+        workQueue,
+        InstrumentedExecutors.threadFactory(name),
+        handler);
+    this.metrics =
+        new PoolMetrics(
+            name, sampleEvery, () -> getQueue().size(), this::getActiveCount, this::getPoolSize);
+    super.setRejectedExecutionHandler(new CountingHandler(handler, metrics));
+    this.key = PoolRegistry.register(metrics);
+  }
+
+  public PoolMetrics metrics() {
+    return metrics;
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    Objects.requireNonNull(command);
+    metrics.onSubmit();
+    super.execute(metrics.shouldSample() ? new TimedTask(command, System.nanoTime()) : command);
+  }
+
+  @Override
+  protected void afterExecute(Runnable r, Throwable t) {
+    super.afterExecute(r, t);
+    metrics.onComplete();
+  }
+
+  @Override
+  protected void terminated() {
+    super.terminated();
+    PoolRegistry.unregister(key, metrics);
+  }
+
+  @Override
+  public void setRejectedExecutionHandler(RejectedExecutionHandler handler) {
+    super.setRejectedExecutionHandler(new CountingHandler(handler, metrics));
+  }
+
+  @Override
+  public RejectedExecutionHandler getRejectedExecutionHandler() {
+    return ((CountingHandler) super.getRejectedExecutionHandler()).delegate;
+  }
+
+  private final class TimedTask implements Runnable {
+
+    private final Runnable task;
+
+    private final long submittedAt;
+
+    TimedTask(Runnable task, long submittedAt) {
+      this.task = task;
+      this.submittedAt = submittedAt;
+    }
+
+    @Override
+    public void run() {
+      long startedAt = System.nanoTime();
+      metrics.waitTime().record(startedAt - submittedAt);
+      try {
+        task.run();
+      } finally {
+        metrics.executionTime().record(System.nanoTime() - startedAt);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return task.toString();
+    }
+  }
+
+  private static final class CountingHandler implements RejectedExecutionHandler {
+
+    private final RejectedExecutionHandler delegate;
+
+    private final PoolMetrics metrics;
+
+    CountingHandler(RejectedExecutionHandler delegate, PoolMetrics metrics) {
+      this.delegate = Objects.requireNonNull(delegate);
+      this.metrics = metrics;
+    }
+
+    @Override
+    public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+      metrics.onReject();
+      delegate.rejectedExecution(r, executor);
+    }
+  }
+}
@@ -0,0 +1,160 @@
+package io.github.wreulicke.errorprone.runtime;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Metrics of a thread pool. The counters are {@link LongAdder}s, so that the worker threads do not
+ * contend on them. The wait and execution time are recorded for one in {@code sampleEvery} tasks,
+ * to keep the cost of {@link System#nanoTime()} off the other tasks.
+ */
+public final class PoolMetrics implements PoolMetricsMXBean {
+
+  private final String name;
+
+  private final int sampleEvery;
+
+  private final IntSupplier queueDepth;
+
+  private final IntSupplier activeCount;
+
+  private final IntSupplier poolSize;
+
+  private final LongAdder submitted = new LongAdder();
+
+  private final LongAdder completed = new LongAdder();
+
+  private final LongAdder rejected = new LongAdder();
+
+  private final Histogram waitTime = new Histogram();
+
+  private final Histogram executionTime = new Histogram();
+
+  PoolMetrics(
+      String name,
+      int sampleEvery,
+      IntSupplier queueDepth,
+      IntSupplier activeCount,
+      IntSupplier poolSize) {
+    if (sampleEvery < 1) {
+      throw new IllegalArgumentException("sampleEvery must be positive: " + sampleEvery);
+    }
+    this.name = name;
+    this.sampleEvery = sampleEvery;
+    this.queueDepth = queueDepth;
+    this.activeCount = activeCount;
+    this.poolSize = poolSize;
+  }
+
+  boolean shouldSample() {
+    return sampleEvery == 1 || ThreadLocalRandom.current().nextInt(sampleEvery) == 0;
+  }
+
+  void onSubmit() {
+    submitted.increment();
+  }
+
+  void onComplete() {
+    completed.increment();
+  }
+
+  void onReject() {
+    rejected.increment();
+  }
+
+  /** Returns the histogram of the time between the submission and the start of the tasks. */
+  public Histogram waitTime() {
+    return waitTime;
+  }
+
+  /** Returns the histogram of the execution time of the tasks. */
+  public Histogram executionTime() {
+    return executionTime;
+  }
+
+  @Override
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public int getQueueDepth() {
+    return queueDepth.getAsInt();
+  }
+
+  @Override
+  public int getActiveCount() {
+    return activeCount.getAsInt();
+  }
+
+  @Override
+  public int getPoolSize() {
+    return poolSize.getAsInt();
+  }
+
+  @Override
+  public long getSubmittedTasks() {
+    return submitted.sum();
+  }
+
+  @Override
+  public long getCompletedTasks() {
+    return completed.sum();
+  }
+
+  @Override
+  public long getRejectedTasks() {
+    return rejected.sum();
+  }
+
+  @Override
+  public long getSampledTasks() {
+    return executionTime.count();
+  }
+
+  @Override
+  public long getWaitTimeMeanMicros() {
+    return TimeUnit.NANOSECONDS.toMicros(waitTime.mean());
+  }
+
+  @Override
+  public long getWaitTimeP50Micros() {
+    return TimeUnit.NANOSECONDS.toMicros(waitTime.percentile(50));
+  }
+
+  @Override
+  public long getWaitTimeP99Micros() {
+    return TimeUnit.NANOSECONDS.toMicros(waitTime.percentile(99));
+  }
+
+  @Override
+  public long getExecutionTimeMeanMicros() {
+    return TimeUnit.NANOSECONDS.toMicros(executionTime.mean());
+  }
+
+  @Override
+  public long getExecutionTimeP50Micros() {
+    return TimeUnit.NANOSECONDS.toMicros(executionTime.percentile(50));
+  }
+
+  @Override
+  public long getExecutionTimeP99Micros() {
+    return TimeUnit.NANOSECONDS.toMicros(executionTime.percentile(99));
+  }
+
+  @Override
+  public String toString() {
+    return String.format(
+        "PoolMetrics[name=%s, queueDepth=%d, activeCount=%d, submitted=%d, completed=%d, rejected=%d, waitP99=%dus, executionP99=%dus]",
+        name,
+        getQueueDepth(),
+        getActiveCount(),
+        getSubmittedTasks(),
+        getCompletedTasks(),
+        getRejectedTasks(),
+        getWaitTimeP99Micros(),
+        getExecutionTimeP99Micros());
+  }
+}
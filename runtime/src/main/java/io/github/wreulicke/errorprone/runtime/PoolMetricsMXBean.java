@@ -0,0 +1,38 @@
+package io.github.wreulicke.errorprone.runtime;
+
+/**
+ * Metrics of a thread pool exported through JMX, under {@code
+ * io.github.wreulicke.errorprone:type=ThreadPool,name=<name>}. The durations are in microseconds.
+ */
+public interface PoolMetricsMXBean {
+
+  /** The name of the pool, which is also the prefix of the thread names. */
+  String getName();
+
+  int getQueueDepth();
+
+  int getActiveCount();
+
+  int getPoolSize();
+
+  long getSubmittedTasks();
+
+  long getCompletedTasks();
+
+  long getRejectedTasks();
+
+  /** The number of tasks whose wait and execution time are recorded. */
+  long getSampledTasks();
+
+  long getWaitTimeMeanMicros();
+
+  long getWaitTimeP50Micros();
+
+  long getWaitTimeP99Micros();
+
+  long getExecutionTimeMeanMicros();
+
+  long getExecutionTimeP50Micros();
+
+  long getExecutionTimeP99Micros();
+}
@@ -0,0 +1,71 @@
+package io.github.wreulicke.errorprone.runtime;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The metrics of the live pools created by {@link InstrumentedExecutors}. The pools are registered
+ * under their name, suffixed with {@code #2}, {@code #3} and so on when the name is taken, and
+ * exported as MXBeans to the platform MBean server.
+ */
+public final class PoolRegistry {
+
+  static final String DOMAIN = "io.github.wreulicke.errorprone";
+
+  private static final Map<String, PoolMetrics> POOLS = new ConcurrentHashMap<>();
+
+  private PoolRegistry() {}
+
+  /** Returns the metrics of the pool registered under the given key. */
+  public static Optional<PoolMetrics> get(String key) {
+    return Optional.ofNullable(POOLS.get(key));
+  }
+
+  /** Returns a snapshot of the registered keys and metrics. */
+  public static Map<String, PoolMetrics> snapshot() {
+    return Map.copyOf(POOLS);
+  }
+
+  /** Returns the metrics of the registered pools, in no particular order. */
+  public static List<PoolMetrics> metrics() {
+    return List.copyOf(POOLS.values());
+  }
+
+  /** Registers the metrics, and returns the key to unregister them. */
+  static String register(PoolMetrics metrics) {
+    String name = metrics.getName();
+    String key = name;
+    for (int i = 2; POOLS.putIfAbsent(key, metrics) != null; i++) {
+      key = name + "#" + i;
+    }
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      server.registerMBean(metrics, objectName(key));
+    } catch (JMException | SecurityException e) {
+      // the metrics are still available from the registry
+    }
+    return key;
+  }
+
+  static void unregister(String key, PoolMetrics metrics) {
+    if (!POOLS.remove(key, metrics)) {
+      return;
+    }
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      server.unregisterMBean(objectName(key));
+    } catch (JMException | SecurityException e) {
+      // not registered
+    }
+  }
+
+  static ObjectName objectName(String key) throws JMException {
+    return new ObjectName(DOMAIN + ":type=ThreadPool,name=" + ObjectName.quote(key));
+  }
+}
@@ -0,0 +1,121 @@
+package io.github.wreulicke.errorprone.runtime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+class InstrumentedExecutorsTest {
+
+  @Test
+  void testHistogram() {
+    Histogram histogram = new Histogram();
+    assertEquals(0, histogram.percentile(99));
+    for (int i = 0; i < 99; i++) {
+      histogram.record(1_000);
+    }
+    histogram.record(1_000_000);
+
+    assertEquals(100, histogram.count());
+    // 1000 is in [512, 1024)
+    assertEquals(1023, histogram.percentile(50));
+    assertEquals(1023, histogram.percentile(99));
+    // 1000000 is in [524288, 1048576)
+    assertEquals(1048575, histogram.percentile(100));
+    assertEquals((99 * 1_000 + 1_000_000) / 100, histogram.mean());
+    assertEquals(0, Histogram.bucketOf(0));
+    assertEquals(Histogram.BUCKETS - 1, Histogram.bucketOf(Long.MAX_VALUE));
+  }
+
+  @Test
+  void testThreadPoolMetrics() throws Exception {
+    InstrumentedThreadPoolExecutor pool =
+        new InstrumentedThreadPoolExecutor(
+            "test-pool",
+            1,
+            1,
+            0,
+            TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(1),
+            new ThreadPoolExecutor.AbortPolicy(),
+            1);
+    CountDownLatch blocked = new CountDownLatch(1);
+    AtomicReference<String> threadName = new AtomicReference<>();
+    pool.execute(
+        () -> {
+          threadName.set(Thread.currentThread().getName());
+          try {
+            blocked.await();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+          }
+        });
+    pool.execute(() -> {});
+    assertThrows(RejectedExecutionException.class, () -> pool.execute(() -> {}));
+
+    PoolMetrics metrics = pool.metrics();
+    assertEquals(1, metrics.getQueueDepth());
+    assertEquals(3, metrics.getSubmittedTasks());
+    assertEquals(1, metrics.getRejectedTasks());
+    assertTrue(PoolRegistry.get("test-pool").isPresent());
+    assertTrue(
+        ManagementFactory.getPlatformMBeanServer()
+            .isRegistered(PoolRegistry.objectName("test-pool")));
+    assertTrue(pool.getRejectedExecutionHandler() instanceof ThreadPoolExecutor.AbortPolicy);
+
+    blocked.countDown();
+    pool.shutdown();
+    assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+
+    assertEquals("test-pool-1", threadName.get());
+    assertEquals(2, metrics.getCompletedTasks());
+    assertEquals(2, metrics.getSampledTasks());
+    assertEquals(2, metrics.waitTime().count());
+    assertFalse(PoolRegistry.get("test-pool").isPresent());
+    assertFalse(
+        ManagementFactory.getPlatformMBeanServer()
+            .isRegistered(PoolRegistry.objectName("test-pool")));
+  }
+
+  @Test
+  void testDuplicatedNames() throws Exception {
+    ThreadPoolExecutor first =
+        (ThreadPoolExecutor) InstrumentedExecutors.newFixedThreadPool("duplicated", 1);
+    ThreadPoolExecutor second =
+        (ThreadPoolExecutor) InstrumentedExecutors.newSingleThreadExecutor("duplicated");
+    try {
+      assertTrue(PoolRegistry.get("duplicated").isPresent());
+      assertTrue(PoolRegistry.get("duplicated#2").isPresent());
+    } finally {
+      first.shutdown();
+      second.shutdown();
+      assertTrue(first.awaitTermination(10, TimeUnit.SECONDS));
+      assertTrue(second.awaitTermination(10, TimeUnit.SECONDS));
+    }
+    assertFalse(PoolRegistry.get("duplicated").isPresent());
+    assertFalse(PoolRegistry.get("duplicated#2").isPresent());
+  }
+
+  @Test
+  void testForkJoinPool() throws Exception {
+    ForkJoinPool pool = InstrumentedExecutors.newForkJoinPool("test-fork-join", 2);
+    try {
+      String threadName = pool.submit(() -> Thread.currentThread().getName()).get();
+      assertTrue(threadName.startsWith("test-fork-join-"), threadName);
+      PoolMetrics metrics = PoolRegistry.get("test-fork-join").orElseThrow();
+      assertEquals(0, metrics.getQueueDepth());
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
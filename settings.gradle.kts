@@ -11,3 +11,6 @@ plugins {
 }
 
 rootProject.name = "errorprone-concurrency"
+
+// instrumented executors which the suggested fixes refer to
+include("runtime")
@@ -0,0 +1,177 @@
+package io.github.wreulicke.errorprone.benchmark;
+
+import com.google.errorprone.ErrorProneJavaCompiler;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.scanner.ScannerSupplier;
+import io.github.wreulicke.errorprone.futures.DoNotBlockCommonPool;
+import io.github.wreulicke.errorprone.futures.DoNotBlockInCompletionStage;
+import io.github.wreulicke.errorprone.futures.DoNotCreateExecutorPerInvocation;
+import io.github.wreulicke.errorprone.futures.DoNotDependDefaultExecutor;
+import io.github.wreulicke.errorprone.futures.DoNotDependDefaultThreadFactory;
+import io.github.wreulicke.errorprone.futures.DoNotHopExecutorForTrivialStage;
+import io.github.wreulicke.errorprone.futures.ShouldBoundWorkQueue;
+import io.github.wreulicke.errorprone.futures.ShouldChooseRejectionPolicy;
+import io.github.wreulicke.errorprone.futures.ShouldIsolatePeriodicTasks;
+import io.github.wreulicke.errorprone.futures.ShouldLimitTaskFanOut;
+import io.github.wreulicke.errorprone.futures.ShouldRestrictThreadPoolSize;
+import io.github.wreulicke.errorprone.futures.ShouldShutdownExecutor;
+import io.github.wreulicke.errorprone.futures.ShouldWaitWithTimeout;
+import io.github.wreulicke.errorprone.locks.ShouldUseConcurrentCollection;
+import io.github.wreulicke.errorprone.locks.ShouldUseLongAdder;
+import io.github.wreulicke.errorprone.locks.ShouldUseReadWriteLock;
+import io.github.wreulicke.errorprone.sdkhttp.ShouldConfigureApacheHttpAsyncClient;
+import io.github.wreulicke.errorprone.sdkhttp.ShouldConfigureJavaNetHttpClient;
+import io.github.wreulicke.errorprone.sdkhttp.ShouldConfigureNettyEventLoopGroup;
+import io.github.wreulicke.errorprone.sdkhttp.ShouldConfigureOkHttpClient;
+import io.github.wreulicke.errorprone.sdkhttp.ShouldSetExecutorJavaNetHttpClient;
+import io.github.wreulicke.errorprone.streams.DoNotMisuseParallelStream;
+import io.github.wreulicke.errorprone.threads.DoNotBlockInSynchronized;
+import io.github.wreulicke.errorprone.threads.DoNotLeakThreadLocal;
+import io.github.wreulicke.errorprone.threads.ShouldUseThreadFactory;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import javax.tools.JavaFileObject;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the compile-time overhead of each checker by running it alone through the Error Prone
+ * compiler against a generated corpus. The {@code None} checker runs Error Prone without any check
+ * and is the baseline to subtract, and {@code All} runs every checker together. Run with {@code
+ * ./gradlew jmh}; the gc profiler reports the allocation rate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+public class CheckerBenchmark {
+
+  static final List<Class<? extends BugChecker>> ALL =
+      List.of(
+          DoNotDependDefaultExecutor.class,
+          DoNotBlockCommonPool.class,
+          DoNotHopExecutorForTrivialStage.class,
+          DoNotBlockInCompletionStage.class,
+          ShouldWaitWithTimeout.class,
+          DoNotDependDefaultThreadFactory.class,
+          ShouldRestrictThreadPoolSize.class,
+          ShouldBoundWorkQueue.class,
+          ShouldChooseRejectionPolicy.class,
+          DoNotCreateExecutorPerInvocation.class,
+          ShouldLimitTaskFanOut.class,
+          ShouldShutdownExecutor.class,
+          ShouldIsolatePeriodicTasks.class,
+          ShouldUseThreadFactory.class,
+          DoNotBlockInSynchronized.class,
+          DoNotLeakThreadLocal.class,
+          ShouldUseConcurrentCollection.class,
+          ShouldUseReadWriteLock.class,
+          ShouldUseLongAdder.class,
+          DoNotMisuseParallelStream.class,
+          ShouldSetExecutorJavaNetHttpClient.class,
+          ShouldConfigureJavaNetHttpClient.class,
+          ShouldConfigureOkHttpClient.class,
+          ShouldConfigureApacheHttpAsyncClient.class,
+          ShouldConfigureNettyEventLoopGroup.class);
+
+  private static final Map<String, List<Class<? extends BugChecker>>> CHECKERS = checkers();
+
+  @Param({"1000", "10000", "50000"})
+  int classes;
+
+  @Param({
+    "None",
+    "All",
+    "DoNotDependDefaultExecutor",
+    "DoNotBlockCommonPool",
+    "DoNotHopExecutorForTrivialStage",
+    "DoNotBlockInCompletionStage",
+    "ShouldWaitWithTimeout",
+    "DoNotDependDefaultThreadFactory",
+    "ShouldRestrictThreadPoolSize",
+    "ShouldBoundWorkQueue",
+    "ShouldChooseRejectionPolicy",
+    "DoNotCreateExecutorPerInvocation",
+    "ShouldLimitTaskFanOut",
+    "ShouldShutdownExecutor",
+    "ShouldIsolatePeriodicTasks",
+    "ShouldUseThreadFactory",
+    "DoNotBlockInSynchronized",
+    "DoNotLeakThreadLocal",
+    "ShouldUseConcurrentCollection",
+    "ShouldUseReadWriteLock",
+    "ShouldUseLongAdder",
+    "DoNotMisuseParallelStream",
+    "ShouldSetExecutorJavaNetHttpClient",
+    "ShouldConfigureJavaNetHttpClient",
+    "ShouldConfigureOkHttpClient",
+    "ShouldConfigureApacheHttpAsyncClient",
+    "ShouldConfigureNettyEventLoopGroup"
+  })
+  String checker;
+
+  private List<JavaFileObject> sources;
+
+  private long treeNodes;
+
+  private ErrorProneJavaCompiler compiler;
+
+  /** Reports the benchmark time per tree node in addition to the time per compilation. */
+  @State(Scope.Thread)
+  @AuxCounters(AuxCounters.Type.OPERATIONS)
+  public static class TreeNodes {
+    public long treeNodes;
+  }
+
+  private static Map<String, List<Class<? extends BugChecker>>> checkers() {
+    Map<String, List<Class<? extends BugChecker>>> checkers = new HashMap<>();
+    checkers.put("None", List.of());
+    checkers.put("All", ALL);
+    for (Class<? extends BugChecker> checker : ALL) {
+      checkers.put(checker.getSimpleName(), List.of(checker));
+    }
+    return checkers;
+  }
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    sources = Corpus.generate(classes);
+    treeNodes = Corpus.countTreeNodes(sources);
+    compiler =
+        new ErrorProneJavaCompiler(ScannerSupplier.fromBugCheckerClasses(CHECKERS.get(checker)));
+  }
+
+  @Benchmark
+  public Boolean compile(TreeNodes counter) {
+    counter.treeNodes += treeNodes;
+    return compiler
+        .getTask(
+            Writer.nullWriter(),
+            null,
+            diagnostic -> {},
+            List.of(
+                "-proc:none",
+                // the checks run after flow analysis, so skip desugaring and class file generation
+                "-XDshould-stop.ifNoError=FLOW",
+                "-XepAllErrorsAsWarnings"),
+            null,
+            sources)
+        .call();
+  }
+}
@@ -0,0 +1,252 @@
+package io.github.wreulicke.errorprone.benchmark;
+
+import com.sun.source.tree.Tree;
+import com.sun.source.util.JavacTask;
+import com.sun.source.util.TreeScanner;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+/**
+ * Synthetic sources full of executor, CompletableFuture, thread and HttpClient code, optionally
+ * mixed with plain sources which use no concurrency API.
+ */
+final class Corpus {
+
+  private static final String TEMPLATE =
+      """
+      package bench;
+
+      import java.net.http.HttpClient;
+      import java.util.ArrayList;
+      import java.util.List;
+      import java.util.concurrent.CompletableFuture;
+      import java.util.concurrent.ExecutorService;
+      import java.util.concurrent.Executors;
+      import java.util.concurrent.LinkedBlockingQueue;
+      import java.util.concurrent.ThreadFactory;
+      import java.util.concurrent.ThreadPoolExecutor;
+      import java.util.concurrent.TimeUnit;
+      import java.util.concurrent.atomic.AtomicInteger;
+
+      class Generated%1$d {
+
+        private final ThreadFactory factory =
+            new ThreadFactory() {
+              private final AtomicInteger counter = new AtomicInteger();
+
+              @Override
+              public Thread newThread(Runnable r) {
+                Thread t = new Thread(r);
+                t.setName("generated-%1$d-" + counter.incrementAndGet());
+                t.setUncaughtExceptionHandler((t1, e) -> {});
+                return t;
+              }
+            };
+
+        private final ExecutorService fixed = Executors.newFixedThreadPool(%2$d, factory);
+
+        private final ExecutorService cached = Executors.newCachedThreadPool();
+
+        private final ThreadPoolExecutor pool =
+            new ThreadPoolExecutor(
+                %2$d, %2$d, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), factory);
+
+        private final HttpClient client = HttpClient.newBuilder().executor(fixed).build();
+
+        CompletableFuture<Integer> compute(int seed) {
+          return CompletableFuture.supplyAsync(() -> seed * %1$d, fixed)
+              .thenApplyAsync(i -> i + 1, pool)
+              .thenApplyAsync(i -> i * 2)
+              .thenCombineAsync(CompletableFuture.supplyAsync(() -> seed), Integer::sum, fixed);
+        }
+
+        void fireAndForget() {
+          CompletableFuture.runAsync(() -> {});
+          new Thread(() -> {}).start();
+          HttpClient.newHttpClient();
+        }
+
+        int plain(List<String> values) {
+          List<Integer> lengths = new ArrayList<>();
+          int total = 0;
+          for (String value : values) {
+            if (value == null || value.isEmpty()) {
+              continue;
+            }
+            lengths.add(value.length());
+            total += value.trim().toLowerCase().hashCode() %% %2$d;
+          }
+          return total + lengths.size();
+        }
+      }
+      """;
+
+  private static final String PLAIN_TEMPLATE =
+      """
+      package bench;
+
+      import java.util.ArrayList;
+      import java.util.HashMap;
+      import java.util.List;
+      import java.util.Map;
+
+      class Generated%1$d {
+
+        private final Map<String, Integer> counts = new HashMap<>();
+
+        private final List<String> names = new ArrayList<>();
+
+        void add(String name) {
+          names.add(name);
+          counts.merge(name, 1, Integer::sum);
+        }
+
+        int get(String name) {
+          return counts.getOrDefault(name, 0);
+        }
+
+        String describe() {
+          StringBuilder builder = new StringBuilder();
+          for (String name : names) {
+            builder.append(name).append('=').append(get(name)).append(',');
+          }
+          return builder.toString();
+        }
+
+        int plain(List<String> values) {
+          List<Integer> lengths = new ArrayList<>();
+          int total = 0;
+          for (String value : values) {
+            if (value == null || value.isEmpty()) {
+              continue;
+            }
+            lengths.add(value.length());
+            total += value.trim().toLowerCase().hashCode() %% %2$d;
+          }
+          return total + lengths.size();
+        }
+      }
+      """;
+
+  private static final String THREAD_FACTORY_TEMPLATE =
+      """
+      package bench;
+
+      import java.util.concurrent.ThreadFactory;
+      import java.util.concurrent.atomic.AtomicInteger;
+
+      class Generated%1$d implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        private final boolean daemon;
+
+        Generated%1$d(boolean daemon) {
+          this.daemon = daemon;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r);
+          if (daemon) {
+            thread.setDaemon(true);
+          }
+          configure0(thread);
+          return thread;
+        }
+      %2$s
+        private void name(Thread thread) {
+          thread.setName("generated-%1$d-" + counter.incrementAndGet());
+          thread.setUncaughtExceptionHandler((t, e) -> {});
+        }
+      }
+      """;
+
+  private static final String HELPER_TEMPLATE =
+      """
+
+        private void configure%1$d(Thread thread) {
+          thread.setPriority(Thread.NORM_PRIORITY);
+          %2$s(thread);
+        }
+      """;
+
+  private Corpus() {}
+
+  static List<JavaFileObject> generate(int classes) {
+    return generate(classes, 0);
+  }
+
+  /** Generates the sources, of which the given percentage use no concurrency API. */
+  static List<JavaFileObject> generate(int classes, int plainPercent) {
+    List<JavaFileObject> sources = new ArrayList<>(classes);
+    for (int i = 0; i < classes; i++) {
+      String template = i % 100 < plainPercent ? PLAIN_TEMPLATE : TEMPLATE;
+      sources.add(new Source("Generated" + i, String.format(template, i, i % 32 + 1)));
+    }
+    return sources;
+  }
+
+  /**
+   * Generates the thread factories which configure the threads through a chain of helper methods
+   * of the given depth, at least 1, for the analysis of ShouldUseThreadFactory.
+   */
+  static List<JavaFileObject> generateThreadFactories(int classes, int helperDepth) {
+    StringBuilder helpers = new StringBuilder();
+    for (int i = 0; i < helperDepth; i++) {
+      helpers.append(
+          String.format(HELPER_TEMPLATE, i, i + 1 < helperDepth ? "configure" + (i + 1) : "name"));
+    }
+    List<JavaFileObject> sources = new ArrayList<>(classes);
+    for (int i = 0; i < classes; i++) {
+      sources.add(
+          new Source("Generated" + i, String.format(THREAD_FACTORY_TEMPLATE, i, helpers)));
+    }
+    return sources;
+  }
+
+  /** Counts the tree nodes of the given sources, which is the unit of the reported cost. */
+  static long countTreeNodes(List<JavaFileObject> sources) {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    JavacTask task = (JavacTask) compiler.getTask(null, null, d -> {}, null, null, sources);
+    long[] count = new long[1];
+    TreeScanner<Void, Void> counter =
+        new TreeScanner<>() {
+          @Override
+          public Void scan(Tree tree, Void unused) {
+            if (tree != null) {
+              count[0]++;
+            }
+            return super.scan(tree, unused);
+          }
+        };
+    try {
+      task.parse().forEach(unit -> counter.scan(unit, null));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return count[0];
+  }
+
+  private static final class Source extends SimpleJavaFileObject {
+
+    private final String content;
+
+    Source(String className, String content) {
+      super(URI.create("string:///bench/" + className + ".java"), Kind.SOURCE);
+      this.content = content;
+    }
+
+    @Override
+    public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+      return content;
+    }
+  }
+}
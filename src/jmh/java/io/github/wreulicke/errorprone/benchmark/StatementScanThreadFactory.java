@@ -0,0 +1,83 @@
+package io.github.wreulicke.errorprone.benchmark;
+
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.BlockTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.ExpressionStatementTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.StatementTree;
+import com.sun.source.tree.Tree;
+import io.github.wreulicke.errorprone.common.UnitFilter;
+
+/**
+ * The previous analysis of the threads created in thread factories by ShouldUseThreadFactory, kept
+ * as the baseline of {@link ThreadFactoryBenchmark}. It only looks at the top-level expression
+ * statements of the factory method.
+ */
+@BugPattern(
+    summary = "Baseline of ShouldUseThreadFactory scanning the top-level statements only.",
+    severity = BugPattern.SeverityLevel.ERROR)
+public class StatementScanThreadFactory extends BugChecker
+    implements BugChecker.NewClassTreeMatcher {
+
+  private static final String THREAD_CLASS = "java.lang.Thread";
+
+  private static final Matcher<ExpressionTree> MATCHER =
+      Matchers.constructor().forClass(THREAD_CLASS);
+
+  private static final Matcher<ClassTree> THREAD_FACTORY =
+      Matchers.isSubtypeOf("java.util.concurrent.ThreadFactory");
+
+  private static final Matcher<ExpressionTree> SET_NAME =
+      Matchers.instanceMethod().onDescendantOf(THREAD_CLASS).named("setName");
+
+  private static final Matcher<ExpressionTree> SET_UNCAUGHT_EXCEPTION_HANDLER =
+      Matchers.instanceMethod().onDescendantOf(THREAD_CLASS).named("setUncaughtExceptionHandler");
+
+  @Override
+  public Description matchNewClass(NewClassTree tree, VisitorState state) {
+    if (!UnitFilter.CONCURRENCY.mayMatch(state) || !MATCHER.matches(tree, state)) {
+      return Description.NO_MATCH;
+    }
+    ClassTree classTree = ASTHelpers.findEnclosingNode(state.getPath(), ClassTree.class);
+    MethodTree method = ASTHelpers.findEnclosingNode(state.getPath(), MethodTree.class);
+    if (classTree == null || !THREAD_FACTORY.matches(classTree, state) || method == null) {
+      return Description.NO_MATCH;
+    }
+    BlockTree body = method.getBody();
+    if (body == null) {
+      return Description.NO_MATCH;
+    }
+
+    boolean hasSetName = false;
+    boolean hasSetUncaughtExceptionHandler = false;
+    for (StatementTree statement : body.getStatements()) {
+      if (statement.getKind() == Tree.Kind.EXPRESSION_STATEMENT) {
+        ExpressionTree expression = ((ExpressionStatementTree) statement).getExpression();
+        if (SET_NAME.matches(expression, state)) {
+          if (ASTHelpers.constValue(((MethodInvocationTree) expression).getArguments().get(0))
+              != null) {
+            return describeMatch(expression);
+          }
+          hasSetName = true;
+        }
+        if (SET_UNCAUGHT_EXCEPTION_HANDLER.matches(expression, state)) {
+          hasSetUncaughtExceptionHandler = true;
+        }
+      }
+    }
+    if (!hasSetName || !hasSetUncaughtExceptionHandler) {
+      return describeMatch(method);
+    }
+    return Description.NO_MATCH;
+  }
+}
@@ -0,0 +1,80 @@
+package io.github.wreulicke.errorprone.benchmark;
+
+import com.google.errorprone.ErrorProneJavaCompiler;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.scanner.ScannerSupplier;
+import io.github.wreulicke.errorprone.threads.ShouldUseThreadFactory;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.tools.JavaFileObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the analysis of ShouldUseThreadFactory on thread factories which configure the threads
+ * through chains of helper methods. {@code scan=none} runs Error Prone without any check and is
+ * the baseline to subtract. {@code scan=statements} runs {@link StatementScanThreadFactory}, the
+ * top-level statement scan of the previous version, and {@code scan=current} runs the current
+ * analysis, so the difference is the cost of following the variables and the helpers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+public class ThreadFactoryBenchmark {
+
+  @Param({"5000"})
+  int classes;
+
+  @Param({"1", "8"})
+  int helperDepth;
+
+  @Param({"none", "statements", "current"})
+  String scan;
+
+  private List<JavaFileObject> sources;
+
+  private ErrorProneJavaCompiler compiler;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    sources = Corpus.generateThreadFactories(classes, helperDepth);
+    List<Class<? extends BugChecker>> checkers =
+        switch (scan) {
+          case "statements" -> List.of(StatementScanThreadFactory.class);
+          case "current" -> List.of(ShouldUseThreadFactory.class);
+          default -> List.of();
+        };
+    compiler = new ErrorProneJavaCompiler(ScannerSupplier.fromBugCheckerClasses(checkers));
+  }
+
+  @Benchmark
+  public Boolean compile() {
+    return compiler
+        .getTask(
+            Writer.nullWriter(),
+            null,
+            diagnostic -> {},
+            List.of(
+                "-proc:none",
+                // the checks run after flow analysis, so skip desugaring and class file generation
+                "-XDshould-stop.ifNoError=FLOW",
+                "-XepAllErrorsAsWarnings"),
+            null,
+            sources)
+        .call();
+  }
+}
@@ -0,0 +1,69 @@
+package io.github.wreulicke.errorprone.benchmark;
+
+import com.google.errorprone.ErrorProneJavaCompiler;
+import com.google.errorprone.scanner.ScannerSupplier;
+import io.github.wreulicke.errorprone.common.UnitFilter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import javax.tools.JavaFileObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the effect of {@code -XepOpt:Concurrency:SkipUnrelatedFiles} on a module of 10k classes
+ * where most of the classes use no concurrency API. Every checker runs together, as in a real
+ * build; compare the runs with and without the flag.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+public class UnitFilterBenchmark {
+
+  @Param({"10000"})
+  int classes;
+
+  @Param({"0", "90"})
+  int plainPercent;
+
+  @Param({"false", "true"})
+  boolean skipUnrelatedFiles;
+
+  private List<JavaFileObject> sources;
+
+  private ErrorProneJavaCompiler compiler;
+
+  @Setup(Level.Trial)
+  public void setUp() {
+    sources = Corpus.generate(classes, plainPercent);
+    compiler =
+        new ErrorProneJavaCompiler(ScannerSupplier.fromBugCheckerClasses(CheckerBenchmark.ALL));
+  }
+
+  @Benchmark
+  public Boolean compile() {
+    List<String> options = new ArrayList<>();
+    options.add("-proc:none");
+    // the checks run after flow analysis, so skip desugaring and class file generation
+    options.add("-XDshould-stop.ifNoError=FLOW");
+    options.add("-XepAllErrorsAsWarnings");
+    options.add("-XepOpt:" + UnitFilter.FLAG + "=" + skipUnrelatedFiles);
+    return compiler
+        .getTask(Writer.nullWriter(), null, diagnostic -> {}, options, null, sources)
+        .call();
+  }
+}
@@ -0,0 +1,160 @@
+package io.github.wreulicke.errorprone.common;
+
+import com.google.errorprone.ErrorProneFlags;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.matchers.method.MethodMatchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.MemberReferenceTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.code.Symbol;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Catalog of methods which block the calling thread.
+ *
+ * <p>Each entry is written as {@code <class>#<method>}, and {@code <class>#*} means all methods of
+ * the class. Checks can extend the catalog with the {@code <check name>:BlockingMethods} flag.
+ */
+public final class BlockingMethods {
+
+  private static final List<String> DEFAULT_METHODS =
+      List.of(
+          "java.lang.Thread#sleep",
+          "java.lang.Thread#join",
+          "java.lang.Object#wait",
+          "java.lang.Process#waitFor",
+          "java.util.concurrent.Future#get",
+          "java.util.concurrent.CompletableFuture#join",
+          "java.util.concurrent.BlockingQueue#take",
+          "java.util.concurrent.BlockingQueue#put",
+          "java.util.concurrent.BlockingDeque#takeFirst",
+          "java.util.concurrent.BlockingDeque#takeLast",
+          "java.util.concurrent.BlockingDeque#putFirst",
+          "java.util.concurrent.BlockingDeque#putLast",
+          "java.util.concurrent.CountDownLatch#await",
+          "java.util.concurrent.CyclicBarrier#await",
+          "java.util.concurrent.Semaphore#acquire",
+          "java.util.concurrent.Semaphore#acquireUninterruptibly",
+          "java.io.InputStream#read",
+          "java.io.InputStream#readAllBytes",
+          "java.io.InputStream#readNBytes",
+          "java.io.OutputStream#write",
+          "java.io.OutputStream#flush",
+          "java.io.Reader#read",
+          "java.io.BufferedReader#readLine",
+          "java.io.Writer#write",
+          "java.io.Writer#flush",
+          "java.nio.file.Files#*",
+          "java.net.Socket#connect",
+          "java.net.ServerSocket#accept",
+          "java.net.URL#openStream",
+          "java.net.URLConnection#connect",
+          "java.net.URLConnection#getInputStream",
+          "java.net.URLConnection#getOutputStream",
+          "java.net.http.HttpClient#send",
+          "java.sql.DriverManager#getConnection",
+          "javax.sql.DataSource#getConnection",
+          "java.sql.Connection#*",
+          "java.sql.Statement#*",
+          "java.sql.ResultSet#next");
+
+  /** The streams of java.io reading and writing memory, which do not block. */
+  private static final Matcher<ExpressionTree> IN_MEMORY_STREAM =
+      MethodMatchers.anyMethod()
+          .onDescendantOfAny(
+              "java.io.ByteArrayInputStream",
+              "java.io.ByteArrayOutputStream",
+              "java.io.CharArrayReader",
+              "java.io.CharArrayWriter",
+              "java.io.StringReader",
+              "java.io.StringWriter");
+
+  private final Matcher<ExpressionTree> matcher;
+
+  private BlockingMethods(List<String> methods) {
+    List<Matcher<ExpressionTree>> matchers = new ArrayList<>();
+    for (String method : methods) {
+      int separator = method.indexOf('#');
+      if (separator < 0) {
+        throw new IllegalArgumentException(
+            "blocking method should be written as <class>#<method>: " + method);
+      }
+      String className = method.substring(0, separator);
+      String methodName = method.substring(separator + 1);
+      if (methodName.equals("*")) {
+        matchers.add(MethodMatchers.anyMethod().onDescendantOf(className));
+      } else {
+        matchers.add(MethodMatchers.anyMethod().onDescendantOf(className).named(methodName));
+      }
+    }
+    this.matcher = Matchers.allOf(Matchers.anyOf(matchers), Matchers.not(IN_MEMORY_STREAM));
+  }
+
+  /** Returns the default catalog extended by the {@code <checkName>:BlockingMethods} flag. */
+  public static BlockingMethods fromFlags(ErrorProneFlags flags, String checkName) {
+    List<String> methods = new ArrayList<>(DEFAULT_METHODS);
+    flags.getList(checkName + ":BlockingMethods").ifPresent(methods::addAll);
+    return new BlockingMethods(methods);
+  }
+
+  /** Returns whether the method invocation or method reference blocks the calling thread. */
+  public boolean matches(ExpressionTree tree, VisitorState state) {
+    return matcher.matches(tree, state);
+  }
+
+  /**
+   * Returns the blocking calls in the body of the task, which is a lambda expression, a method
+   * reference or an anonymous class. Other expressions are evaluated by the caller of the task, so
+   * they are not inspected.
+   */
+  public List<ExpressionTree> findCalls(ExpressionTree task, VisitorState state) {
+    ExpressionTree body = ASTHelpers.stripParentheses(task);
+    List<ExpressionTree> calls = new ArrayList<>();
+    if (body instanceof MemberReferenceTree) {
+      if (matches(body, state)) {
+        calls.add(body);
+      }
+      return calls;
+    }
+    Tree scope;
+    if (body instanceof LambdaExpressionTree lambda) {
+      scope = lambda.getBody();
+    } else if (body instanceof NewClassTree newClass && newClass.getClassBody() != null) {
+      scope = newClass.getClassBody();
+    } else {
+      return calls;
+    }
+    new TreeScanner<Void, Void>() {
+      @Override
+      public Void visitMethodInvocation(MethodInvocationTree tree, Void unused) {
+        if (matches(tree, state)) {
+          calls.add(tree);
+        }
+        return super.visitMethodInvocation(tree, unused);
+      }
+
+      @Override
+      public Void visitMemberReference(MemberReferenceTree tree, Void unused) {
+        if (matches(tree, state)) {
+          calls.add(tree);
+        }
+        return super.visitMemberReference(tree, unused);
+      }
+    }.scan(scope, null);
+    return calls;
+  }
+
+  /** Returns a readable name of the blocking method such as {@code Thread.sleep}. */
+  public static String describe(ExpressionTree call) {
+    Symbol symbol = ASTHelpers.getSymbol(call);
+    return ASTHelpers.enclosingClass(symbol).getSimpleName() + "." + symbol.getSimpleName();
+  }
+}
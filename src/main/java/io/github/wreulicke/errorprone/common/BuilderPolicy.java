@@ -0,0 +1,109 @@
+package io.github.wreulicke.errorprone.common;
+
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.Tree;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Policy of the methods called in a builder chain, e.g. {@code
+ * HttpClient.newBuilder().executor(e).build()}. The policy is checked from the terminal method of
+ * the chain, and lists the methods which must be called in the chain and the calls which must not
+ * appear in it.
+ *
+ * <p>The chain is followed through the receivers of the method invocations, so the methods called
+ * on a builder stored in a variable are not seen. When the factory of the chain is given, the
+ * required methods are only checked on the chains starting from the factory: a static method, e.g.
+ * {@code HttpClient.newBuilder()}, or a constructor, e.g. {@code new OkHttpClient.Builder()}.
+ */
+public final class BuilderPolicy {
+
+  /** A call which breaks the policy, or the terminal method of the chain missing a call. */
+  public record Violation(Tree tree, String message) {}
+
+  private record Rule(Matcher<ExpressionTree> matcher, boolean required, String message) {}
+
+  private final Matcher<ExpressionTree> factory;
+
+  private final List<Rule> rules;
+
+  private BuilderPolicy(Matcher<ExpressionTree> factory, List<Rule> rules) {
+    this.factory = factory;
+    this.rules = List.copyOf(rules);
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /** Returns the method invocations of the chain ending with the terminal, from the first one. */
+  public static List<MethodInvocationTree> chain(MethodInvocationTree terminal) {
+    List<MethodInvocationTree> chain = new ArrayList<>();
+    ExpressionTree t = terminal;
+    while (t instanceof MethodInvocationTree invocation) {
+      chain.add(0, invocation);
+      t = ASTHelpers.getReceiver(invocation);
+    }
+    return chain;
+  }
+
+  /** Returns the violations of the policy in the chain ending with the terminal. */
+  public List<Violation> check(MethodInvocationTree terminal, VisitorState state) {
+    List<MethodInvocationTree> chain = chain(terminal);
+    ExpressionTree root = ASTHelpers.getReceiver(chain.get(0));
+    boolean isComplete =
+        factory == null
+            || factory.matches(chain.get(0), state)
+            || (root != null && factory.matches(root, state));
+    List<Violation> violations = new ArrayList<>();
+    for (Rule rule : rules) {
+      if (rule.required()) {
+        if (isComplete && chain.stream().noneMatch(m -> rule.matcher().matches(m, state))) {
+          violations.add(new Violation(terminal, rule.message()));
+        }
+        continue;
+      }
+      for (MethodInvocationTree invocation : chain) {
+        if (rule.matcher().matches(invocation, state)) {
+          violations.add(new Violation(invocation, rule.message()));
+        }
+      }
+    }
+    return violations;
+  }
+
+  public static final class Builder {
+
+    private Matcher<ExpressionTree> factory;
+
+    private final List<Rule> rules = new ArrayList<>();
+
+    private Builder() {}
+
+    /** Checks the required methods only on the chains starting from the factory. */
+    public Builder factory(Matcher<ExpressionTree> factory) {
+      this.factory = factory;
+      return this;
+    }
+
+    /** Reports the terminal method when no method in the chain matches. */
+    public Builder require(Matcher<ExpressionTree> matcher, String message) {
+      rules.add(new Rule(matcher, true, message));
+      return this;
+    }
+
+    /** Reports the methods in the chain which match. */
+    public Builder forbid(Matcher<ExpressionTree> matcher, String message) {
+      rules.add(new Rule(matcher, false, message));
+      return this;
+    }
+
+    public BuilderPolicy build() {
+      return new BuilderPolicy(factory, rules);
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package io.github.wreulicke.errorprone.common;
+
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.suppliers.Supplier;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.ParameterizedTypeTree;
+import com.sun.tools.javac.util.Name;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Rejects method invocations and constructor calls by the simple name written in the tree, before
+ * the method matchers resolve the symbol and check the owner type. Most invocations in a
+ * compilation unit can never match, and they are rejected with one hash lookup.
+ *
+ * <p>The filter only rejects invocations which cannot match, so the checker still has to run its
+ * matchers on the rest.
+ */
+public final class InvocationFilter {
+
+  private final Supplier<Set<Name>> names;
+
+  private InvocationFilter(Collection<String> names) {
+    this.names =
+        VisitorState.memoize(
+            state -> names.stream().map(state::getName).collect(Collectors.toUnmodifiableSet()));
+  }
+
+  /** Creates the filter accepting methods, or classes of constructors, with the given names. */
+  public static InvocationFilter of(String... names) {
+    return new InvocationFilter(Arrays.asList(names));
+  }
+
+  /** Creates the filter accepting methods, or classes of constructors, with the given names. */
+  public static InvocationFilter of(Collection<String> names) {
+    return new InvocationFilter(names);
+  }
+
+  /** Returns whether the invoked method has one of the names. */
+  public boolean mayMatch(MethodInvocationTree tree, VisitorState state) {
+    return accepts(tree.getMethodSelect(), state);
+  }
+
+  /** Returns whether the instantiated class has one of the names. */
+  public boolean mayMatch(NewClassTree tree, VisitorState state) {
+    return accepts(tree.getIdentifier(), state);
+  }
+
+  private boolean accepts(ExpressionTree tree, VisitorState state) {
+    ExpressionTree name = tree;
+    if (name instanceof ParameterizedTypeTree parameterized) {
+      name = (ExpressionTree) parameterized.getType();
+    }
+    if (name instanceof IdentifierTree identifier) {
+      return names.get(state).contains(identifier.getName());
+    }
+    if (name instanceof MemberSelectTree select) {
+      return names.get(state).contains(select.getIdentifier());
+    }
+    // e.g. annotated types, which are not worth a fast path
+    return true;
+  }
+}
@@ -0,0 +1,43 @@
+package io.github.wreulicke.errorprone.common;
+
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.fixes.SuggestedFix;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import java.util.Optional;
+
+/** Helpers for suggested fixes which add members to a class. */
+public final class MemberFixes {
+
+  private MemberFixes() {}
+
+  /**
+   * Inserts the member before the first member of the class. The position only depends on the
+   * class, so the same member inserted by several fixes is merged into one when the fixes are
+   * applied together.
+   */
+  public static void insertMember(
+      SuggestedFix.Builder fix, ClassTree classTree, String member, VisitorState state) {
+    for (Tree m : classTree.getMembers()) {
+      if (m instanceof MethodTree method && ASTHelpers.isGeneratedConstructor(method)) {
+        continue;
+      }
+      fix.prefixWith(m, member + "\n");
+      return;
+    }
+    int end = state.getEndPosition(classTree);
+    fix.replace(end - 1, end - 1, member + "\n");
+  }
+
+  /** Returns the field declared in the class with the given name. */
+  public static Optional<VariableTree> findField(ClassTree classTree, String name) {
+    return classTree.getMembers().stream()
+        .filter(VariableTree.class::isInstance)
+        .map(VariableTree.class::cast)
+        .filter(v -> v.getName().contentEquals(name))
+        .findFirst();
+  }
+}
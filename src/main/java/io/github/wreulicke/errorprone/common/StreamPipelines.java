@@ -0,0 +1,73 @@
+package io.github.wreulicke.errorprone.common;
+
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.util.TreePath;
+
+/**
+ * Helpers for the stream pipelines written as one chain of calls, e.g. {@code
+ * list.parallelStream().map(f).forEach(g)}. A pipeline runs in parallel when the last call of
+ * parallel() or sequential() in the chain, or the parallelStream() starting it, says so.
+ */
+public final class StreamPipelines {
+
+  public static final Matcher<ExpressionTree> STREAM_OPERATION =
+      Matchers.instanceMethod().onDescendantOf("java.util.stream.BaseStream");
+
+  public static final Matcher<ExpressionTree> PARALLEL =
+      Matchers.anyOf(
+          Matchers.instanceMethod().onDescendantOf("java.util.Collection").named("parallelStream"),
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.stream.BaseStream")
+              .named("parallel"));
+
+  public static final Matcher<ExpressionTree> SEQUENTIAL =
+      Matchers.anyOf(
+          Matchers.instanceMethod().onDescendantOf("java.util.Collection").named("stream"),
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.stream.BaseStream")
+              .named("sequential"));
+
+  private StreamPipelines() {}
+
+  /** Returns the path of the last operation in the chain containing the call at the path. */
+  public static TreePath lastOperation(TreePath path, VisitorState state) {
+    while (path.getParentPath() != null
+        && path.getParentPath().getLeaf() instanceof MemberSelectTree
+        && path.getParentPath().getParentPath() != null
+        && path.getParentPath().getParentPath().getLeaf() instanceof MethodInvocationTree next
+        && STREAM_OPERATION.matches(next, state)) {
+      path = path.getParentPath().getParentPath();
+    }
+    return path;
+  }
+
+  /**
+   * Returns the call of parallel() or parallelStream() which makes the pipeline ending with the
+   * operation run in parallel, or null when the pipeline runs sequentially.
+   */
+  public static MethodInvocationTree parallelCall(ExpressionTree last, VisitorState state) {
+    ExpressionTree t = last;
+    while (t instanceof MethodInvocationTree invocation) {
+      if (PARALLEL.matches(invocation, state)) {
+        return invocation;
+      }
+      if (SEQUENTIAL.matches(invocation, state)) {
+        return null;
+      }
+      t = ASTHelpers.getReceiver(invocation);
+    }
+    return null;
+  }
+
+  /** Returns whether the stream pipeline containing the current operation runs in parallel. */
+  public static boolean isParallelPipeline(VisitorState state) {
+    ExpressionTree last = (ExpressionTree) lastOperation(state.getPath(), state).getLeaf();
+    return parallelCall(last, state) != null;
+  }
+}
@@ -0,0 +1,147 @@
+package io.github.wreulicke.errorprone.common;
+
+import com.google.errorprone.ErrorProneFlags;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.fixes.SuggestedFix;
+import com.google.errorprone.fixes.SuggestedFixes;
+import com.google.errorprone.suppliers.Supplier;
+import com.google.errorprone.suppliers.Suppliers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.tools.javac.code.Type;
+import java.util.Optional;
+
+/**
+ * Suggested fixes which create the threads from a named ThreadFactory, declared once in the
+ * top-level class as {@code THREAD_FACTORY}. The declaration only depends on the class, so the
+ * fixes of every call site in the compilation unit share one field when they are applied together,
+ * and the field declared by an earlier run is reused.
+ *
+ * <p>The threads are named after the class, e.g. {@code Service-1}, and the uncaught exceptions are
+ * logged to {@link System.Logger}. The daemon flag and the priority are configured by {@code
+ * -XepOpt:Concurrency:ThreadFactoryDaemon=true} and {@code
+ * -XepOpt:Concurrency:ThreadFactoryPriority=1..10}.
+ */
+public final class ThreadFactoryFix {
+
+  public static final String FIELD_NAME = "THREAD_FACTORY";
+
+  public static final String DAEMON_FLAG = "Concurrency:ThreadFactoryDaemon";
+
+  public static final String PRIORITY_FLAG = "Concurrency:ThreadFactoryPriority";
+
+  private static final String THREAD_FACTORY = "java.util.concurrent.ThreadFactory";
+
+  private static final Supplier<Type> THREAD_FACTORY_TYPE =
+      Suppliers.typeFromString(THREAD_FACTORY);
+
+  /** Thread.Builder is available since Java 21. */
+  private static final Supplier<Type> THREAD_BUILDER =
+      Suppliers.typeFromString("java.lang.Thread.Builder");
+
+  private final boolean daemon;
+
+  private final Integer priority;
+
+  private ThreadFactoryFix(boolean daemon, Integer priority) {
+    this.daemon = daemon;
+    this.priority = priority;
+  }
+
+  public static ThreadFactoryFix fromFlags(ErrorProneFlags flags) {
+    Integer priority = flags.getInteger(PRIORITY_FLAG).orElse(null);
+    if (priority != null && (priority < Thread.MIN_PRIORITY || priority > Thread.MAX_PRIORITY)) {
+      throw new IllegalArgumentException(
+          String.format(
+              "%s must be between %d and %d: %d",
+              PRIORITY_FLAG, Thread.MIN_PRIORITY, Thread.MAX_PRIORITY, priority));
+    }
+    return new ThreadFactoryFix(flags.getBoolean(DAEMON_FLAG).orElse(false), priority);
+  }
+
+  /**
+   * Returns the fix declaring the shared factory, unless it is declared already. The caller
+   * rewrites the call site to use {@link #FIELD_NAME}. Returns empty when the field cannot be
+   * declared, e.g. in an interface or an enum, or when the name is taken by another field.
+   */
+  public Optional<SuggestedFix.Builder> declare(VisitorState state) {
+    ClassTree topLevel = null;
+    for (Tree tree : state.getPath()) {
+      if (tree instanceof ClassTree classTree) {
+        topLevel = classTree;
+      }
+    }
+    if (topLevel == null || topLevel.getKind() != Tree.Kind.CLASS) {
+      return Optional.empty();
+    }
+    SuggestedFix.Builder fix = SuggestedFix.builder();
+    Optional<VariableTree> existing = MemberFixes.findField(topLevel, FIELD_NAME);
+    if (existing.isPresent()) {
+      Type type = ASTHelpers.getType(existing.get());
+      return ASTHelpers.isSubtype(type, THREAD_FACTORY_TYPE.get(state), state)
+          ? Optional.of(fix)
+          : Optional.empty();
+    }
+    String threadFactory = SuggestedFixes.qualifyType(state, fix, THREAD_FACTORY);
+    String className = topLevel.getSimpleName().toString();
+    MemberFixes.insertMember(
+        fix,
+        topLevel,
+        String.format(
+            "private static final %s %s = %s;",
+            threadFactory, FIELD_NAME, initializer(className, fix, state)),
+        state);
+    return Optional.of(fix);
+  }
+
+  private String initializer(String className, SuggestedFix.Builder fix, VisitorState state) {
+    String handler =
+        String.format(
+            "(t, e) -> System.getLogger(%s.class.getName()).log(System.Logger.Level.ERROR, \"Uncaught exception in \" + t.getName(), e)",
+            className);
+    if (THREAD_BUILDER.get(state) != null) {
+      StringBuilder builder =
+          new StringBuilder("Thread.ofPlatform().name(\"")
+              .append(className)
+              .append("-\", 1).daemon(")
+              .append(daemon)
+              .append(')');
+      if (priority != null) {
+        builder.append(".priority(").append(priority).append(')');
+      }
+      return builder
+          .append(".uncaughtExceptionHandler(")
+          .append(handler)
+          .append(").factory()")
+          .toString();
+    }
+    // the same factory before Java 21, which sets the name and the handler as
+    // ShouldUseThreadFactory requires
+    String threadFactory = SuggestedFixes.qualifyType(state, fix, THREAD_FACTORY);
+    String atomicInteger =
+        SuggestedFixes.qualifyType(state, fix, "java.util.concurrent.atomic.AtomicInteger");
+    StringBuilder body =
+        new StringBuilder("new ")
+            .append(threadFactory)
+            .append("() { private final ")
+            .append(atomicInteger)
+            .append(" counter = new ")
+            .append(atomicInteger)
+            .append("(); @Override public Thread newThread(Runnable r) {")
+            .append(" Thread thread = new Thread(r); thread.setName(\"")
+            .append(className)
+            .append("-\" + counter.incrementAndGet());")
+            .append(" thread.setDaemon(")
+            .append(daemon)
+            .append(");");
+    if (priority != null) {
+      body.append(" thread.setPriority(").append(priority).append(");");
+    }
+    return body.append(" thread.setUncaughtExceptionHandler(")
+        .append(handler)
+        .append("); return thread; } }")
+        .toString();
+  }
+}
@@ -0,0 +1,71 @@
+package io.github.wreulicke.errorprone.common;
+
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.suppliers.Supplier;
+import com.sun.source.tree.CompilationUnitTree;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Rejects whole compilation units which do not refer to the APIs checked by the checker, when
+ * {@code -XepOpt:Concurrency:SkipUnrelatedFiles=true} is given. Most files of an application use no
+ * concurrency API, and the checkers can skip their nodes without resolving any symbol.
+ *
+ * <p>The unit is accepted when its source contains one of the markers, e.g. a package name or a
+ * simple class name, so imports and fully qualified names are found alike. The types which are not
+ * named in the file, e.g. a CompletableFuture returned by a method of another class, are missed,
+ * which is why the filter is opt-in. The decision is made once per compilation unit.
+ */
+public final class UnitFilter {
+
+  /** The flag which enables the filters. The filters accept every unit without it. */
+  public static final String FLAG = "Concurrency:SkipUnrelatedFiles";
+
+  /** Accepts the units which refer to java.util.concurrent, java.lang.Thread or java.net.http. */
+  public static final UnitFilter CONCURRENCY =
+      of("java.util.concurrent", "java.net.http", "Thread");
+
+  private static final Supplier<Boolean> ENABLED =
+      VisitorState.memoize(
+          state -> state.errorProneOptions().getFlags().getBoolean(FLAG).orElse(false));
+
+  private final List<String> markers;
+
+  /** The decision for the last unit, which is shared by every node and checker of the unit. */
+  private volatile Decision last;
+
+  private record Decision(WeakReference<CompilationUnitTree> unit, boolean related) {}
+
+  private UnitFilter(List<String> markers) {
+    this.markers = markers;
+  }
+
+  /** Creates the filter accepting units whose source contains one of the markers. */
+  public static UnitFilter of(String... markers) {
+    return new UnitFilter(Arrays.asList(markers));
+  }
+
+  /** Returns whether the compilation unit of the current node may contain matches. */
+  public boolean mayMatch(VisitorState state) {
+    if (!ENABLED.get(state)) {
+      return true;
+    }
+    CompilationUnitTree unit = state.getPath().getCompilationUnit();
+    Decision decision = last;
+    if (decision == null || decision.unit().get() != unit) {
+      decision = new Decision(new WeakReference<>(unit), refersTo(state));
+      last = decision;
+    }
+    return decision.related();
+  }
+
+  private boolean refersTo(VisitorState state) {
+    CharSequence source = state.getSourceCode();
+    if (source == null) {
+      return true;
+    }
+    String text = source.toString();
+    return markers.stream().anyMatch(text::contains);
+  }
+}
@@ -0,0 +1,54 @@
+package io.github.wreulicke.errorprone.common;
+
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.code.Symbol;
+import java.lang.ref.WeakReference;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Finds the initializers of the variables declared in the compilation unit, e.g. the executor a
+ * field holds. The compilation unit is indexed once on the first lookup rather than scanned for
+ * every variable. A checker holds one instance, which keeps the index of the current compilation
+ * unit only.
+ */
+public final class VariableInitializers {
+
+  private WeakReference<CompilationUnitTree> unit = new WeakReference<>(null);
+
+  private final Map<Symbol, ExpressionTree> initializers = new HashMap<>();
+
+  /** Returns the initializer of the variable declared in the compilation unit, or null. */
+  public ExpressionTree find(Symbol symbol, VisitorState state) {
+    if (!(symbol instanceof Symbol.VarSymbol)) {
+      return null;
+    }
+    enterUnit(state);
+    return initializers.get(symbol);
+  }
+
+  /** Drops the index of the previous compilation unit, and indexes this one. */
+  private void enterUnit(VisitorState state) {
+    CompilationUnitTree current = state.getPath().getCompilationUnit();
+    if (unit.get() == current) {
+      return;
+    }
+    unit = new WeakReference<>(current);
+    initializers.clear();
+    new TreeScanner<Void, Void>() {
+      @Override
+      public Void visitVariable(VariableTree tree, Void unused) {
+        Symbol symbol = ASTHelpers.getSymbol(tree);
+        if (symbol != null && tree.getInitializer() != null) {
+          initializers.putIfAbsent(symbol, tree.getInitializer());
+        }
+        return super.visitVariable(tree, unused);
+      }
+    }.scan(current, null);
+  }
+}
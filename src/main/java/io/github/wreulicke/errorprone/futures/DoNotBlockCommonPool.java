@@ -0,0 +1,94 @@
+package io.github.wreulicke.errorprone.futures;
+
+import com.google.auto.service.AutoService;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.ErrorProneFlags;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
+import io.github.wreulicke.errorprone.common.BlockingMethods;
+import io.github.wreulicke.errorprone.common.StreamPipelines;
+import io.github.wreulicke.errorprone.common.UnitFilter;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+    summary =
+        "Do not block in tasks running on ForkJoinPool.commonPool(). Blocking tasks starve the pool shared by CompletableFuture and parallel streams. Use dedicated executor instead.",
+    severity = BugPattern.SeverityLevel.ERROR,
+    link = "github.com/wreulicke/errorprone-concurrency",
+    linkType = BugPattern.LinkType.CUSTOM)
+public class DoNotBlockCommonPool extends BugChecker
+    implements BugChecker.MethodInvocationTreeMatcher {
+
+  /** Parallel streams run on the common pool without referring to java.util.concurrent. */
+  private static final UnitFilter UNIT_FILTER = UnitFilter.of("java.util.concurrent", "parallel");
+
+  private static final Matcher<ExpressionTree> IS_EXECUTOR = DoNotDependDefaultExecutor.IS_EXECUTOR;
+
+  private static final Matcher<ExpressionTree> IS_COMMON_POOL =
+      Matchers.staticMethod().onClass("java.util.concurrent.ForkJoinPool").named("commonPool");
+
+  private static final Matcher<ExpressionTree> SUBMIT_TO_FORK_JOIN_POOL =
+      Matchers.instanceMethod()
+          .onDescendantOf("java.util.concurrent.ForkJoinPool")
+          .namedAnyOf("submit", "execute", "invoke", "invokeAll");
+
+  private final BlockingMethods blockingMethods;
+
+  public DoNotBlockCommonPool(ErrorProneFlags flags) {
+    this.blockingMethods = BlockingMethods.fromFlags(flags, "DoNotBlockCommonPool");
+  }
+
+  @Override
+  public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+    if (!UNIT_FILTER.mayMatch(state)) {
+      return Description.NO_MATCH;
+    }
+    String api = describeCommonPoolApi(tree, state);
+    if (api == null) {
+      return Description.NO_MATCH;
+    }
+
+    for (ExpressionTree argument : tree.getArguments()) {
+      for (ExpressionTree call : blockingMethods.findCalls(argument, state)) {
+        state.reportMatch(
+            buildDescription(call)
+                .setMessage(
+                    String.format(
+                        "Do not block in tasks running on ForkJoinPool.commonPool(). %s blocks the task passed to %s. Use dedicated executor instead.",
+                        BlockingMethods.describe(call), api))
+                .build());
+      }
+    }
+    return Description.NO_MATCH;
+  }
+
+  /** Returns the name of the API when its tasks run on the common pool, or null otherwise. */
+  private static String describeCommonPoolApi(MethodInvocationTree tree, VisitorState state) {
+    String name = ASTHelpers.getSymbol(tree).getSimpleName().toString();
+    if (DoNotDependDefaultExecutor.COMPLETABLE_FUTURE_STATIC_METHODS.matches(tree, state)
+        || DoNotDependDefaultExecutor.COMPLETABLE_FUTURE_INSTANCE_METHODS.matches(tree, state)) {
+      if (tree.getArguments().stream().noneMatch(t -> IS_EXECUTOR.matches(t, state))) {
+        return "CompletableFuture." + name;
+      }
+      return null;
+    }
+    if (SUBMIT_TO_FORK_JOIN_POOL.matches(tree, state)) {
+      ExpressionTree receiver = ASTHelpers.getReceiver(tree);
+      if (receiver != null && IS_COMMON_POOL.matches(receiver, state)) {
+        return "ForkJoinPool.commonPool()." + name;
+      }
+      return null;
+    }
+    if (StreamPipelines.STREAM_OPERATION.matches(tree, state)
+        && StreamPipelines.isParallelPipeline(state)) {
+      return "parallel stream operation " + name;
+    }
+    return null;
+  }
+}
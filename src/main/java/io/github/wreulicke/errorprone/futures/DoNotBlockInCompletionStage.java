@@ -0,0 +1,145 @@
+package io.github.wreulicke.errorprone.futures;
+
+import com.google.auto.service.AutoService;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.util.TreePath;
+import com.sun.tools.javac.code.Symbol;
+import io.github.wreulicke.errorprone.common.InvocationFilter;
+import io.github.wreulicke.errorprone.common.UnitFilter;
+import java.util.HashSet;
+import java.util.Set;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+    summary =
+        "Do not block on other futures in a stage of CompletableFuture. The stage holds a thread of the executor while waiting, and bounded executors deadlock.",
+    severity = BugPattern.SeverityLevel.ERROR,
+    link = "github.com/wreulicke/errorprone-concurrency",
+    linkType = BugPattern.LinkType.CUSTOM)
+public class DoNotBlockInCompletionStage extends BugChecker
+    implements BugChecker.MethodInvocationTreeMatcher {
+
+  private static final InvocationFilter METHOD_NAMES = InvocationFilter.of("join", "get");
+
+  private static final Matcher<ExpressionTree> WAIT_FUTURE =
+      Matchers.anyOf(
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.concurrent.CompletableFuture")
+              .named("join"),
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.concurrent.Future")
+              .named("get")
+              .withNoParameters());
+
+  /** The methods of CompletableFuture which run the given function as a stage. */
+  private static final Matcher<ExpressionTree> STAGE =
+      Matchers.anyOf(
+          Matchers.instanceMethod().onDescendantOf("java.util.concurrent.CompletionStage"),
+          DoNotDependDefaultExecutor.COMPLETABLE_FUTURE_STATIC_METHODS);
+
+  private static final Matcher<ExpressionTree> SUBMIT_TASK =
+      Matchers.anyOf(
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.concurrent.Executor")
+              .named("execute"),
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.concurrent.ExecutorService")
+              .namedAnyOf("submit", "invokeAll", "invokeAny"));
+
+  private static final Matcher<ExpressionTree> WAIT_ALL =
+      Matchers.staticMethod()
+          .onClass("java.util.concurrent.CompletableFuture")
+          .namedAnyOf("allOf", "anyOf");
+
+  @Override
+  public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+    if (!UnitFilter.CONCURRENCY.mayMatch(state)
+        || !METHOD_NAMES.mayMatch(tree, state)
+        || !WAIT_FUTURE.matches(tree, state)) {
+      return Description.NO_MATCH;
+    }
+    ExpressionTree future = ASTHelpers.getReceiver(tree);
+    MethodInvocationTree task = enclosingTask(state);
+    if (future == null || task == null) {
+      return Description.NO_MATCH;
+    }
+    if (STAGE.matches(task, state)) {
+      if (isCompleted(future, task)) {
+        return Description.NO_MATCH;
+      }
+      return buildDescription(tree)
+          .setMessage(
+              String.format(
+                  "Do not call %s in a stage of CompletableFuture. The stage holds a thread of the executor while waiting, and bounded executors deadlock. Compose the futures with thenCompose or thenCombine instead.",
+                  ASTHelpers.getSymbol(tree).getSimpleName()))
+          .build();
+    }
+    if (SUBMIT_TASK.matches(task, state)
+        && WAIT_ALL.matches(ASTHelpers.stripParentheses(future), state)) {
+      return buildDescription(tree)
+          .setMessage(
+              "Do not wait for CompletableFuture.allOf or anyOf in a task of the executor. The task holds a thread while the other tasks wait in the queue, and bounded executors deadlock. Return the combined future instead.")
+          .build();
+    }
+    return Description.NO_MATCH;
+  }
+
+  /**
+   * Returns the invocation which the enclosing lambda is passed to, or null when the invocation is
+   * not in a lambda of the method.
+   */
+  private static MethodInvocationTree enclosingTask(VisitorState state) {
+    for (TreePath path = state.getPath(); path != null; path = path.getParentPath()) {
+      Tree leaf = path.getLeaf();
+      if (leaf instanceof MethodTree || leaf instanceof ClassTree) {
+        return null;
+      }
+      if (leaf instanceof LambdaExpressionTree) {
+        Tree parent = path.getParentPath().getLeaf();
+        return parent instanceof MethodInvocationTree invocation ? invocation : null;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns whether the future has been completed when the stage runs, e.g. {@code
+   * CompletableFuture.allOf(a, b).thenApply(v -> a.join() + b.join())}.
+   */
+  private static boolean isCompleted(ExpressionTree future, MethodInvocationTree stage) {
+    Symbol symbol = ASTHelpers.getSymbol(future);
+    if (symbol == null) {
+      return false;
+    }
+    Set<Symbol> completed = new HashSet<>();
+    for (ExpressionTree argument : stage.getArguments()) {
+      // thenCombine and the like wait for the other future
+      completed.add(ASTHelpers.getSymbol(argument));
+    }
+    ExpressionTree receiver = ASTHelpers.getReceiver(stage);
+    while (receiver instanceof MethodInvocationTree invocation) {
+      if (ASTHelpers.getSymbol(invocation).getSimpleName().contentEquals("allOf")) {
+        for (ExpressionTree argument : invocation.getArguments()) {
+          completed.add(ASTHelpers.getSymbol(argument));
+        }
+      }
+      receiver = ASTHelpers.getReceiver(invocation);
+    }
+    if (receiver != null) {
+      completed.add(ASTHelpers.getSymbol(receiver));
+    }
+    return completed.contains(symbol);
+  }
+}
@@ -0,0 +1,348 @@
+package io.github.wreulicke.errorprone.futures;
+
+import com.google.auto.service.AutoService;
+import com.google.common.base.CaseFormat;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.fixes.SuggestedFix;
+import com.google.errorprone.fixes.SuggestedFixes;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.AssignmentTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.ParenthesizedTree;
+import com.sun.source.tree.ReturnTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.TryTree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.code.Symbol;
+import io.github.wreulicke.errorprone.common.InvocationFilter;
+import io.github.wreulicke.errorprone.common.MemberFixes;
+import io.github.wreulicke.errorprone.common.UnitFilter;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.NestingKind;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+    summary =
+        "Do not create executor or HttpClient per invocation. Each instance allocates threads and connection pools which are never reused. Create it once and share it instead.",
+    severity = BugPattern.SeverityLevel.ERROR,
+    link = "github.com/wreulicke/errorprone-concurrency",
+    linkType = BugPattern.LinkType.CUSTOM)
+public class DoNotCreateExecutorPerInvocation extends BugChecker
+    implements BugChecker.MethodInvocationTreeMatcher, BugChecker.NewClassTreeMatcher {
+
+  private static final InvocationFilter METHOD_NAMES =
+      InvocationFilter.of(
+          "newFixedThreadPool",
+          "newCachedThreadPool",
+          "newSingleThreadExecutor",
+          "newScheduledThreadPool",
+          "newSingleThreadScheduledExecutor",
+          "newWorkStealingPool",
+          "newThreadPerTaskExecutor",
+          "newVirtualThreadPerTaskExecutor",
+          "newHttpClient",
+          "build");
+
+  private static final InvocationFilter CLASS_NAMES =
+      InvocationFilter.of("ThreadPoolExecutor", "ScheduledThreadPoolExecutor", "ForkJoinPool");
+
+  private static final Matcher<ExpressionTree> CREATE_EXECUTOR =
+      Matchers.anyOf(
+          Matchers.staticMethod()
+              .onClass("java.util.concurrent.Executors")
+              .withNameMatching(Pattern.compile("new.*")),
+          Matchers.constructor().forClass("java.util.concurrent.ThreadPoolExecutor"),
+          Matchers.constructor().forClass("java.util.concurrent.ScheduledThreadPoolExecutor"),
+          Matchers.constructor().forClass("java.util.concurrent.ForkJoinPool"));
+
+  private static final Matcher<ExpressionTree> CREATE_HTTP_CLIENT =
+      Matchers.anyOf(
+          Matchers.staticMethod().onClass("java.net.http.HttpClient").named("newHttpClient"),
+          Matchers.instanceMethod()
+              .onDescendantOf("java.net.http.HttpClient.Builder")
+              .named("build"));
+
+  /** The executor passed to HttpClient.Builder is reported with the client. */
+  private static final Matcher<ExpressionTree> SET_HTTP_CLIENT_EXECUTOR =
+      Matchers.instanceMethod()
+          .onDescendantOf("java.net.http.HttpClient.Builder")
+          .named("executor");
+
+  private static final Matcher<ExpressionTree> CLOSE =
+      Matchers.instanceMethod()
+          .anyClass()
+          .namedAnyOf("close", "shutdown", "shutdownNow", "shutdownGracefully");
+
+  private static final List<String> FACTORY_ANNOTATIONS =
+      List.of(
+          "org.springframework.context.annotation.Bean",
+          "com.google.inject.Provides",
+          "dagger.Provides",
+          "javax.enterprise.inject.Produces",
+          "jakarta.enterprise.inject.Produces");
+
+  @Override
+  public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+    if (!UnitFilter.CONCURRENCY.mayMatch(state)
+        || !METHOD_NAMES.mayMatch(tree, state)
+        || (!CREATE_EXECUTOR.matches(tree, state) && !CREATE_HTTP_CLIENT.matches(tree, state))) {
+      return Description.NO_MATCH;
+    }
+    return check(tree, state);
+  }
+
+  @Override
+  public Description matchNewClass(NewClassTree tree, VisitorState state) {
+    if (!UnitFilter.CONCURRENCY.mayMatch(state)
+        || !CLASS_NAMES.mayMatch(tree, state)
+        || !CREATE_EXECUTOR.matches(tree, state)) {
+      return Description.NO_MATCH;
+    }
+    return check(tree, state);
+  }
+
+  private Description check(ExpressionTree tree, VisitorState state) {
+    TreePath path = state.getPath();
+    if (!isCreatedPerInvocation(path, state)) {
+      return Description.NO_MATCH;
+    }
+
+    TreePath parent = path.getParentPath();
+    while (parent.getLeaf() instanceof ParenthesizedTree) {
+      parent = parent.getParentPath();
+    }
+    Tree owner = parent.getLeaf();
+    if (owner instanceof ReturnTree) {
+      // the caller owns the instance
+      return Description.NO_MATCH;
+    }
+    if (owner instanceof AssignmentTree assignment && isField(assignment.getVariable())) {
+      // lazily initialized field
+      return Description.NO_MATCH;
+    }
+    if (owner instanceof MethodInvocationTree invocation
+        && SET_HTTP_CLIENT_EXECUTOR.matches(invocation, state)) {
+      return Description.NO_MATCH;
+    }
+    if (owner instanceof VariableTree variable) {
+      if (parent.getParentPath().getLeaf() instanceof TryTree) {
+        // try-with-resources
+        return Description.NO_MATCH;
+      }
+      Tree scope = findScope(parent);
+      Symbol local = ASTHelpers.getSymbol(variable);
+      if (scope != null && isClosedOrEscaped(scope, local, state)) {
+        return Description.NO_MATCH;
+      }
+      Description.Builder description = buildDescription(tree);
+      SuggestedFix fix = hoist(variable, tree, parent, state);
+      if (fix != null) {
+        description.addFix(fix);
+      }
+      return description.build();
+    }
+    return describeMatch(tree);
+  }
+
+  /**
+   * Returns whether the instance is created each time a method is called. Field initializers,
+   * initializer blocks, constructors, main methods and factory methods of DI containers are run
+   * once.
+   */
+  private static boolean isCreatedPerInvocation(TreePath path, VisitorState state) {
+    for (TreePath p = path.getParentPath(); p != null; p = p.getParentPath()) {
+      Tree leaf = p.getLeaf();
+      if (leaf instanceof LambdaExpressionTree) {
+        return true;
+      }
+      if (leaf instanceof MethodTree method) {
+        Symbol.MethodSymbol symbol = ASTHelpers.getSymbol(method);
+        if (symbol.isConstructor() || isMainMethod(symbol, state)) {
+          return false;
+        }
+        return FACTORY_ANNOTATIONS.stream()
+            .noneMatch(annotation -> ASTHelpers.hasAnnotation(symbol, annotation, state));
+      }
+      if (leaf instanceof ClassTree) {
+        return false;
+      }
+    }
+    return false;
+  }
+
+  static boolean isMainMethod(Symbol.MethodSymbol symbol, VisitorState state) {
+    return symbol.getSimpleName().contentEquals("main")
+        && ASTHelpers.isStatic(symbol)
+        && symbol.getParameters().size() == 1
+        && ASTHelpers.isSameType(
+            symbol.getParameters().get(0).asType(),
+            state.arrayTypeForType(state.getSymtab().stringType),
+            state);
+  }
+
+  private static boolean isField(ExpressionTree tree) {
+    Symbol symbol = ASTHelpers.getSymbol(tree);
+    return symbol != null && symbol.getKind() == ElementKind.FIELD;
+  }
+
+  /** Returns the body of the method or lambda which declares the local variable. */
+  private static Tree findScope(TreePath path) {
+    for (TreePath p = path; p != null; p = p.getParentPath()) {
+      if (p.getLeaf() instanceof MethodTree method) {
+        return method.getBody();
+      }
+      if (p.getLeaf() instanceof LambdaExpressionTree lambda) {
+        return lambda.getBody();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns whether the local variable is closed, used as a resource of try, returned or stored to
+   * a field in the scope.
+   */
+  private static boolean isClosedOrEscaped(Tree scope, Symbol local, VisitorState state) {
+    return Boolean.TRUE.equals(
+        new TreeScanner<Boolean, Void>() {
+          @Override
+          public Boolean visitMethodInvocation(MethodInvocationTree tree, Void unused) {
+            if (CLOSE.matches(tree, state) && isLocal(ASTHelpers.getReceiver(tree))) {
+              return true;
+            }
+            return super.visitMethodInvocation(tree, unused);
+          }
+
+          @Override
+          public Boolean visitTry(TryTree tree, Void unused) {
+            // try (executor) { ... } closes the variable declared before
+            for (Tree resource : tree.getResources()) {
+              if (resource instanceof ExpressionTree expression && isLocal(expression)) {
+                return true;
+              }
+            }
+            return super.visitTry(tree, unused);
+          }
+
+          @Override
+          public Boolean visitReturn(ReturnTree tree, Void unused) {
+            if (isLocal(tree.getExpression())) {
+              return true;
+            }
+            return super.visitReturn(tree, unused);
+          }
+
+          @Override
+          public Boolean visitAssignment(AssignmentTree tree, Void unused) {
+            if (isField(tree.getVariable()) && isLocal(tree.getExpression())) {
+              return true;
+            }
+            return super.visitAssignment(tree, unused);
+          }
+
+          private boolean isLocal(ExpressionTree tree) {
+            return tree != null
+                && Objects.equals(ASTHelpers.getSymbol(ASTHelpers.stripParentheses(tree)), local);
+          }
+
+          @Override
+          public Boolean reduce(Boolean r1, Boolean r2) {
+            return Boolean.TRUE.equals(r1) || Boolean.TRUE.equals(r2);
+          }
+        }.scan(scope, null));
+  }
+
+  /**
+   * Hoists the initializer of the local variable to a static final field. The initializer must
+   * not refer to local variables or instance members.
+   */
+  private static SuggestedFix hoist(
+      VariableTree variable, ExpressionTree initializer, TreePath path, VisitorState state) {
+    if (variable.getInitializer() != initializer || !isConstantExpression(initializer)) {
+      return null;
+    }
+    ClassTree classTree = findStaticContext(path);
+    if (classTree == null) {
+      return null;
+    }
+    String name =
+        CaseFormat.LOWER_CAMEL.to(CaseFormat.UPPER_UNDERSCORE, variable.getName().toString());
+    if (MemberFixes.findField(classTree, name).isPresent()) {
+      return null;
+    }
+
+    SuggestedFix.Builder fix = SuggestedFix.builder();
+    String type = SuggestedFixes.prettyType(state, fix, ASTHelpers.getType(variable));
+    MemberFixes.insertMember(
+        fix,
+        classTree,
+        String.format(
+            "private static final %s %s = %s;", type, name, state.getSourceForNode(initializer)),
+        state);
+    return fix.replace(initializer, name).build();
+  }
+
+  private static boolean isConstantExpression(ExpressionTree tree) {
+    Set<Symbol> declared = new HashSet<>();
+    return !Boolean.TRUE.equals(
+        new TreeScanner<Boolean, Void>() {
+          @Override
+          public Boolean visitVariable(VariableTree tree, Void unused) {
+            declared.add(ASTHelpers.getSymbol(tree));
+            return super.visitVariable(tree, unused);
+          }
+
+          @Override
+          public Boolean visitIdentifier(IdentifierTree tree, Void unused) {
+            Symbol symbol = ASTHelpers.getSymbol(tree);
+            if (symbol == null || declared.contains(symbol)) {
+              return false;
+            }
+            if (symbol.getKind() == ElementKind.FIELD || symbol.getKind() == ElementKind.METHOD) {
+              return !ASTHelpers.isStatic(symbol);
+            }
+            // local variables, parameters and this
+            return !(symbol instanceof Symbol.TypeSymbol)
+                && !(symbol instanceof Symbol.PackageSymbol);
+          }
+
+          @Override
+          public Boolean reduce(Boolean r1, Boolean r2) {
+            return Boolean.TRUE.equals(r1) || Boolean.TRUE.equals(r2);
+          }
+        }.scan(tree, null));
+  }
+
+  /** Returns the nearest enclosing class which can declare static fields in any Java version. */
+  private static ClassTree findStaticContext(TreePath path) {
+    for (TreePath p = path; p != null; p = p.getParentPath()) {
+      if (p.getLeaf() instanceof ClassTree classTree) {
+        Symbol.ClassSymbol symbol = ASTHelpers.getSymbol(classTree);
+        if (symbol.getNestingKind() == NestingKind.TOP_LEVEL
+            || (symbol.getNestingKind() == NestingKind.MEMBER
+                && (ASTHelpers.isStatic(symbol) || classTree.getKind() != Tree.Kind.CLASS))) {
+          return classTree;
+        }
+      }
+    }
+    return null;
+  }
+}
@@ -10,7 +10,11 @@ import com.google.errorprone.matchers.Matchers;
 import com.google.errorprone.matchers.method.MethodMatchers;
 import com.sun.source.tree.ExpressionTree;
 import com.sun.source.tree.MethodInvocationTree;
+import io.github.wreulicke.errorprone.common.InvocationFilter;
+import io.github.wreulicke.errorprone.common.UnitFilter;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
 
 @AutoService(BugChecker.class)
 @BugPattern(
@@ -21,38 +25,51 @@ import java.util.concurrent.CompletableFuture;
 public class DoNotDependDefaultExecutor extends BugChecker
     implements BugChecker.MethodInvocationTreeMatcher {
 
-  private static final Matcher<ExpressionTree> COMPLETABLE_FUTURE_STATIC_METHODS =
+  private static final List<String> STATIC_METHOD_NAMES = List.of("runAsync", "supplyAsync");
+
+  private static final List<String> INSTANCE_METHOD_NAMES =
+      List.of(
+          "thenApplyAsync",
+          "thenAcceptAsync",
+          "thenRunAsync",
+          "thenCombineAsync",
+          "thenAcceptBothAsync",
+          "runAfterBothAsync",
+          "applyToEitherAsync",
+          "acceptEitherAsync",
+          "runAfterEitherAsync",
+          "thenComposeAsync",
+          "whenCompleteAsync",
+          "handleAsync",
+          "exceptionallyAsync",
+          "exceptionallyComposeAsync",
+          "completeAsync");
+
+  static final Matcher<ExpressionTree> COMPLETABLE_FUTURE_STATIC_METHODS =
       MethodMatchers.staticMethod()
           .onClass("java.util.concurrent.CompletableFuture")
-          .namedAnyOf("runAsync", "supplyAsync");
+          .namedAnyOf(STATIC_METHOD_NAMES);
 
-  private static final Matcher<ExpressionTree> COMPLETABLE_FUTURE_INSTANCE_METHODS =
+  static final Matcher<ExpressionTree> COMPLETABLE_FUTURE_INSTANCE_METHODS =
       MethodMatchers.instanceMethod()
           .onDescendantOf(CompletableFuture.class.getName())
-          .namedAnyOf(
-              "thenApplyAsync",
-              "thenAcceptAsync",
-              "thenRunAsync",
-              "thenCombineAsync",
-              "thenAcceptBothAsync",
-              "runAfterBothAsync",
-              "applyToEitherAsync",
-              "acceptEitherAsync",
-              "runAfterEitherAsync",
-              "thenComposeAsync",
-              "whenCompleteAsync",
-              "handleAsync",
-              "exceptionallyAsync",
-              "exceptionallyComposeAsync",
-              "completeAsync");
+          .namedAnyOf(INSTANCE_METHOD_NAMES);
 
-  private static final Matcher<ExpressionTree> IS_EXECUTOR =
+  static final InvocationFilter COMPLETABLE_FUTURE_METHODS =
+      InvocationFilter.of(
+          Stream.concat(STATIC_METHOD_NAMES.stream(), INSTANCE_METHOD_NAMES.stream()).toList());
+
+  static final Matcher<ExpressionTree> IS_EXECUTOR =
       Matchers.allOf(
           Matchers.not(Matchers.nullLiteral()),
           Matchers.isSubtypeOf("java.util.concurrent.Executor"));
 
   @Override
   public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+    if (!UnitFilter.CONCURRENCY.mayMatch(state)
+        || !COMPLETABLE_FUTURE_METHODS.mayMatch(tree, state)) {
+      return Description.NO_MATCH;
+    }
     if (COMPLETABLE_FUTURE_STATIC_METHODS.matches(tree, state)) {
       if (tree.getArguments().stream().noneMatch(t -> IS_EXECUTOR.matches(t, state))) {
         return describeMatch(tree);
@@ -1,17 +1,35 @@
 package io.github.wreulicke.errorprone.futures;
 
 import com.google.auto.service.AutoService;
+import com.google.common.collect.ImmutableList;
 import com.google.errorprone.BugPattern;
+import com.google.errorprone.ErrorProneFlags;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.fixes.SuggestedFix;
+import com.google.errorprone.fixes.SuggestedFixes;
 import com.google.errorprone.matchers.Description;
 import com.google.errorprone.matchers.Matcher;
 import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.suppliers.Supplier;
+import com.google.errorprone.suppliers.Suppliers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.AssignmentTree;
+import com.sun.source.tree.ClassTree;
 import com.sun.source.tree.ExpressionTree;
 import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
 import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Type;
+import io.github.wreulicke.errorprone.common.InvocationFilter;
+import io.github.wreulicke.errorprone.common.ThreadFactoryFix;
+import io.github.wreulicke.errorprone.common.UnitFilter;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
 @AutoService(BugChecker.class)
 @BugPattern(
@@ -23,52 +41,242 @@ import java.util.regex.Pattern;
 public class DoNotDependDefaultThreadFactory extends BugChecker
     implements BugChecker.MethodInvocationTreeMatcher, BugChecker.NewClassTreeMatcher {
 
-  private static final Matcher<ExpressionTree> IS_EXECUTORS_STATIC_METHODS =
+  private static final ImmutableList<String> DEFAULT_CHECKED_METHODS =
+      ImmutableList.of(
+          "newFixedThreadPool",
+          "newCachedThreadPool",
+          "newSingleThreadExecutor",
+          "newScheduledThreadPool");
+
+  static final InvocationFilter THREAD_POOL_EXECUTOR_NAMES =
+      InvocationFilter.of("ThreadPoolExecutor", "ScheduledThreadPoolExecutor");
+
+  private static final Matcher<ExpressionTree> CAN_MIGRATE_TO_VIRTUAL_THREADS =
+      Matchers.staticMethod()
+          .onClass("java.util.concurrent.Executors")
+          .namedAnyOf("newFixedThreadPool", "newCachedThreadPool");
+
+  /**
+   * The cached pool does not bound the number of threads, so the executor of virtual threads runs
+   * the tasks the same way. The fixed pool also bounds the concurrency, which the fix would drop.
+   */
+  private static final Matcher<ExpressionTree> UNBOUNDED_POOL =
       Matchers.staticMethod()
           .onClass("java.util.concurrent.Executors")
-          .withNameMatching(
-              Pattern.compile(
-                  "newFixedThreadPool|newCachedThreadPool|newSingleThreadExecutor|newScheduledThreadPool"));
+          .named("newCachedThreadPool");
+
+  /** Thread.Builder is available since Java 21, along with virtual threads. */
+  private static final Supplier<Type> THREAD_BUILDER =
+      Suppliers.typeFromString("java.lang.Thread.Builder");
 
   private static final Matcher<ExpressionTree> USE_DEFAULT_THREAD_FACTORY =
       Matchers.staticMethod()
           .onClass("java.util.concurrent.Executors")
           .named("defaultThreadFactory");
 
-  private static final Matcher<ExpressionTree> IS_THREAD_POOL_EXECUTOR =
+  static final Matcher<ExpressionTree> IS_THREAD_POOL_EXECUTOR =
       Matchers.anyOf(
           Matchers.constructor().forClass("java.util.concurrent.ThreadPoolExecutor"),
           Matchers.constructor().forClass("java.util.concurrent.ScheduledThreadPoolExecutor"));
 
-  private static final Matcher<ExpressionTree> IS_THREAD_FACTORY =
+  static final Matcher<ExpressionTree> IS_THREAD_FACTORY =
       Matchers.isSubtypeOf("java.util.concurrent.ThreadFactory");
 
+  /** The methods which have the overloads taking ThreadFactory. */
+  private static final Matcher<ExpressionTree> CAN_PASS_THREAD_FACTORY =
+      Matchers.staticMethod()
+          .onClass("java.util.concurrent.Executors")
+          .namedAnyOf(
+              "newFixedThreadPool",
+              "newCachedThreadPool",
+              "newSingleThreadExecutor",
+              "newScheduledThreadPool",
+              "newSingleThreadScheduledExecutor");
+
+  static final Matcher<ExpressionTree> NEW_SCHEDULED_THREAD_POOL_EXECUTOR =
+      Matchers.constructor().forClass("java.util.concurrent.ScheduledThreadPoolExecutor");
+
+  /** The methods which have the counterparts in InstrumentedExecutors of the runtime module. */
+  private static final Matcher<ExpressionTree> CAN_INSTRUMENT =
+      Matchers.staticMethod()
+          .onClass("java.util.concurrent.Executors")
+          .namedAnyOf("newFixedThreadPool", "newSingleThreadExecutor");
+
+  private static final String INSTRUMENTED_EXECUTORS =
+      "io.github.wreulicke.errorprone.runtime.InstrumentedExecutors";
+
+  private final InvocationFilter methodNames;
+
+  private final boolean suggestInstrumentedExecutors;
+
+  private final ThreadFactoryFix threadFactoryFix;
+
+  private final Matcher<ExpressionTree> isExecutorsStaticMethods;
+
+  public DoNotDependDefaultThreadFactory(ErrorProneFlags flags) {
+    List<String> checkedMethods =
+        flags
+            .getList("DoNotDependDefaultThreadFactory:CheckedMethods")
+            .orElse(DEFAULT_CHECKED_METHODS);
+    this.methodNames =
+        InvocationFilter.of(
+            Stream.concat(checkedMethods.stream(), Stream.of("defaultThreadFactory")).toList());
+    this.isExecutorsStaticMethods =
+        Matchers.staticMethod()
+            .onClass("java.util.concurrent.Executors")
+            .namedAnyOf(checkedMethods);
+    this.suggestInstrumentedExecutors =
+        flags.getBoolean("DoNotDependDefaultThreadFactory:InstrumentedExecutors").orElse(false);
+    this.threadFactoryFix = ThreadFactoryFix.fromFlags(flags);
+  }
+
   @Override
   public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+    if (!UnitFilter.CONCURRENCY.mayMatch(state) || !methodNames.mayMatch(tree, state)) {
+      return Description.NO_MATCH;
+    }
     if (USE_DEFAULT_THREAD_FACTORY.matches(tree, state)) {
-      return describeMatch(tree);
+      Description.Builder description = buildDescription(tree);
+      threadFactoryFix
+          .declare(state)
+          .ifPresent(
+              fix -> description.addFix(fix.replace(tree, ThreadFactoryFix.FIELD_NAME).build()));
+      return description.build();
     }
-    if (!IS_EXECUTORS_STATIC_METHODS.matches(tree, state)) {
+    if (!isExecutorsStaticMethods.matches(tree, state)) {
       return Description.NO_MATCH;
     }
 
     List<? extends ExpressionTree> arguments = tree.getArguments();
     if (arguments.stream().noneMatch(arg -> IS_THREAD_FACTORY.matches(arg, state))) {
-      return describeMatch(tree);
+      Description.Builder description = buildDescription(tree);
+      if (CAN_PASS_THREAD_FACTORY.matches(tree, state)) {
+        threadFactoryFix
+            .declare(state)
+            .ifPresent(fix -> description.addFix(passThreadFactory(fix, tree, state)));
+      }
+      if (suggestInstrumentedExecutors && CAN_INSTRUMENT.matches(tree, state)) {
+        description.addFix(instrumentedExecutorsFix(tree, state));
+      }
+      if (CAN_MIGRATE_TO_VIRTUAL_THREADS.matches(tree, state)
+          && THREAD_BUILDER.get(state) != null) {
+        if (UNBOUNDED_POOL.matches(tree, state)) {
+          description
+              .setMessage(
+                  message()
+                      + " If the tasks block on IO, consider Executors.newVirtualThreadPerTaskExecutor() instead of the pool.")
+              .addFix(virtualThreadsFix(tree, state));
+        } else {
+          description.setMessage(
+              message()
+                  + " If the tasks block on IO, consider Executors.newVirtualThreadPerTaskExecutor() instead of the pool,"
+                  + " and limit the concurrent tasks with a Semaphore of the pool size.");
+        }
+      }
+      return description.build();
     }
 
     return Description.NO_MATCH;
   }
 
+  /** Passes the shared factory to the overload, e.g. {@code newFixedThreadPool(n, factory)}. */
+  private static SuggestedFix passThreadFactory(
+      SuggestedFix.Builder fix, MethodInvocationTree tree, VisitorState state) {
+    List<String> arguments = new ArrayList<>();
+    tree.getArguments().forEach(a -> arguments.add(state.getSourceForNode(a)));
+    arguments.add(ThreadFactoryFix.FIELD_NAME);
+    return fix.replace(
+            tree,
+            state.getSourceForNode(tree.getMethodSelect())
+                + "("
+                + String.join(", ", arguments)
+                + ")")
+        .build();
+  }
+
+  /**
+   * Suggests the executor which starts a virtual thread per task for the cached pool. Pools of
+   * platform threads are often sized only to run blocking IO tasks concurrently, which virtual
+   * threads do without pooling.
+   */
+  private static SuggestedFix virtualThreadsFix(MethodInvocationTree tree, VisitorState state) {
+    SuggestedFix.Builder fix = SuggestedFix.builder();
+    String executors = SuggestedFixes.qualifyType(state, fix, "java.util.concurrent.Executors");
+    fix.replace(tree, executors + ".newVirtualThreadPerTaskExecutor()");
+    return fix.build();
+  }
+
+  /**
+   * Suggests the same pool from InstrumentedExecutors of the runtime module, which names the
+   * threads and exports the metrics of the pool under the name of the field or the method.
+   */
+  private static SuggestedFix instrumentedExecutorsFix(
+      MethodInvocationTree tree, VisitorState state) {
+    SuggestedFix.Builder fix = SuggestedFix.builder();
+    String executors = SuggestedFixes.qualifyType(state, fix, INSTRUMENTED_EXECUTORS);
+    StringBuilder replacement =
+        new StringBuilder(executors)
+            .append('.')
+            .append(ASTHelpers.getSymbol(tree).getSimpleName())
+            .append("(\"")
+            .append(poolName(state))
+            .append('"');
+    for (ExpressionTree argument : tree.getArguments()) {
+      replacement.append(", ").append(state.getSourceForNode(argument));
+    }
+    fix.replace(tree, replacement.append(')').toString());
+    return fix.build();
+  }
+
+  /** Returns {@code Class.field} or {@code Class.method} of the pool being created. */
+  static String poolName(VisitorState state) {
+    String className = "pool";
+    for (Tree tree : state.getPath()) {
+      // skip the anonymous classes
+      if (tree instanceof ClassTree classTree && !classTree.getSimpleName().isEmpty()) {
+        className = classTree.getSimpleName().toString();
+        break;
+      }
+    }
+    Tree parent = state.getPath().getParentPath().getLeaf();
+    Symbol assigned = null;
+    if (parent instanceof VariableTree variable) {
+      assigned = ASTHelpers.getSymbol(variable);
+    } else if (parent instanceof AssignmentTree assignment) {
+      assigned = ASTHelpers.getSymbol(assignment.getVariable());
+    }
+    if (assigned != null) {
+      return className + "." + assigned.getSimpleName();
+    }
+    MethodTree method = state.findEnclosing(MethodTree.class);
+    return method == null ? className : className + "." + method.getName();
+  }
+
   @Override
   public Description matchNewClass(NewClassTree tree, VisitorState state) {
-    if (!IS_THREAD_POOL_EXECUTOR.matches(tree, state)) {
+    if (!UnitFilter.CONCURRENCY.mayMatch(state)
+        || !THREAD_POOL_EXECUTOR_NAMES.mayMatch(tree, state)
+        || !IS_THREAD_POOL_EXECUTOR.matches(tree, state)) {
       return Description.NO_MATCH;
     }
 
     List<? extends ExpressionTree> arguments = tree.getArguments();
     if (arguments.stream().noneMatch(arg -> IS_THREAD_FACTORY.matches(arg, state))) {
-      return describeMatch(tree);
+      Description.Builder description = buildDescription(tree);
+      // the factory follows the core pool size of ScheduledThreadPoolExecutor, and the work queue
+      // of ThreadPoolExecutor
+      int position = NEW_SCHEDULED_THREAD_POOL_EXECUTOR.matches(tree, state) ? 0 : 4;
+      if (arguments.size() > position) {
+        threadFactoryFix
+            .declare(state)
+            .ifPresent(
+                fix ->
+                    description.addFix(
+                        fix.postfixWith(
+                                arguments.get(position), ", " + ThreadFactoryFix.FIELD_NAME)
+                            .build()));
+      }
+      return description.build();
     }
 
     return Description.NO_MATCH;
@@ -0,0 +1,171 @@
+package io.github.wreulicke.errorprone.futures;
+
+import com.google.auto.service.AutoService;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.fixes.SuggestedFix;
+import com.google.errorprone.fixes.SuggestedFixes;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.BlockTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.ReturnTree;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.code.Flags;
+import com.sun.tools.javac.code.Symbol;
+import io.github.wreulicke.errorprone.common.InvocationFilter;
+import io.github.wreulicke.errorprone.common.UnitFilter;
+import java.util.List;
+import javax.lang.model.element.ElementKind;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+    summary =
+        "Do not hop to the same executor for a trivial stage. Each Async stage adds a task handoff and queueing latency.",
+    severity = BugPattern.SeverityLevel.ERROR,
+    link = "github.com/wreulicke/errorprone-concurrency",
+    linkType = BugPattern.LinkType.CUSTOM)
+public class DoNotHopExecutorForTrivialStage extends BugChecker
+    implements BugChecker.MethodInvocationTreeMatcher {
+
+  /** The Async methods which take the function as the first argument. */
+  private static final InvocationFilter METHOD_NAMES =
+      InvocationFilter.of(
+          "thenApplyAsync",
+          "thenAcceptAsync",
+          "thenRunAsync",
+          "whenCompleteAsync",
+          "handleAsync",
+          "exceptionallyAsync");
+
+  @Override
+  public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+    if (!UnitFilter.CONCURRENCY.mayMatch(state)
+        || !METHOD_NAMES.mayMatch(tree, state)
+        || !DoNotDependDefaultExecutor.COMPLETABLE_FUTURE_INSTANCE_METHODS.matches(tree, state)) {
+      return Description.NO_MATCH;
+    }
+    ExpressionTree executor = executor(tree, state);
+    if (executor == null || !isTrivial(tree.getArguments().get(0), state)) {
+      return Description.NO_MATCH;
+    }
+    ExpressionTree receiver = ASTHelpers.getReceiver(tree);
+    if (receiver == null
+        || !(ASTHelpers.stripParentheses(receiver) instanceof MethodInvocationTree previous)
+        || !isAsyncStage(previous, state)
+        || !sameExecutor(executor, executor(previous, state))) {
+      return Description.NO_MATCH;
+    }
+
+    String name = ASTHelpers.getSymbol(tree).getSimpleName().toString();
+    String replacement = name.substring(0, name.length() - "Async".length());
+    List<? extends ExpressionTree> arguments = tree.getArguments();
+    SuggestedFix fix =
+        SuggestedFix.builder()
+            .merge(SuggestedFixes.renameMethodInvocation(tree, replacement, state))
+            .replace(
+                state.getEndPosition(arguments.get(arguments.size() - 2)),
+                state.getEndPosition(executor),
+                "")
+            .build();
+    return buildDescription(tree)
+        .setMessage(
+            String.format(
+                "Do not hop to the same executor for a trivial stage. %s adds a task handoff and queueing latency. Use %s to run the stage on the thread which completes the previous stage.",
+                name, replacement))
+        .addFix(fix)
+        .build();
+  }
+
+  private static boolean isAsyncStage(MethodInvocationTree tree, VisitorState state) {
+    return DoNotDependDefaultExecutor.COMPLETABLE_FUTURE_INSTANCE_METHODS.matches(tree, state)
+        || DoNotDependDefaultExecutor.COMPLETABLE_FUTURE_STATIC_METHODS.matches(tree, state);
+  }
+
+  /** Returns the executor given as the last argument of the Async method, or null. */
+  private static ExpressionTree executor(MethodInvocationTree tree, VisitorState state) {
+    List<? extends ExpressionTree> arguments = tree.getArguments();
+    if (arguments.size() < 2) {
+      return null;
+    }
+    ExpressionTree last = arguments.get(arguments.size() - 1);
+    return DoNotDependDefaultExecutor.IS_EXECUTOR.matches(last, state) ? last : null;
+  }
+
+  private static boolean sameExecutor(ExpressionTree executor, ExpressionTree other) {
+    if (other == null) {
+      return false;
+    }
+    Symbol symbol = ASTHelpers.getSymbol(executor);
+    return symbol instanceof Symbol.VarSymbol && ASTHelpers.sameVariable(executor, other);
+  }
+
+  /**
+   * Returns whether the function is a lambda whose body is empty, or an expression which creates no
+   * object and calls only getters without arguments.
+   */
+  private static boolean isTrivial(ExpressionTree function, VisitorState state) {
+    if (!(ASTHelpers.stripParentheses(function) instanceof LambdaExpressionTree lambda)) {
+      return false;
+    }
+    if (lambda.getBody() instanceof BlockTree block) {
+      return block.getStatements().isEmpty();
+    }
+    return !Boolean.TRUE.equals(
+        new TreeScanner<Boolean, Void>() {
+          @Override
+          public Boolean visitMethodInvocation(MethodInvocationTree tree, Void unused) {
+            if (!tree.getArguments().isEmpty() || !isGetter(ASTHelpers.getSymbol(tree), state)) {
+              return true;
+            }
+            return super.visitMethodInvocation(tree, unused);
+          }
+
+          @Override
+          public Boolean visitNewClass(NewClassTree tree, Void unused) {
+            return true;
+          }
+
+          @Override
+          public Boolean visitLambdaExpression(LambdaExpressionTree tree, Void unused) {
+            return true;
+          }
+
+          @Override
+          public Boolean reduce(Boolean r1, Boolean r2) {
+            return Boolean.TRUE.equals(r1) || Boolean.TRUE.equals(r2);
+          }
+        }.scan(lambda.getBody(), null));
+  }
+
+  /**
+   * Returns whether the method is the accessor generated for the component of a record, or a
+   * method of the compilation unit which only returns a field. The other methods may block or
+   * compute even when they are named like getters, e.g. Thread#join.
+   */
+  private static boolean isGetter(Symbol.MethodSymbol symbol, VisitorState state) {
+    if (symbol.owner instanceof Symbol.ClassSymbol owner
+        && owner.isRecord()
+        && (symbol.flags() & Flags.GENERATED_MEMBER) != 0) {
+      return owner.getRecordComponents().stream()
+          .anyMatch(component -> component.getSimpleName().equals(symbol.getSimpleName()));
+    }
+    MethodTree method = ASTHelpers.findMethod(symbol, state);
+    if (method == null
+        || method.getBody() == null
+        || method.getBody().getStatements().size() != 1
+        || !(method.getBody().getStatements().get(0) instanceof ReturnTree returnTree)
+        || returnTree.getExpression() == null) {
+      return false;
+    }
+    Symbol returned = ASTHelpers.getSymbol(returnTree.getExpression());
+    return returned != null
+        && returned.getKind() == ElementKind.FIELD
+        && returned.owner.equals(symbol.owner);
+  }
+}
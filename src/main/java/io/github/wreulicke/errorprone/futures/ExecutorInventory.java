@@ -0,0 +1,591 @@
+package io.github.wreulicke.errorprone.futures;
+
+import com.google.auto.service.AutoService;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.ErrorProneFlags;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.util.TaskEvent;
+import com.sun.source.util.TaskListener;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.api.BasicJavacTask;
+import com.sun.tools.javac.code.Type;
+import com.sun.tools.javac.util.Context;
+import io.github.wreulicke.errorprone.common.InvocationFilter;
+import io.github.wreulicke.errorprone.common.UnitFilter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.WeakReference;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+
+/**
+ * Writes the inventory of the thread pools created in the compilation, for capacity planning. The
+ * inventory lists where each thread pool is created, its pool size, work queue, thread factory and
+ * rejection policy, and the worst-case total number of threads.
+ *
+ * <p>The inventory is written to {@code executors.json} and {@code executors.csv} in the directory
+ * given by {@code -XepOpt:ExecutorInventory:OutputDirectory}, and nothing is done without it. The
+ * inventory of the previous compilation is loaded from {@code executors.csv} and merged by the
+ * source file, so an incremental compilation only replaces the entries of the recompiled files, and
+ * drops the entries of the deleted files. The files are written once, when the compilation
+ * finishes.
+ */
+@AutoService(BugChecker.class)
+@BugPattern(
+    summary =
+        "Writes the inventory of the thread pools created in the compilation. It reports no findings.",
+    severity = BugPattern.SeverityLevel.SUGGESTION,
+    link = "github.com/wreulicke/errorprone-concurrency",
+    linkType = BugPattern.LinkType.CUSTOM)
+public class ExecutorInventory extends BugChecker implements BugChecker.CompilationUnitTreeMatcher {
+
+  private static final int DEFAULT_ASSUMED_CORES = 8;
+
+  private static final String UNBOUNDED = "unbounded";
+
+  private static final String UNKNOWN = "unknown";
+
+  private static final String JSON_FILE = "executors.json";
+
+  private static final String CSV_FILE = "executors.csv";
+
+  private static final List<String> CSV_HEADER =
+      List.of(
+          "file",
+          "line",
+          "creation",
+          "corePoolSize",
+          "maxPoolSize",
+          "maxThreads",
+          "queue",
+          "queueCapacity",
+          "threadFactory",
+          "rejectionPolicy");
+
+  private static final InvocationFilter METHOD_NAMES =
+      InvocationFilter.of(
+          "newFixedThreadPool",
+          "newCachedThreadPool",
+          "newSingleThreadExecutor",
+          "newScheduledThreadPool",
+          "newSingleThreadScheduledExecutor",
+          "newWorkStealingPool");
+
+  private static final InvocationFilter CLASS_NAMES =
+      InvocationFilter.of("ThreadPoolExecutor", "ScheduledThreadPoolExecutor", "ForkJoinPool");
+
+  private static final Matcher<ExpressionTree> NEW_FORK_JOIN_POOL =
+      Matchers.constructor().forClass("java.util.concurrent.ForkJoinPool");
+
+  private static final Matcher<ExpressionTree> IS_THREAD_FACTORY =
+      Matchers.anyOf(
+          DoNotDependDefaultThreadFactory.IS_THREAD_FACTORY,
+          Matchers.isSubtypeOf("java.util.concurrent.ForkJoinPool.ForkJoinWorkerThreadFactory"));
+
+  /** A thread pool created in the compilation. */
+  record Entry(
+      String file,
+      long line,
+      String creation,
+      String corePoolSize,
+      String maxPoolSize,
+      OptionalLong maxThreads,
+      String queue,
+      String queueCapacity,
+      String threadFactory,
+      String rejectionPolicy) {}
+
+  private final Optional<String> outputDirectory;
+
+  private final int assumedCores;
+
+  /** The entries of the inventory, keyed by the source file. */
+  private final Map<String, List<Entry>> entries = new LinkedHashMap<>();
+
+  /** The compilation whose inventory is written when it finishes. */
+  private WeakReference<Context> compilation = new WeakReference<>(null);
+
+  /** Whether the inventory differs from the files written by the previous compilation. */
+  private boolean changed;
+
+  public ExecutorInventory(ErrorProneFlags flags) {
+    this.outputDirectory = flags.get("ExecutorInventory:OutputDirectory");
+    this.assumedCores =
+        flags.getInteger("ExecutorInventory:AssumedCores").orElse(DEFAULT_ASSUMED_CORES);
+  }
+
+  @Override
+  public Description matchCompilationUnit(CompilationUnitTree tree, VisitorState state) {
+    if (outputDirectory.isEmpty()) {
+      return Description.NO_MATCH;
+    }
+    if (compilation.get() != state.context) {
+      start(Paths.get(outputDirectory.get()), state);
+    }
+    URI uri = tree.getSourceFile().toUri();
+    // the non-hierarchical URIs, e.g. of the sources in memory, have no path
+    String file = uri.getPath() != null ? uri.getPath() : uri.toString();
+    // the files which no longer create thread pools are removed from the inventory
+    List<Entry> found =
+        UnitFilter.CONCURRENCY.mayMatch(state) ? findEntries(tree, file, state) : List.of();
+    List<Entry> previous = found.isEmpty() ? entries.remove(file) : entries.put(file, found);
+    if (!found.equals(previous == null ? List.of() : previous)) {
+      changed = true;
+    }
+    return Description.NO_MATCH;
+  }
+
+  /**
+   * Loads the inventory of the previous compilation, and writes the merged inventory when the
+   * compilation finishes.
+   */
+  private void start(Path directory, VisitorState state) {
+    compilation = new WeakReference<>(state.context);
+    entries.clear();
+    changed = false;
+    load(directory.resolve(CSV_FILE));
+    BasicJavacTask.instance(state.context)
+        .addTaskListener(
+            new TaskListener() {
+              @Override
+              public void finished(TaskEvent event) {
+                if (event.getKind() == TaskEvent.Kind.COMPILATION && changed) {
+                  write(directory);
+                  changed = false;
+                }
+              }
+            });
+  }
+
+  /** Loads the entries written by the previous compilation, except those of deleted files. */
+  private void load(Path csv) {
+    if (!Files.exists(csv)) {
+      return;
+    }
+    List<List<String>> rows;
+    try {
+      rows = parseCsv(Files.readString(csv, StandardCharsets.UTF_8));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to read the executor inventory from " + csv, e);
+    }
+    // the inventory written by another version is replaced
+    if (rows.isEmpty() || !rows.get(0).equals(CSV_HEADER)) {
+      changed = true;
+      return;
+    }
+    for (List<String> row : rows.subList(1, rows.size())) {
+      String file = row.get(0);
+      if (row.size() != CSV_HEADER.size() || !exists(file)) {
+        changed = true;
+        continue;
+      }
+      entries
+          .computeIfAbsent(file, f -> new ArrayList<>())
+          .add(
+              new Entry(
+                  file,
+                  Long.parseLong(row.get(1)),
+                  row.get(2),
+                  row.get(3),
+                  row.get(4),
+                  row.get(5).isEmpty()
+                      ? OptionalLong.empty()
+                      : OptionalLong.of(Long.parseLong(row.get(5))),
+                  row.get(6),
+                  row.get(7),
+                  row.get(8),
+                  row.get(9)));
+    }
+  }
+
+  private static boolean exists(String file) {
+    try {
+      return Files.exists(Paths.get(new URI("file", null, file, null)));
+    } catch (URISyntaxException | IllegalArgumentException e) {
+      // keeps the entries whose file cannot be checked
+      return true;
+    }
+  }
+
+  private List<Entry> findEntries(CompilationUnitTree tree, String file, VisitorState state) {
+    List<Entry> found = new ArrayList<>();
+    new TreeScanner<Void, Void>() {
+      @Override
+      public Void visitMethodInvocation(MethodInvocationTree invocation, Void unused) {
+        if (METHOD_NAMES.mayMatch(invocation, state)
+            && ShouldShutdownExecutor.CREATE_EXECUTOR.matches(invocation, state)) {
+          found.add(executorsEntry(file, invocation, state));
+        }
+        return super.visitMethodInvocation(invocation, unused);
+      }
+
+      @Override
+      public Void visitNewClass(NewClassTree newClass, Void unused) {
+        if (CLASS_NAMES.mayMatch(newClass, state)) {
+          Entry entry = constructorEntry(file, newClass, state);
+          if (entry != null) {
+            found.add(entry);
+          }
+        }
+        return super.visitNewClass(newClass, unused);
+      }
+    }.scan(tree, null);
+    return found;
+  }
+
+  private Entry executorsEntry(String file, MethodInvocationTree tree, VisitorState state) {
+    String name = ASTHelpers.getSymbol(tree).getSimpleName().toString();
+    List<? extends ExpressionTree> arguments = tree.getArguments();
+    String threadFactory = threadFactory(arguments, state);
+    String creation = "Executors." + name;
+    long line = line(tree, state);
+    switch (name) {
+      case "newCachedThreadPool":
+        return new Entry(
+            file,
+            line,
+            creation,
+            "0",
+            UNBOUNDED,
+            OptionalLong.empty(),
+            "SynchronousQueue",
+            "0",
+            threadFactory,
+            "AbortPolicy");
+      case "newSingleThreadExecutor":
+      case "newSingleThreadScheduledExecutor":
+        return new Entry(
+            file,
+            line,
+            creation,
+            "1",
+            "1",
+            OptionalLong.of(1),
+            name.equals("newSingleThreadExecutor") ? "LinkedBlockingQueue" : "DelayedWorkQueue",
+            UNBOUNDED,
+            threadFactory,
+            "AbortPolicy");
+      case "newWorkStealingPool":
+        return forkJoinEntry(file, line, creation, tree, threadFactory, state);
+      default:
+        // newFixedThreadPool and newScheduledThreadPool use the core threads only
+        Optional<PoolSize> size = PoolSize.of(tree, state);
+        return new Entry(
+            file,
+            line,
+            creation,
+            describe(size),
+            describe(size),
+            maxThreads(size),
+            name.equals("newFixedThreadPool") ? "LinkedBlockingQueue" : "DelayedWorkQueue",
+            UNBOUNDED,
+            threadFactory,
+            "AbortPolicy");
+    }
+  }
+
+  private Entry constructorEntry(String file, NewClassTree tree, VisitorState state) {
+    List<? extends ExpressionTree> arguments = tree.getArguments();
+    String threadFactory = threadFactory(arguments, state);
+    String rejectionPolicy =
+        arguments.stream()
+            .filter(
+                a -> ShouldChooseRejectionPolicy.IS_REJECTED_EXECUTION_HANDLER.matches(a, state))
+            .findFirst()
+            .map(a -> source(a, state))
+            .orElse("AbortPolicy");
+    long line = line(tree, state);
+    // IS_THREAD_POOL_EXECUTOR matches ScheduledThreadPoolExecutor as well
+    if (DoNotDependDefaultThreadFactory.NEW_SCHEDULED_THREAD_POOL_EXECUTOR.matches(tree, state)) {
+      Optional<PoolSize> size = PoolSize.of(tree, state);
+      return new Entry(
+          file,
+          line,
+          "ScheduledThreadPoolExecutor",
+          describe(size),
+          describe(size),
+          maxThreads(size),
+          "DelayedWorkQueue",
+          UNBOUNDED,
+          threadFactory,
+          rejectionPolicy);
+    }
+    if (DoNotDependDefaultThreadFactory.IS_THREAD_POOL_EXECUTOR.matches(tree, state)) {
+      Optional<PoolSize> size = PoolSize.of(tree, state);
+      ExpressionTree queue = arguments.get(4);
+      return new Entry(
+          file,
+          line,
+          "ThreadPoolExecutor",
+          describe(PoolSize.evaluate(arguments.get(0), state)),
+          describe(size),
+          maxThreads(size),
+          queueType(queue),
+          queueCapacity(queue, state),
+          threadFactory,
+          rejectionPolicy);
+    }
+    if (NEW_FORK_JOIN_POOL.matches(tree, state)) {
+      return forkJoinEntry(file, line, "ForkJoinPool", tree, threadFactory, state);
+    }
+    return null;
+  }
+
+  private Entry forkJoinEntry(
+      String file,
+      long line,
+      String creation,
+      ExpressionTree tree,
+      String threadFactory,
+      VisitorState state) {
+    Optional<PoolSize> size = PoolSize.of(tree, state);
+    return new Entry(
+        file,
+        line,
+        creation,
+        describe(size),
+        describe(size),
+        maxThreads(size),
+        "work-stealing",
+        UNBOUNDED,
+        threadFactory,
+        "none");
+  }
+
+  private OptionalLong maxThreads(Optional<PoolSize> size) {
+    if (size.isEmpty()) {
+      return OptionalLong.empty();
+    }
+    long threads = size.get().evaluate(assumedCores);
+    // ThreadPoolExecutor with Integer.MAX_VALUE threads is unbounded
+    return threads >= Integer.MAX_VALUE ? OptionalLong.empty() : OptionalLong.of(threads);
+  }
+
+  private static String describe(Optional<PoolSize> size) {
+    if (size.isEmpty()) {
+      return UNKNOWN;
+    }
+    return size.get().perCore() == 0 && size.get().constant() >= Integer.MAX_VALUE
+        ? UNBOUNDED
+        : size.get().toString();
+  }
+
+  private static String threadFactory(
+      List<? extends ExpressionTree> arguments, VisitorState state) {
+    return arguments.stream()
+        .filter(a -> IS_THREAD_FACTORY.matches(a, state))
+        .findFirst()
+        .map(a -> source(a, state))
+        .orElse("default");
+  }
+
+  private static String queueType(ExpressionTree queue) {
+    ExpressionTree expression = ASTHelpers.stripParentheses(queue);
+    Type type =
+        expression instanceof NewClassTree newClass
+            ? ASTHelpers.getType(newClass.getIdentifier())
+            : ASTHelpers.getType(expression);
+    return type == null ? UNKNOWN : type.tsym.getSimpleName().toString();
+  }
+
+  private static String queueCapacity(ExpressionTree queue, VisitorState state) {
+    if (!(ASTHelpers.stripParentheses(queue) instanceof NewClassTree newClass)) {
+      return UNKNOWN;
+    }
+    String type = queueType(newClass);
+    if (type.equals("SynchronousQueue")) {
+      return "0";
+    }
+    List<? extends ExpressionTree> arguments = newClass.getArguments();
+    if (arguments.isEmpty()) {
+      // LinkedBlockingQueue, LinkedBlockingDeque, PriorityBlockingQueue and the like
+      return type.startsWith("ArrayBlocking") ? UNKNOWN : UNBOUNDED;
+    }
+    Integer capacity = ASTHelpers.constValue(arguments.get(0), Integer.class);
+    if (capacity == null || type.startsWith("PriorityBlocking")) {
+      // the capacity of PriorityBlockingQueue is the initial capacity
+      return type.startsWith("PriorityBlocking") ? UNBOUNDED : UNKNOWN;
+    }
+    return capacity.toString();
+  }
+
+  private static String source(ExpressionTree tree, VisitorState state) {
+    String source = state.getSourceForNode(tree);
+    return source == null ? UNKNOWN : source;
+  }
+
+  private static long line(ExpressionTree tree, VisitorState state) {
+    return state
+        .getPath()
+        .getCompilationUnit()
+        .getLineMap()
+        .getLineNumber(ASTHelpers.getStartPosition(tree));
+  }
+
+  private void write(Path directory) {
+    List<Entry> all = entries.values().stream().flatMap(List::stream).toList();
+    try {
+      Files.createDirectories(directory);
+      Files.writeString(directory.resolve(JSON_FILE), toJson(all), StandardCharsets.UTF_8);
+      Files.writeString(directory.resolve(CSV_FILE), toCsv(all), StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to write the executor inventory to " + directory, e);
+    }
+  }
+
+  private String toJson(List<Entry> all) {
+    long total = 0;
+    int unbounded = 0;
+    for (Entry entry : all) {
+      if (entry.maxThreads().isPresent()) {
+        total += entry.maxThreads().getAsLong();
+      } else {
+        unbounded++;
+      }
+    }
+    StringBuilder json = new StringBuilder();
+    json.append("{\n");
+    json.append("  \"assumedCores\": ").append(assumedCores).append(",\n");
+    json.append("  \"totalMaxThreads\": ").append(total).append(",\n");
+    json.append("  \"unboundedOrUnknownPools\": ").append(unbounded).append(",\n");
+    json.append("  \"executors\": [");
+    for (int i = 0; i < all.size(); i++) {
+      Entry entry = all.get(i);
+      json.append(i == 0 ? "\n" : ",\n");
+      json.append("    {");
+      json.append("\"file\": ").append(quote(entry.file())).append(", ");
+      json.append("\"line\": ").append(entry.line()).append(", ");
+      json.append("\"creation\": ").append(quote(entry.creation())).append(", ");
+      json.append("\"corePoolSize\": ").append(quote(entry.corePoolSize())).append(", ");
+      json.append("\"maxPoolSize\": ").append(quote(entry.maxPoolSize())).append(", ");
+      json.append("\"maxThreads\": ")
+          .append(
+              entry.maxThreads().isPresent()
+                  ? Long.toString(entry.maxThreads().getAsLong())
+                  : "null")
+          .append(", ");
+      json.append("\"queue\": ").append(quote(entry.queue())).append(", ");
+      json.append("\"queueCapacity\": ").append(quote(entry.queueCapacity())).append(", ");
+      json.append("\"threadFactory\": ").append(quote(entry.threadFactory())).append(", ");
+      json.append("\"rejectionPolicy\": ").append(quote(entry.rejectionPolicy()));
+      json.append("}");
+    }
+    json.append(all.isEmpty() ? "]\n" : "\n  ]\n");
+    json.append("}\n");
+    return json.toString();
+  }
+
+  private static String toCsv(List<Entry> all) {
+    StringBuilder csv = new StringBuilder();
+    csv.append(String.join(",", CSV_HEADER)).append('\n');
+    for (Entry entry : all) {
+      csv.append(
+          String.join(
+              ",",
+              csvField(entry.file()),
+              Long.toString(entry.line()),
+              csvField(entry.creation()),
+              csvField(entry.corePoolSize()),
+              csvField(entry.maxPoolSize()),
+              entry.maxThreads().isPresent() ? Long.toString(entry.maxThreads().getAsLong()) : "",
+              csvField(entry.queue()),
+              csvField(entry.queueCapacity()),
+              csvField(entry.threadFactory()),
+              csvField(entry.rejectionPolicy())));
+      csv.append('\n');
+    }
+    return csv.toString();
+  }
+
+  private static String quote(String value) {
+    StringBuilder quoted = new StringBuilder("\"");
+    for (char c : value.toCharArray()) {
+      switch (c) {
+        case '"':
+          quoted.append("\\\"");
+          break;
+        case '\\':
+          quoted.append("\\\\");
+          break;
+        case '\n':
+          quoted.append("\\n");
+          break;
+        case '\r':
+          quoted.append("\\r");
+          break;
+        case '\t':
+          quoted.append("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            quoted.append(String.format("\\u%04x", (int) c));
+          } else {
+            quoted.append(c);
+          }
+      }
+    }
+    return quoted.append('"').toString();
+  }
+
+  private static String csvField(String value) {
+    if (value.contains(",")
+        || value.contains("\"")
+        || value.contains("\n")
+        || value.contains("\r")) {
+      return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+    return value;
+  }
+
+  /** Parses the CSV written by {@link #toCsv}, whose quoted fields may contain line breaks. */
+  private static List<List<String>> parseCsv(String content) {
+    List<List<String>> rows = new ArrayList<>();
+    List<String> row = new ArrayList<>();
+    StringBuilder field = new StringBuilder();
+    boolean quoted = false;
+    for (int i = 0; i < content.length(); i++) {
+      char c = content.charAt(i);
+      if (quoted) {
+        if (c != '"') {
+          field.append(c);
+        } else if (i + 1 < content.length() && content.charAt(i + 1) == '"') {
+          field.append('"');
+          i++;
+        } else {
+          quoted = false;
+        }
+      } else if (c == '"') {
+        quoted = true;
+      } else if (c == ',' || c == '\n') {
+        row.add(field.toString());
+        field.setLength(0);
+        if (c == '\n') {
+          rows.add(row);
+          row = new ArrayList<>();
+        }
+      } else {
+        field.append(c);
+      }
+    }
+    return rows;
+  }
+}
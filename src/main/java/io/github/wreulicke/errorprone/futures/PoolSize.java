@@ -0,0 +1,124 @@
+package io.github.wreulicke.errorprone.futures;
+
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.BinaryTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.NewClassTree;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Size of a thread pool, evaluated from the pool size argument as {@code perCore * cores +
+ * constant}. The size can be evaluated when the argument is built from constants and {@code
+ * Runtime.getRuntime().availableProcessors()} with addition, subtraction and multiplication.
+ */
+record PoolSize(long perCore, long constant) {
+
+  private static final Matcher<ExpressionTree> AVAILABLE_PROCESSORS =
+      Matchers.instanceMethod().onExactClass("java.lang.Runtime").named("availableProcessors");
+
+  private static final Matcher<ExpressionTree> NEW_THREAD_POOL_EXECUTOR =
+      Matchers.constructor().forClass("java.util.concurrent.ThreadPoolExecutor");
+
+  private static final Matcher<ExpressionTree> NEW_FIXED_SIZE_POOL =
+      Matchers.anyOf(
+          Matchers.staticMethod()
+              .onClass("java.util.concurrent.Executors")
+              .namedAnyOf("newFixedThreadPool", "newScheduledThreadPool"),
+          Matchers.constructor().forClass("java.util.concurrent.ScheduledThreadPoolExecutor"));
+
+  /** These pools use the number of cores unless the parallelism is given. */
+  private static final Matcher<ExpressionTree> NEW_PARALLEL_POOL =
+      Matchers.anyOf(
+          Matchers.staticMethod()
+              .onClass("java.util.concurrent.Executors")
+              .named("newWorkStealingPool"),
+          Matchers.constructor().forClass("java.util.concurrent.ForkJoinPool"));
+
+  private static final PoolSize CORES = new PoolSize(1, 0);
+
+  /** Returns the number of threads with the given number of cores. */
+  long evaluate(int cores) {
+    return perCore * cores + constant;
+  }
+
+  @Override
+  public String toString() {
+    if (perCore == 0) {
+      return Long.toString(constant);
+    }
+    String cores = perCore == 1 ? "cores" : perCore + " * cores";
+    if (constant == 0) {
+      return cores;
+    }
+    return constant > 0 ? cores + " + " + constant : cores + " - " + -constant;
+  }
+
+  /**
+   * Returns the maximum number of threads of the thread pool created by the expression, or empty
+   * if the expression does not create a thread pool or its size cannot be evaluated.
+   */
+  static Optional<PoolSize> of(ExpressionTree tree, VisitorState state) {
+    List<? extends ExpressionTree> arguments;
+    if (tree instanceof MethodInvocationTree invocation) {
+      arguments = invocation.getArguments();
+    } else if (tree instanceof NewClassTree newClass) {
+      arguments = newClass.getArguments();
+    } else {
+      return Optional.empty();
+    }
+
+    if (NEW_THREAD_POOL_EXECUTOR.matches(tree, state)) {
+      return evaluate(arguments.get(1), state);
+    }
+    if (NEW_FIXED_SIZE_POOL.matches(tree, state)) {
+      return evaluate(arguments.get(0), state);
+    }
+    if (NEW_PARALLEL_POOL.matches(tree, state)) {
+      return arguments.isEmpty() ? Optional.of(CORES) : evaluate(arguments.get(0), state);
+    }
+    return Optional.empty();
+  }
+
+  /** Returns the size given by the expression, or empty if it cannot be evaluated. */
+  static Optional<PoolSize> evaluate(ExpressionTree tree, VisitorState state) {
+    ExpressionTree expression = ASTHelpers.stripParentheses(tree);
+    Integer value = ASTHelpers.constValue(expression, Integer.class);
+    if (value != null) {
+      return Optional.of(new PoolSize(0, value));
+    }
+    if (AVAILABLE_PROCESSORS.matches(expression, state)) {
+      return Optional.of(CORES);
+    }
+    if (!(expression instanceof BinaryTree binary)) {
+      return Optional.empty();
+    }
+    Optional<PoolSize> left = evaluate(binary.getLeftOperand(), state);
+    Optional<PoolSize> right = evaluate(binary.getRightOperand(), state);
+    if (left.isEmpty() || right.isEmpty()) {
+      return Optional.empty();
+    }
+    PoolSize l = left.get();
+    PoolSize r = right.get();
+    switch (binary.getKind()) {
+      case PLUS:
+        return Optional.of(new PoolSize(l.perCore + r.perCore, l.constant + r.constant));
+      case MINUS:
+        return Optional.of(new PoolSize(l.perCore - r.perCore, l.constant - r.constant));
+      case MULTIPLY:
+        if (l.perCore == 0) {
+          return Optional.of(new PoolSize(l.constant * r.perCore, l.constant * r.constant));
+        }
+        if (r.perCore == 0) {
+          return Optional.of(new PoolSize(l.perCore * r.constant, l.constant * r.constant));
+        }
+        return Optional.empty();
+      default:
+        return Optional.empty();
+    }
+  }
+}
@@ -0,0 +1,209 @@
+package io.github.wreulicke.errorprone.futures;
+
+import com.google.auto.service.AutoService;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.ErrorProneFlags;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.fixes.SuggestedFix;
+import com.google.errorprone.fixes.SuggestedFixes;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.tools.javac.code.Symbol;
+import io.github.wreulicke.errorprone.common.InvocationFilter;
+import io.github.wreulicke.errorprone.common.UnitFilter;
+import java.util.List;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+    summary =
+        "Do not use an unbounded work queue for thread pools. Queued tasks can pile up and cause OOM. Use a bounded queue with an explicit RejectedExecutionHandler instead.",
+    severity = BugPattern.SeverityLevel.ERROR,
+    link = "github.com/wreulicke/errorprone-concurrency",
+    linkType = BugPattern.LinkType.CUSTOM)
+public class ShouldBoundWorkQueue extends BugChecker
+    implements BugChecker.MethodInvocationTreeMatcher, BugChecker.NewClassTreeMatcher {
+
+  private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+  private static final InvocationFilter EXECUTORS_METHOD_NAMES =
+      InvocationFilter.of("newFixedThreadPool", "newSingleThreadExecutor");
+
+  private static final InvocationFilter THREAD_POOL_EXECUTOR_NAMES =
+      InvocationFilter.of("ThreadPoolExecutor");
+
+  private static final Matcher<ExpressionTree> IS_EXECUTORS_WITH_UNBOUNDED_QUEUE =
+      Matchers.staticMethod()
+          .onClass("java.util.concurrent.Executors")
+          .namedAnyOf("newFixedThreadPool", "newSingleThreadExecutor");
+
+  private static final Matcher<ExpressionTree> IS_THREAD_POOL_EXECUTOR =
+      Matchers.constructor().forClass("java.util.concurrent.ThreadPoolExecutor");
+
+  private static final Matcher<ExpressionTree> IS_UNBOUNDED_QUEUE =
+      Matchers.anyOf(
+          Matchers.constructor()
+              .forClass("java.util.concurrent.LinkedBlockingQueue")
+              .withParameters(),
+          Matchers.constructor()
+              .forClass("java.util.concurrent.LinkedBlockingQueue")
+              .withParameters("java.util.Collection"),
+          Matchers.constructor()
+              .forClass("java.util.concurrent.LinkedBlockingDeque")
+              .withParameters(),
+          Matchers.constructor()
+              .forClass("java.util.concurrent.LinkedBlockingDeque")
+              .withParameters("java.util.Collection"),
+          Matchers.isSubtypeOf("java.util.concurrent.LinkedTransferQueue"),
+          Matchers.isSubtypeOf("java.util.concurrent.PriorityBlockingQueue"));
+
+  /** ArrayBlockingQueue would run the tasks in FIFO order instead of the priority order. */
+  private static final Matcher<ExpressionTree> IS_PRIORITY_QUEUE =
+      Matchers.isSubtypeOf("java.util.concurrent.PriorityBlockingQueue");
+
+  private static final Matcher<ExpressionTree> IS_CAPACITY_QUEUE =
+      Matchers.anyOf(
+          Matchers.constructor()
+              .forClass("java.util.concurrent.LinkedBlockingQueue")
+              .withParameters("int"),
+          Matchers.constructor()
+              .forClass("java.util.concurrent.LinkedBlockingDeque")
+              .withParameters("int"));
+
+  private static final Matcher<ExpressionTree> IS_REJECTED_EXECUTION_HANDLER =
+      Matchers.isSubtypeOf("java.util.concurrent.RejectedExecutionHandler");
+
+  private final int queueCapacity;
+
+  public ShouldBoundWorkQueue(ErrorProneFlags flags) {
+    this.queueCapacity =
+        flags.getInteger("ShouldBoundWorkQueue:QueueCapacity").orElse(DEFAULT_QUEUE_CAPACITY);
+  }
+
+  @Override
+  public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+    if (!UnitFilter.CONCURRENCY.mayMatch(state)
+        || !EXECUTORS_METHOD_NAMES.mayMatch(tree, state)
+        || !IS_EXECUTORS_WITH_UNBOUNDED_QUEUE.matches(tree, state)) {
+      return Description.NO_MATCH;
+    }
+
+    List<? extends ExpressionTree> arguments = tree.getArguments();
+    String methodName = ASTHelpers.getSymbol(tree).getSimpleName().toString();
+    Description.Builder description =
+        buildDescription(tree)
+            .setMessage(
+                String.format(
+                    "Executors.%s uses an unbounded LinkedBlockingQueue. Queued tasks can pile up and cause OOM. Use ThreadPoolExecutor with a bounded queue and an explicit RejectedExecutionHandler instead.",
+                    methodName));
+    boolean single = methodName.equals("newSingleThreadExecutor");
+    if (!single && !isRepeatable(arguments.get(0))) {
+      // the pool size is given twice, as the core and the maximum pool size
+      return description.build();
+    }
+    String poolSize = single ? "1" : state.getSourceForNode(arguments.get(0));
+    // the last argument is the thread factory when it follows the pool size
+    boolean hasThreadFactory = arguments.size() > (single ? 0 : 1);
+
+    SuggestedFix.Builder fix = SuggestedFix.builder();
+    String threadPoolExecutor =
+        SuggestedFixes.qualifyType(state, fix, "java.util.concurrent.ThreadPoolExecutor");
+    String timeUnit = SuggestedFixes.qualifyType(state, fix, "java.util.concurrent.TimeUnit");
+    StringBuilder replacement =
+        new StringBuilder("new ")
+            .append(threadPoolExecutor)
+            .append("(")
+            .append(poolSize)
+            .append(", ")
+            .append(poolSize)
+            .append(", 0L, ")
+            .append(timeUnit)
+            .append(".MILLISECONDS, ")
+            .append(boundedQueue(state, fix));
+    if (hasThreadFactory) {
+      replacement.append(", ").append(state.getSourceForNode(arguments.get(arguments.size() - 1)));
+    }
+    replacement.append(", ").append(rejectedExecutionHandler(threadPoolExecutor)).append(")");
+    fix.replace(tree, replacement.toString());
+    return description.addFix(fix.build()).build();
+  }
+
+  /** Returns whether the expression can be evaluated twice: a constant or a variable. */
+  private static boolean isRepeatable(ExpressionTree tree) {
+    ExpressionTree expression = ASTHelpers.stripParentheses(tree);
+    return ASTHelpers.constValue(expression) != null
+        || ((expression instanceof IdentifierTree || expression instanceof MemberSelectTree)
+            && ASTHelpers.getSymbol(expression) instanceof Symbol.VarSymbol);
+  }
+
+  @Override
+  public Description matchNewClass(NewClassTree tree, VisitorState state) {
+    if (!UnitFilter.CONCURRENCY.mayMatch(state)
+        || !THREAD_POOL_EXECUTOR_NAMES.mayMatch(tree, state)
+        || !IS_THREAD_POOL_EXECUTOR.matches(tree, state)) {
+      return Description.NO_MATCH;
+    }
+
+    List<? extends ExpressionTree> arguments = tree.getArguments();
+    if (arguments.size() < 5) {
+      return Description.NO_MATCH;
+    }
+    ExpressionTree queue = arguments.get(4);
+    if (!isUnboundedQueue(queue, state)) {
+      return Description.NO_MATCH;
+    }
+    if (!(ASTHelpers.stripParentheses(queue) instanceof NewClassTree)
+        || IS_PRIORITY_QUEUE.matches(queue, state)) {
+      // the caller may still use the queue in the variable, and the priority would be dropped
+      return describeMatch(tree);
+    }
+
+    SuggestedFix.Builder fix = SuggestedFix.builder();
+    String replacement = boundedQueue(state, fix);
+    if (arguments.stream().noneMatch(arg -> IS_REJECTED_EXECUTION_HANDLER.matches(arg, state))) {
+      String handler =
+          rejectedExecutionHandler(
+              SuggestedFixes.qualifyType(state, fix, "java.util.concurrent.ThreadPoolExecutor"));
+      ExpressionTree last = arguments.get(arguments.size() - 1);
+      if (last == queue) {
+        replacement += ", " + handler;
+      } else {
+        fix.postfixWith(last, ", " + handler);
+      }
+    }
+    fix.replace(queue, replacement);
+    return describeMatch(tree, fix.build());
+  }
+
+  private static boolean isUnboundedQueue(ExpressionTree tree, VisitorState state) {
+    if (IS_UNBOUNDED_QUEUE.matches(tree, state)) {
+      return true;
+    }
+    if (IS_CAPACITY_QUEUE.matches(tree, state)) {
+      // new LinkedBlockingQueue<>(Integer.MAX_VALUE) is the same as the default capacity
+      Integer capacity =
+          ASTHelpers.constValue(((NewClassTree) tree).getArguments().get(0), Integer.class);
+      return capacity != null && capacity == Integer.MAX_VALUE;
+    }
+    return false;
+  }
+
+  private String boundedQueue(VisitorState state, SuggestedFix.Builder fix) {
+    return "new "
+        + SuggestedFixes.qualifyType(state, fix, "java.util.concurrent.ArrayBlockingQueue")
+        + "<>("
+        + queueCapacity
+        + ")";
+  }
+
+  private static String rejectedExecutionHandler(String threadPoolExecutor) {
+    return "new " + threadPoolExecutor + ".AbortPolicy()";
+  }
+}
@@ -0,0 +1,232 @@
+package io.github.wreulicke.errorprone.futures;
+
+import com.google.auto.service.AutoService;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.AssignmentTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.code.Symbol;
+import io.github.wreulicke.errorprone.common.UnitFilter;
+import java.util.List;
+import java.util.Objects;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+    summary =
+        "Should choose the rejection policy of ThreadPoolExecutor for the overload. CallerRunsPolicy stalls the request threads, the Discard policies hide the backpressure, and the default AbortPolicy throws.",
+    severity = BugPattern.SeverityLevel.ERROR,
+    link = "github.com/wreulicke/errorprone-concurrency",
+    linkType = BugPattern.LinkType.CUSTOM)
+public class ShouldChooseRejectionPolicy extends BugChecker
+    implements BugChecker.NewClassTreeMatcher {
+
+  static final Matcher<ExpressionTree> IS_REJECTED_EXECUTION_HANDLER =
+      Matchers.isSubtypeOf("java.util.concurrent.RejectedExecutionHandler");
+
+  private static final Matcher<ExpressionTree> CALLER_RUNS_POLICY =
+      Matchers.isSubtypeOf("java.util.concurrent.ThreadPoolExecutor.CallerRunsPolicy");
+
+  /** The subclasses may log or count the discarded tasks. */
+  private static final Matcher<ExpressionTree> DISCARD_POLICY =
+      Matchers.anyOf(
+          Matchers.isSameType("java.util.concurrent.ThreadPoolExecutor.DiscardPolicy"),
+          Matchers.isSameType("java.util.concurrent.ThreadPoolExecutor.DiscardOldestPolicy"));
+
+  /** The queues whose capacity is given, or which hold no task at all. */
+  private static final Matcher<ExpressionTree> NEW_BOUNDED_QUEUE =
+      Matchers.anyOf(
+          Matchers.constructor().forClass("java.util.concurrent.ArrayBlockingQueue"),
+          Matchers.constructor()
+              .forClass("java.util.concurrent.LinkedBlockingQueue")
+              .withParameters("int"),
+          Matchers.constructor()
+              .forClass("java.util.concurrent.LinkedBlockingDeque")
+              .withParameters("int"),
+          Matchers.constructor().forClass("java.util.concurrent.SynchronousQueue"));
+
+  private static final Matcher<ExpressionTree> SUBMIT_TASK =
+      Matchers.anyOf(
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.concurrent.Executor")
+              .named("execute"),
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.concurrent.ExecutorService")
+              .namedAnyOf("submit", "invokeAll", "invokeAny"));
+
+  private static final List<String> REQUEST_HANDLER_ANNOTATIONS =
+      List.of(
+          "org.springframework.web.bind.annotation.RequestMapping",
+          "org.springframework.web.bind.annotation.GetMapping",
+          "org.springframework.web.bind.annotation.PostMapping",
+          "org.springframework.web.bind.annotation.PutMapping",
+          "org.springframework.web.bind.annotation.DeleteMapping",
+          "org.springframework.web.bind.annotation.PatchMapping",
+          "javax.ws.rs.GET",
+          "javax.ws.rs.POST",
+          "javax.ws.rs.PUT",
+          "javax.ws.rs.DELETE",
+          "javax.ws.rs.PATCH",
+          "jakarta.ws.rs.GET",
+          "jakarta.ws.rs.POST",
+          "jakarta.ws.rs.PUT",
+          "jakarta.ws.rs.DELETE",
+          "jakarta.ws.rs.PATCH");
+
+  private static final Matcher<Tree> IS_SERVLET =
+      Matchers.anyOf(
+          Matchers.isSubtypeOf("javax.servlet.http.HttpServlet"),
+          Matchers.isSubtypeOf("jakarta.servlet.http.HttpServlet"));
+
+  private static final List<String> SERVLET_METHODS =
+      List.of("service", "doGet", "doPost", "doPut", "doDelete", "doPatch");
+
+  @Override
+  public Description matchNewClass(NewClassTree tree, VisitorState state) {
+    if (!UnitFilter.CONCURRENCY.mayMatch(state)
+        || !DoNotDependDefaultThreadFactory.THREAD_POOL_EXECUTOR_NAMES.mayMatch(tree, state)
+        || !DoNotDependDefaultThreadFactory.IS_THREAD_POOL_EXECUTOR.matches(tree, state)) {
+      return Description.NO_MATCH;
+    }
+    List<? extends ExpressionTree> arguments = tree.getArguments();
+    ExpressionTree handler =
+        arguments.stream()
+            .filter(a -> IS_REJECTED_EXECUTION_HANDLER.matches(a, state))
+            .findFirst()
+            .orElse(null);
+    if (handler == null) {
+      return matchDefaultPolicy(tree, state);
+    }
+    if (DISCARD_POLICY.matches(handler, state)) {
+      return buildDescription(handler)
+          .setMessage(
+              String.format(
+                  "%s drops the tasks silently, and hides the backpressure. Use AbortPolicy and handle RejectedExecutionException, or a handler which logs and counts the rejected tasks.",
+                  ASTHelpers.getType(handler).tsym.getSimpleName()))
+          .build();
+    }
+    if (CALLER_RUNS_POLICY.matches(handler, state)) {
+      MethodTree requestHandler = findRequestHandlerSubmitting(tree, state);
+      if (requestHandler != null) {
+        return buildDescription(handler)
+            .setMessage(
+                String.format(
+                    "CallerRunsPolicy runs the rejected tasks on the request thread, because the pool is fed from %s. Overload turns into stalled request threads. Use AbortPolicy and reject the request instead.",
+                    requestHandler.getName()))
+            .build();
+      }
+    }
+    return Description.NO_MATCH;
+  }
+
+  /** Reports ThreadPoolExecutor with a bounded queue and the implicit AbortPolicy. */
+  private Description matchDefaultPolicy(NewClassTree tree, VisitorState state) {
+    List<? extends ExpressionTree> arguments = tree.getArguments();
+    // ScheduledThreadPoolExecutor has an unbounded queue
+    if (arguments.size() < 5 || !isBoundedQueue(arguments.get(4), state)) {
+      return Description.NO_MATCH;
+    }
+    // no fix: passing AbortPolicy explicitly changes nothing, the choice is up to the caller
+    return buildDescription(tree)
+        .setMessage(
+            "ThreadPoolExecutor with a bounded queue should be given RejectedExecutionHandler explicitly. The default AbortPolicy throws RejectedExecutionException under load, which CompletableFuture.runAsync and supplyAsync hide in the returned future.")
+        .build();
+  }
+
+  /** Returns whether the queue is created with a capacity, or holds no task at all. */
+  static boolean isBoundedQueue(ExpressionTree queue, VisitorState state) {
+    ExpressionTree expression = ASTHelpers.stripParentheses(queue);
+    if (!NEW_BOUNDED_QUEUE.matches(expression, state)) {
+      return false;
+    }
+    List<? extends ExpressionTree> arguments = ((NewClassTree) expression).getArguments();
+    if (arguments.isEmpty()) {
+      // SynchronousQueue
+      return true;
+    }
+    // new LinkedBlockingQueue<>(Integer.MAX_VALUE) is the same as the default capacity
+    Integer capacity = ASTHelpers.constValue(arguments.get(0), Integer.class);
+    return capacity == null || capacity != Integer.MAX_VALUE;
+  }
+
+  /**
+   * Returns the request handler method which submits tasks to the thread pool, when the pool is
+   * stored in a field of the class.
+   */
+  private static MethodTree findRequestHandlerSubmitting(NewClassTree tree, VisitorState state) {
+    Tree parent = state.getPath().getParentPath().getLeaf();
+    Symbol field = null;
+    if (parent instanceof VariableTree variable) {
+      field = ASTHelpers.getSymbol(variable);
+    } else if (parent instanceof AssignmentTree assignment) {
+      field = ASTHelpers.getSymbol(assignment.getVariable());
+    }
+    ClassTree classTree = state.findEnclosing(ClassTree.class);
+    if (field == null || !field.getKind().isField() || classTree == null) {
+      return null;
+    }
+    boolean isServlet = IS_SERVLET.matches(classTree, state);
+    for (Tree member : classTree.getMembers()) {
+      if (member instanceof MethodTree method
+          && method.getBody() != null
+          && isRequestHandler(method, isServlet, state)
+          && submitsTo(method, field, state)) {
+        return method;
+      }
+    }
+    return null;
+  }
+
+  private static boolean isRequestHandler(
+      MethodTree method, boolean isServlet, VisitorState state) {
+    if (isServlet && SERVLET_METHODS.contains(method.getName().toString())) {
+      return true;
+    }
+    Symbol.MethodSymbol symbol = ASTHelpers.getSymbol(method);
+    return REQUEST_HANDLER_ANNOTATIONS.stream()
+        .anyMatch(a -> ASTHelpers.hasAnnotation(symbol, a, state));
+  }
+
+  /**
+   * Returns whether the method submits tasks to the executor in the field, directly or through the
+   * async methods of CompletableFuture.
+   */
+  private static boolean submitsTo(MethodTree method, Symbol field, VisitorState state) {
+    return Boolean.TRUE.equals(
+        new TreeScanner<Boolean, Void>() {
+          @Override
+          public Boolean visitMethodInvocation(MethodInvocationTree tree, Void unused) {
+            ExpressionTree receiver = ASTHelpers.getReceiver(tree);
+            if (SUBMIT_TASK.matches(tree, state)
+                && receiver != null
+                && Objects.equals(ASTHelpers.getSymbol(receiver), field)) {
+              return true;
+            }
+            if ((DoNotDependDefaultExecutor.COMPLETABLE_FUTURE_STATIC_METHODS.matches(tree, state)
+                    || DoNotDependDefaultExecutor.COMPLETABLE_FUTURE_INSTANCE_METHODS.matches(
+                        tree, state))
+                && tree.getArguments().stream()
+                    .anyMatch(a -> Objects.equals(ASTHelpers.getSymbol(a), field))) {
+              return true;
+            }
+            return super.visitMethodInvocation(tree, unused);
+          }
+
+          @Override
+          public Boolean reduce(Boolean r1, Boolean r2) {
+            return Boolean.TRUE.equals(r1) || Boolean.TRUE.equals(r2);
+          }
+        }.scan(method.getBody(), null));
+  }
+}
@@ -0,0 +1,252 @@
+package io.github.wreulicke.errorprone.futures;
+
+import com.google.auto.service.AutoService;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.ErrorProneFlags;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.AssignmentTree;
+import com.sun.source.tree.BlockTree;
+import com.sun.source.tree.CatchTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.ExpressionStatementTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.MemberReferenceTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.StatementTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.TryTree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.code.Symbol;
+import io.github.wreulicke.errorprone.common.InvocationFilter;
+import io.github.wreulicke.errorprone.common.UnitFilter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+    summary =
+        "Should isolate periodic tasks. Tasks sharing a single-threaded scheduler delay each other, and an exception thrown from a task cancels its schedule silently.",
+    severity = BugPattern.SeverityLevel.ERROR,
+    link = "github.com/wreulicke/errorprone-concurrency",
+    linkType = BugPattern.LinkType.CUSTOM)
+public class ShouldIsolatePeriodicTasks extends BugChecker
+    implements BugChecker.ClassTreeMatcher, BugChecker.MethodInvocationTreeMatcher {
+
+  private static final int DEFAULT_MAX_PERIODIC_TASKS = 1;
+
+  private static final InvocationFilter METHOD_NAMES =
+      InvocationFilter.of("scheduleAtFixedRate", "scheduleWithFixedDelay");
+
+  private static final Matcher<ExpressionTree> SCHEDULE_PERIODIC =
+      Matchers.instanceMethod()
+          .onDescendantOf("java.util.concurrent.ScheduledExecutorService")
+          .namedAnyOf("scheduleAtFixedRate", "scheduleWithFixedDelay");
+
+  private static final Matcher<ExpressionTree> NEW_SINGLE_THREAD_SCHEDULER =
+      Matchers.staticMethod()
+          .onClass("java.util.concurrent.Executors")
+          .named("newSingleThreadScheduledExecutor");
+
+  private static final Matcher<ExpressionTree> NEW_SCHEDULER =
+      Matchers.anyOf(
+          Matchers.staticMethod()
+              .onClass("java.util.concurrent.Executors")
+              .named("newScheduledThreadPool"),
+          Matchers.constructor().forClass("java.util.concurrent.ScheduledThreadPoolExecutor"));
+
+  private static final Matcher<Tree> IS_THROWABLE = Matchers.isSameType("java.lang.Throwable");
+
+  private final int maxPeriodicTasks;
+
+  public ShouldIsolatePeriodicTasks(ErrorProneFlags flags) {
+    this.maxPeriodicTasks =
+        flags
+            .getInteger("ShouldIsolatePeriodicTasks:MaxPeriodicTasks")
+            .orElse(DEFAULT_MAX_PERIODIC_TASKS);
+  }
+
+  @Override
+  public Description matchClass(ClassTree tree, VisitorState state) {
+    if (!UnitFilter.CONCURRENCY.mayMatch(state)) {
+      return Description.NO_MATCH;
+    }
+    Map<Symbol, Tree> schedulers = new HashMap<>();
+    for (Tree member : tree.getMembers()) {
+      if (member instanceof VariableTree field
+          && field.getInitializer() != null
+          && isSingleThreadScheduler(field.getInitializer(), state)) {
+        schedulers.put(ASTHelpers.getSymbol(field), field);
+      }
+    }
+    new TreeScanner<Void, Void>() {
+      @Override
+      public Void visitAssignment(AssignmentTree assignment, Void unused) {
+        Symbol symbol = ASTHelpers.getSymbol(assignment.getVariable());
+        if (symbol != null
+            && Objects.equals(symbol.owner, ASTHelpers.getSymbol(tree))
+            && isSingleThreadScheduler(assignment.getExpression(), state)) {
+          schedulers.putIfAbsent(symbol, assignment);
+        }
+        return super.visitAssignment(assignment, unused);
+      }
+    }.scan(tree, null);
+    if (schedulers.isEmpty()) {
+      return Description.NO_MATCH;
+    }
+
+    Map<Symbol, Integer> registrations = new HashMap<>();
+    new TreeScanner<Void, Void>() {
+      @Override
+      public Void visitMethodInvocation(MethodInvocationTree invocation, Void unused) {
+        ExpressionTree receiver = ASTHelpers.getReceiver(invocation);
+        if (receiver != null && SCHEDULE_PERIODIC.matches(invocation, state)) {
+          Symbol scheduler = ASTHelpers.getSymbol(receiver);
+          if (schedulers.containsKey(scheduler)) {
+            registrations.merge(scheduler, 1, Integer::sum);
+          }
+        }
+        return super.visitMethodInvocation(invocation, unused);
+      }
+    }.scan(tree, null);
+
+    registrations.forEach(
+        (scheduler, count) -> {
+          if (count > maxPeriodicTasks) {
+            state.reportMatch(
+                buildDescription(schedulers.get(scheduler))
+                    .setMessage(
+                        String.format(
+                            "Scheduler %s runs %d periodic tasks on one thread. One slow task delays all the others. Use a scheduler per task or increase the core pool size.",
+                            scheduler.getSimpleName(), count))
+                    .build());
+          }
+        });
+    return Description.NO_MATCH;
+  }
+
+  private static boolean isSingleThreadScheduler(ExpressionTree tree, VisitorState state) {
+    ExpressionTree expression = ASTHelpers.stripParentheses(tree);
+    if (NEW_SINGLE_THREAD_SCHEDULER.matches(expression, state)) {
+      return true;
+    }
+    if (!NEW_SCHEDULER.matches(expression, state)) {
+      return false;
+    }
+    List<? extends ExpressionTree> arguments =
+        expression instanceof MethodInvocationTree invocation
+            ? invocation.getArguments()
+            : ((NewClassTree) expression).getArguments();
+    return !arguments.isEmpty()
+        && Objects.equals(ASTHelpers.constValue(arguments.get(0), Integer.class), 1);
+  }
+
+  @Override
+  public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+    if (!UnitFilter.CONCURRENCY.mayMatch(state)
+        || !METHOD_NAMES.mayMatch(tree, state)
+        || !SCHEDULE_PERIODIC.matches(tree, state)) {
+      return Description.NO_MATCH;
+    }
+    ExpressionTree task = tree.getArguments().get(0);
+    BlockTree body = findTaskBody(task, state);
+    if (body == null || catchesThrowable(body, state)) {
+      return Description.NO_MATCH;
+    }
+    return buildDescription(task)
+        .setMessage(
+            "Periodic task should catch Throwable at the top level. An exception thrown from the task cancels its schedule silently.")
+        .build();
+  }
+
+  /**
+   * Returns the body of the periodic task, when it is written in the compilation unit: a lambda, an
+   * anonymous Runnable, or a method of the class called by a lambda or a method reference. Returns
+   * null otherwise.
+   */
+  private static BlockTree findTaskBody(ExpressionTree task, VisitorState state) {
+    ExpressionTree expression = ASTHelpers.stripParentheses(task);
+    if (expression instanceof LambdaExpressionTree lambda) {
+      Tree body = lambda.getBody();
+      if (body instanceof BlockTree block) {
+        List<? extends StatementTree> statements = block.getStatements();
+        if (statements.size() == 1
+            && statements.get(0) instanceof ExpressionStatementTree statement
+            && statement.getExpression() instanceof MethodInvocationTree invocation) {
+          // delegates to a method, e.g. () -> { poll(); }
+          return findMethodBody(ASTHelpers.getSymbol(invocation), state);
+        }
+        return block;
+      }
+      if (body instanceof MethodInvocationTree invocation) {
+        return findMethodBody(ASTHelpers.getSymbol(invocation), state);
+      }
+      return null;
+    }
+    if (expression instanceof MemberReferenceTree reference) {
+      return findMethodBody(ASTHelpers.getSymbol(reference), state);
+    }
+    if (expression instanceof NewClassTree newClass && newClass.getClassBody() != null) {
+      for (Tree member : newClass.getClassBody().getMembers()) {
+        if (member instanceof MethodTree method
+            && method.getName().contentEquals("run")
+            && method.getParameters().isEmpty()) {
+          return method.getBody();
+        }
+      }
+    }
+    return null;
+  }
+
+  private static BlockTree findMethodBody(Symbol symbol, VisitorState state) {
+    if (symbol == null) {
+      return null;
+    }
+    MethodTree method =
+        new TreeScanner<MethodTree, Void>() {
+          @Override
+          public MethodTree visitMethod(MethodTree tree, Void unused) {
+            if (symbol.equals(ASTHelpers.getSymbol(tree))) {
+              return tree;
+            }
+            return super.visitMethod(tree, unused);
+          }
+
+          @Override
+          public MethodTree reduce(MethodTree r1, MethodTree r2) {
+            return r1 != null ? r1 : r2;
+          }
+        }.scan(state.getPath().getCompilationUnit(), null);
+    return method == null ? null : method.getBody();
+  }
+
+  /** Returns whether all statements of the body are in try blocks which catch Throwable. */
+  private static boolean catchesThrowable(BlockTree body, VisitorState state) {
+    if (body.getStatements().isEmpty()) {
+      return true;
+    }
+    for (StatementTree statement : body.getStatements()) {
+      if (!(statement instanceof TryTree tryTree)) {
+        return false;
+      }
+      boolean caught = false;
+      for (CatchTree catchTree : tryTree.getCatches()) {
+        caught |= IS_THROWABLE.matches(catchTree.getParameter().getType(), state);
+      }
+      if (!caught) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
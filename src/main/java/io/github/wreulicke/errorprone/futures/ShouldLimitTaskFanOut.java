@@ -0,0 +1,333 @@
+package io.github.wreulicke.errorprone.futures;
+
+import com.google.auto.service.AutoService;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.BinaryTree;
+import com.sun.source.tree.BlockTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.DoWhileLoopTree;
+import com.sun.source.tree.EnhancedForLoopTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.ForLoopTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.NewArrayTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.StatementTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.WhileLoopTree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.code.Symbol;
+import io.github.wreulicke.errorprone.common.InvocationFilter;
+import io.github.wreulicke.errorprone.common.UnitFilter;
+import io.github.wreulicke.errorprone.common.VariableInitializers;
+import java.util.List;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+    summary =
+        "Should limit the tasks submitted in a loop over a source of unknown size. Every pending task and future is kept in the heap until it runs.",
+    severity = BugPattern.SeverityLevel.ERROR,
+    link = "github.com/wreulicke/errorprone-concurrency",
+    linkType = BugPattern.LinkType.CUSTOM)
+public class ShouldLimitTaskFanOut extends BugChecker
+    implements BugChecker.MethodInvocationTreeMatcher {
+
+  private static final InvocationFilter METHOD_NAMES =
+      InvocationFilter.of("runAsync", "supplyAsync", "submit", "execute");
+
+  private static final Matcher<ExpressionTree> SUBMIT_TASK =
+      Matchers.anyOf(
+          DoNotDependDefaultExecutor.COMPLETABLE_FUTURE_STATIC_METHODS,
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.concurrent.Executor")
+              .named("execute"),
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.concurrent.ExecutorService")
+              .named("submit"),
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.concurrent.CompletionService")
+              .named("submit"));
+
+  /** The methods which call the lambda for each element, as a loop does. */
+  private static final Matcher<ExpressionTree> FOR_EACH =
+      Matchers.anyOf(
+          Matchers.instanceMethod().onDescendantOf("java.lang.Iterable").named("forEach"),
+          Matchers.instanceMethod().onDescendantOf("java.util.Map").named("forEach"),
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.Iterator")
+              .named("forEachRemaining"),
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.stream.Stream")
+              .namedAnyOf("forEach", "forEachOrdered", "map"),
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.stream.IntStream")
+              .namedAnyOf("forEach", "forEachOrdered", "mapToObj"));
+
+  /** The sources whose size is written in the code. */
+  private static final Matcher<ExpressionTree> CONSTANT_SIZE_SOURCE =
+      Matchers.anyOf(
+          Matchers.staticMethod().onClass("java.util.List").named("of"),
+          Matchers.staticMethod().onClass("java.util.Set").named("of"),
+          Matchers.staticMethod().onClass("java.util.Map").named("of"),
+          Matchers.staticMethod().onClass("java.util.Arrays").named("asList"),
+          Matchers.staticMethod().onClass("java.util.stream.Stream").named("of"),
+          Matchers.staticMethod().onClass("java.util.EnumSet").namedAnyOf("allOf", "of", "range"));
+
+  private static final Matcher<ExpressionTree> INT_RANGE =
+      Matchers.staticMethod()
+          .onClass("java.util.stream.IntStream")
+          .namedAnyOf("range", "rangeClosed");
+
+  /** The calls in the loop which wait for the tasks, or for a permit to submit one. */
+  private static final Matcher<ExpressionTree> BACKPRESSURE =
+      Matchers.anyOf(
+          Matchers.instanceMethod().onDescendantOf("java.util.concurrent.Future").named("get"),
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.concurrent.CompletableFuture")
+              .named("join"),
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.concurrent.ExecutorService")
+              .namedAnyOf("invokeAll", "invokeAny"),
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.concurrent.CompletionService")
+              .namedAnyOf("take", "poll"),
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.concurrent.Semaphore")
+              .namedAnyOf("acquire", "acquireUninterruptibly", "tryAcquire"),
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.concurrent.BlockingQueue")
+              .named("put"),
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.concurrent.CountDownLatch")
+              .named("await"),
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.concurrent.Phaser")
+              .namedAnyOf("arriveAndAwaitAdvance", "awaitAdvance"));
+
+  /** Holds the initializers of the variables in the current compilation unit. */
+  private final VariableInitializers initializers = new VariableInitializers();
+
+  @Override
+  public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+    if (!UnitFilter.CONCURRENCY.mayMatch(state)
+        || !METHOD_NAMES.mayMatch(tree, state)
+        || !SUBMIT_TASK.matches(tree, state)) {
+      return Description.NO_MATCH;
+    }
+    Loop loop = findLoop(state.getPath(), state);
+    if (loop == null
+        || (loop.source() != null && hasConstantSize(loop.source(), state))
+        || hasBackpressure(loop.body(), state)
+        || waitsAfterLoop(loop, state)
+        || submitsToBoundedPool(tree, state)) {
+      return Description.NO_MATCH;
+    }
+    return buildDescription(tree)
+        .setMessage(
+            "The task is submitted for each element of a source of unknown size, and nothing waits for the submitted tasks in the loop. Every pending task and future is kept in the heap at once. Submit the tasks in chunks and wait for each chunk, e.g. with CompletableFuture.allOf(chunk).join(), or limit the tasks in flight with a Semaphore.")
+        .build();
+  }
+
+  /**
+   * The loop around the submission. The source is the iterated expression, or null when the size is
+   * not given by an expression, e.g. in a while loop. The path is the path of the loop, or of the
+   * forEach call.
+   */
+  private record Loop(Tree body, ExpressionTree source, TreePath path) {}
+
+  /** Returns the innermost loop around the node at the path in the same method, or null. */
+  private static Loop findLoop(TreePath start, VisitorState state) {
+    Tree child = start.getLeaf();
+    for (TreePath path = start.getParentPath();
+        path != null;
+        child = path.getLeaf(), path = path.getParentPath()) {
+      Tree leaf = path.getLeaf();
+      if (leaf instanceof EnhancedForLoopTree loop && loop.getStatement() == child) {
+        return new Loop(loop.getStatement(), loop.getExpression(), path);
+      }
+      if (leaf instanceof ForLoopTree loop && loop.getStatement() == child) {
+        return new Loop(loop.getStatement(), constantBound(loop), path);
+      }
+      if (leaf instanceof WhileLoopTree loop && loop.getStatement() == child) {
+        return new Loop(loop.getStatement(), null, path);
+      }
+      if (leaf instanceof DoWhileLoopTree loop && loop.getStatement() == child) {
+        return new Loop(loop.getStatement(), null, path);
+      }
+      if (leaf instanceof LambdaExpressionTree lambda) {
+        TreePath parent = path.getParentPath();
+        if (parent.getLeaf() instanceof MethodInvocationTree forEach
+            && forEach.getArguments().contains(lambda)
+            && FOR_EACH.matches(forEach, state)) {
+          return new Loop(lambda.getBody(), ASTHelpers.getReceiver(forEach), parent);
+        }
+        // the task of another submission, or a callback
+        return null;
+      }
+      if (leaf instanceof MethodTree || leaf instanceof ClassTree) {
+        return null;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns whether an enclosing loop waits after the loop, e.g. the inner loop submits a chunk and
+   * the outer loop waits for it before the next chunk.
+   */
+  private static boolean waitsAfterLoop(Loop loop, VisitorState state) {
+    TreePath inner = loop.path();
+    for (Loop outer = findLoop(inner, state);
+        outer != null;
+        inner = outer.path(), outer = findLoop(inner, state)) {
+      if (!(outer.body() instanceof BlockTree block)) {
+        continue;
+      }
+      List<? extends StatementTree> statements = block.getStatements();
+      int index = statements.indexOf(statementIn(block, inner));
+      if (index >= 0
+          && statements.subList(index + 1, statements.size()).stream()
+              .anyMatch(statement -> hasBackpressure(statement, state))) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /** Returns the statement of the block which contains the node at the path, or null. */
+  private static Tree statementIn(BlockTree block, TreePath path) {
+    for (TreePath p = path; p.getParentPath() != null; p = p.getParentPath()) {
+      if (p.getParentPath().getLeaf() == block) {
+        return p.getLeaf();
+      }
+    }
+    return null;
+  }
+
+  /** Returns the bound of {@code for (int i = 0; i < N; i++)}, or null. */
+  private static ExpressionTree constantBound(ForLoopTree loop) {
+    if (loop.getCondition() instanceof BinaryTree condition
+        && (condition.getKind() == Tree.Kind.LESS_THAN
+            || condition.getKind() == Tree.Kind.LESS_THAN_EQUAL)
+        && ASTHelpers.constValue(condition.getRightOperand()) != null) {
+      return condition.getRightOperand();
+    }
+    return null;
+  }
+
+  /**
+   * Returns whether the size of the source is written in the code: a constant, an array or a
+   * collection created from the listed elements, the constants of an enum, a stream of them, or a
+   * variable initialized with one of them.
+   */
+  private boolean hasConstantSize(ExpressionTree source, VisitorState state) {
+    ExpressionTree expression = ASTHelpers.stripParentheses(source);
+    if (ASTHelpers.constValue(expression) != null) {
+      return true;
+    }
+    if (expression instanceof NewArrayTree array) {
+      return array.getInitializers() != null;
+    }
+    if (expression instanceof MethodInvocationTree invocation) {
+      if (CONSTANT_SIZE_SOURCE.matches(invocation, state) || isEnumValues(invocation)) {
+        return true;
+      }
+      if (INT_RANGE.matches(invocation, state)) {
+        return invocation.getArguments().stream()
+            .allMatch(a -> ASTHelpers.constValue(a) != null);
+      }
+      // list.stream().map(...) has the size of list
+      ExpressionTree receiver = ASTHelpers.getReceiver(invocation);
+      return receiver != null && hasConstantSize(receiver, state);
+    }
+    Symbol symbol = ASTHelpers.getSymbol(expression);
+    if (symbol instanceof Symbol.VarSymbol) {
+      ExpressionTree initializer = findInitializer(symbol, state);
+      return initializer != null && hasConstantSize(initializer, state);
+    }
+    return false;
+  }
+
+  private static boolean isEnumValues(MethodInvocationTree invocation) {
+    Symbol.MethodSymbol symbol = ASTHelpers.getSymbol(invocation);
+    return symbol.isStatic()
+        && symbol.getSimpleName().contentEquals("values")
+        && symbol.getParameters().isEmpty()
+        && symbol.owner.isEnum();
+  }
+
+  /** Returns the initializer of the final variable declared in the compilation unit, or null. */
+  private ExpressionTree findInitializer(Symbol symbol, VisitorState state) {
+    return ASTHelpers.isConsideredFinal(symbol) ? initializers.find(symbol, state) : null;
+  }
+
+  /** Returns whether the loop body waits for the tasks, or for a permit, outside the tasks. */
+  private static boolean hasBackpressure(Tree body, VisitorState state) {
+    return Boolean.TRUE.equals(
+        new TreeScanner<Boolean, Void>() {
+          @Override
+          public Boolean visitMethodInvocation(MethodInvocationTree tree, Void unused) {
+            if (BACKPRESSURE.matches(tree, state)) {
+              return true;
+            }
+            return super.visitMethodInvocation(tree, unused);
+          }
+
+          @Override
+          public Boolean visitLambdaExpression(LambdaExpressionTree tree, Void unused) {
+            // the body of the lambda runs in the task
+            return false;
+          }
+
+          @Override
+          public Boolean visitClass(ClassTree tree, Void unused) {
+            return false;
+          }
+
+          @Override
+          public Boolean reduce(Boolean r1, Boolean r2) {
+            return Boolean.TRUE.equals(r1) || Boolean.TRUE.equals(r2);
+          }
+        }.scan(body, null));
+  }
+
+  /**
+   * Returns whether the executor is a ThreadPoolExecutor with a bounded queue, which rejects or
+   * runs the tasks in the caller once the queue is full.
+   */
+  private boolean submitsToBoundedPool(MethodInvocationTree tree, VisitorState state) {
+    ExpressionTree executor = ASTHelpers.getReceiver(tree);
+    if (DoNotDependDefaultExecutor.COMPLETABLE_FUTURE_STATIC_METHODS.matches(tree, state)) {
+      List<? extends ExpressionTree> arguments = tree.getArguments();
+      executor =
+          arguments.stream()
+              .filter(a -> DoNotDependDefaultExecutor.IS_EXECUTOR.matches(a, state))
+              .findFirst()
+              .orElse(null);
+    }
+    if (executor == null) {
+      return false;
+    }
+    Symbol symbol = ASTHelpers.getSymbol(ASTHelpers.stripParentheses(executor));
+    if (!(symbol instanceof Symbol.VarSymbol)) {
+      return false;
+    }
+    ExpressionTree initializer = findInitializer(symbol, state);
+    if (!(initializer instanceof NewClassTree newClass)
+        || !DoNotDependDefaultThreadFactory.IS_THREAD_POOL_EXECUTOR.matches(newClass, state)) {
+      return false;
+    }
+    List<? extends ExpressionTree> arguments = newClass.getArguments();
+    return arguments.size() >= 5
+        && ShouldChooseRejectionPolicy.isBoundedQueue(arguments.get(4), state);
+  }
+}
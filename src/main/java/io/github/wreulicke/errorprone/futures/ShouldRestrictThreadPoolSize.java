@@ -2,6 +2,7 @@ package io.github.wreulicke.errorprone.futures;
 
 import com.google.auto.service.AutoService;
 import com.google.errorprone.BugPattern;
+import com.google.errorprone.ErrorProneFlags;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.bugpatterns.BugChecker;
 import com.google.errorprone.matchers.Description;
@@ -9,6 +10,10 @@ import com.google.errorprone.matchers.Matcher;
 import com.google.errorprone.matchers.Matchers;
 import com.sun.source.tree.ExpressionTree;
 import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.NewClassTree;
+import io.github.wreulicke.errorprone.common.InvocationFilter;
+import io.github.wreulicke.errorprone.common.UnitFilter;
+import java.util.Optional;
 
 @AutoService(BugChecker.class)
 @BugPattern(
@@ -18,7 +23,20 @@ import com.sun.source.tree.MethodInvocationTree;
     link = "github.com/wreulicke/errorprone-concurrency",
     linkType = BugPattern.LinkType.CUSTOM)
 public class ShouldRestrictThreadPoolSize extends BugChecker
-    implements BugChecker.MethodInvocationTreeMatcher {
+    implements BugChecker.MethodInvocationTreeMatcher, BugChecker.NewClassTreeMatcher {
+
+  /** The number of cores assumed when the pool size depends on availableProcessors(). */
+  private static final int DEFAULT_ASSUMED_CORES = 8;
+
+  private static final InvocationFilter METHOD_NAMES =
+      InvocationFilter.of(
+          "newCachedThreadPool",
+          "newFixedThreadPool",
+          "newScheduledThreadPool",
+          "newWorkStealingPool");
+
+  private static final InvocationFilter CLASS_NAMES =
+      InvocationFilter.of("ThreadPoolExecutor", "ScheduledThreadPoolExecutor", "ForkJoinPool");
 
   private static final Matcher<ExpressionTree> MATCHER =
       Matchers.anyOf(
@@ -26,11 +44,65 @@ public class ShouldRestrictThreadPoolSize extends BugChecker
               .onClass("java.util.concurrent.Executors")
               .named("newCachedThreadPool"));
 
+  private final boolean allowCachedThreadPool;
+
+  private final Optional<Integer> maxPoolSize;
+
+  private final Optional<Integer> maxPoolSizePerCore;
+
+  private final int assumedCores;
+
+  public ShouldRestrictThreadPoolSize(ErrorProneFlags flags) {
+    this.allowCachedThreadPool =
+        flags.getBoolean("ShouldRestrictThreadPoolSize:AllowCachedThreadPool").orElse(false);
+    this.maxPoolSize = flags.getInteger("ShouldRestrictThreadPoolSize:MaxPoolSize");
+    this.maxPoolSizePerCore = flags.getInteger("ShouldRestrictThreadPoolSize:MaxPoolSizePerCore");
+    this.assumedCores =
+        flags.getInteger("ShouldRestrictThreadPoolSize:AssumedCores").orElse(DEFAULT_ASSUMED_CORES);
+  }
+
   @Override
   public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+    if (!UnitFilter.CONCURRENCY.mayMatch(state) || !METHOD_NAMES.mayMatch(tree, state)) {
+      return Description.NO_MATCH;
+    }
     if (MATCHER.matches(tree, state)) {
-      return describeMatch(tree);
+      return allowCachedThreadPool ? Description.NO_MATCH : describeMatch(tree);
+    }
+    return checkPoolSize(tree, state);
+  }
+
+  @Override
+  public Description matchNewClass(NewClassTree tree, VisitorState state) {
+    if (!UnitFilter.CONCURRENCY.mayMatch(state) || !CLASS_NAMES.mayMatch(tree, state)) {
+      return Description.NO_MATCH;
+    }
+    return checkPoolSize(tree, state);
+  }
+
+  /**
+   * Reports the thread pool whose size exceeds the ceiling with the assumed number of cores. The
+   * ceiling is the larger one of MaxPoolSize and MaxPoolSizePerCore times the cores, and the pool
+   * size is not checked when neither is configured.
+   */
+  private Description checkPoolSize(ExpressionTree tree, VisitorState state) {
+    if (maxPoolSize.isEmpty() && maxPoolSizePerCore.isEmpty()) {
+      return Description.NO_MATCH;
+    }
+    Optional<PoolSize> size = PoolSize.of(tree, state);
+    if (size.isEmpty()) {
+      return Description.NO_MATCH;
+    }
+    long ceiling =
+        Math.max(maxPoolSize.orElse(0), (long) maxPoolSizePerCore.orElse(0) * assumedCores);
+    if (size.get().evaluate(assumedCores) <= ceiling) {
+      return Description.NO_MATCH;
     }
-    return Description.NO_MATCH;
+    return buildDescription(tree)
+        .setMessage(
+            String.format(
+                "Thread pool size %s exceeds the ceiling %d with %d cores. Restrict the thread pool size.",
+                size.get(), ceiling, assumedCores))
+        .build();
   }
 }
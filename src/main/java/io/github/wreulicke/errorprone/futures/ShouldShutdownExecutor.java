@@ -0,0 +1,277 @@
+package io.github.wreulicke.errorprone.futures;
+
+import com.google.auto.service.AutoService;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.AssignmentTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.ParenthesizedTree;
+import com.sun.source.tree.ReturnTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.TryTree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.code.Symbol;
+import io.github.wreulicke.errorprone.common.InvocationFilter;
+import io.github.wreulicke.errorprone.common.UnitFilter;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+    summary =
+        "Should shut down ExecutorService. Leaked thread pools keep their threads and class loaders alive. Call shutdown() or close(), or use try-with-resources.",
+    severity = BugPattern.SeverityLevel.ERROR,
+    link = "github.com/wreulicke/errorprone-concurrency",
+    linkType = BugPattern.LinkType.CUSTOM)
+public class ShouldShutdownExecutor extends BugChecker
+    implements BugChecker.MethodInvocationTreeMatcher, BugChecker.NewClassTreeMatcher {
+
+  private static final InvocationFilter METHOD_NAMES =
+      InvocationFilter.of(
+          "newFixedThreadPool",
+          "newCachedThreadPool",
+          "newSingleThreadExecutor",
+          "newScheduledThreadPool",
+          "newSingleThreadScheduledExecutor",
+          "newWorkStealingPool",
+          "newThreadPerTaskExecutor",
+          "newVirtualThreadPerTaskExecutor");
+
+  private static final InvocationFilter CLASS_NAMES =
+      InvocationFilter.of("ThreadPoolExecutor", "ScheduledThreadPoolExecutor", "ForkJoinPool");
+
+  static final Matcher<ExpressionTree> CREATE_EXECUTOR =
+      Matchers.anyOf(
+          Matchers.staticMethod()
+              .onClass("java.util.concurrent.Executors")
+              .withNameMatching(Pattern.compile("new.*(Pool|Executor)")),
+          Matchers.constructor().forClass("java.util.concurrent.ThreadPoolExecutor"),
+          Matchers.constructor().forClass("java.util.concurrent.ScheduledThreadPoolExecutor"),
+          Matchers.constructor().forClass("java.util.concurrent.ForkJoinPool"));
+
+  private static final Matcher<ExpressionTree> SHUTDOWN =
+      Matchers.instanceMethod()
+          .onDescendantOf("java.util.concurrent.ExecutorService")
+          .namedAnyOf("shutdown", "shutdownNow", "close");
+
+  @Override
+  public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+    if (!UnitFilter.CONCURRENCY.mayMatch(state)
+        || !METHOD_NAMES.mayMatch(tree, state)
+        || !CREATE_EXECUTOR.matches(tree, state)) {
+      return Description.NO_MATCH;
+    }
+    return check(tree, state);
+  }
+
+  @Override
+  public Description matchNewClass(NewClassTree tree, VisitorState state) {
+    if (!UnitFilter.CONCURRENCY.mayMatch(state)
+        || !CLASS_NAMES.mayMatch(tree, state)
+        || !CREATE_EXECUTOR.matches(tree, state)) {
+      return Description.NO_MATCH;
+    }
+    return check(tree, state);
+  }
+
+  private Description check(ExpressionTree tree, VisitorState state) {
+    TreePath parent = state.getPath().getParentPath();
+    while (parent.getLeaf() instanceof ParenthesizedTree) {
+      parent = parent.getParentPath();
+    }
+
+    Symbol owner;
+    if (parent.getLeaf() instanceof VariableTree variable) {
+      if (parent.getParentPath().getLeaf() instanceof TryTree) {
+        return Description.NO_MATCH;
+      }
+      owner = ASTHelpers.getSymbol(variable);
+    } else if (parent.getLeaf() instanceof AssignmentTree assignment) {
+      owner = ASTHelpers.getSymbol(assignment.getVariable());
+    } else {
+      // the executor is returned or passed to somewhere else
+      return Description.NO_MATCH;
+    }
+
+    Tree scope = findScope(owner, parent);
+    if (scope == null || isReleased(scope, owner, state)) {
+      return Description.NO_MATCH;
+    }
+    return buildDescription(tree)
+        .setMessage(
+            String.format(
+                "Should shut down ExecutorService assigned to %s. Leaked thread pools keep their threads and class loaders alive. Call shutdown() or close(), or use try-with-resources.",
+                owner.getSimpleName()))
+        .build();
+  }
+
+  /**
+   * Returns the tree which can shut down the executor: the method declaring the local variable, or
+   * the outermost class declaring the private instance field. Static fields live as long as the
+   * class, and other fields may be shut down outside the class, so they are not checked.
+   */
+  private static Tree findScope(Symbol owner, TreePath path) {
+    if (owner == null) {
+      return null;
+    }
+    if (owner.getKind() == ElementKind.FIELD) {
+      if (ASTHelpers.isStatic(owner) || !owner.getModifiers().contains(Modifier.PRIVATE)) {
+        return null;
+      }
+      Tree outermost = null;
+      for (TreePath p = path; p != null; p = p.getParentPath()) {
+        if (p.getLeaf() instanceof ClassTree) {
+          outermost = p.getLeaf();
+        }
+      }
+      return outermost;
+    }
+    if (owner.getKind() != ElementKind.LOCAL_VARIABLE) {
+      return null;
+    }
+    for (TreePath p = path; p != null; p = p.getParentPath()) {
+      if (p.getLeaf() instanceof MethodTree method) {
+        return method.getBody();
+      }
+      if (p.getLeaf() instanceof LambdaExpressionTree lambda) {
+        return lambda.getBody();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns whether the executor, or any variable aliasing it, is shut down, closed by
+   * try-with-resources, or escapes from the scope. Variables assigned from the executor are
+   * followed until no new alias is found.
+   */
+  private static boolean isReleased(Tree scope, Symbol owner, VisitorState state) {
+    Set<Symbol> aliases = new HashSet<>();
+    aliases.add(owner);
+    while (true) {
+      AliasScanner scanner = new AliasScanner(aliases, state);
+      scanner.scan(scope, null);
+      if (scanner.released) {
+        return true;
+      }
+      if (!aliases.addAll(scanner.found)) {
+        return false;
+      }
+    }
+  }
+
+  private static class AliasScanner extends TreeScanner<Void, Void> {
+
+    private final Set<Symbol> aliases;
+    private final VisitorState state;
+    private final Set<Symbol> found = new HashSet<>();
+    private boolean released;
+
+    AliasScanner(Set<Symbol> aliases, VisitorState state) {
+      this.aliases = aliases;
+      this.state = state;
+    }
+
+    private boolean isAlias(ExpressionTree tree) {
+      if (tree == null) {
+        return false;
+      }
+      Symbol symbol = ASTHelpers.getSymbol(ASTHelpers.stripParentheses(tree));
+      return symbol != null && aliases.contains(symbol);
+    }
+
+    @Override
+    public Void visitMethodInvocation(MethodInvocationTree tree, Void unused) {
+      if (SHUTDOWN.matches(tree, state) && isAlias(ASTHelpers.getReceiver(tree))) {
+        released = true;
+      }
+      if (isOwnedByArgument(ASTHelpers.getSymbol(tree), tree.getArguments())) {
+        released = true;
+      }
+      return super.visitMethodInvocation(tree, unused);
+    }
+
+    @Override
+    public Void visitNewClass(NewClassTree tree, Void unused) {
+      if (isOwnedByArgument(ASTHelpers.getSymbol(tree), tree.getArguments())) {
+        released = true;
+      }
+      return super.visitNewClass(tree, unused);
+    }
+
+    /**
+     * Returns whether the executor is passed to user code, which may take over its lifecycle. The
+     * JDK APIs only use the executor to run tasks.
+     */
+    private boolean isOwnedByArgument(
+        Symbol.MethodSymbol method, List<? extends ExpressionTree> arguments) {
+      if (method == null) {
+        return false;
+      }
+      String packageName = ASTHelpers.enclosingPackage(method).getQualifiedName().toString();
+      if (packageName.startsWith("java.")) {
+        return false;
+      }
+      return arguments.stream().anyMatch(this::isAlias);
+    }
+
+    @Override
+    public Void visitReturn(ReturnTree tree, Void unused) {
+      if (isAlias(tree.getExpression())) {
+        released = true;
+      }
+      return super.visitReturn(tree, unused);
+    }
+
+    @Override
+    public Void visitVariable(VariableTree tree, Void unused) {
+      if (isAlias(tree.getInitializer())) {
+        found.add(ASTHelpers.getSymbol(tree));
+      }
+      return super.visitVariable(tree, unused);
+    }
+
+    @Override
+    public Void visitAssignment(AssignmentTree tree, Void unused) {
+      if (isAlias(tree.getExpression())) {
+        Symbol variable = ASTHelpers.getSymbol(tree.getVariable());
+        if (variable != null && variable.getKind() == ElementKind.FIELD) {
+          // other fields are managed by their owner
+          released |= !aliases.contains(variable);
+        } else {
+          found.add(variable);
+        }
+      }
+      return super.visitAssignment(tree, unused);
+    }
+
+    @Override
+    public Void visitTry(TryTree tree, Void unused) {
+      for (Tree resource : tree.getResources()) {
+        if (resource instanceof ExpressionTree expression && isAlias(expression)) {
+          released = true;
+        }
+        if (resource instanceof VariableTree variable && isAlias(variable.getInitializer())) {
+          released = true;
+        }
+      }
+      return super.visitTry(tree, unused);
+    }
+  }
+}
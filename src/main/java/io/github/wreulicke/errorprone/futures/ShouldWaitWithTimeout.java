@@ -0,0 +1,210 @@
+package io.github.wreulicke.errorprone.futures;
+
+import com.google.auto.service.AutoService;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.ErrorProneFlags;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.fixes.SuggestedFix;
+import com.google.errorprone.fixes.SuggestedFixes;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.suppliers.Supplier;
+import com.google.errorprone.suppliers.Suppliers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.CatchTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.ExpressionStatementTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.TryTree;
+import com.sun.source.util.TreePath;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Type;
+import io.github.wreulicke.errorprone.common.InvocationFilter;
+import io.github.wreulicke.errorprone.common.UnitFilter;
+import java.util.List;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+    summary =
+        "Should wait with timeout. Unbounded waits pile up the request threads when the downstream slows down.",
+    severity = BugPattern.SeverityLevel.ERROR,
+    link = "github.com/wreulicke/errorprone-concurrency",
+    linkType = BugPattern.LinkType.CUSTOM)
+public class ShouldWaitWithTimeout extends BugChecker
+    implements BugChecker.MethodInvocationTreeMatcher {
+
+  private static final long DEFAULT_TIMEOUT_MILLIS = 30_000;
+
+  private static final Supplier<Type> TIMEOUT_EXCEPTION =
+      Suppliers.typeFromString("java.util.concurrent.TimeoutException");
+
+  private static final InvocationFilter METHOD_NAMES =
+      InvocationFilter.of("get", "join", "await", "acquire", "acquireUninterruptibly");
+
+  private static final Matcher<ExpressionTree> COMPLETABLE_FUTURE_WAIT =
+      Matchers.anyOf(
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.concurrent.CompletableFuture")
+              .named("join"),
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.concurrent.CompletableFuture")
+              .named("get")
+              .withNoParameters());
+
+  private static final Matcher<ExpressionTree> FUTURE_GET =
+      Matchers.instanceMethod()
+          .onDescendantOf("java.util.concurrent.Future")
+          .named("get")
+          .withNoParameters();
+
+  private static final Matcher<ExpressionTree> LATCH_AWAIT =
+      Matchers.instanceMethod()
+          .onDescendantOf("java.util.concurrent.CountDownLatch")
+          .named("await")
+          .withNoParameters();
+
+  private static final Matcher<ExpressionTree> SEMAPHORE_ACQUIRE =
+      Matchers.instanceMethod()
+          .onDescendantOf("java.util.concurrent.Semaphore")
+          .namedAnyOf("acquire", "acquireUninterruptibly");
+
+  private static final List<String> TEST_ANNOTATIONS =
+      List.of("org.junit.Test", "org.junit.jupiter.api.Test", "org.testng.annotations.Test");
+
+  private final long timeoutMillis;
+
+  public ShouldWaitWithTimeout(ErrorProneFlags flags) {
+    this.timeoutMillis =
+        flags
+            .getInteger("ShouldWaitWithTimeout:TimeoutMillis")
+            .map(Integer::longValue)
+            .orElse(DEFAULT_TIMEOUT_MILLIS);
+  }
+
+  @Override
+  public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+    if (!UnitFilter.CONCURRENCY.mayMatch(state) || !METHOD_NAMES.mayMatch(tree, state)) {
+      return Description.NO_MATCH;
+    }
+    boolean isCompletableFuture = COMPLETABLE_FUTURE_WAIT.matches(tree, state);
+    boolean isFuture = !isCompletableFuture && FUTURE_GET.matches(tree, state);
+    boolean isLatch = LATCH_AWAIT.matches(tree, state);
+    if (!isCompletableFuture && !isFuture && !isLatch && !SEMAPHORE_ACQUIRE.matches(tree, state)) {
+      return Description.NO_MATCH;
+    }
+    if (isExempted(state)) {
+      return Description.NO_MATCH;
+    }
+
+    Symbol.MethodSymbol symbol = ASTHelpers.getSymbol(tree);
+    String method = symbol.owner.getSimpleName() + "." + symbol.getSimpleName() + "()";
+    Description.Builder description =
+        buildDescription(tree)
+            .setMessage(
+                String.format(
+                    "Should wait with timeout instead of %s. Unbounded waits pile up the request threads when the downstream slows down.",
+                    method));
+    ExpressionTree receiver = ASTHelpers.getReceiver(tree);
+    if (receiver == null || !(isCompletableFuture || isFuture || isLatch)) {
+      // Semaphore#tryAcquire returns false on timeout, and the caller has to handle it
+      return description.build();
+    }
+    // the timed variants of the others throw TimeoutException, or return false on timeout
+    if (!isCompletableFuture && !handlesTimeoutException(state)) {
+      return description.build();
+    }
+    SuggestedFix.Builder fix = SuggestedFix.builder();
+    String timeout =
+        timeoutMillis
+            + ", "
+            + SuggestedFixes.qualifyType(state, fix, "java.util.concurrent.TimeUnit")
+            + ".MILLISECONDS";
+    String source = state.getSourceForNode(receiver);
+    if (isCompletableFuture) {
+      fix.replace(tree, source + ".orTimeout(" + timeout + ")." + symbol.getSimpleName() + "()");
+    } else if (isFuture) {
+      fix.replace(tree, source + "." + symbol.getSimpleName() + "(" + timeout + ")");
+    } else {
+      Tree parent = state.getPath().getParentPath().getLeaf();
+      if (!(parent instanceof ExpressionStatementTree)) {
+        return description.build();
+      }
+      String timeoutException =
+          SuggestedFixes.qualifyType(state, fix, "java.util.concurrent.TimeoutException");
+      fix.replace(
+          parent,
+          String.format(
+              "if (!%s.await(%s)) { throw new %s(\"Timed out after %d ms\"); }",
+              source, timeout, timeoutException, timeoutMillis));
+    }
+    return description.addFix(fix.build()).build();
+  }
+
+  /**
+   * Returns whether TimeoutException thrown at the current node is caught, or declared by the
+   * enclosing method or lambda.
+   */
+  private static boolean handlesTimeoutException(VisitorState state) {
+    Type timeoutException = TIMEOUT_EXCEPTION.get(state);
+    Tree child = state.getPath().getLeaf();
+    for (TreePath path = state.getPath().getParentPath();
+        path != null;
+        child = path.getLeaf(), path = path.getParentPath()) {
+      Tree leaf = path.getLeaf();
+      if (leaf instanceof TryTree tryTree && tryTree.getBlock() == child) {
+        for (CatchTree catchTree : tryTree.getCatches()) {
+          Type caught = ASTHelpers.getType(catchTree.getParameter());
+          Iterable<? extends Type> alternatives =
+              caught instanceof Type.UnionClassType union
+                  ? union.getAlternativeTypes()
+                  : List.of(caught);
+          for (Type alternative : alternatives) {
+            if (ASTHelpers.isSubtype(timeoutException, alternative, state)) {
+              return true;
+            }
+          }
+        }
+      }
+      if (leaf instanceof LambdaExpressionTree lambda) {
+        Symbol.MethodSymbol descriptor =
+            (Symbol.MethodSymbol)
+                state.getTypes().findDescriptorSymbol(ASTHelpers.getType(lambda).tsym);
+        return throwsTimeoutException(descriptor, timeoutException, state);
+      }
+      if (leaf instanceof MethodTree method) {
+        return throwsTimeoutException(ASTHelpers.getSymbol(method), timeoutException, state);
+      }
+      if (leaf instanceof ClassTree) {
+        return false;
+      }
+    }
+    return false;
+  }
+
+  private static boolean throwsTimeoutException(
+      Symbol.MethodSymbol method, Type timeoutException, VisitorState state) {
+    return method.getThrownTypes().stream()
+        .anyMatch(t -> ASTHelpers.isSubtype(timeoutException, t, state));
+  }
+
+  /** Returns whether the wait is in the main method or the tests, which may wait without limit. */
+  private static boolean isExempted(VisitorState state) {
+    String path = state.getPath().getCompilationUnit().getSourceFile().toUri().getPath();
+    if (path != null && path.contains("/src/test/")) {
+      return true;
+    }
+    MethodTree method = state.findEnclosing(MethodTree.class);
+    if (method == null) {
+      return false;
+    }
+    Symbol.MethodSymbol symbol = ASTHelpers.getSymbol(method);
+    return DoNotCreateExecutorPerInvocation.isMainMethod(symbol, state)
+        || TEST_ANNOTATIONS.stream().anyMatch(a -> ASTHelpers.hasAnnotation(symbol, a, state));
+  }
+}
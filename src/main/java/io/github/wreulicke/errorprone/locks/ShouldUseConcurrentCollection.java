@@ -0,0 +1,249 @@
+package io.github.wreulicke.errorprone.locks;
+
+import com.google.auto.service.AutoService;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.fixes.SuggestedFix;
+import com.google.errorprone.fixes.SuggestedFixes;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.SynchronizedTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.code.Symbol;
+import java.util.List;
+import javax.lang.model.element.ElementKind;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+    summary =
+        "Should use concurrent collection for the field shared between threads. Synchronized collections lock the whole collection on every access.",
+    severity = BugPattern.SeverityLevel.ERROR,
+    link = "github.com/wreulicke/errorprone-concurrency",
+    linkType = BugPattern.LinkType.CUSTOM)
+public class ShouldUseConcurrentCollection extends BugChecker
+    implements BugChecker.VariableTreeMatcher {
+
+  private static final Matcher<ExpressionTree> NEW_HASHTABLE =
+      Matchers.constructor().forClass("java.util.Hashtable");
+
+  private static final Matcher<ExpressionTree> SYNCHRONIZED_MAP =
+      Matchers.anyOf(
+          Matchers.staticMethod().onClass("java.util.Collections").named("synchronizedMap"),
+          NEW_HASHTABLE);
+
+  /** The methods which modify the list, which CopyOnWriteArrayList copies on every call. */
+  private static final Matcher<ExpressionTree> LIST_WRITE =
+      Matchers.instanceMethod()
+          .onDescendantOf("java.util.Collection")
+          .namedAnyOf(
+              "add",
+              "addAll",
+              "remove",
+              "removeAll",
+              "removeIf",
+              "retainAll",
+              "clear",
+              "set",
+              "sort",
+              "replaceAll");
+
+  private static final Matcher<ExpressionTree> SYNCHRONIZED_LIST =
+      Matchers.anyOf(
+          Matchers.staticMethod().onClass("java.util.Collections").named("synchronizedList"),
+          Matchers.constructor().forClass("java.util.Vector"));
+
+  /** The APIs which run tasks on other threads. */
+  private static final Matcher<ExpressionTree> SUBMIT_TASK =
+      Matchers.anyOf(
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.concurrent.Executor")
+              .named("execute"),
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.concurrent.ExecutorService")
+              .namedAnyOf("submit", "invokeAll", "invokeAny"),
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.concurrent.ScheduledExecutorService")
+              .namedAnyOf("schedule", "scheduleAtFixedRate", "scheduleWithFixedDelay"),
+          Matchers.staticMethod()
+              .onClass("java.util.concurrent.CompletableFuture")
+              .namedAnyOf("runAsync", "supplyAsync"),
+          Matchers.instanceMethod().onDescendantOf("java.lang.Thread").named("start"));
+
+  private static final Matcher<Tree> IS_TASK =
+      Matchers.anyOf(
+          Matchers.isSubtypeOf("java.lang.Runnable"),
+          Matchers.isSubtypeOf("java.util.concurrent.Callable"));
+
+  private static final List<String> THREAD_SAFE_ANNOTATIONS =
+      List.of(
+          "javax.annotation.concurrent.ThreadSafe",
+          "net.jcip.annotations.ThreadSafe",
+          "com.google.errorprone.annotations.ThreadSafe");
+
+  @Override
+  public Description matchVariable(VariableTree tree, VisitorState state) {
+    Symbol symbol = ASTHelpers.getSymbol(tree);
+    ExpressionTree initializer = tree.getInitializer();
+    if (symbol.getKind() != ElementKind.FIELD || initializer == null) {
+      return Description.NO_MATCH;
+    }
+    boolean isMap = SYNCHRONIZED_MAP.matches(initializer, state);
+    if (!isMap && !SYNCHRONIZED_LIST.matches(initializer, state)) {
+      return Description.NO_MATCH;
+    }
+    ClassTree classTree = state.findEnclosing(ClassTree.class);
+    if (classTree == null || !isSharedBetweenThreads(classTree, state)) {
+      return Description.NO_MATCH;
+    }
+
+    String replacement =
+        isMap
+            ? "java.util.concurrent.ConcurrentHashMap"
+            : "java.util.concurrent.CopyOnWriteArrayList";
+    Description.Builder description =
+        buildDescription(initializer)
+            .setMessage(
+                String.format(
+                    "Should use %s instead of synchronized collection for the field shared between threads. Synchronized collections lock the whole collection on every access.%s",
+                    replacement.substring(replacement.lastIndexOf('.') + 1),
+                    isMap ? "" : " CopyOnWriteArrayList fits lists which are rarely modified."));
+    // the declared type must accept the replacement, e.g. Map rather than Hashtable, and the
+    // blocks locking the field are atomic only with the synchronized collection
+    if (ASTHelpers.getType(tree.getType()).isInterface()
+        && !isLockedOn(classTree, symbol)
+        && (isMap || !isWritten(classTree, symbol, state))) {
+      String arguments =
+          isMap ? mapArguments(initializer, state) : copiedCollection(initializer, state);
+      if (arguments != null) {
+        SuggestedFix.Builder fix = SuggestedFix.builder();
+        String type = SuggestedFixes.qualifyType(state, fix, replacement);
+        fix.replace(initializer, "new " + type + "<>(" + arguments + ")");
+        description.addFix(fix.build());
+      }
+    }
+    return description.build();
+  }
+
+  /**
+   * Returns the arguments of ConcurrentHashMap replacing the map, or null when the map may differ
+   * from ConcurrentHashMap. Only the empty Hashtable is replaced, keeping the initial capacity:
+   * Hashtable rejects null keys and values like ConcurrentHashMap, while HashMap accepts them and
+   * LinkedHashMap and TreeMap keep the order of the entries.
+   */
+  private static String mapArguments(ExpressionTree initializer, VisitorState state) {
+    if (!NEW_HASHTABLE.matches(initializer, state)
+        || ((NewClassTree) initializer).getClassBody() != null) {
+      return null;
+    }
+    List<? extends ExpressionTree> arguments = ((NewClassTree) initializer).getArguments();
+    if (arguments.isEmpty()) {
+      return "";
+    }
+    if (arguments.size() == 1 && ASTHelpers.getType(arguments.get(0)).isPrimitive()) {
+      // the initial capacity
+      return state.getSourceForNode(arguments.get(0));
+    }
+    return null;
+  }
+
+  /** Returns whether the class locks on the field, e.g. {@code synchronized (cache) {...}}. */
+  private static boolean isLockedOn(ClassTree classTree, Symbol field) {
+    return Boolean.TRUE.equals(
+        new TreeScanner<Boolean, Void>() {
+          @Override
+          public Boolean visitSynchronized(SynchronizedTree tree, Void unused) {
+            if (field.equals(
+                ASTHelpers.getSymbol(ASTHelpers.stripParentheses(tree.getExpression())))) {
+              return true;
+            }
+            return super.visitSynchronized(tree, unused);
+          }
+
+          @Override
+          public Boolean reduce(Boolean r1, Boolean r2) {
+            return Boolean.TRUE.equals(r1) || Boolean.TRUE.equals(r2);
+          }
+        }.scan(classTree, null));
+  }
+
+  /** Returns whether the class modifies the list in the field. */
+  private static boolean isWritten(ClassTree classTree, Symbol field, VisitorState state) {
+    return Boolean.TRUE.equals(
+        new TreeScanner<Boolean, Void>() {
+          @Override
+          public Boolean visitMethodInvocation(MethodInvocationTree tree, Void unused) {
+            ExpressionTree receiver = ASTHelpers.getReceiver(tree);
+            if (receiver != null
+                && field.equals(ASTHelpers.getSymbol(receiver))
+                && LIST_WRITE.matches(tree, state)) {
+              return true;
+            }
+            return super.visitMethodInvocation(tree, unused);
+          }
+
+          @Override
+          public Boolean reduce(Boolean r1, Boolean r2) {
+            return Boolean.TRUE.equals(r1) || Boolean.TRUE.equals(r2);
+          }
+        }.scan(classTree, null));
+  }
+
+  /**
+   * Returns the source of the list to copy into CopyOnWriteArrayList, or an empty string when the
+   * list is created empty. CopyOnWriteArrayList keeps the order and accepts nulls like the list.
+   */
+  private static String copiedCollection(ExpressionTree initializer, VisitorState state) {
+    List<? extends ExpressionTree> arguments =
+        initializer instanceof MethodInvocationTree invocation
+            ? invocation.getArguments()
+            : ((NewClassTree) initializer).getArguments();
+    if (arguments.isEmpty()) {
+      return "";
+    }
+    ExpressionTree collection = arguments.get(0);
+    if (initializer instanceof NewClassTree && ASTHelpers.getType(collection).isPrimitive()) {
+      // the initial capacity of Vector
+      return "";
+    }
+    if (collection instanceof NewClassTree newClass && newClass.getArguments().isEmpty()) {
+      return "";
+    }
+    return state.getSourceForNode(collection);
+  }
+
+  /**
+   * Returns whether the instance of the class is shared between threads: the class is annotated
+   * with @ThreadSafe, is a task, or submits tasks which may access its fields.
+   */
+  private static boolean isSharedBetweenThreads(ClassTree classTree, VisitorState state) {
+    Symbol.ClassSymbol symbol = ASTHelpers.getSymbol(classTree);
+    if (THREAD_SAFE_ANNOTATIONS.stream().anyMatch(a -> ASTHelpers.hasAnnotation(symbol, a, state))
+        || IS_TASK.matches(classTree, state)) {
+      return true;
+    }
+    return Boolean.TRUE.equals(
+        new TreeScanner<Boolean, Void>() {
+          @Override
+          public Boolean visitMethodInvocation(MethodInvocationTree tree, Void unused) {
+            if (SUBMIT_TASK.matches(tree, state)) {
+              return true;
+            }
+            return super.visitMethodInvocation(tree, unused);
+          }
+
+          @Override
+          public Boolean reduce(Boolean r1, Boolean r2) {
+            return Boolean.TRUE.equals(r1) || Boolean.TRUE.equals(r2);
+          }
+        }.scan(classTree, null));
+  }
+}
@@ -0,0 +1,212 @@
+package io.github.wreulicke.errorprone.locks;
+
+import com.google.auto.service.AutoService;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.ErrorProneFlags;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.fixes.SuggestedFix;
+import com.google.errorprone.fixes.SuggestedFixes;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.ExpressionStatementTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreePathScanner;
+import com.sun.tools.javac.code.Symbol;
+import io.github.wreulicke.errorprone.common.UnitFilter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+    summary =
+        "Should use LongAdder for the counter which is updated by many threads and read rarely. Threads updating AtomicLong contend on one cache line.",
+    severity = BugPattern.SeverityLevel.ERROR,
+    link = "github.com/wreulicke/errorprone-concurrency",
+    linkType = BugPattern.LinkType.CUSTOM)
+public class ShouldUseLongAdder extends BugChecker implements BugChecker.VariableTreeMatcher {
+
+  private static final int DEFAULT_MAX_READS = 2;
+
+  private static final Matcher<ExpressionTree> NEW_ATOMIC =
+      Matchers.anyOf(
+          Matchers.constructor().forClass("java.util.concurrent.atomic.AtomicLong"),
+          Matchers.constructor().forClass("java.util.concurrent.atomic.AtomicInteger"));
+
+  private static final Matcher<Tree> IS_ATOMIC_INTEGER =
+      Matchers.isSameType("java.util.concurrent.atomic.AtomicInteger");
+
+  /** The update methods and the LongAdder methods which replace them. */
+  private static final Map<String, String> UPDATE_METHODS =
+      Map.of(
+          "incrementAndGet", "increment",
+          "getAndIncrement", "increment",
+          "decrementAndGet", "decrement",
+          "getAndDecrement", "decrement",
+          "addAndGet", "add",
+          "getAndAdd", "add");
+
+  /** The singleton classes, whose instance fields are shared by all the requests. */
+  private static final List<String> SINGLETON_ANNOTATIONS =
+      List.of(
+          "javax.inject.Singleton",
+          "jakarta.inject.Singleton",
+          "com.google.inject.Singleton",
+          "org.springframework.stereotype.Component",
+          "org.springframework.stereotype.Service",
+          "org.springframework.stereotype.Repository",
+          "org.springframework.stereotype.Controller",
+          "org.springframework.web.bind.annotation.RestController");
+
+  private final int maxReads;
+
+  public ShouldUseLongAdder(ErrorProneFlags flags) {
+    this.maxReads = flags.getInteger("ShouldUseLongAdder:MaxReads").orElse(DEFAULT_MAX_READS);
+  }
+
+  @Override
+  public Description matchVariable(VariableTree tree, VisitorState state) {
+    if (!UnitFilter.CONCURRENCY.mayMatch(state)) {
+      return Description.NO_MATCH;
+    }
+    Symbol symbol = ASTHelpers.getSymbol(tree);
+    ExpressionTree initializer = tree.getInitializer();
+    if (symbol.getKind() != ElementKind.FIELD
+        || !symbol.getModifiers().contains(Modifier.PRIVATE)
+        || initializer == null
+        || !NEW_ATOMIC.matches(initializer, state)
+        || !startsFromZero((NewClassTree) initializer)
+        || !(ASTHelpers.isStatic(symbol) || isSingleton(state))) {
+      return Description.NO_MATCH;
+    }
+
+    Usages usages = new Usages(symbol);
+    usages.scan(state.getPath().getCompilationUnit(), null);
+    if (usages.escaped || usages.updates.isEmpty() || usages.reads.size() > maxReads) {
+      return Description.NO_MATCH;
+    }
+
+    boolean isAtomicInteger = IS_ATOMIC_INTEGER.matches(tree.getType(), state);
+    SuggestedFix.Builder fix = SuggestedFix.builder();
+    String type = SuggestedFixes.qualifyType(state, fix, "java.util.concurrent.atomic.LongAdder");
+    fix.replace(tree.getType(), type).replace(initializer, "new " + type + "()");
+    for (MethodInvocationTree update : usages.updates) {
+      String method = UPDATE_METHODS.get(ASTHelpers.getSymbol(update).getSimpleName().toString());
+      String argument =
+          update.getArguments().isEmpty()
+              ? ""
+              : state.getSourceForNode(update.getArguments().get(0));
+      fix.replace(update, receiver(update, state) + "." + method + "(" + argument + ")");
+    }
+    for (MethodInvocationTree read : usages.reads) {
+      String method = ASTHelpers.getSymbol(read).getSimpleName().toString();
+      if (method.equals("get")) {
+        // AtomicInteger#get returns int, and LongAdder#intValue keeps the type of the expression
+        method = isAtomicInteger ? "intValue" : "sum";
+      } else if (method.equals("longValue")) {
+        method = "sum";
+      }
+      fix.replace(read, receiver(read, state) + "." + method + "()");
+    }
+    return buildDescription(tree)
+        .setMessage(
+            String.format(
+                "Should use LongAdder for %s. The counter is updated by many threads and read in %d places, and threads updating %s contend on one cache line.",
+                symbol.getSimpleName(),
+                usages.reads.size(),
+                isAtomicInteger ? "AtomicInteger" : "AtomicLong"))
+        .addFix(fix.build())
+        .build();
+  }
+
+  private static String receiver(MethodInvocationTree invocation, VisitorState state) {
+    return state.getSourceForNode(ASTHelpers.getReceiver(invocation));
+  }
+
+  /** LongAdder starts from zero, so only the counters starting from zero can be replaced. */
+  private static boolean startsFromZero(NewClassTree newClass) {
+    if (newClass.getArguments().isEmpty()) {
+      return true;
+    }
+    Number value = ASTHelpers.constValue(newClass.getArguments().get(0), Number.class);
+    return value != null && value.longValue() == 0;
+  }
+
+  private static boolean isSingleton(VisitorState state) {
+    ClassTree classTree = state.findEnclosing(ClassTree.class);
+    if (classTree == null) {
+      return false;
+    }
+    Symbol.ClassSymbol symbol = ASTHelpers.getSymbol(classTree);
+    return symbol.getKind() == ElementKind.ENUM
+        || SINGLETON_ANNOTATIONS.stream().anyMatch(a -> ASTHelpers.hasAnnotation(symbol, a, state));
+  }
+
+  /**
+   * Collects the usages of the counter in the compilation unit. The counter escapes when it is used
+   * other than updating without the result, or reading the value.
+   */
+  private static class Usages extends TreePathScanner<Void, Void> {
+
+    private final Symbol counter;
+
+    private final List<MethodInvocationTree> updates = new ArrayList<>();
+
+    private final List<MethodInvocationTree> reads = new ArrayList<>();
+
+    private boolean escaped;
+
+    Usages(Symbol counter) {
+      this.counter = counter;
+    }
+
+    @Override
+    public Void visitIdentifier(IdentifierTree tree, Void unused) {
+      if (counter.equals(ASTHelpers.getSymbol(tree))) {
+        classify();
+      }
+      return super.visitIdentifier(tree, unused);
+    }
+
+    @Override
+    public Void visitMemberSelect(MemberSelectTree tree, Void unused) {
+      if (counter.equals(ASTHelpers.getSymbol(tree))) {
+        classify();
+        return null;
+      }
+      return super.visitMemberSelect(tree, unused);
+    }
+
+    private void classify() {
+      TreePath parent = getCurrentPath().getParentPath();
+      if (!(parent.getLeaf() instanceof MemberSelectTree select)
+          || !(parent.getParentPath().getLeaf() instanceof MethodInvocationTree invocation)
+          || invocation.getMethodSelect() != select) {
+        escaped = true;
+        return;
+      }
+      String method = select.getIdentifier().toString();
+      Tree statement = parent.getParentPath().getParentPath().getLeaf();
+      if (UPDATE_METHODS.containsKey(method) && statement instanceof ExpressionStatementTree) {
+        updates.add(invocation);
+      } else if (method.equals("get") || method.equals("longValue") || method.equals("intValue")) {
+        reads.add(invocation);
+      } else {
+        escaped = true;
+      }
+    }
+  }
+}
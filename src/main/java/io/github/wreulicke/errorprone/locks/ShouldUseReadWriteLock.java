@@ -0,0 +1,317 @@
+package io.github.wreulicke.errorprone.locks;
+
+import com.google.auto.service.AutoService;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.suppliers.Supplier;
+import com.google.errorprone.suppliers.Suppliers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.AssignmentTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.CompoundAssignmentTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.ReturnTree;
+import com.sun.source.tree.StatementTree;
+import com.sun.source.tree.SynchronizedTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.UnaryTree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Type;
+import java.util.List;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+    summary =
+        "Should use ReadWriteLock or StampedLock for the synchronized method which only reads the state. Readers block each other on the monitor.",
+    severity = BugPattern.SeverityLevel.ERROR,
+    link = "github.com/wreulicke/errorprone-concurrency",
+    linkType = BugPattern.LinkType.CUSTOM)
+public class ShouldUseReadWriteLock extends BugChecker implements BugChecker.MethodTreeMatcher {
+
+  /**
+   * The methods of the JDK types which do not modify the receiver. The methods of the other types
+   * may modify the state even when they are named like a getter.
+   */
+  private static final Matcher<ExpressionTree> READ_ONLY_METHODS =
+      Matchers.anyOf(
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.Map")
+              .namedAnyOf(
+                  "get",
+                  "getOrDefault",
+                  "containsKey",
+                  "containsValue",
+                  "keySet",
+                  "values",
+                  "entrySet",
+                  "size",
+                  "isEmpty",
+                  "equals",
+                  "hashCode",
+                  "toString"),
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.Collection")
+              .namedAnyOf(
+                  "get",
+                  "contains",
+                  "containsAll",
+                  "size",
+                  "isEmpty",
+                  "peek",
+                  "indexOf",
+                  "lastIndexOf",
+                  "equals",
+                  "hashCode",
+                  "toString"),
+          Matchers.instanceMethod()
+              .onDescendantOf("java.lang.CharSequence")
+              .namedAnyOf(
+                  "length",
+                  "charAt",
+                  "isEmpty",
+                  "indexOf",
+                  "lastIndexOf",
+                  "equals",
+                  "hashCode",
+                  "toString"));
+
+  /** LinkedHashMap in access order moves the entry to the end on get. */
+  private static final Matcher<ExpressionTree> MAP_GET =
+      Matchers.instanceMethod().onDescendantOf("java.util.Map").namedAnyOf("get", "getOrDefault");
+
+  private static final Supplier<Type> LINKED_HASH_MAP =
+      Suppliers.typeFromString("java.util.LinkedHashMap");
+
+  @Override
+  public Description matchMethod(MethodTree tree, VisitorState state) {
+    if (!tree.getModifiers().getFlags().contains(Modifier.SYNCHRONIZED)
+        || tree.getBody() == null
+        || tree.getBody().getStatements().isEmpty()
+        || returnsField(tree)) {
+      return Description.NO_MATCH;
+    }
+    ClassTree classTree = state.findEnclosing(ClassTree.class);
+    if (classTree == null
+        || !isReadOnly(classTree, tree, state)
+        || !hasWriter(classTree, tree, state)) {
+      return Description.NO_MATCH;
+    }
+    return buildDescription(tree)
+        .setMessage(
+            String.format(
+                "Synchronized method %s only reads the state, but readers block each other on the monitor. Should use ReadWriteLock or StampedLock to let readers run in parallel.",
+                tree.getName()))
+        .build();
+  }
+
+  /**
+   * Returns whether the class has another synchronized method or synchronized block on the same
+   * monitor, which writes the state the read-only method is guarding.
+   */
+  private static boolean hasWriter(ClassTree classTree, MethodTree reader, VisitorState state) {
+    boolean isStatic = reader.getModifiers().getFlags().contains(Modifier.STATIC);
+    for (Tree member : classTree.getMembers()) {
+      if (member instanceof MethodTree method
+          && method != reader
+          && method.getModifiers().getFlags().contains(Modifier.SYNCHRONIZED)
+          && method.getModifiers().getFlags().contains(Modifier.STATIC) == isStatic
+          && !isReadOnly(classTree, method, state)) {
+        return true;
+      }
+    }
+    Symbol.ClassSymbol classSymbol = ASTHelpers.getSymbol(classTree);
+    return Boolean.TRUE.equals(
+        new TreeScanner<Boolean, Void>() {
+          @Override
+          public Boolean visitSynchronized(SynchronizedTree tree, Void unused) {
+            if (isMonitor(ASTHelpers.stripParentheses(tree.getExpression()))) {
+              return true;
+            }
+            return super.visitSynchronized(tree, unused);
+          }
+
+          /** Returns whether the block locks this, or the class for the static reader. */
+          private boolean isMonitor(ExpressionTree monitor) {
+            if (isStatic) {
+              return monitor instanceof MemberSelectTree select
+                  && select.getIdentifier().contentEquals("class")
+                  && classSymbol.equals(ASTHelpers.getSymbol(select.getExpression()));
+            }
+            if (monitor instanceof IdentifierTree identifier) {
+              return identifier.getName().contentEquals("this");
+            }
+            return monitor instanceof MemberSelectTree select
+                && select.getIdentifier().contentEquals("this")
+                && classSymbol.equals(ASTHelpers.getSymbol(select.getExpression()));
+          }
+
+          @Override
+          public Boolean visitClass(ClassTree tree, Void unused) {
+            // the members of nested classes are guarded by the other monitors
+            return tree == classTree ? super.visitClass(tree, unused) : false;
+          }
+
+          @Override
+          public Boolean reduce(Boolean r1, Boolean r2) {
+            return Boolean.TRUE.equals(r1) || Boolean.TRUE.equals(r2);
+          }
+        }.scan(classTree, null));
+  }
+
+  /**
+   * Returns whether the method only reads the state: it assigns only local variables, and calls
+   * only the methods of the JDK types which do not modify their receiver.
+   */
+  private static boolean isReadOnly(ClassTree classTree, MethodTree method, VisitorState state) {
+    if (method.getBody() == null) {
+      return false;
+    }
+    return !Boolean.TRUE.equals(
+        new TreeScanner<Boolean, Void>() {
+          @Override
+          public Boolean visitAssignment(AssignmentTree tree, Void unused) {
+            if (!isLocalVariable(tree.getVariable())) {
+              return true;
+            }
+            return super.visitAssignment(tree, unused);
+          }
+
+          @Override
+          public Boolean visitCompoundAssignment(CompoundAssignmentTree tree, Void unused) {
+            if (!isLocalVariable(tree.getVariable())) {
+              return true;
+            }
+            return super.visitCompoundAssignment(tree, unused);
+          }
+
+          @Override
+          public Boolean visitUnary(UnaryTree tree, Void unused) {
+            switch (tree.getKind()) {
+              case PREFIX_INCREMENT:
+              case PREFIX_DECREMENT:
+              case POSTFIX_INCREMENT:
+              case POSTFIX_DECREMENT:
+                if (!isLocalVariable(tree.getExpression())) {
+                  return true;
+                }
+                break;
+              default:
+                break;
+            }
+            return super.visitUnary(tree, unused);
+          }
+
+          @Override
+          public Boolean visitMethodInvocation(MethodInvocationTree tree, Void unused) {
+            if (!READ_ONLY_METHODS.matches(tree, state)
+                || !isJdkType(ASTHelpers.getReceiverType(tree))
+                || (MAP_GET.matches(tree, state)
+                    && isLinkedHashMap(classTree, ASTHelpers.getReceiver(tree), state))) {
+              return true;
+            }
+            return super.visitMethodInvocation(tree, unused);
+          }
+
+          @Override
+          public Boolean visitNewClass(NewClassTree tree, Void unused) {
+            // copying a collection, e.g. new ArrayList<>(items), is a read
+            Symbol.PackageSymbol packageSymbol =
+                ASTHelpers.enclosingPackage(ASTHelpers.getSymbol(tree));
+            if (packageSymbol == null
+                || !packageSymbol.getQualifiedName().contentEquals("java.util")
+                || tree.getClassBody() != null) {
+              return true;
+            }
+            return super.visitNewClass(tree, unused);
+          }
+
+          @Override
+          public Boolean visitLambdaExpression(LambdaExpressionTree tree, Void unused) {
+            return true;
+          }
+
+          @Override
+          public Boolean visitClass(ClassTree tree, Void unused) {
+            return true;
+          }
+
+          @Override
+          public Boolean reduce(Boolean r1, Boolean r2) {
+            return Boolean.TRUE.equals(r1) || Boolean.TRUE.equals(r2);
+          }
+        }.scan(method.getBody(), null));
+  }
+
+  /**
+   * Returns whether the method only returns a field. An uncontended monitor is faster than
+   * ReadWriteLock for a single read, and volatile or an atomic fits it better.
+   */
+  private static boolean returnsField(MethodTree method) {
+    List<? extends StatementTree> statements = method.getBody().getStatements();
+    if (statements.size() != 1
+        || !(statements.get(0) instanceof ReturnTree returnTree)
+        || returnTree.getExpression() == null) {
+      return false;
+    }
+    Symbol symbol = ASTHelpers.getSymbol(ASTHelpers.stripParentheses(returnTree.getExpression()));
+    return symbol != null && symbol.getKind() == ElementKind.FIELD;
+  }
+
+  private static boolean isJdkType(Type type) {
+    if (type == null) {
+      return false;
+    }
+    Symbol.PackageSymbol packageSymbol = ASTHelpers.enclosingPackage(type.tsym);
+    if (packageSymbol == null) {
+      return false;
+    }
+    String name = packageSymbol.getQualifiedName().toString();
+    return name.equals("java.lang") || name.equals("java.util") || name.startsWith("java.util.");
+  }
+
+  /**
+   * Returns whether the map may be a LinkedHashMap in access order, which is modified by get: the
+   * map is declared as LinkedHashMap, or is a field of the class initialized with one.
+   */
+  private static boolean isLinkedHashMap(
+      ClassTree classTree, ExpressionTree receiver, VisitorState state) {
+    Type linkedHashMap = LINKED_HASH_MAP.get(state);
+    if (receiver == null || linkedHashMap == null) {
+      return false;
+    }
+    if (ASTHelpers.isSubtype(ASTHelpers.getType(receiver), linkedHashMap, state)) {
+      return true;
+    }
+    Symbol symbol = ASTHelpers.getSymbol(receiver);
+    for (Tree member : classTree.getMembers()) {
+      if (member instanceof VariableTree field
+          && ASTHelpers.getSymbol(field).equals(symbol)
+          && field.getInitializer() != null) {
+        return ASTHelpers.isSubtype(
+            ASTHelpers.getType(field.getInitializer()), linkedHashMap, state);
+      }
+    }
+    return false;
+  }
+
+  private static boolean isLocalVariable(ExpressionTree tree) {
+    Symbol symbol = ASTHelpers.getSymbol(tree);
+    return symbol != null
+        && (symbol.getKind() == ElementKind.LOCAL_VARIABLE
+            || symbol.getKind() == ElementKind.PARAMETER);
+  }
+}
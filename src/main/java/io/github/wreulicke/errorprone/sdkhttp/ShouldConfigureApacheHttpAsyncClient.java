@@ -0,0 +1,100 @@
+package io.github.wreulicke.errorprone.sdkhttp;
+
+import com.google.auto.service.AutoService;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
+import io.github.wreulicke.errorprone.common.BuilderPolicy;
+import io.github.wreulicke.errorprone.common.InvocationFilter;
+import java.util.List;
+import java.util.stream.Stream;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+    summary =
+        "Should configure IO reactor threads, thread factory and max connections of Apache HttpAsyncClient. The defaults are not tuned for the downstream.",
+    severity = BugPattern.SeverityLevel.ERROR,
+    link = "github.com/wreulicke/errorprone-concurrency",
+    linkType = BugPattern.LinkType.CUSTOM)
+public class ShouldConfigureApacheHttpAsyncClient extends BugChecker
+    implements BugChecker.MethodInvocationTreeMatcher {
+
+  /** The factories and the builders of HttpClient 5.x and HttpAsyncClient 4.x. */
+  private static final List<String> FACTORY_CLASSES =
+      List.of(
+          "org.apache.hc.client5.http.impl.async.HttpAsyncClients",
+          "org.apache.http.impl.nio.client.HttpAsyncClients");
+
+  private static final List<String> BUILDER_CLASSES =
+      List.of(
+          "org.apache.hc.client5.http.impl.async.HttpAsyncClientBuilder",
+          "org.apache.http.impl.nio.client.HttpAsyncClientBuilder");
+
+  private static final InvocationFilter METHOD_NAMES =
+      InvocationFilter.of("createDefault", "createSystem", "createMinimal", "build");
+
+  private static final Matcher<ExpressionTree> CREATE_WITH_DEFAULTS =
+      Matchers.anyOf(
+          FACTORY_CLASSES.stream()
+              .map(
+                  c ->
+                      Matchers.staticMethod()
+                          .onClass(c)
+                          .namedAnyOf("createDefault", "createSystem", "createMinimal"))
+              .toList());
+
+  private static final Matcher<ExpressionTree> BUILD = builderMethod("build");
+
+  private static final BuilderPolicy POLICY =
+      BuilderPolicy.builder()
+          .factory(
+              Matchers.anyOf(
+                  Stream.concat(
+                          FACTORY_CLASSES.stream()
+                              .map(c -> Matchers.staticMethod().onClass(c).named("custom")),
+                          BUILDER_CLASSES.stream()
+                              .map(c -> Matchers.staticMethod().onClass(c).named("create")))
+                      .toList()))
+          .require(
+              builderMethod("setIOReactorConfig", "setDefaultIOReactorConfig"),
+              "Should set IOReactorConfig to HttpAsyncClient. The number of IO reactor threads defaults to the number of cores.")
+          .require(
+              builderMethod("setThreadFactory"),
+              "Should set ThreadFactory to HttpAsyncClient. The IO reactor threads should be named.")
+          .require(
+              builderMethod("setConnectionManager", "setMaxConnTotal"),
+              "Should configure max connections of HttpAsyncClient. The default connection pool is small for most downstreams.")
+          .build();
+
+  private static Matcher<ExpressionTree> builderMethod(String... names) {
+    return Matchers.anyOf(
+        BUILDER_CLASSES.stream()
+            .map(c -> Matchers.instanceMethod().onDescendantOf(c).namedAnyOf(names))
+            .toList());
+  }
+
+  @Override
+  public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+    if (!METHOD_NAMES.mayMatch(tree, state)) {
+      return Description.NO_MATCH;
+    }
+    if (CREATE_WITH_DEFAULTS.matches(tree, state)) {
+      return buildDescription(tree)
+          .setMessage(
+              "Should build HttpAsyncClient with HttpAsyncClients.custom(), and configure IO reactor threads, thread factory and max connections.")
+          .build();
+    }
+    if (!BUILD.matches(tree, state)) {
+      return Description.NO_MATCH;
+    }
+    for (BuilderPolicy.Violation violation : POLICY.check(tree, state)) {
+      state.reportMatch(buildDescription(violation.tree()).setMessage(violation.message()).build());
+    }
+    return Description.NO_MATCH;
+  }
+}
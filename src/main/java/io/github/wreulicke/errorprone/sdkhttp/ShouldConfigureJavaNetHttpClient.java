@@ -0,0 +1,139 @@
+package io.github.wreulicke.errorprone.sdkhttp;
+
+import com.google.auto.service.AutoService;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.ErrorProneFlags;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.tools.javac.code.Symbol;
+import io.github.wreulicke.errorprone.common.BuilderPolicy;
+import io.github.wreulicke.errorprone.common.InvocationFilter;
+import io.github.wreulicke.errorprone.common.UnitFilter;
+import java.util.List;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+    summary =
+        "Should configure timeouts and HTTP/2 for java.net.http.HttpClient. Requests without timeouts pile up when the downstream slows down.",
+    severity = BugPattern.SeverityLevel.ERROR,
+    link = "github.com/wreulicke/errorprone-concurrency",
+    linkType = BugPattern.LinkType.CUSTOM)
+public class ShouldConfigureJavaNetHttpClient extends BugChecker
+    implements BugChecker.MethodInvocationTreeMatcher {
+
+  private static final String CLIENT_BUILDER_CLASS = "java.net.http.HttpClient.Builder";
+
+  private static final String REQUEST_BUILDER_CLASS = "java.net.http.HttpRequest.Builder";
+
+  private static final String MISSING_CONNECT_TIMEOUT =
+      "Should set connectTimeout to java.net.http.HttpClient. Without it, connecting to an unresponsive host blocks until the OS gives up.";
+
+  private static final String FORCED_HTTP_1_1 =
+      "Do not force HTTP/1.1. HTTP/2 multiplexes the requests on one connection and cuts the number of connections.";
+
+  private static final InvocationFilter METHOD_NAMES =
+      InvocationFilter.of("newHttpClient", "build", "send", "sendAsync");
+
+  private static final Matcher<ExpressionTree> NEW_HTTP_CLIENT =
+      Matchers.staticMethod().onClass("java.net.http.HttpClient").named("newHttpClient");
+
+  private static final Matcher<ExpressionTree> BUILD_CLIENT =
+      Matchers.instanceMethod().onDescendantOf(CLIENT_BUILDER_CLASS).named("build");
+
+  private static final Matcher<ExpressionTree> BUILD_REQUEST =
+      Matchers.instanceMethod().onDescendantOf(REQUEST_BUILDER_CLASS).named("build");
+
+  private static final Matcher<ExpressionTree> SET_VERSION =
+      Matchers.anyOf(
+          Matchers.instanceMethod().onDescendantOf(CLIENT_BUILDER_CLASS).named("version"),
+          Matchers.instanceMethod().onDescendantOf(REQUEST_BUILDER_CLASS).named("version"));
+
+  private static final Matcher<ExpressionTree> FORCE_HTTP_1_1 =
+      (tree, state) ->
+          SET_VERSION.matches(tree, state)
+              && ASTHelpers.getSymbol(((MethodInvocationTree) tree).getArguments().get(0))
+                  instanceof Symbol.VarSymbol version
+              && version.getSimpleName().contentEquals("HTTP_1_1");
+
+  private static final Matcher<ExpressionTree> SET_CONNECT_TIMEOUT =
+      Matchers.instanceMethod().onDescendantOf(CLIENT_BUILDER_CLASS).named("connectTimeout");
+
+  private static final Matcher<ExpressionTree> SET_TIMEOUT =
+      Matchers.instanceMethod().onDescendantOf(REQUEST_BUILDER_CLASS).named("timeout");
+
+  private static final BuilderPolicy CLIENT_POLICY =
+      BuilderPolicy.builder()
+          .factory(Matchers.staticMethod().onClass("java.net.http.HttpClient").named("newBuilder"))
+          .require(SET_CONNECT_TIMEOUT, MISSING_CONNECT_TIMEOUT)
+          .forbid(FORCE_HTTP_1_1, FORCED_HTTP_1_1)
+          .build();
+
+  private static final BuilderPolicy REQUEST_POLICY =
+      BuilderPolicy.builder()
+          .factory(Matchers.staticMethod().onClass("java.net.http.HttpRequest").named("newBuilder"))
+          .require(
+              SET_TIMEOUT,
+              "Should set timeout to java.net.http.HttpRequest. Without it, the request waits for the response forever.")
+          .forbid(FORCE_HTTP_1_1, FORCED_HTTP_1_1)
+          .build();
+
+  private static final Matcher<ExpressionTree> SEND =
+      Matchers.instanceMethod()
+          .onDescendantOf("java.net.http.HttpClient")
+          .namedAnyOf("send", "sendAsync");
+
+  private static final Matcher<ExpressionTree> BUFFERING_BODY_HANDLER =
+      Matchers.staticMethod()
+          .onClass("java.net.http.HttpResponse.BodyHandlers")
+          .namedAnyOf("ofString", "ofByteArray");
+
+  private final boolean requireStreamingBodyHandler;
+
+  public ShouldConfigureJavaNetHttpClient(ErrorProneFlags flags) {
+    this.requireStreamingBodyHandler =
+        flags
+            .getBoolean("ShouldConfigureJavaNetHttpClient:RequireStreamingBodyHandler")
+            .orElse(false);
+  }
+
+  @Override
+  public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+    if (!UnitFilter.CONCURRENCY.mayMatch(state) || !METHOD_NAMES.mayMatch(tree, state)) {
+      return Description.NO_MATCH;
+    }
+    if (NEW_HTTP_CLIENT.matches(tree, state)) {
+      return buildDescription(tree).setMessage(MISSING_CONNECT_TIMEOUT).build();
+    }
+    if (BUILD_CLIENT.matches(tree, state)) {
+      return report(CLIENT_POLICY.check(tree, state), state);
+    }
+    if (BUILD_REQUEST.matches(tree, state)) {
+      return report(REQUEST_POLICY.check(tree, state), state);
+    }
+    if (requireStreamingBodyHandler
+        && SEND.matches(tree, state)
+        && tree.getArguments().size() >= 2
+        && BUFFERING_BODY_HANDLER.matches(tree.getArguments().get(1), state)) {
+      return buildDescription(tree.getArguments().get(1))
+          .setMessage(
+              String.format(
+                  "Should stream the response body with BodyHandlers.ofInputStream, ofLines or ofPublisher. BodyHandlers.%s buffers the whole response in memory.",
+                  ASTHelpers.getSymbol(tree.getArguments().get(1)).getSimpleName()))
+          .build();
+    }
+    return Description.NO_MATCH;
+  }
+
+  private Description report(List<BuilderPolicy.Violation> violations, VisitorState state) {
+    for (BuilderPolicy.Violation violation : violations) {
+      state.reportMatch(buildDescription(violation.tree()).setMessage(violation.message()).build());
+    }
+    return Description.NO_MATCH;
+  }
+}
@@ -0,0 +1,82 @@
+package io.github.wreulicke.errorprone.sdkhttp;
+
+import com.google.auto.service.AutoService;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.tools.javac.code.Type;
+import com.sun.tools.javac.code.TypeTag;
+import io.github.wreulicke.errorprone.common.InvocationFilter;
+import java.util.List;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+    summary =
+        "Should pass the number of threads and ThreadFactory to Netty EventLoopGroup. The group defaults to twice the number of cores with generated thread names.",
+    severity = BugPattern.SeverityLevel.ERROR,
+    link = "github.com/wreulicke/errorprone-concurrency",
+    linkType = BugPattern.LinkType.CUSTOM)
+public class ShouldConfigureNettyEventLoopGroup extends BugChecker
+    implements BugChecker.NewClassTreeMatcher {
+
+  private static final List<String> EVENT_LOOP_GROUP_CLASSES =
+      List.of(
+          "io.netty.channel.nio.NioEventLoopGroup",
+          "io.netty.channel.epoll.EpollEventLoopGroup",
+          "io.netty.channel.kqueue.KQueueEventLoopGroup",
+          "io.netty.channel.DefaultEventLoopGroup",
+          "io.netty.channel.MultiThreadIoEventLoopGroup");
+
+  private static final InvocationFilter CLASS_NAMES =
+      InvocationFilter.of(
+          EVENT_LOOP_GROUP_CLASSES.stream()
+              .map(c -> c.substring(c.lastIndexOf('.') + 1))
+              .toList());
+
+  private static final Matcher<ExpressionTree> NEW_EVENT_LOOP_GROUP =
+      Matchers.anyOf(
+          EVENT_LOOP_GROUP_CLASSES.stream().map(c -> Matchers.constructor().forClass(c)).toList());
+
+  /** The event loop threads are created by the ThreadFactory, or by the Executor. */
+  private static final Matcher<ExpressionTree> IS_THREAD_SOURCE =
+      Matchers.anyOf(
+          Matchers.isSubtypeOf("java.util.concurrent.ThreadFactory"),
+          Matchers.isSubtypeOf("java.util.concurrent.Executor"));
+
+  @Override
+  public Description matchNewClass(NewClassTree tree, VisitorState state) {
+    if (!CLASS_NAMES.mayMatch(tree, state) || !NEW_EVENT_LOOP_GROUP.matches(tree, state)) {
+      return Description.NO_MATCH;
+    }
+    List<? extends ExpressionTree> arguments = tree.getArguments();
+    boolean hasThreads = false;
+    if (!arguments.isEmpty()) {
+      Type type = ASTHelpers.getType(arguments.get(0));
+      hasThreads = type != null && type.getTag() == TypeTag.INT;
+    }
+    boolean hasThreadSource = arguments.stream().anyMatch(a -> IS_THREAD_SOURCE.matches(a, state));
+    if (hasThreads && hasThreadSource) {
+      return Description.NO_MATCH;
+    }
+
+    String name = ASTHelpers.getSymbol(tree).owner.getSimpleName().toString();
+    String message;
+    if (!hasThreads && !hasThreadSource) {
+      message =
+          "Should pass the number of threads and ThreadFactory to %s. The group defaults to twice the number of cores with generated thread names.";
+    } else if (!hasThreads) {
+      message =
+          "Should pass the number of threads to %s. The group defaults to twice the number of cores.";
+    } else {
+      message =
+          "Should pass ThreadFactory to %s. The threads are named after the class, and cannot be told apart from the other groups.";
+    }
+    return buildDescription(tree).setMessage(String.format(message, name)).build();
+  }
+}
@@ -0,0 +1,83 @@
+package io.github.wreulicke.errorprone.sdkhttp;
+
+import com.google.auto.service.AutoService;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.NewClassTree;
+import io.github.wreulicke.errorprone.common.BuilderPolicy;
+import io.github.wreulicke.errorprone.common.InvocationFilter;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+    summary =
+        "Should set Dispatcher with a bounded executor and ConnectionPool to OkHttpClient. The default Dispatcher runs the calls on an unbounded cached thread pool.",
+    severity = BugPattern.SeverityLevel.ERROR,
+    link = "github.com/wreulicke/errorprone-concurrency",
+    linkType = BugPattern.LinkType.CUSTOM)
+public class ShouldConfigureOkHttpClient extends BugChecker
+    implements BugChecker.MethodInvocationTreeMatcher, BugChecker.NewClassTreeMatcher {
+
+  private static final String BUILDER_CLASS = "okhttp3.OkHttpClient.Builder";
+
+  private static final String MISSING_DISPATCHER =
+      "Should set Dispatcher with a bounded executor to OkHttpClient. The default Dispatcher runs the calls on an unbounded cached thread pool.";
+
+  private static final InvocationFilter METHOD_NAMES = InvocationFilter.of("build");
+
+  private static final InvocationFilter CLASS_NAMES =
+      InvocationFilter.of("OkHttpClient", "Dispatcher");
+
+  private static final Matcher<ExpressionTree> NEW_CLIENT =
+      Matchers.constructor().forClass("okhttp3.OkHttpClient");
+
+  private static final Matcher<ExpressionTree> NEW_DISPATCHER =
+      Matchers.constructor().forClass("okhttp3.Dispatcher");
+
+  private static final Matcher<ExpressionTree> BUILD =
+      Matchers.instanceMethod().onDescendantOf(BUILDER_CLASS).named("build");
+
+  private static final BuilderPolicy POLICY =
+      BuilderPolicy.builder()
+          .factory(Matchers.constructor().forClass(BUILDER_CLASS))
+          .require(
+              Matchers.instanceMethod().onDescendantOf(BUILDER_CLASS).named("dispatcher"),
+              MISSING_DISPATCHER)
+          .require(
+              Matchers.instanceMethod().onDescendantOf(BUILDER_CLASS).named("connectionPool"),
+              "Should set ConnectionPool to OkHttpClient. The connections should be limited for the downstream.")
+          .build();
+
+  @Override
+  public Description matchNewClass(NewClassTree tree, VisitorState state) {
+    if (!CLASS_NAMES.mayMatch(tree, state)) {
+      return Description.NO_MATCH;
+    }
+    if (NEW_CLIENT.matches(tree, state)) {
+      return buildDescription(tree).setMessage(MISSING_DISPATCHER).build();
+    }
+    if (NEW_DISPATCHER.matches(tree, state) && tree.getArguments().isEmpty()) {
+      return buildDescription(tree)
+          .setMessage(
+              "Should pass a bounded ExecutorService to Dispatcher. The default Dispatcher runs the calls on an unbounded cached thread pool.")
+          .build();
+    }
+    return Description.NO_MATCH;
+  }
+
+  @Override
+  public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+    if (!METHOD_NAMES.mayMatch(tree, state) || !BUILD.matches(tree, state)) {
+      return Description.NO_MATCH;
+    }
+    for (BuilderPolicy.Violation violation : POLICY.check(tree, state)) {
+      state.reportMatch(buildDescription(violation.tree()).setMessage(violation.message()).build());
+    }
+    return Description.NO_MATCH;
+  }
+}
@@ -7,9 +7,11 @@ import com.google.errorprone.bugpatterns.BugChecker;
 import com.google.errorprone.matchers.Description;
 import com.google.errorprone.matchers.Matcher;
 import com.google.errorprone.matchers.Matchers;
-import com.google.errorprone.util.ASTHelpers;
 import com.sun.source.tree.ExpressionTree;
 import com.sun.source.tree.MethodInvocationTree;
+import io.github.wreulicke.errorprone.common.BuilderPolicy;
+import io.github.wreulicke.errorprone.common.InvocationFilter;
+import io.github.wreulicke.errorprone.common.UnitFilter;
 
 @AutoService(BugChecker.class)
 @BugPattern(
@@ -23,6 +25,9 @@ public class ShouldSetExecutorJavaNetHttpClient extends BugChecker
 
   private static final String HTTP_CLIENT_CLASS = "java.net.http.HttpClient";
 
+  private static final InvocationFilter METHOD_NAMES =
+      InvocationFilter.of("newHttpClient", "build");
+
   private static final Matcher<ExpressionTree> IS_SIMPLE_FACTORY =
       Matchers.staticMethod().onClass(HTTP_CLIENT_CLASS).named("newHttpClient");
 
@@ -34,8 +39,18 @@ public class ShouldSetExecutorJavaNetHttpClient extends BugChecker
           .onDescendantOf("java.net.http.HttpClient.Builder")
           .named("executor");
 
+  private static final BuilderPolicy POLICY =
+      BuilderPolicy.builder()
+          .require(
+              SET_EXECUTOR,
+              "Should set executor to java.net.http.HttpClient. It is recommended to use a dedicated executor instead of the default unbounded executor.")
+          .build();
+
   @Override
   public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+    if (!UnitFilter.CONCURRENCY.mayMatch(state) || !METHOD_NAMES.mayMatch(tree, state)) {
+      return Description.NO_MATCH;
+    }
     if (IS_SIMPLE_FACTORY.matches(tree, state)) {
       return describeMatch(tree);
     }
@@ -43,18 +58,9 @@ public class ShouldSetExecutorJavaNetHttpClient extends BugChecker
       return Description.NO_MATCH;
     }
 
-    ExpressionTree t = tree;
-
-    // find executor method invocation in method chaining
-    while (t instanceof MethodInvocationTree) {
-      t = ASTHelpers.getReceiver(t);
-      if (t instanceof MethodInvocationTree m) {
-        if (SET_EXECUTOR.matches(m, state)) {
-          return Description.NO_MATCH;
-        }
-      }
+    for (BuilderPolicy.Violation violation : POLICY.check(tree, state)) {
+      state.reportMatch(buildDescription(violation.tree()).setMessage(violation.message()).build());
     }
-
-    return describeMatch(tree);
+    return Description.NO_MATCH;
   }
 }
@@ -0,0 +1,598 @@
+package io.github.wreulicke.errorprone.streams;
+
+import com.google.auto.service.AutoService;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.ErrorProneFlags;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.fixes.SuggestedFix;
+import com.google.errorprone.fixes.SuggestedFixes;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.BlockTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.ExpressionStatementTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.MemberReferenceTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.NewArrayTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Type;
+import io.github.wreulicke.errorprone.common.InvocationFilter;
+import io.github.wreulicke.errorprone.common.StreamPipelines;
+import io.github.wreulicke.errorprone.common.UnitFilter;
+import io.github.wreulicke.errorprone.common.VariableInitializers;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+    summary =
+        "Do not use parallel streams where they are slower than sequential streams, or unsafe. Parallel streams share ForkJoinPool.commonPool(), and pay for splitting the source and merging the results.",
+    severity = BugPattern.SeverityLevel.ERROR,
+    link = "github.com/wreulicke/errorprone-concurrency",
+    linkType = BugPattern.LinkType.CUSTOM)
+public class DoNotMisuseParallelStream extends BugChecker
+    implements BugChecker.MethodInvocationTreeMatcher {
+
+  private static final UnitFilter UNIT_FILTER = UnitFilter.of("parallel");
+
+  private static final InvocationFilter METHOD_NAMES =
+      InvocationFilter.of("parallel", "parallelStream");
+
+  private static final String[] STREAM_CLASSES = {
+    "java.util.stream.Stream",
+    "java.util.stream.IntStream",
+    "java.util.stream.LongStream",
+    "java.util.stream.DoubleStream"
+  };
+
+  private static final Matcher<ExpressionTree> PARALLEL_STREAM =
+      Matchers.instanceMethod().onDescendantOf("java.util.Collection").named("parallelStream");
+
+  private static final Matcher<ExpressionTree> COLLECTION_STREAM =
+      Matchers.instanceMethod()
+          .onDescendantOf("java.util.Collection")
+          .namedAnyOf("stream", "parallelStream");
+
+  /** The collections whose spliterators split by walking the nodes. */
+  private static final Matcher<ExpressionTree> LINKED_COLLECTION =
+      Matchers.anyOf(
+          Matchers.isSubtypeOf("java.util.LinkedList"),
+          Matchers.isSubtypeOf("java.util.concurrent.LinkedBlockingQueue"),
+          Matchers.isSubtypeOf("java.util.concurrent.LinkedBlockingDeque"),
+          Matchers.isSubtypeOf("java.util.concurrent.ConcurrentLinkedQueue"),
+          Matchers.isSubtypeOf("java.util.concurrent.ConcurrentLinkedDeque"));
+
+  private static final Matcher<ExpressionTree> ITERATE =
+      Matchers.staticMethod().onClassAny(STREAM_CLASSES).named("iterate");
+
+  private static final Matcher<ExpressionTree> GENERATE =
+      Matchers.staticMethod().onClassAny(STREAM_CLASSES).named("generate");
+
+  private static final Matcher<ExpressionTree> STREAM_SUPPORT =
+      Matchers.staticMethod().onClass("java.util.stream.StreamSupport");
+
+  private static final Matcher<ExpressionTree> ITERATOR_SPLITERATOR =
+      Matchers.staticMethod()
+          .onClass("java.util.Spliterators")
+          .namedAnyOf("spliterator", "spliteratorUnknownSize");
+
+  private static final Matcher<ExpressionTree> IS_ITERATOR =
+      Matchers.isSubtypeOf("java.util.Iterator");
+
+  private static final Matcher<ExpressionTree> ITERABLE_SPLITERATOR =
+      Matchers.instanceMethod().onDescendantOf("java.lang.Iterable").named("spliterator");
+
+  private static final Matcher<ExpressionTree> IS_COLLECTION =
+      Matchers.isSubtypeOf("java.util.Collection");
+
+  private static final Matcher<ExpressionTree> READER_LINES =
+      Matchers.instanceMethod().onDescendantOf("java.io.BufferedReader").named("lines");
+
+  /** The sources created from the elements listed in the arguments. */
+  private static final Matcher<ExpressionTree> LISTED_ELEMENTS =
+      Matchers.anyOf(
+          Matchers.staticMethod().onClassAny("java.util.List", "java.util.Set").named("of"),
+          Matchers.staticMethod().onClass("java.util.Arrays").named("asList"),
+          Matchers.staticMethod().onClass("java.util.EnumSet").named("of"),
+          Matchers.staticMethod().onClassAny(STREAM_CLASSES).named("of"));
+
+  private static final Matcher<ExpressionTree> ARRAYS_STREAM =
+      Matchers.staticMethod().onClass("java.util.Arrays").named("stream");
+
+  private static final Matcher<ExpressionTree> RANGE =
+      Matchers.staticMethod()
+          .onClassAny("java.util.stream.IntStream", "java.util.stream.LongStream")
+          .namedAnyOf("range", "rangeClosed");
+
+  private static final Matcher<ExpressionTree> UNORDERED =
+      Matchers.instanceMethod().onDescendantOf("java.util.stream.BaseStream").named("unordered");
+
+  private static final Matcher<ExpressionTree> SORTED =
+      Matchers.instanceMethod().onDescendantOfAny(STREAM_CLASSES).named("sorted");
+
+  private static final Matcher<ExpressionTree> LIMIT_OR_SKIP =
+      Matchers.instanceMethod().onDescendantOfAny(STREAM_CLASSES).namedAnyOf("limit", "skip");
+
+  private static final Matcher<ExpressionTree> FOR_EACH =
+      Matchers.instanceMethod()
+          .onDescendantOf("java.util.stream.Stream")
+          .namedAnyOf("forEach", "forEachOrdered");
+
+  private static final Matcher<ExpressionTree> WRITE_COLLECTION =
+      Matchers.instanceMethod()
+          .onDescendantOfAny("java.util.Collection", "java.util.Map")
+          .namedAnyOf(
+              "add",
+              "addAll",
+              "addFirst",
+              "addLast",
+              "offer",
+              "push",
+              "remove",
+              "removeAll",
+              "removeIf",
+              "retainAll",
+              "clear",
+              "put",
+              "putAll",
+              "putIfAbsent",
+              "compute",
+              "computeIfAbsent",
+              "computeIfPresent",
+              "merge",
+              "replaceAll");
+
+  private static final Matcher<ExpressionTree> COLLECTION_ADD =
+      Matchers.instanceMethod().onDescendantOf("java.util.Collection").named("add");
+
+  /** The synchronized collections in java.util. */
+  private static final Matcher<Tree> SYNCHRONIZED_COLLECTION =
+      Matchers.anyOf(
+          Matchers.isSubtypeOf("java.util.Vector"), Matchers.isSubtypeOf("java.util.Hashtable"));
+
+  /** The APIs which run tasks on pool threads. */
+  private static final Matcher<ExpressionTree> SUBMIT_TASK =
+      Matchers.anyOf(
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.concurrent.Executor")
+              .named("execute"),
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.concurrent.ExecutorService")
+              .namedAnyOf("submit", "invokeAll", "invokeAny"),
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.concurrent.ScheduledExecutorService")
+              .namedAnyOf("schedule", "scheduleAtFixedRate", "scheduleWithFixedDelay"),
+          Matchers.staticMethod()
+              .onClass("java.util.concurrent.CompletableFuture")
+              .namedAnyOf("runAsync", "supplyAsync"),
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.concurrent.CompletableFuture")
+              .withNameMatching(Pattern.compile(".+Async")));
+
+  /** Running a parallel stream in a task of a ForkJoinPool is the way to keep it off commonPool. */
+  private static final Matcher<ExpressionTree> SUBMIT_TO_FORK_JOIN_POOL =
+      Matchers.instanceMethod().onDescendantOf("java.util.concurrent.ForkJoinPool");
+
+  private static final Matcher<ExpressionTree> IS_FORK_JOIN_POOL =
+      Matchers.isSubtypeOf("java.util.concurrent.ForkJoinPool");
+
+  private static final Matcher<ExpressionTree> COMMON_POOL =
+      Matchers.staticMethod().onClass("java.util.concurrent.ForkJoinPool").named("commonPool");
+
+  private final int minimumSize;
+
+  /** Holds the initializers of the variables in the current compilation unit. */
+  private final VariableInitializers initializers = new VariableInitializers();
+
+  public DoNotMisuseParallelStream(ErrorProneFlags flags) {
+    this.minimumSize = flags.getInteger("DoNotMisuseParallelStream:MinimumSize").orElse(10_000);
+  }
+
+  @Override
+  public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+    if (!UNIT_FILTER.mayMatch(state)
+        || !METHOD_NAMES.mayMatch(tree, state)
+        || !StreamPipelines.PARALLEL.matches(tree, state)) {
+      return Description.NO_MATCH;
+    }
+    // the pipeline is checked once, from the call which makes it parallel
+    ExpressionTree last =
+        (ExpressionTree) StreamPipelines.lastOperation(state.getPath(), state).getLeaf();
+    if (StreamPipelines.parallelCall(last, state) != tree) {
+      return Description.NO_MATCH;
+    }
+    List<MethodInvocationTree> operations = new ArrayList<>();
+    ExpressionTree head = last;
+    while (head instanceof MethodInvocationTree invocation
+        && StreamPipelines.STREAM_OPERATION.matches(invocation, state)) {
+      operations.add(0, invocation);
+      head = ASTHelpers.getReceiver(invocation);
+    }
+    SuggestedFix sequential = sequentialFix(tree, state);
+
+    String source = describePoorSplitting(head, state);
+    if (source != null) {
+      state.reportMatch(
+          buildDescription(tree)
+              .setMessage(
+                  String.format(
+                      "The parallel stream splits its source poorly: %s. The elements are processed one by one while the source is split. Run the stream sequentially.",
+                      source))
+              .addFix(sequential)
+              .build());
+    }
+    long size = head == null ? -1 : constantSize(head, state);
+    if (size >= 0 && size < minimumSize) {
+      state.reportMatch(
+          buildDescription(tree)
+              .setMessage(
+                  String.format(
+                      "The parallel stream has only %d elements, fewer than %d. Splitting the source and merging the results costs more than processing the elements in parallel saves. Run the stream sequentially.",
+                      size, minimumSize))
+              .addFix(sequential)
+              .build());
+    }
+
+    MethodInvocationTree submission = enclosingSubmission(state);
+    if (submission != null) {
+      state.reportMatch(
+          buildDescription(tree)
+              .setMessage(
+                  String.format(
+                      "The parallel stream runs in a task passed to %s. The task already runs on a pool thread, and the stream competes with the other tasks for ForkJoinPool.commonPool(). Run the stream sequentially, or submit the elements to the executor as tasks.",
+                      ASTHelpers.getSymbol(submission).getSimpleName()))
+              .addFix(sequential)
+              .build());
+    }
+
+    boolean unordered = false;
+    for (MethodInvocationTree operation : operations) {
+      if (UNORDERED.matches(operation, state)) {
+        unordered = true;
+      } else if (SORTED.matches(operation, state)) {
+        state.reportMatch(
+            buildDescription(operation)
+                .setMessage(
+                    "sorted() is a barrier in the parallel stream. All the elements are buffered and sorted before the next operation runs, and the operations after it keep the order. Run the stream sequentially.")
+                .addFix(sequential)
+                .build());
+      } else if (!unordered && LIMIT_OR_SKIP.matches(operation, state)) {
+        state.reportMatch(
+            buildDescription(operation)
+                .setMessage(
+                    String.format(
+                        "%s() keeps the encounter order in the parallel stream, and buffers the elements of every split until the preceding ones are counted. Run the stream sequentially, or call unordered() before it when any elements will do.",
+                        ASTHelpers.getSymbol(operation).getSimpleName()))
+                .addFix(sequential)
+                .build());
+      }
+      for (ExpressionTree argument : operation.getArguments()) {
+        for (ExpressionTree write : findUnsafeWrites(argument, state)) {
+          Description.Builder description =
+              buildDescription(write)
+                  .setMessage(
+                      String.format(
+                          "The parallel stream writes to %s, which is not thread-safe, from several threads at once. Collect the elements with a collector instead, e.g. collect(Collectors.toList()), or run the stream sequentially.",
+                          state.getSourceForNode(receiverOf(write))));
+          if (operation == last && FOR_EACH.matches(operation, state)) {
+            collectorFix(operation, write, state).ifPresent(description::addFix);
+          }
+          state.reportMatch(description.addFix(sequential).build());
+        }
+      }
+    }
+    return Description.NO_MATCH;
+  }
+
+  /** Replaces parallelStream() with stream(), or removes parallel(). */
+  private static SuggestedFix sequentialFix(MethodInvocationTree parallel, VisitorState state) {
+    if (PARALLEL_STREAM.matches(parallel, state)) {
+      return SuggestedFixes.renameMethodInvocation(parallel, "stream", state);
+    }
+    ExpressionTree receiver = ASTHelpers.getReceiver(parallel);
+    return SuggestedFix.replace(state.getEndPosition(receiver), state.getEndPosition(parallel), "");
+  }
+
+  /** Returns why the source of the stream splits poorly, or null. */
+  private String describePoorSplitting(ExpressionTree head, VisitorState state) {
+    if (!(head instanceof MethodInvocationTree invocation)) {
+      return null;
+    }
+    if (COLLECTION_STREAM.matches(invocation, state)) {
+      ExpressionTree receiver = ASTHelpers.getReceiver(invocation);
+      if (receiver == null) {
+        return null;
+      }
+      ExpressionTree collection = resolve(receiver, state);
+      if (LINKED_COLLECTION.matches(collection, state)) {
+        return ASTHelpers.getType(collection).tsym.getSimpleName()
+            + " is split by walking its nodes";
+      }
+      return null;
+    }
+    if (ITERATE.matches(invocation, state)) {
+      return "iterate() computes each element from the previous one";
+    }
+    if (GENERATE.matches(invocation, state)) {
+      return "generate() creates an infinite stream, which is split in batches of elements";
+    }
+    if (READER_LINES.matches(invocation, state)) {
+      return "the lines of a reader are read one by one";
+    }
+    if (STREAM_SUPPORT.matches(invocation, state) && !invocation.getArguments().isEmpty()) {
+      ExpressionTree spliterator = resolve(invocation.getArguments().get(0), state);
+      if (spliterator instanceof MethodInvocationTree created
+          && isIteratorSpliterator(created, state)) {
+        return "the spliterator of an Iterator is split by copying batches of elements";
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns whether the spliterator is created from an Iterator, directly or by the default
+   * Iterable.spliterator() of an Iterable which is not a Collection.
+   */
+  private static boolean isIteratorSpliterator(MethodInvocationTree created, VisitorState state) {
+    if (ITERATOR_SPLITERATOR.matches(created, state)) {
+      return !created.getArguments().isEmpty()
+          && IS_ITERATOR.matches(created.getArguments().get(0), state);
+    }
+    if (ITERABLE_SPLITERATOR.matches(created, state)) {
+      ExpressionTree iterable = ASTHelpers.getReceiver(created);
+      Symbol owner = ASTHelpers.getSymbol(created).owner;
+      return iterable != null
+          && !IS_COLLECTION.matches(iterable, state)
+          && owner.getQualifiedName().contentEquals("java.lang.Iterable");
+    }
+    return false;
+  }
+
+  /**
+   * Returns the number of elements of the source when it is written in the code, e.g. {@code
+   * List.of(a, b)}, an array initializer, the constants of an enum or {@code IntStream.range(0,
+   * 10)}, or -1.
+   */
+  private long constantSize(ExpressionTree source, VisitorState state) {
+    ExpressionTree expression = resolve(source, state);
+    if (expression instanceof NewArrayTree array) {
+      return array.getInitializers() == null ? -1 : array.getInitializers().size();
+    }
+    if (!(expression instanceof MethodInvocationTree invocation)) {
+      return -1;
+    }
+    Symbol.MethodSymbol symbol = ASTHelpers.getSymbol(invocation);
+    List<? extends ExpressionTree> arguments = invocation.getArguments();
+    if (LISTED_ELEMENTS.matches(invocation, state)) {
+      // List.of(array) lists the elements of the array
+      if (symbol.isVarArgs()
+          && arguments.size() == 1
+          && ASTHelpers.getType(arguments.get(0)) instanceof Type.ArrayType) {
+        return constantSize(arguments.get(0), state);
+      }
+      return arguments.size();
+    }
+    if (ARRAYS_STREAM.matches(invocation, state)) {
+      return arguments.size() == 1 ? constantSize(arguments.get(0), state) : -1;
+    }
+    if (RANGE.matches(invocation, state)) {
+      Object from = ASTHelpers.constValue(arguments.get(0));
+      Object to = ASTHelpers.constValue(arguments.get(1));
+      if (!(from instanceof Number start) || !(to instanceof Number end)) {
+        return -1;
+      }
+      long size = end.longValue() - start.longValue();
+      if (symbol.getSimpleName().contentEquals("rangeClosed")) {
+        size++;
+      }
+      return Math.max(size, 0);
+    }
+    if (symbol.isStatic()
+        && symbol.getSimpleName().contentEquals("values")
+        && arguments.isEmpty()
+        && symbol.owner.isEnum()) {
+      return ASTHelpers.enumValues((Symbol.TypeSymbol) symbol.owner).size();
+    }
+    if (COLLECTION_STREAM.matches(invocation, state)) {
+      ExpressionTree collection = ASTHelpers.getReceiver(invocation);
+      return collection == null ? -1 : constantSize(collection, state);
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the calls in the lambda or the method reference which write to a collection captured
+   * from outside, when the collection is not thread-safe.
+   */
+  private List<ExpressionTree> findUnsafeWrites(
+      ExpressionTree argument, VisitorState state) {
+    List<ExpressionTree> writes = new ArrayList<>();
+    if (argument instanceof MemberReferenceTree reference) {
+      if (WRITE_COLLECTION.matches(reference, state)
+          && isUnsafeCollection(reference.getQualifierExpression(), Set.of(), state)) {
+        writes.add(reference);
+      }
+      return writes;
+    }
+    if (!(argument instanceof LambdaExpressionTree lambda)) {
+      return writes;
+    }
+    Set<Symbol> locals = new HashSet<>();
+    new TreeScanner<Void, Void>() {
+      @Override
+      public Void visitVariable(VariableTree tree, Void unused) {
+        locals.add(ASTHelpers.getSymbol(tree));
+        return super.visitVariable(tree, unused);
+      }
+
+      @Override
+      public Void visitClass(ClassTree tree, Void unused) {
+        return null;
+      }
+    }.scan(lambda, null);
+    new TreeScanner<Void, Void>() {
+      @Override
+      public Void visitMethodInvocation(MethodInvocationTree tree, Void unused) {
+        ExpressionTree receiver = ASTHelpers.getReceiver(tree);
+        if (receiver != null
+            && WRITE_COLLECTION.matches(tree, state)
+            && isUnsafeCollection(receiver, locals, state)) {
+          writes.add(tree);
+        }
+        return super.visitMethodInvocation(tree, unused);
+      }
+
+      @Override
+      public Void visitClass(ClassTree tree, Void unused) {
+        return null;
+      }
+    }.scan(lambda.getBody(), null);
+    return writes;
+  }
+
+  /**
+   * Returns whether the expression is a variable declared outside the lambda, holding a collection
+   * of java.util which is not synchronized, e.g. ArrayList or HashMap.
+   */
+  private boolean isUnsafeCollection(
+      ExpressionTree receiver, Set<Symbol> locals, VisitorState state) {
+    ExpressionTree expression = ASTHelpers.stripParentheses(receiver);
+    if (!(expression instanceof IdentifierTree) && !(expression instanceof MemberSelectTree)) {
+      return false;
+    }
+    Symbol symbol = ASTHelpers.getSymbol(expression);
+    if (!(symbol instanceof Symbol.VarSymbol) || locals.contains(symbol)) {
+      return false;
+    }
+    ExpressionTree collection = resolve(expression, state);
+    Type type = ASTHelpers.getType(collection);
+    if (type == null || type.tsym == null || type.tsym.isInterface()) {
+      return false;
+    }
+    return type.tsym.packge().getQualifiedName().contentEquals("java.util")
+        && !SYNCHRONIZED_COLLECTION.matches(collection, state);
+  }
+
+  /**
+   * Replaces {@code forEach(target::add)} and {@code forEach(e -> target.add(f(e)))} with {@code
+   * target.addAll(stream.map(e -> f(e)).collect(Collectors.toList()))}.
+   */
+  private static Optional<SuggestedFix> collectorFix(
+      MethodInvocationTree forEach, ExpressionTree write, VisitorState state) {
+    if (!COLLECTION_ADD.matches(write, state) || forEach.getArguments().size() != 1) {
+      return Optional.empty();
+    }
+    ExpressionTree argument = forEach.getArguments().get(0);
+    String mapping = "";
+    if (argument instanceof LambdaExpressionTree lambda) {
+      if (lambda.getParameters().size() != 1
+          || !isOnlyStatement(lambda, write)
+          || ((MethodInvocationTree) write).getArguments().size() != 1) {
+        return Optional.empty();
+      }
+      ExpressionTree element = ((MethodInvocationTree) write).getArguments().get(0);
+      Symbol parameter = ASTHelpers.getSymbol(lambda.getParameters().get(0));
+      if (!parameter.equals(ASTHelpers.getSymbol(element))) {
+        mapping =
+            String.format(
+                ".map(%s -> %s)", parameter.getSimpleName(), state.getSourceForNode(element));
+      }
+    } else if (argument != write) {
+      return Optional.empty();
+    }
+    SuggestedFix.Builder fix = SuggestedFix.builder();
+    String collectors = SuggestedFixes.qualifyType(state, fix, "java.util.stream.Collectors");
+    return Optional.of(
+        fix.replace(
+                forEach,
+                String.format(
+                    "%s.addAll(%s%s.collect(%s.toList()))",
+                    state.getSourceForNode(receiverOf(write)),
+                    state.getSourceForNode(ASTHelpers.getReceiver(forEach)),
+                    mapping,
+                    collectors))
+            .build());
+  }
+
+  /** Returns whether the call is the body of the lambda. */
+  private static boolean isOnlyStatement(LambdaExpressionTree lambda, ExpressionTree call) {
+    Tree body = lambda.getBody();
+    if (body instanceof BlockTree block
+        && block.getStatements().size() == 1
+        && block.getStatements().get(0) instanceof ExpressionStatementTree statement) {
+      return statement.getExpression() == call;
+    }
+    return body == call;
+  }
+
+  private static ExpressionTree receiverOf(ExpressionTree write) {
+    return write instanceof MemberReferenceTree reference
+        ? reference.getQualifierExpression()
+        : ASTHelpers.getReceiver(write);
+  }
+
+  /** Returns the submission of the task which contains the current node, or null. */
+  private static MethodInvocationTree enclosingSubmission(VisitorState state) {
+    Tree child = state.getPath().getLeaf();
+    for (TreePath path = state.getPath().getParentPath();
+        path != null;
+        child = path.getLeaf(), path = path.getParentPath()) {
+      Tree leaf = path.getLeaf();
+      if (leaf instanceof MethodInvocationTree invocation
+          && (child instanceof LambdaExpressionTree || child instanceof NewClassTree)
+          && invocation.getArguments().contains(child)
+          && SUBMIT_TASK.matches(invocation, state)) {
+        return runsOnForkJoinPool(invocation, state) ? null : invocation;
+      }
+      // the tasks are lambdas or anonymous classes
+      if (leaf instanceof ClassTree classTree && classTree.getSimpleName().length() > 0) {
+        return null;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns whether the task runs on a ForkJoinPool other than commonPool: it is submitted to the
+   * pool, or the pool is the executor of the Async method, e.g. {@code supplyAsync(task, pool)}.
+   */
+  private static boolean runsOnForkJoinPool(MethodInvocationTree invocation, VisitorState state) {
+    if (SUBMIT_TO_FORK_JOIN_POOL.matches(invocation, state)) {
+      return true;
+    }
+    List<? extends ExpressionTree> arguments = invocation.getArguments();
+    ExpressionTree executor = arguments.get(arguments.size() - 1);
+    return IS_FORK_JOIN_POOL.matches(executor, state)
+        && !COMMON_POOL.matches(ASTHelpers.stripParentheses(executor), state);
+  }
+
+  /** Returns the initializer of the final variable declared in the compilation unit, or itself. */
+  private ExpressionTree resolve(ExpressionTree tree, VisitorState state) {
+    ExpressionTree expression = ASTHelpers.stripParentheses(tree);
+    if (!(expression instanceof IdentifierTree) && !(expression instanceof MemberSelectTree)) {
+      return expression;
+    }
+    Symbol symbol = ASTHelpers.getSymbol(expression);
+    if (!(symbol instanceof Symbol.VarSymbol) || !ASTHelpers.isConsideredFinal(symbol)) {
+      return expression;
+    }
+    ExpressionTree initializer = initializers.find(symbol, state);
+    return initializer == null ? expression : ASTHelpers.stripParentheses(initializer);
+  }
+}
@@ -0,0 +1,273 @@
+package io.github.wreulicke.errorprone.threads;
+
+import com.google.auto.service.AutoService;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.ErrorProneFlags;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.fixes.SuggestedFix;
+import com.google.errorprone.fixes.SuggestedFixes;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.BlockTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.IdentifierTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.MemberSelectTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.SynchronizedTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.code.Symbol;
+import io.github.wreulicke.errorprone.common.BlockingMethods;
+import io.github.wreulicke.errorprone.common.MemberFixes;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import javax.lang.model.element.Modifier;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+    summary =
+        "Do not block inside synchronized. It pins the carrier thread of virtual threads. Use ReentrantLock instead.",
+    severity = BugPattern.SeverityLevel.ERROR,
+    link = "github.com/wreulicke/errorprone-concurrency",
+    linkType = BugPattern.LinkType.CUSTOM)
+public class DoNotBlockInSynchronized extends BugChecker
+    implements BugChecker.SynchronizedTreeMatcher, BugChecker.MethodTreeMatcher {
+
+  private static final Matcher<ExpressionTree> USE_MONITOR =
+      Matchers.instanceMethod()
+          .onDescendantOf("java.lang.Object")
+          .namedAnyOf("wait", "notify", "notifyAll");
+
+  private static final Matcher<Tree> IS_LOCK =
+      Matchers.isSubtypeOf("java.util.concurrent.locks.Lock");
+
+  private final BlockingMethods blockingMethods;
+
+  public DoNotBlockInSynchronized(ErrorProneFlags flags) {
+    this.blockingMethods = BlockingMethods.fromFlags(flags, "DoNotBlockInSynchronized");
+  }
+
+  @Override
+  public Description matchSynchronized(SynchronizedTree tree, VisitorState state) {
+    ClassTree classTree = ASTHelpers.findEnclosingNode(state.getPath(), ClassTree.class);
+    ExpressionTree call = findBlockingCall(tree.getBlock(), classTree, state);
+    if (call == null) {
+      return Description.NO_MATCH;
+    }
+
+    Description.Builder description = buildDescription(tree).setMessage(message(call));
+    Optional<Boolean> onClass = monitorOf(tree, classTree);
+    if (onClass.isPresent() && canReplaceMonitor(tree.getBlock(), classTree, state)) {
+      SuggestedFix.Builder fix = SuggestedFix.builder();
+      Optional<String> name = addLockField(fix, classTree, onClass.get(), state);
+      if (name.isPresent()) {
+        fix.replace(tree, wrapWithLock(name.get(), tree.getBlock(), state));
+        description.addFix(fix.build());
+      }
+    }
+    return description.build();
+  }
+
+  @Override
+  public Description matchMethod(MethodTree tree, VisitorState state) {
+    if (!tree.getModifiers().getFlags().contains(Modifier.SYNCHRONIZED) || tree.getBody() == null) {
+      return Description.NO_MATCH;
+    }
+    ClassTree classTree = ASTHelpers.findEnclosingNode(state.getPath(), ClassTree.class);
+    ExpressionTree call = findBlockingCall(tree.getBody(), classTree, state);
+    if (call == null) {
+      return Description.NO_MATCH;
+    }
+
+    Description.Builder description = buildDescription(tree).setMessage(message(call));
+    if (canReplaceMonitor(tree.getBody(), classTree, state)) {
+      boolean isStatic = tree.getModifiers().getFlags().contains(Modifier.STATIC);
+      SuggestedFix.Builder fix = SuggestedFix.builder();
+      Optional<String> name = addLockField(fix, classTree, isStatic, state);
+      Optional<SuggestedFix> removeSynchronized =
+          SuggestedFixes.removeModifiers(tree, state, Modifier.SYNCHRONIZED);
+      if (name.isPresent() && removeSynchronized.isPresent()) {
+        String body = "{\n" + wrapWithLock(name.get(), tree.getBody(), state) + "\n}";
+        fix.merge(removeSynchronized.get()).replace(tree.getBody(), body);
+        description.addFix(fix.build());
+      }
+    }
+    return description.build();
+  }
+
+  private static String message(ExpressionTree call) {
+    return String.format(
+        "Do not block inside synchronized. %s pins the carrier thread of virtual threads. Use ReentrantLock instead.",
+        BlockingMethods.describe(call));
+  }
+
+  /**
+   * Returns the blocking call in the region, including calls in methods of the same class which
+   * are called from the region.
+   */
+  private ExpressionTree findBlockingCall(Tree region, ClassTree classTree, VisitorState state) {
+    Set<Symbol> visited = new HashSet<>();
+    return new TreeScanner<ExpressionTree, Void>() {
+      @Override
+      public ExpressionTree visitMethodInvocation(MethodInvocationTree tree, Void unused) {
+        if (blockingMethods.matches(tree, state)) {
+          return tree;
+        }
+        Symbol symbol = ASTHelpers.getSymbol(tree);
+        for (Tree member : classTree.getMembers()) {
+          if (member instanceof MethodTree method
+              && method.getBody() != null
+              && ASTHelpers.getSymbol(method).equals(symbol)
+              && visited.add(symbol)) {
+            ExpressionTree call = scan(method.getBody(), null);
+            if (call != null) {
+              return call;
+            }
+          }
+        }
+        return super.visitMethodInvocation(tree, unused);
+      }
+
+      @Override
+      public ExpressionTree visitLambdaExpression(LambdaExpressionTree tree, Void unused) {
+        // lambdas are not necessarily executed while holding the monitor
+        return null;
+      }
+
+      @Override
+      public ExpressionTree visitClass(ClassTree tree, Void unused) {
+        return null;
+      }
+
+      @Override
+      public ExpressionTree reduce(ExpressionTree r1, ExpressionTree r2) {
+        return r1 != null ? r1 : r2;
+      }
+    }.scan(region, null);
+  }
+
+  /**
+   * Returns whether the synchronized block locks the monitor of the class object, or of the
+   * instance. Other monitors are not supported.
+   */
+  private static Optional<Boolean> monitorOf(SynchronizedTree tree, ClassTree classTree) {
+    ExpressionTree lock = ASTHelpers.stripParentheses(tree.getExpression());
+    if (lock instanceof IdentifierTree identifier && identifier.getName().contentEquals("this")) {
+      return Optional.of(false);
+    }
+    if (lock instanceof MemberSelectTree select
+        && select.getIdentifier().contentEquals("class")
+        && Objects.equals(
+            ASTHelpers.getSymbol(select.getExpression()), ASTHelpers.getSymbol(classTree))) {
+      return Optional.of(true);
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Returns whether the monitor of the region can be replaced by a lock. It cannot when the region
+   * waits or notifies on the monitor, or when other synchronized regions of the class would no
+   * longer exclude it.
+   */
+  private static boolean canReplaceMonitor(
+      BlockTree body, ClassTree classTree, VisitorState state) {
+    if (useMonitor(body, state)) {
+      return false;
+    }
+    int regions = 0;
+    for (Tree member : classTree.getMembers()) {
+      regions += countSynchronizedRegions(member, classTree);
+    }
+    return regions == 1;
+  }
+
+  private static int countSynchronizedRegions(Tree member, ClassTree classTree) {
+    Integer count =
+        new TreeScanner<Integer, Void>() {
+          @Override
+          public Integer visitMethod(MethodTree tree, Void unused) {
+            int self = tree.getModifiers().getFlags().contains(Modifier.SYNCHRONIZED) ? 1 : 0;
+            return reduce(self, super.visitMethod(tree, unused));
+          }
+
+          @Override
+          public Integer visitSynchronized(SynchronizedTree tree, Void unused) {
+            int self = monitorOf(tree, classTree).isPresent() ? 1 : 0;
+            return reduce(self, super.visitSynchronized(tree, unused));
+          }
+
+          @Override
+          public Integer visitClass(ClassTree tree, Void unused) {
+            return 0;
+          }
+
+          @Override
+          public Integer reduce(Integer r1, Integer r2) {
+            return (r1 == null ? 0 : r1) + (r2 == null ? 0 : r2);
+          }
+        }.scan(member, null);
+    return count == null ? 0 : count;
+  }
+
+  private static boolean useMonitor(Tree region, VisitorState state) {
+    return Boolean.TRUE.equals(
+        new TreeScanner<Boolean, Void>() {
+          @Override
+          public Boolean visitMethodInvocation(MethodInvocationTree tree, Void unused) {
+            if (USE_MONITOR.matches(tree, state)) {
+              return true;
+            }
+            return super.visitMethodInvocation(tree, unused);
+          }
+
+          @Override
+          public Boolean reduce(Boolean r1, Boolean r2) {
+            return Boolean.TRUE.equals(r1) || Boolean.TRUE.equals(r2);
+          }
+        }.scan(region, null));
+  }
+
+  /**
+   * Adds a ReentrantLock field which replaces the monitor, and returns its name. The existing field
+   * is reused when the class already has it.
+   */
+  private static Optional<String> addLockField(
+      SuggestedFix.Builder fix, ClassTree classTree, boolean isStatic, VisitorState state) {
+    if (classTree.getKind() != Tree.Kind.CLASS) {
+      return Optional.empty();
+    }
+    String name = isStatic ? "LOCK" : "lock";
+    Optional<VariableTree> existing = MemberFixes.findField(classTree, name);
+    if (existing.isPresent()) {
+      VariableTree field = existing.get();
+      if (IS_LOCK.matches(field, state)
+          && field.getModifiers().getFlags().contains(Modifier.STATIC) == isStatic) {
+        return Optional.of(name);
+      }
+      return Optional.empty();
+    }
+    String type =
+        SuggestedFixes.qualifyType(state, fix, "java.util.concurrent.locks.ReentrantLock");
+    MemberFixes.insertMember(
+        fix,
+        classTree,
+        String.format(
+            "private %sfinal %s %s = new %s();", isStatic ? "static " : "", type, name, type),
+        state);
+    return Optional.of(name);
+  }
+
+  private static String wrapWithLock(String lock, BlockTree block, VisitorState state) {
+    return String.format(
+        "%s.lock();\ntry %s finally {\n%s.unlock();\n}", lock, state.getSourceForNode(block), lock);
+  }
+}
@@ -0,0 +1,465 @@
+package io.github.wreulicke.errorprone.threads;
+
+import com.google.auto.service.AutoService;
+import com.google.errorprone.BugPattern;
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.bugpatterns.BugChecker;
+import com.google.errorprone.matchers.Description;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.BinaryTree;
+import com.sun.source.tree.BlockTree;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.LambdaExpressionTree;
+import com.sun.source.tree.MemberReferenceTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.NewArrayTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.TryTree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.TreePath;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.code.Symbol;
+import com.sun.tools.javac.code.Type;
+import io.github.wreulicke.errorprone.common.InvocationFilter;
+import io.github.wreulicke.errorprone.common.UnitFilter;
+import io.github.wreulicke.errorprone.common.VariableInitializers;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.type.TypeKind;
+
+@AutoService(BugChecker.class)
+@BugPattern(
+    summary =
+        "Do not leak ThreadLocal values between tasks. Pooled threads hold the values for their lifetime, and virtual threads create them again for every task.",
+    severity = BugPattern.SeverityLevel.ERROR,
+    link = "github.com/wreulicke/errorprone-concurrency",
+    linkType = BugPattern.LinkType.CUSTOM)
+public class DoNotLeakThreadLocal extends BugChecker
+    implements BugChecker.VariableTreeMatcher, BugChecker.MethodInvocationTreeMatcher {
+
+  private static final InvocationFilter METHOD_NAMES =
+      InvocationFilter.of(
+          "withInitial",
+          "set",
+          "execute",
+          "submit",
+          "invokeAll",
+          "invokeAny",
+          "startVirtualThread",
+          "start",
+          "unstarted");
+
+  private static final Matcher<Tree> IS_THREAD_LOCAL =
+      Matchers.isSubtypeOf("java.lang.ThreadLocal");
+
+  private static final Matcher<ExpressionTree> WITH_INITIAL =
+      Matchers.staticMethod().onClass("java.lang.ThreadLocal").named("withInitial");
+
+  private static final Matcher<ExpressionTree> THREAD_LOCAL_SET =
+      Matchers.instanceMethod().onDescendantOf("java.lang.ThreadLocal").named("set");
+
+  private static final Matcher<ExpressionTree> THREAD_LOCAL_REMOVE =
+      Matchers.instanceMethod().onDescendantOf("java.lang.ThreadLocal").named("remove");
+
+  private static final Matcher<ExpressionTree> THREAD_LOCAL_GET =
+      Matchers.instanceMethod().onDescendantOf("java.lang.ThreadLocal").named("get");
+
+  /** The objects which are too large to keep in every thread. */
+  private static final List<String> LARGE_OBJECT_CLASSES =
+      List.of(
+          "java.text.SimpleDateFormat",
+          "java.text.DecimalFormat",
+          "java.lang.StringBuilder",
+          "java.lang.StringBuffer",
+          "java.io.ByteArrayOutputStream");
+
+  private static final Matcher<ExpressionTree> NEW_LARGE_OBJECT =
+      Matchers.anyOf(
+          LARGE_OBJECT_CLASSES.stream().map(c -> Matchers.constructor().forClass(c)).toList());
+
+  /** The APIs which run tasks on pooled threads. */
+  private static final Matcher<ExpressionTree> SUBMIT_TASK =
+      Matchers.anyOf(
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.concurrent.Executor")
+              .named("execute"),
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.concurrent.ExecutorService")
+              .namedAnyOf("submit", "invokeAll", "invokeAny"),
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.concurrent.ScheduledExecutorService")
+              .namedAnyOf("schedule", "scheduleAtFixedRate", "scheduleWithFixedDelay"),
+          Matchers.staticMethod()
+              .onClass("java.util.concurrent.CompletableFuture")
+              .namedAnyOf("runAsync", "supplyAsync"));
+
+  private static final Matcher<ExpressionTree> SUBMIT_TO_EXECUTOR_SERVICE =
+      Matchers.anyOf(
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.concurrent.Executor")
+              .named("execute"),
+          Matchers.instanceMethod()
+              .onDescendantOf("java.util.concurrent.ExecutorService")
+              .namedAnyOf("submit", "invokeAll", "invokeAny"));
+
+  private static final Matcher<ExpressionTree> START_VIRTUAL_THREAD =
+      Matchers.anyOf(
+          Matchers.staticMethod().onClass("java.lang.Thread").named("startVirtualThread"),
+          Matchers.instanceMethod()
+              .onDescendantOf("java.lang.Thread.Builder.OfVirtual")
+              .namedAnyOf("start", "unstarted"));
+
+  private static final Matcher<ExpressionTree> NEW_VIRTUAL_THREAD_EXECUTOR =
+      Matchers.anyOf(
+          Matchers.staticMethod()
+              .onClass("java.util.concurrent.Executors")
+              .named("newVirtualThreadPerTaskExecutor"),
+          Matchers.staticMethod()
+              .onClass("java.util.concurrent.Executors")
+              .named("newThreadPerTaskExecutor")
+              .withParameters("java.util.concurrent.ThreadFactory"));
+
+  private static final Matcher<ExpressionTree> VIRTUAL_THREAD_FACTORY =
+      Matchers.instanceMethod()
+          .onDescendantOf("java.lang.Thread.Builder.OfVirtual")
+          .named("factory");
+
+  private static final Matcher<Tree> IS_TASK =
+      Matchers.anyOf(
+          Matchers.isSubtypeOf("java.lang.Runnable"),
+          Matchers.isSubtypeOf("java.util.concurrent.Callable"));
+
+  /** Holds the initializers of the variables in the current compilation unit. */
+  private final VariableInitializers initializers = new VariableInitializers();
+
+  @Override
+  public Description matchVariable(VariableTree tree, VisitorState state) {
+    if (!UnitFilter.CONCURRENCY.mayMatch(state)) {
+      return Description.NO_MATCH;
+    }
+    Symbol symbol = ASTHelpers.getSymbol(tree);
+    if (symbol.getKind() != ElementKind.FIELD
+        || symbol.isStatic()
+        || !IS_THREAD_LOCAL.matches(tree, state)) {
+      return Description.NO_MATCH;
+    }
+    // no fix: making the field static merges the values of all the instances
+    return buildDescription(tree)
+        .setMessage(
+            String.format(
+                "ThreadLocal field %s should be static. Each instance holds its own value in every thread, and the values stay in pooled threads after the instance is gone.",
+                symbol.getSimpleName()))
+        .build();
+  }
+
+  @Override
+  public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+    if (!UnitFilter.CONCURRENCY.mayMatch(state) || !METHOD_NAMES.mayMatch(tree, state)) {
+      return Description.NO_MATCH;
+    }
+    if (WITH_INITIAL.matches(tree, state)) {
+      return matchWithInitial(tree, state);
+    }
+    if (THREAD_LOCAL_SET.matches(tree, state)) {
+      return matchSet(tree, state);
+    }
+    if (runsOnVirtualThread(tree, state)) {
+      return matchVirtualThreadTask(tree, state);
+    }
+    return Description.NO_MATCH;
+  }
+
+  /** Returns whether the invocation runs the task on a new virtual thread. */
+  private boolean runsOnVirtualThread(MethodInvocationTree tree, VisitorState state) {
+    return START_VIRTUAL_THREAD.matches(tree, state)
+        || (SUBMIT_TO_EXECUTOR_SERVICE.matches(tree, state)
+            && isVirtualThreadExecutor(ASTHelpers.getReceiver(tree), state));
+  }
+
+  private Description matchWithInitial(MethodInvocationTree tree, VisitorState state) {
+    String allocated = findLargeAllocation(tree.getArguments().get(0), state);
+    if (allocated == null) {
+      return Description.NO_MATCH;
+    }
+    return buildDescription(tree)
+        .setMessage(
+            String.format(
+                "ThreadLocal.withInitial allocates %s for each thread. Pooled threads hold it for their lifetime, and virtual threads allocate it again for every task. Allocate it where it is used, or share an immutable object, e.g. DateTimeFormatter.",
+                allocated))
+        .build();
+  }
+
+  /** Returns the simple name of the large object allocated by the initial value supplier. */
+  private static String findLargeAllocation(ExpressionTree supplier, VisitorState state) {
+    if (supplier instanceof MemberReferenceTree reference
+        && reference.getMode() == MemberReferenceTree.ReferenceMode.NEW) {
+      Type type = ASTHelpers.getType(reference.getQualifierExpression());
+      if (type == null) {
+        return null;
+      }
+      if (type.getKind() == TypeKind.ARRAY) {
+        return state.getSourceForNode(reference.getQualifierExpression());
+      }
+      return LARGE_OBJECT_CLASSES.contains(type.tsym.getQualifiedName().toString())
+          ? type.tsym.getSimpleName().toString()
+          : null;
+    }
+    if (!(supplier instanceof LambdaExpressionTree lambda)) {
+      return null;
+    }
+    return new TreeScanner<String, Void>() {
+      @Override
+      public String visitNewClass(NewClassTree tree, Void unused) {
+        if (NEW_LARGE_OBJECT.matches(tree, state)) {
+          return ASTHelpers.getSymbol(tree).owner.getSimpleName().toString();
+        }
+        return super.visitNewClass(tree, unused);
+      }
+
+      @Override
+      public String visitNewArray(NewArrayTree tree, Void unused) {
+        // scratch buffers, but not array literals
+        if (tree.getDimensions().isEmpty()) {
+          return super.visitNewArray(tree, unused);
+        }
+        Type type = ASTHelpers.getType(tree);
+        return type == null ? "an array" : type.toString();
+      }
+
+      @Override
+      public String visitLambdaExpression(LambdaExpressionTree tree, Void unused) {
+        // nested lambdas are not called for the initial value
+        return null;
+      }
+
+      @Override
+      public String reduce(String r1, String r2) {
+        return r1 != null ? r1 : r2;
+      }
+    }.scan(lambda.getBody(), null);
+  }
+
+  private Description matchSet(MethodInvocationTree tree, VisitorState state) {
+    Tree task = enclosingTask(state);
+    ExpressionTree threadLocal = ASTHelpers.getReceiver(tree);
+    if (task == null || threadLocal == null || removedInFinally(task, threadLocal, state)) {
+      return Description.NO_MATCH;
+    }
+    return buildDescription(tree)
+        .setMessage(
+            String.format(
+                "ThreadLocal %s is set in the task without remove() in finally. The value stays in the pooled thread, and leaks to the next task.",
+                state.getSourceForNode(threadLocal)))
+        .build();
+  }
+
+  /**
+   * Returns the body of the task enclosing the current node: a lambda submitted to an executor, or
+   * the run or call method of a Runnable or Callable.
+   */
+  private Tree enclosingTask(VisitorState state) {
+    for (TreePath path = state.getPath(); path != null; path = path.getParentPath()) {
+      Tree leaf = path.getLeaf();
+      if (leaf instanceof LambdaExpressionTree lambda) {
+        Tree parent = path.getParentPath().getLeaf();
+        return parent instanceof MethodInvocationTree invocation
+                && SUBMIT_TASK.matches(invocation, state)
+                && !runsOnVirtualThread(invocation, state)
+            ? lambda.getBody()
+            : null;
+      }
+      if (leaf instanceof MethodTree method) {
+        ClassTree classTree = ASTHelpers.findEnclosingNode(path, ClassTree.class);
+        boolean isTaskMethod =
+            method.getParameters().isEmpty()
+                && (method.getName().contentEquals("run")
+                    || method.getName().contentEquals("call"));
+        return isTaskMethod && classTree != null && IS_TASK.matches(classTree, state)
+            ? method.getBody()
+            : null;
+      }
+    }
+    return null;
+  }
+
+  private static boolean removedInFinally(
+      Tree task, ExpressionTree threadLocal, VisitorState state) {
+    return Boolean.TRUE.equals(
+        new TreeScanner<Boolean, Void>() {
+          @Override
+          public Boolean visitTry(TryTree tree, Void unused) {
+            BlockTree finallyBlock = tree.getFinallyBlock();
+            if (finallyBlock != null
+                && calls(finallyBlock, THREAD_LOCAL_REMOVE, threadLocal, state)) {
+              return true;
+            }
+            return super.visitTry(tree, unused);
+          }
+
+          @Override
+          public Boolean reduce(Boolean r1, Boolean r2) {
+            return Boolean.TRUE.equals(r1) || Boolean.TRUE.equals(r2);
+          }
+        }.scan(task, null));
+  }
+
+  /** Returns whether the body calls the method of the ThreadLocal. */
+  private static boolean calls(
+      Tree body, Matcher<ExpressionTree> method, ExpressionTree threadLocal, VisitorState state) {
+    return Boolean.TRUE.equals(
+        new TreeScanner<Boolean, Void>() {
+          @Override
+          public Boolean visitMethodInvocation(MethodInvocationTree tree, Void unused) {
+            ExpressionTree receiver = ASTHelpers.getReceiver(tree);
+            if (method.matches(tree, state)
+                && receiver != null
+                && ASTHelpers.sameVariable(receiver, threadLocal)) {
+              return true;
+            }
+            return super.visitMethodInvocation(tree, unused);
+          }
+
+          @Override
+          public Boolean reduce(Boolean r1, Boolean r2) {
+            return Boolean.TRUE.equals(r1) || Boolean.TRUE.equals(r2);
+          }
+        }.scan(body, null));
+  }
+
+  private Description matchVirtualThreadTask(MethodInvocationTree tree, VisitorState state) {
+    ClassTree classTree = state.findEnclosing(ClassTree.class);
+    ExpressionTree get = findThreadLocalGet(tree, classTree, state);
+    if (get == null) {
+      return Description.NO_MATCH;
+    }
+    return buildDescription(tree)
+        .setMessage(
+            String.format(
+                "The task runs on a virtual thread, so ThreadLocal %s caches nothing. Every task runs on a new thread, and the value is created again and dropped. Share a thread-safe object, or pool it explicitly.",
+                state.getSourceForNode(ASTHelpers.getReceiver(get))))
+        .build();
+  }
+
+  /**
+   * Returns the ThreadLocal.get call caching a value in the task, including calls in methods of the
+   * same class which are called from the task. The other ThreadLocals, e.g. the context propagated
+   * to the task, do not create the values.
+   */
+  private ExpressionTree findThreadLocalGet(
+      MethodInvocationTree submission, ClassTree classTree, VisitorState state) {
+    Set<Symbol> visited = new HashSet<>();
+    return new TreeScanner<ExpressionTree, Void>() {
+      /** The submission of the task, or the method being scanned. */
+      private Tree body = submission;
+
+      @Override
+      public ExpressionTree visitMethodInvocation(MethodInvocationTree tree, Void unused) {
+        ExpressionTree threadLocal = ASTHelpers.getReceiver(tree);
+        if (THREAD_LOCAL_GET.matches(tree, state)
+            && threadLocal != null
+            && isCache(threadLocal, body, state)) {
+          return tree;
+        }
+        ExpressionTree found = scanMethod(ASTHelpers.getSymbol(tree));
+        return found != null ? found : super.visitMethodInvocation(tree, unused);
+      }
+
+      @Override
+      public ExpressionTree visitMemberReference(MemberReferenceTree tree, Void unused) {
+        ExpressionTree found = scanMethod(ASTHelpers.getSymbol(tree));
+        return found != null ? found : super.visitMemberReference(tree, unused);
+      }
+
+      private ExpressionTree scanMethod(Symbol symbol) {
+        if (classTree == null || symbol == null || !visited.add(symbol)) {
+          return null;
+        }
+        for (Tree member : classTree.getMembers()) {
+          if (member instanceof MethodTree method
+              && method.getBody() != null
+              && ASTHelpers.getSymbol(method).equals(symbol)) {
+            Tree caller = body;
+            body = method.getBody();
+            try {
+              return scan(method.getBody(), null);
+            } finally {
+              body = caller;
+            }
+          }
+        }
+        return null;
+      }
+
+      @Override
+      public ExpressionTree reduce(ExpressionTree r1, ExpressionTree r2) {
+        return r1 != null ? r1 : r2;
+      }
+    }.scan(submission.getArguments(), null);
+  }
+
+  /**
+   * Returns whether the ThreadLocal caches the value: it is initialized with withInitial or
+   * initialValue, or the body sets it when get returns null.
+   */
+  private boolean isCache(ExpressionTree threadLocal, Tree body, VisitorState state) {
+    ExpressionTree initializer = initializers.find(ASTHelpers.getSymbol(threadLocal), state);
+    if (initializer != null
+        && (WITH_INITIAL.matches(initializer, state)
+            || (initializer instanceof NewClassTree newClass && newClass.getClassBody() != null))) {
+      return true;
+    }
+    return calls(body, THREAD_LOCAL_SET, threadLocal, state) && comparesWithNull(body);
+  }
+
+  /** Returns whether the body checks whether a value is null, e.g. the value of get. */
+  private static boolean comparesWithNull(Tree body) {
+    return Boolean.TRUE.equals(
+        new TreeScanner<Boolean, Void>() {
+          @Override
+          public Boolean visitBinary(BinaryTree tree, Void unused) {
+            if (tree.getKind() == Tree.Kind.EQUAL_TO
+                && (tree.getLeftOperand().getKind() == Tree.Kind.NULL_LITERAL
+                    || tree.getRightOperand().getKind() == Tree.Kind.NULL_LITERAL)) {
+              return true;
+            }
+            return super.visitBinary(tree, unused);
+          }
+
+          @Override
+          public Boolean reduce(Boolean r1, Boolean r2) {
+            return Boolean.TRUE.equals(r1) || Boolean.TRUE.equals(r2);
+          }
+        }.scan(body, null));
+  }
+
+  /**
+   * Returns whether the executor creates a virtual thread per task: it is created by the
+   * expression, or it is a variable initialized with it in the compilation unit.
+   */
+  private boolean isVirtualThreadExecutor(ExpressionTree executor, VisitorState state) {
+    if (executor == null) {
+      return false;
+    }
+    if (createsVirtualThreadExecutor(executor, state)) {
+      return true;
+    }
+    ExpressionTree initializer = initializers.find(ASTHelpers.getSymbol(executor), state);
+    return initializer != null && createsVirtualThreadExecutor(initializer, state);
+  }
+
+  private static boolean createsVirtualThreadExecutor(ExpressionTree tree, VisitorState state) {
+    ExpressionTree expression = ASTHelpers.stripParentheses(tree);
+    if (!NEW_VIRTUAL_THREAD_EXECUTOR.matches(expression, state)) {
+      return false;
+    }
+    List<? extends ExpressionTree> arguments = ((MethodInvocationTree) expression).getArguments();
+    return arguments.isEmpty() || VIRTUAL_THREAD_FACTORY.matches(arguments.get(0), state);
+  }
+}
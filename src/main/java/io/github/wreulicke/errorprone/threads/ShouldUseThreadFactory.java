@@ -2,14 +2,27 @@ package io.github.wreulicke.errorprone.threads;
 
 import com.google.auto.service.AutoService;
 import com.google.errorprone.BugPattern;
+import com.google.errorprone.ErrorProneFlags;
 import com.google.errorprone.VisitorState;
 import com.google.errorprone.bugpatterns.BugChecker;
 import com.google.errorprone.matchers.Description;
 import com.google.errorprone.matchers.Matcher;
 import com.google.errorprone.matchers.Matchers;
 import com.google.errorprone.util.ASTHelpers;
-import com.sun.source.tree.*;
+import com.sun.source.tree.ClassTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.VariableTree;
 import com.sun.source.util.TreePath;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.code.Symbol;
+import io.github.wreulicke.errorprone.common.InvocationFilter;
+import io.github.wreulicke.errorprone.common.ThreadFactoryFix;
+import io.github.wreulicke.errorprone.common.UnitFilter;
+import java.util.ArrayList;
+import java.util.List;
 
 @AutoService(BugChecker.class)
 @BugPattern(
@@ -18,64 +31,201 @@ import com.sun.source.util.TreePath;
     severity = BugPattern.SeverityLevel.ERROR,
     link = "github.com/wreulicke/errorprone-concurrency",
     linkType = BugPattern.LinkType.CUSTOM)
-public class ShouldUseThreadFactory extends BugChecker implements BugChecker.NewClassTreeMatcher {
+public class ShouldUseThreadFactory extends BugChecker
+    implements BugChecker.NewClassTreeMatcher, BugChecker.MethodInvocationTreeMatcher {
 
   private static final String THREAD_CLASS = "java.lang.Thread";
+
+  private static final InvocationFilter CLASS_NAMES = InvocationFilter.of("Thread");
+
   private static final Matcher<ExpressionTree> MATCHER =
       Matchers.constructor().forClass(THREAD_CLASS);
 
-  private static final Matcher<ClassTree> IS_NOT_SUBTYPE_OF_THREAD_FACTORY =
-      Matchers.not(Matchers.isSubtypeOf("java.util.concurrent.ThreadFactory"));
+  private static final Matcher<ExpressionTree> NEW_THREAD_WITH_RUNNABLE =
+      Matchers.constructor().forClass(THREAD_CLASS).withParameters("java.lang.Runnable");
+
+  private static final Matcher<ExpressionTree> NEW_THREAD_FROM_FACTORY =
+      Matchers.instanceMethod()
+          .onDescendantOf("java.util.concurrent.ThreadFactory")
+          .named("newThread");
+
+  private static final Matcher<ExpressionTree> DEFAULT_THREAD_FACTORY =
+      Matchers.staticMethod()
+          .onClass("java.util.concurrent.Executors")
+          .named("defaultThreadFactory");
+
+  private static final String THREAD_BUILDER_CLASS = "java.lang.Thread.Builder";
+
+  private static final InvocationFilter METHOD_NAMES = InvocationFilter.of("factory", "newThread");
+
+  private static final Matcher<ExpressionTree> NEW_THREAD_BUILDER =
+      Matchers.staticMethod().onClass(THREAD_CLASS).namedAnyOf("ofPlatform", "ofVirtual");
 
-  private static final Matcher<ExpressionTree> SET_NAME =
-      Matchers.instanceMethod().onDescendantOf(THREAD_CLASS).named("setName");
+  private static final Matcher<ExpressionTree> BUILD_THREAD_FACTORY =
+      Matchers.instanceMethod().onDescendantOf(THREAD_BUILDER_CLASS).named("factory");
 
-  private static final Matcher<ExpressionTree> SET_UNCAUGHT_EXCEPTION_HANDLER =
-      Matchers.instanceMethod().onDescendantOf(THREAD_CLASS).named("setUncaughtExceptionHandler");
+  private static final Matcher<ExpressionTree> BUILDER_NAME =
+      Matchers.instanceMethod().onDescendantOf(THREAD_BUILDER_CLASS).named("name");
+
+  private static final Matcher<ExpressionTree> BUILDER_UNCAUGHT_EXCEPTION_HANDLER =
+      Matchers.instanceMethod()
+          .onDescendantOf(THREAD_BUILDER_CLASS)
+          .named("uncaughtExceptionHandler");
+
+  private final Matcher<ClassTree> isNotSubtypeOfThreadFactory;
+
+  private final ThreadFactoryFix threadFactoryFix;
+
+  /** Holds the summaries of the methods in the current compilation unit. */
+  private final ThreadConfiguration threadConfiguration = new ThreadConfiguration();
+
+  public ShouldUseThreadFactory(ErrorProneFlags flags) {
+    List<Matcher<ClassTree>> threadFactories = new ArrayList<>();
+    threadFactories.add(Matchers.isSubtypeOf("java.util.concurrent.ThreadFactory"));
+    flags
+        .getList("ShouldUseThreadFactory:ThreadFactoryTypes")
+        .ifPresent(types -> types.forEach(t -> threadFactories.add(Matchers.isSubtypeOf(t))));
+    this.isNotSubtypeOfThreadFactory = Matchers.not(Matchers.anyOf(threadFactories));
+    this.threadFactoryFix = ThreadFactoryFix.fromFlags(flags);
+  }
 
   @Override
-  public Description matchNewClass(NewClassTree tree, VisitorState state) {
-    if (!MATCHER.matches(tree, state)) {
+  public Description matchMethodInvocation(MethodInvocationTree tree, VisitorState state) {
+    if (!UnitFilter.CONCURRENCY.mayMatch(state) || !METHOD_NAMES.mayMatch(tree, state)) {
+      return Description.NO_MATCH;
+    }
+    // a factory which delegates to the default factory must configure its threads as well
+    if (NEW_THREAD_FROM_FACTORY.matches(tree, state)) {
+      ExpressionTree factory = ASTHelpers.getReceiver(tree);
+      if (factory != null
+          && isDefaultThreadFactory(factory, state)
+          && !isNotSubtypeOfThreadFactory.matches(getClassDeclaration(state), state)) {
+        return matchThreadConfiguration(tree, state);
+      }
+      return Description.NO_MATCH;
+    }
+    if (!BUILD_THREAD_FACTORY.matches(tree, state)) {
       return Description.NO_MATCH;
     }
 
-    if (IS_NOT_SUBTYPE_OF_THREAD_FACTORY.matches(getClassDeclaration(state), state)) {
-      return describeMatch(tree);
+    // only the builders configured in the same chain are checked
+    boolean isBuilderChain = false;
+    MethodInvocationTree name = null;
+    boolean hasUncaughtExceptionHandler = false;
+    ExpressionTree receiver = ASTHelpers.getReceiver(tree);
+    while (receiver instanceof MethodInvocationTree invocation) {
+      if (BUILDER_NAME.matches(invocation, state)) {
+        name = invocation;
+      }
+      if (BUILDER_UNCAUGHT_EXCEPTION_HANDLER.matches(invocation, state)) {
+        hasUncaughtExceptionHandler = true;
+      }
+      if (NEW_THREAD_BUILDER.matches(invocation, state)) {
+        isBuilderChain = true;
+      }
+      receiver = ASTHelpers.getReceiver(invocation);
     }
-    MethodTree method = getMethodDeclaration(state);
-    BlockTree body = method.getBody();
-    if (body == null) {
+    if (!isBuilderChain) {
       return Description.NO_MATCH;
     }
 
-    boolean hasSetName = false;
-    boolean hasSetUncaughtExceptionHandler = false;
-    for (StatementTree statement : body.getStatements()) {
-      if (statement.getKind() == Tree.Kind.EXPRESSION_STATEMENT) {
-        ExpressionTree expression = ((ExpressionStatementTree) statement).getExpression();
-        if (SET_NAME.matches(expression, state)) {
-          if (ASTHelpers.constValue(((MethodInvocationTree) expression).getArguments().get(0))
-              != null) {
-            return buildDescription(expression)
-                .setMessage("Should generate thread name dynamically.")
-                .build();
-          }
-          hasSetName = true;
-        }
-        if (SET_UNCAUGHT_EXCEPTION_HANDLER.matches(expression, state)) {
-          hasSetUncaughtExceptionHandler = true;
-        }
+    // name(String) gives all threads the same name, while name(String, long) numbers them
+    if (name != null && name.getArguments().size() == 1) {
+      return buildDescription(name)
+          .setMessage("Should generate thread name dynamically. Use name(prefix, start) instead.")
+          .build();
+    }
+    if (name == null || !hasUncaughtExceptionHandler) {
+      return buildDescription(tree)
+          .setMessage("Should set thread name and uncaught exception handler.")
+          .build();
+    }
+    return Description.NO_MATCH;
+  }
+
+  @Override
+  public Description matchNewClass(NewClassTree tree, VisitorState state) {
+    if (!UnitFilter.CONCURRENCY.mayMatch(state)
+        || !CLASS_NAMES.mayMatch(tree, state)
+        || !MATCHER.matches(tree, state)) {
+      return Description.NO_MATCH;
+    }
+
+    if (isNotSubtypeOfThreadFactory.matches(getClassDeclaration(state), state)) {
+      Description.Builder description = buildDescription(tree);
+      // new Thread(r) is the same as factory.newThread(r), while the subclasses are not
+      if (tree.getClassBody() == null && NEW_THREAD_WITH_RUNNABLE.matches(tree, state)) {
+        threadFactoryFix
+            .declare(state)
+            .ifPresent(
+                fix ->
+                    description.addFix(
+                        fix.replace(
+                                tree,
+                                ThreadFactoryFix.FIELD_NAME
+                                    + ".newThread("
+                                    + state.getSourceForNode(tree.getArguments().get(0))
+                                    + ")")
+                            .build()));
       }
+      return description.build();
+    }
+    return matchThreadConfiguration(tree, state);
+  }
+
+  /**
+   * Checks the thread created in a thread factory is named dynamically and given an uncaught
+   * exception handler in the factory method, or in the methods the thread is passed to.
+   */
+  private Description matchThreadConfiguration(ExpressionTree creation, VisitorState state) {
+    MethodTree method = getMethodDeclaration(state);
+    if (method == null || method.getBody() == null) {
+      return Description.NO_MATCH;
     }
-    if (!hasSetName || !hasSetUncaughtExceptionHandler) {
+    ThreadConfiguration.Result result = threadConfiguration.analyze(creation, method, state);
+    if (result.constantName() != null) {
+      return buildDescription(result.constantName())
+          .setMessage("Should generate thread name dynamically.")
+          .build();
+    }
+    if (!result.named() || !result.handled()) {
       return buildDescription(method)
           .setMessage("Should set thread name and uncaught exception handler.")
           .build();
     }
-
     return Description.NO_MATCH;
   }
 
+  /** Returns whether the factory is Executors.defaultThreadFactory(), or a variable holding it. */
+  private static boolean isDefaultThreadFactory(ExpressionTree factory, VisitorState state) {
+    ExpressionTree expression = ASTHelpers.stripParentheses(factory);
+    if (DEFAULT_THREAD_FACTORY.matches(expression, state)) {
+      return true;
+    }
+    Symbol symbol = ASTHelpers.getSymbol(expression);
+    if (!(symbol instanceof Symbol.VarSymbol)) {
+      return false;
+    }
+    return Boolean.TRUE.equals(
+        new TreeScanner<Boolean, Void>() {
+          @Override
+          public Boolean visitVariable(VariableTree tree, Void unused) {
+            if (symbol.equals(ASTHelpers.getSymbol(tree))
+                && tree.getInitializer() != null
+                && DEFAULT_THREAD_FACTORY.matches(
+                    ASTHelpers.stripParentheses(tree.getInitializer()), state)) {
+              return true;
+            }
+            return super.visitVariable(tree, unused);
+          }
+
+          @Override
+          public Boolean reduce(Boolean r1, Boolean r2) {
+            return Boolean.TRUE.equals(r1) || Boolean.TRUE.equals(r2);
+          }
+        }.scan(getClassDeclaration(state), null));
+  }
+
   private ClassTree getClassDeclaration(VisitorState state) {
     TreePath path =
         ASTHelpers.findPathFromEnclosingNodeToTopLevel(state.getPath(), ClassTree.class);
@@ -85,6 +235,6 @@ public class ShouldUseThreadFactory extends BugChecker implements BugChecker.New
   private MethodTree getMethodDeclaration(VisitorState state) {
     TreePath path =
         ASTHelpers.findPathFromEnclosingNodeToTopLevel(state.getPath(), MethodTree.class);
-    return (MethodTree) path.getLeaf();
+    return path == null ? null : (MethodTree) path.getLeaf();
   }
 }
@@ -0,0 +1,245 @@
+package io.github.wreulicke.errorprone.threads;
+
+import com.google.errorprone.VisitorState;
+import com.google.errorprone.matchers.Matcher;
+import com.google.errorprone.matchers.Matchers;
+import com.google.errorprone.util.ASTHelpers;
+import com.sun.source.tree.AssignmentTree;
+import com.sun.source.tree.CompilationUnitTree;
+import com.sun.source.tree.ExpressionTree;
+import com.sun.source.tree.MethodInvocationTree;
+import com.sun.source.tree.MethodTree;
+import com.sun.source.tree.NewClassTree;
+import com.sun.source.tree.Tree;
+import com.sun.source.tree.VariableTree;
+import com.sun.source.util.TreeScanner;
+import com.sun.tools.javac.code.Symbol;
+import java.lang.ref.WeakReference;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds whether a thread created in a method is given a name and an uncaught exception handler
+ * anywhere in the method: in nested blocks, through the local variables the thread is copied to,
+ * and in the methods of the compilation unit the thread is passed to, e.g. {@code configure(t)}.
+ *
+ * <p>The methods the thread is passed to are summarized by the parameters they configure. The
+ * summaries are computed once per compilation unit, so a helper shared by many factories is scanned
+ * once. The analysis is flow-insensitive: a name set on one branch counts, because the factories
+ * commonly name the threads conditionally. A recursive call sees the callee configuring nothing,
+ * and the summaries of mutually recursive methods computed from it are not kept.
+ */
+final class ThreadConfiguration {
+
+  private static final String THREAD_CLASS = "java.lang.Thread";
+
+  private static final Matcher<ExpressionTree> SET_NAME =
+      Matchers.instanceMethod().onDescendantOf(THREAD_CLASS).named("setName");
+
+  private static final Matcher<ExpressionTree> SET_UNCAUGHT_EXCEPTION_HANDLER =
+      Matchers.instanceMethod().onDescendantOf(THREAD_CLASS).named("setUncaughtExceptionHandler");
+
+  /** The origin of the thread created in the analyzed method, rather than passed as a parameter. */
+  private static final int CREATED = 0;
+
+  private static final Summary NOTHING = new Summary(new BitSet(), new BitSet());
+
+  /**
+   * The configuration of the created thread. {@code constantName} is the constant given as the
+   * name, or null.
+   */
+  record Result(boolean named, boolean handled, Tree constantName) {}
+
+  /** The parameters of a method which are given a name and an uncaught exception handler. */
+  private record Summary(BitSet named, BitSet handled) {}
+
+  private WeakReference<CompilationUnitTree> unit = new WeakReference<>(null);
+
+  private final Map<Symbol.MethodSymbol, MethodTree> methods = new HashMap<>();
+
+  private final Map<Symbol.MethodSymbol, Summary> summaries = new HashMap<>();
+
+  /** The methods being summarized, mapped to their depth in the call chain. */
+  private final Map<Symbol.MethodSymbol, Integer> summarizing = new HashMap<>();
+
+  /**
+   * The smallest depth of the methods whose placeholder the current summary saw. The summary is
+   * only kept when it saw no placeholder of a caller.
+   */
+  private int placeholderDepth = Integer.MAX_VALUE;
+
+  /** Analyzes the thread created by the expression, e.g. {@code new Thread(r)}, in the method. */
+  Result analyze(ExpressionTree creation, MethodTree method, VisitorState state) {
+    enterUnit(state);
+    Scanner scanner = new Scanner(new HashMap<>(), creation, state);
+    // new Thread(r, name) names the thread
+    if (creation instanceof NewClassTree newClass) {
+      Symbol.MethodSymbol constructor = ASTHelpers.getSymbol(newClass);
+      List<? extends ExpressionTree> arguments = newClass.getArguments();
+      for (int i = 0; i < arguments.size() && i < constructor.getParameters().size(); i++) {
+        if (ASTHelpers.isSameType(
+            constructor.getParameters().get(i).asType(), state.getSymtab().stringType, state)) {
+          scanner.setName(CREATED, arguments.get(i), arguments.get(i));
+        }
+      }
+    }
+    scanner.scan(method.getBody(), null);
+    return new Result(
+        scanner.named.get(CREATED), scanner.handled.get(CREATED), scanner.constantName);
+  }
+
+  /** Drops the summaries of the previous compilation unit, and indexes the methods of this one. */
+  private void enterUnit(VisitorState state) {
+    CompilationUnitTree current = state.getPath().getCompilationUnit();
+    if (unit.get() == current) {
+      return;
+    }
+    unit = new WeakReference<>(current);
+    methods.clear();
+    summaries.clear();
+    new TreeScanner<Void, Void>() {
+      @Override
+      public Void visitMethod(MethodTree tree, Void unused) {
+        Symbol.MethodSymbol symbol = ASTHelpers.getSymbol(tree);
+        if (symbol != null && tree.getBody() != null) {
+          methods.put(symbol, tree);
+        }
+        return super.visitMethod(tree, unused);
+      }
+    }.scan(current, null);
+  }
+
+  private Summary summarize(Symbol.MethodSymbol symbol, VisitorState state) {
+    Summary summary = summaries.get(symbol);
+    if (summary != null) {
+      return summary;
+    }
+    MethodTree method = methods.get(symbol);
+    if (method == null) {
+      return NOTHING;
+    }
+    // a recursive call sees the placeholder
+    Integer recursive = summarizing.get(symbol);
+    if (recursive != null) {
+      placeholderDepth = Math.min(placeholderDepth, recursive);
+      return NOTHING;
+    }
+    int depth = summarizing.size();
+    int callerPlaceholderDepth = placeholderDepth;
+    placeholderDepth = Integer.MAX_VALUE;
+    summarizing.put(symbol, depth);
+    Map<Symbol, Integer> parameters = new HashMap<>();
+    List<? extends VariableTree> declared = method.getParameters();
+    for (int i = 0; i < declared.size(); i++) {
+      parameters.put(ASTHelpers.getSymbol(declared.get(i)), i);
+    }
+    Scanner scanner = new Scanner(parameters, null, state);
+    scanner.scan(method.getBody(), null);
+    summarizing.remove(symbol);
+    summary = new Summary(scanner.named, scanner.handled);
+    // a summary computed from the placeholder of a caller is incomplete, so it is recomputed
+    if (placeholderDepth >= depth) {
+      summaries.put(symbol, summary);
+      placeholderDepth = callerPlaceholderDepth;
+    } else {
+      placeholderDepth = Math.min(callerPlaceholderDepth, placeholderDepth);
+    }
+    return summary;
+  }
+
+  /** Follows the thread through the variables, and records where it is configured. */
+  private final class Scanner extends TreeScanner<Void, Void> {
+
+    /** The variables holding the thread, mapped to the origin: a parameter index or CREATED. */
+    private final Map<Symbol, Integer> aliases;
+
+    private final Tree creation;
+
+    private final VisitorState state;
+
+    private final BitSet named = new BitSet();
+
+    private final BitSet handled = new BitSet();
+
+    private Tree constantName;
+
+    Scanner(Map<Symbol, Integer> aliases, Tree creation, VisitorState state) {
+      this.aliases = aliases;
+      this.creation = creation;
+      this.state = state;
+    }
+
+    /** Returns the origin of the thread the expression evaluates to, or -1. */
+    private int originOf(ExpressionTree tree) {
+      ExpressionTree expression = ASTHelpers.stripParentheses(tree);
+      if (expression == creation) {
+        return CREATED;
+      }
+      Symbol symbol = ASTHelpers.getSymbol(expression);
+      return symbol == null ? -1 : aliases.getOrDefault(symbol, -1);
+    }
+
+    /** Records the name given to the thread, and the tree to report when it is constant. */
+    void setName(int origin, ExpressionTree name, Tree reported) {
+      named.set(origin);
+      if (constantName == null && ASTHelpers.constValue(name) != null) {
+        constantName = reported;
+      }
+    }
+
+    @Override
+    public Void visitVariable(VariableTree tree, Void unused) {
+      if (tree.getInitializer() != null) {
+        int origin = originOf(tree.getInitializer());
+        if (origin >= 0) {
+          aliases.put(ASTHelpers.getSymbol(tree), origin);
+        }
+      }
+      return super.visitVariable(tree, unused);
+    }
+
+    @Override
+    public Void visitAssignment(AssignmentTree tree, Void unused) {
+      int origin = originOf(tree.getExpression());
+      Symbol variable = ASTHelpers.getSymbol(tree.getVariable());
+      if (origin >= 0 && variable != null) {
+        aliases.put(variable, origin);
+      }
+      return super.visitAssignment(tree, unused);
+    }
+
+    @Override
+    public Void visitMethodInvocation(MethodInvocationTree tree, Void unused) {
+      ExpressionTree receiver = ASTHelpers.getReceiver(tree);
+      int origin = receiver == null ? -1 : originOf(receiver);
+      if (origin >= 0) {
+        if (SET_NAME.matches(tree, state)) {
+          setName(origin, tree.getArguments().get(0), tree);
+        }
+        if (SET_UNCAUGHT_EXCEPTION_HANDLER.matches(tree, state)) {
+          handled.set(origin);
+        }
+      }
+      List<? extends ExpressionTree> arguments = tree.getArguments();
+      Summary callee = null;
+      for (int i = 0; i < arguments.size(); i++) {
+        int argument = originOf(arguments.get(i));
+        if (argument < 0) {
+          continue;
+        }
+        if (callee == null) {
+          callee = summarize(ASTHelpers.getSymbol(tree), state);
+        }
+        if (callee.named().get(i)) {
+          named.set(argument);
+        }
+        if (callee.handled().get(i)) {
+          handled.set(argument);
+        }
+      }
+      return super.visitMethodInvocation(tree, unused);
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package io.github.wreulicke.errorprone.futures;
+
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.jupiter.api.Test;
+
+class DoNotBlockCommonPoolTest {
+
+  @Test
+  void testValid() {
+    CompilationTestHelper.newInstance(DoNotBlockCommonPool.class, getClass())
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.List;
+            import java.util.concurrent.CompletableFuture;
+            import java.util.concurrent.Executors;
+            import java.util.concurrent.Executor;
+            class Test {
+                void test(List<CompletableFuture<String>> futures) {
+                    Executor e = Executors.newFixedThreadPool(20);
+                    CompletableFuture<String> f = CompletableFuture.supplyAsync(() -> "test", e);
+
+                    CompletableFuture.supplyAsync(f::join, e);
+                    CompletableFuture.runAsync(() -> f.join(), e);
+                    f.thenApplyAsync(s -> f.join(), e);
+
+                    CompletableFuture.runAsync(() -> {});
+                    f.thenApplyAsync(s -> s.length());
+
+                    futures.stream().map(CompletableFuture::join).forEach(System.out::println);
+                    futures.parallelStream().map(CompletableFuture::isDone).forEach(System.out::println);
+                    futures.parallelStream().map(CompletableFuture::join).sequential().forEach(System.out::println);
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testInvalid() {
+    CompilationTestHelper.newInstance(DoNotBlockCommonPool.class, getClass())
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.List;
+            import java.util.concurrent.CompletableFuture;
+            import java.util.concurrent.ForkJoinPool;
+            class Test {
+                void test(CompletableFuture<String> f, List<CompletableFuture<String>> futures) {
+                    CompletableFuture.runAsync(() -> {
+                        try {
+                            // BUG: Diagnostic contains: Thread.sleep blocks the task passed to CompletableFuture.runAsync
+                            Thread.sleep(100);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                    });
+
+                    // BUG: Diagnostic contains: CompletableFuture.join blocks the task passed to CompletableFuture.supplyAsync
+                    CompletableFuture.supplyAsync(f::join);
+
+                    // BUG: Diagnostic contains: CompletableFuture.join blocks the task passed to CompletableFuture.thenApplyAsync
+                    f.thenApplyAsync(s -> f.join());
+
+                    // BUG: Diagnostic contains: CompletableFuture.join blocks the task passed to ForkJoinPool.commonPool().submit
+                    ForkJoinPool.commonPool().submit(() -> f.join());
+
+                    // BUG: Diagnostic contains: CompletableFuture.join blocks the task passed to parallel stream operation map
+                    futures.parallelStream().map(CompletableFuture::join).forEach(System.out::println);
+
+                    // BUG: Diagnostic contains: CompletableFuture.join blocks the task passed to parallel stream operation map
+                    futures.stream().parallel().map(x -> x.join()).forEach(System.out::println);
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testCustomBlockingMethods() {
+    CompilationTestHelper.newInstance(DoNotBlockCommonPool.class, getClass())
+        .setArgs("-XepOpt:DoNotBlockCommonPool:BlockingMethods=test.Repository#find")
+        .addSourceLines(
+            "test/Repository.java",
+            """
+            package test;
+            public class Repository {
+                public String find(String id) {
+                    return id;
+                }
+            }
+            """)
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.concurrent.CompletableFuture;
+            import test.Repository;
+            class Test {
+                void test(Repository repository) {
+                    // BUG: Diagnostic contains: Repository.find blocks the task passed to CompletableFuture.supplyAsync
+                    CompletableFuture.supplyAsync(() -> repository.find("id"));
+                }
+            }
+            """)
+        .doTest();
+  }
+}
@@ -0,0 +1,67 @@
+package io.github.wreulicke.errorprone.futures;
+
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.jupiter.api.Test;
+
+class DoNotBlockInCompletionStageTest {
+
+  @Test
+  void testValid() {
+    CompilationTestHelper.newInstance(DoNotBlockInCompletionStage.class, getClass())
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.List;
+            import java.util.concurrent.CompletableFuture;
+            import java.util.concurrent.ExecutorService;
+            class Test {
+                void test(ExecutorService executor, CompletableFuture<String> a, CompletableFuture<String> b) {
+                    // the futures have been completed
+                    CompletableFuture.allOf(a, b).thenApply(v -> a.join() + b.join());
+                    a.thenApply(s -> s + a.join());
+                    a.thenCombine(b, (x, y) -> x + b.join());
+
+                    // not in a stage
+                    a.join();
+                    List.of(a, b).forEach(f -> f.join());
+
+                    // waits only for a single future
+                    executor.submit(() -> a.join());
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testInvalid() {
+    CompilationTestHelper.newInstance(DoNotBlockInCompletionStage.class, getClass())
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.concurrent.CompletableFuture;
+            import java.util.concurrent.ExecutorService;
+            import java.util.concurrent.Future;
+            class Test {
+                void test(ExecutorService executor, CompletableFuture<String> a, CompletableFuture<String> b, Future<String> c) {
+                    // BUG: Diagnostic contains: Do not call join in a stage of CompletableFuture.
+                    a.thenApply(s -> s + b.join());
+                    CompletableFuture.supplyAsync(() -> {
+                        try {
+                            // BUG: Diagnostic contains: Do not call get in a stage of CompletableFuture.
+                            return c.get();
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }, executor);
+
+                    executor.submit(() -> {
+                        // BUG: Diagnostic contains: Do not wait for CompletableFuture.allOf or anyOf in a task of the executor.
+                        CompletableFuture.allOf(a, b).join();
+                    });
+                }
+            }
+            """)
+        .doTest();
+  }
+}
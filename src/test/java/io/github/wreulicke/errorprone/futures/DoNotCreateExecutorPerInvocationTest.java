@@ -0,0 +1,165 @@
+package io.github.wreulicke.errorprone.futures;
+
+import com.google.errorprone.BugCheckerRefactoringTestHelper;
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.jupiter.api.Test;
+
+class DoNotCreateExecutorPerInvocationTest {
+
+  @Test
+  void testValid() {
+    CompilationTestHelper.newInstance(DoNotCreateExecutorPerInvocation.class, getClass())
+        .addSourceLines(
+            "org/springframework/context/annotation/Bean.java",
+            """
+            package org.springframework.context.annotation;
+            public @interface Bean {}
+            """)
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.net.http.HttpClient;
+            import java.util.concurrent.ExecutorService;
+            import java.util.concurrent.Executors;
+            import java.util.concurrent.ForkJoinPool;
+            import org.springframework.context.annotation.Bean;
+            class Test {
+                private static final HttpClient CLIENT = HttpClient.newHttpClient();
+                private static final ExecutorService POOL;
+                static {
+                    POOL = Executors.newFixedThreadPool(10);
+                }
+                private final ExecutorService executor;
+                private ExecutorService lazy;
+
+                Test() {
+                    this.executor = new ForkJoinPool(4);
+                }
+
+                @Bean
+                HttpClient httpClient() {
+                    return HttpClient.newBuilder().executor(Executors.newFixedThreadPool(4)).build();
+                }
+
+                ExecutorService create() {
+                    return Executors.newFixedThreadPool(10);
+                }
+
+                ExecutorService lazy() {
+                    if (lazy == null) {
+                        lazy = Executors.newFixedThreadPool(10);
+                    }
+                    return lazy;
+                }
+
+                void tryWithResources() {
+                    try (ExecutorService e = Executors.newVirtualThreadPerTaskExecutor()) {
+                        e.submit(() -> {});
+                    }
+                }
+
+                void tryWithExistingResource() {
+                    ExecutorService e = Executors.newFixedThreadPool(10);
+                    try (e) {
+                        e.submit(() -> {});
+                    }
+                }
+
+                void shutdown() {
+                    ExecutorService e = Executors.newFixedThreadPool(10);
+                    try {
+                        e.submit(() -> {});
+                    } finally {
+                        e.shutdown();
+                    }
+                }
+
+                public static void main(String[] args) {
+                    ExecutorService e = Executors.newFixedThreadPool(10);
+                    e.submit(() -> {});
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testInvalid() {
+    CompilationTestHelper.newInstance(DoNotCreateExecutorPerInvocation.class, getClass())
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.net.URI;
+            import java.net.http.HttpClient;
+            import java.net.http.HttpRequest;
+            import java.net.http.HttpResponse;
+            import java.util.concurrent.ExecutorService;
+            import java.util.concurrent.Executors;
+            import java.util.concurrent.ForkJoinPool;
+            import java.util.concurrent.LinkedBlockingQueue;
+            import java.util.concurrent.ThreadPoolExecutor;
+            import java.util.concurrent.TimeUnit;
+            import java.util.function.Supplier;
+            class Test {
+                private final Supplier<ExecutorService> supplier =
+                    // BUG: Diagnostic contains: Do not create executor or HttpClient per invocation.
+                    () -> Executors.newFixedThreadPool(10);
+
+                void handle() throws Exception {
+                    // BUG: Diagnostic contains: Do not create executor or HttpClient per invocation.
+                    ExecutorService e = Executors.newFixedThreadPool(10);
+                    e.submit(() -> {});
+
+                    // BUG: Diagnostic contains: Do not create executor or HttpClient per invocation.
+                    HttpClient.newHttpClient()
+                        .send(HttpRequest.newBuilder(URI.create("http://localhost")).build(), HttpResponse.BodyHandlers.discarding());
+
+                    // BUG: Diagnostic contains: Do not create executor or HttpClient per invocation.
+                    HttpClient client = HttpClient.newBuilder().executor(Executors.newFixedThreadPool(4)).build();
+
+                    // BUG: Diagnostic contains: Do not create executor or HttpClient per invocation.
+                    new ForkJoinPool(4).submit(() -> {});
+
+                    // BUG: Diagnostic contains: Do not create executor or HttpClient per invocation.
+                    new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>()).execute(() -> {});
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testFix() {
+    BugCheckerRefactoringTestHelper.newInstance(DoNotCreateExecutorPerInvocation.class, getClass())
+        .addInputLines(
+            "Test.java",
+            """
+            import java.util.concurrent.ExecutorService;
+            import java.util.concurrent.Executors;
+            class Test {
+                void handle(int size) {
+                    ExecutorService sharedPool = Executors.newFixedThreadPool(10);
+                    sharedPool.submit(() -> {});
+                    ExecutorService sizedPool = Executors.newFixedThreadPool(size);
+                    sizedPool.submit(() -> {});
+                }
+            }
+            """)
+        .addOutputLines(
+            "Test.java",
+            """
+            import java.util.concurrent.ExecutorService;
+            import java.util.concurrent.Executors;
+            class Test {
+                private static final ExecutorService SHARED_POOL = Executors.newFixedThreadPool(10);
+                void handle(int size) {
+                    ExecutorService sharedPool = SHARED_POOL;
+                    sharedPool.submit(() -> {});
+                    ExecutorService sizedPool = Executors.newFixedThreadPool(size);
+                    sizedPool.submit(() -> {});
+                }
+            }
+            """)
+        .doTest();
+  }
+}
@@ -96,4 +96,36 @@ class DoNotDependDefaultExecutorTest {
             """)
         .doTest();
   }
+
+  @Test
+  void testSkipUnrelatedFiles() {
+    CompilationTestHelper.newInstance(DoNotDependDefaultExecutor.class, getClass())
+        .setArgs("-XepOpt:Concurrency:SkipUnrelatedFiles=true")
+        .addSourceLines(
+            "Repository.java",
+            """
+            import java.util.concurrent.CompletableFuture;
+            class Repository {
+                void save() {
+                    // BUG: Diagnostic contains: Do not depend default executor for IO-bound tasks.
+                    CompletableFuture.runAsync(() -> {});
+                }
+
+                static CompletableFuture<String> find() {
+                    return null;
+                }
+            }
+            """)
+        .addSourceLines(
+            "Service.java",
+            """
+            class Service {
+                void test() {
+                    // the file names no concurrency API, so it is skipped
+                    Repository.find().thenApplyAsync(s -> s.length());
+                }
+            }
+            """)
+        .doTest();
+  }
 }
@@ -1,5 +1,7 @@
 package io.github.wreulicke.errorprone.futures;
 
+import com.google.errorprone.BugCheckerRefactoringTestHelper;
+import com.google.errorprone.BugCheckerRefactoringTestHelper.FixChoosers;
 import com.google.errorprone.CompilationTestHelper;
 import org.junit.jupiter.api.Test;
 
@@ -45,6 +47,10 @@ class DoNotDependDefaultThreadFactoryTest {
 
                 Executors.newWorkStealingPool();
 
+                Executors.newVirtualThreadPerTaskExecutor();
+
+                Executors.newThreadPerTaskExecutor(f);
+
                 new ThreadPoolExecutor(10, 10, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), f);
 
                 new ScheduledThreadPoolExecutor(10, f);
@@ -96,4 +102,198 @@ class DoNotDependDefaultThreadFactoryTest {
         """)
         .doTest();
   }
+
+  @Test
+  void testVirtualThreadMigration() {
+    CompilationTestHelper compilationHelper =
+        CompilationTestHelper.newInstance(DoNotDependDefaultThreadFactory.class, getClass());
+    compilationHelper
+        .addSourceLines(
+            "Test.java",
+            """
+        import java.util.concurrent.Executors;
+
+        class Test {
+            void test() {
+                // BUG: Diagnostic contains: and limit the concurrent tasks with a Semaphore of the pool size.
+                Executors.newFixedThreadPool(10);
+
+                // BUG: Diagnostic contains: If the tasks block on IO, consider Executors.newVirtualThreadPerTaskExecutor() instead of the pool.
+                Executors.newCachedThreadPool();
+            }
+        }
+        """)
+        .doTest();
+  }
+
+  @Test
+  void testVirtualThreadMigrationFix() {
+    BugCheckerRefactoringTestHelper.newInstance(DoNotDependDefaultThreadFactory.class, getClass())
+        .setFixChooser(FixChoosers.SECOND)
+        .addInputLines(
+            "Test.java",
+            """
+        import java.util.concurrent.ExecutorService;
+        import java.util.concurrent.Executors;
+
+        class Test {
+            private final ExecutorService executor = Executors.newCachedThreadPool();
+        }
+        """)
+        .addOutputLines(
+            "Test.java",
+            """
+        import java.util.concurrent.ExecutorService;
+        import java.util.concurrent.Executors;
+
+        class Test {
+            private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        }
+        """)
+        .doTest();
+  }
+
+  @Test
+  void testThreadFactoryFix() {
+    BugCheckerRefactoringTestHelper.newInstance(DoNotDependDefaultThreadFactory.class, getClass())
+        .addInputLines(
+            "Test.java",
+            """
+        import java.util.concurrent.ExecutorService;
+        import java.util.concurrent.Executors;
+        import java.util.concurrent.LinkedBlockingQueue;
+        import java.util.concurrent.ScheduledThreadPoolExecutor;
+        import java.util.concurrent.ThreadFactory;
+        import java.util.concurrent.ThreadPoolExecutor;
+        import java.util.concurrent.TimeUnit;
+
+        class Test {
+            private final ExecutorService executor = Executors.newFixedThreadPool(10);
+
+            private final ExecutorService single = Executors.newSingleThreadExecutor();
+
+            private final ThreadPoolExecutor pool =
+                new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+
+            private final ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1);
+
+            private final ThreadFactory factory = Executors.defaultThreadFactory();
+        }
+        """)
+        .addOutputLines(
+            "Test.java",
+            """
+        import java.util.concurrent.ExecutorService;
+        import java.util.concurrent.Executors;
+        import java.util.concurrent.LinkedBlockingQueue;
+        import java.util.concurrent.ScheduledThreadPoolExecutor;
+        import java.util.concurrent.ThreadFactory;
+        import java.util.concurrent.ThreadPoolExecutor;
+        import java.util.concurrent.TimeUnit;
+
+        class Test {
+            private static final ThreadFactory THREAD_FACTORY =
+                Thread.ofPlatform()
+                    .name("Test-", 1)
+                    .daemon(false)
+                    .uncaughtExceptionHandler(
+                        (t, e) ->
+                            System.getLogger(Test.class.getName())
+                                .log(System.Logger.Level.ERROR, "Uncaught exception in " + t.getName(), e))
+                    .factory();
+
+            private final ExecutorService executor = Executors.newFixedThreadPool(10, THREAD_FACTORY);
+
+            private final ExecutorService single = Executors.newSingleThreadExecutor(THREAD_FACTORY);
+
+            private final ThreadPoolExecutor pool =
+                new ThreadPoolExecutor(
+                    1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), THREAD_FACTORY);
+
+            private final ScheduledThreadPoolExecutor scheduler =
+                new ScheduledThreadPoolExecutor(1, THREAD_FACTORY);
+
+            private final ThreadFactory factory = THREAD_FACTORY;
+        }
+        """)
+        .doTest();
+  }
+
+  @Test
+  void testInstrumentedExecutorsFix() {
+    BugCheckerRefactoringTestHelper.newInstance(DoNotDependDefaultThreadFactory.class, getClass())
+        .setArgs("-XepOpt:DoNotDependDefaultThreadFactory:InstrumentedExecutors=true")
+        .setFixChooser(FixChoosers.SECOND)
+        .addInputLines(
+            "io/github/wreulicke/errorprone/runtime/InstrumentedExecutors.java",
+            """
+        package io.github.wreulicke.errorprone.runtime;
+
+        import java.util.concurrent.ExecutorService;
+
+        public final class InstrumentedExecutors {
+            public static ExecutorService newFixedThreadPool(String name, int nThreads) {
+                return null;
+            }
+
+            public static ExecutorService newSingleThreadExecutor(String name) {
+                return null;
+            }
+        }
+        """)
+        .expectUnchanged()
+        .addInputLines(
+            "Test.java",
+            """
+        import java.util.concurrent.ExecutorService;
+        import java.util.concurrent.Executors;
+
+        class Test {
+            private final ExecutorService executor = Executors.newFixedThreadPool(10);
+
+            void test() {
+                Executors.newSingleThreadExecutor().shutdown();
+            }
+        }
+        """)
+        .addOutputLines(
+            "Test.java",
+            """
+        import io.github.wreulicke.errorprone.runtime.InstrumentedExecutors;
+        import java.util.concurrent.ExecutorService;
+        import java.util.concurrent.Executors;
+
+        class Test {
+            private final ExecutorService executor = InstrumentedExecutors.newFixedThreadPool("Test.executor", 10);
+
+            void test() {
+                InstrumentedExecutors.newSingleThreadExecutor("Test.test").shutdown();
+            }
+        }
+        """)
+        .doTest();
+  }
+
+  @Test
+  void testCheckedMethods() {
+    CompilationTestHelper compilationHelper =
+        CompilationTestHelper.newInstance(DoNotDependDefaultThreadFactory.class, getClass());
+    compilationHelper
+        .setArgs("-XepOpt:DoNotDependDefaultThreadFactory:CheckedMethods=newSingleThreadExecutor")
+        .addSourceLines(
+            "Test.java",
+            """
+        import java.util.concurrent.Executors;
+
+        class Test {
+            void test() {
+                Executors.newFixedThreadPool(10);
+
+                // BUG: Diagnostic contains: Do not depend on the default thread factory.
+                Executors.newSingleThreadExecutor();
+            }
+        }
+        """)
+        .doTest();
+  }
 }
@@ -0,0 +1,128 @@
+package io.github.wreulicke.errorprone.futures;
+
+import com.google.errorprone.BugCheckerRefactoringTestHelper;
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.jupiter.api.Test;
+
+class DoNotHopExecutorForTrivialStageTest {
+
+  @Test
+  void testValid() {
+    CompilationTestHelper.newInstance(DoNotHopExecutorForTrivialStage.class, getClass())
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.concurrent.CompletableFuture;
+            import java.util.concurrent.Executor;
+            class Test {
+                void test(Executor io, Executor cpu) {
+                    // different executors
+                    CompletableFuture.supplyAsync(() -> "a", io)
+                        .thenApplyAsync(s -> s.length(), cpu);
+                    // not trivial
+                    CompletableFuture.supplyAsync(() -> "a", io)
+                        .thenApplyAsync(s -> parse(s), io);
+                    CompletableFuture.supplyAsync(() -> "a", io)
+                        .thenApplyAsync(s -> s.trim(), io);
+                    CompletableFuture.supplyAsync(() -> CompletableFuture.completedFuture("a"), io)
+                        .thenApplyAsync(f -> f.join(), io);
+                    CompletableFuture.supplyAsync(() -> Thread.currentThread(), io)
+                        .thenApplyAsync(t -> t.getName(), io);
+                    CompletableFuture.supplyAsync(() -> this, io)
+                        .thenApplyAsync(t -> t.getCount(), io);
+                    CompletableFuture.supplyAsync(() -> "a", io)
+                        .thenApplyAsync(s -> {
+                            return s.length();
+                        }, io);
+                    // the previous stage is not Async
+                    CompletableFuture.completedFuture("a")
+                        .thenApplyAsync(s -> s.length(), io);
+                }
+
+                int parse(String s) {
+                    return Integer.parseInt(s);
+                }
+
+                int getCount() {
+                    return parse("1");
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testInvalid() {
+    CompilationTestHelper.newInstance(DoNotHopExecutorForTrivialStage.class, getClass())
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.concurrent.CompletableFuture;
+            import java.util.concurrent.Executor;
+            class Test {
+                private final Executor executor = Runnable::run;
+
+                record Name(String value) {}
+
+                void test(Executor io) {
+                    CompletableFuture.supplyAsync(() -> new Name("a"), io)
+                        // BUG: Diagnostic contains: thenApplyAsync adds a task handoff and queueing latency. Use thenApply
+                        .thenApplyAsync(n -> n.value(), io)
+                        // BUG: Diagnostic contains: thenAcceptAsync adds a task handoff and queueing latency. Use thenAccept
+                        .thenAcceptAsync(n -> {}, io);
+
+                    CompletableFuture.supplyAsync(() -> new Response(200), executor)
+                        // BUG: Diagnostic contains: Use thenApply
+                        .thenApplyAsync(r -> r.getStatus() == 200, this.executor);
+                }
+
+                static class Response {
+                    private final int status;
+
+                    Response(int status) {
+                        this.status = status;
+                    }
+
+                    int getStatus() {
+                        return status;
+                    }
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testFix() {
+    BugCheckerRefactoringTestHelper.newInstance(DoNotHopExecutorForTrivialStage.class, getClass())
+        .addInputLines(
+            "Test.java",
+            """
+            import java.util.concurrent.CompletableFuture;
+            import java.util.concurrent.Executor;
+            class Test {
+                record Name(String value) {}
+
+                CompletableFuture<String> test(Executor io) {
+                    return CompletableFuture.supplyAsync(() -> new Name("a"), io)
+                        .thenApplyAsync(n -> n.value(), io);
+                }
+            }
+            """)
+        .addOutputLines(
+            "Test.java",
+            """
+            import java.util.concurrent.CompletableFuture;
+            import java.util.concurrent.Executor;
+            class Test {
+                record Name(String value) {}
+
+                CompletableFuture<String> test(Executor io) {
+                    return CompletableFuture.supplyAsync(() -> new Name("a"), io)
+                        .thenApply(n -> n.value());
+                }
+            }
+            """)
+        .doTest();
+  }
+}
@@ -0,0 +1,146 @@
+package io.github.wreulicke.errorprone.futures;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.google.errorprone.CompilationTestHelper;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ExecutorInventoryTest {
+
+  @TempDir Path outputDirectory;
+
+  private CompilationTestHelper newHelper() {
+    return CompilationTestHelper.newInstance(ExecutorInventory.class, getClass())
+        .setArgs("-XepOpt:ExecutorInventory:OutputDirectory=" + outputDirectory);
+  }
+
+  @Test
+  void testInventory() throws IOException {
+    newHelper()
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.concurrent.ArrayBlockingQueue;
+            import java.util.concurrent.Executors;
+            import java.util.concurrent.ForkJoinPool;
+            import java.util.concurrent.SynchronousQueue;
+            import java.util.concurrent.ThreadFactory;
+            import java.util.concurrent.ThreadPoolExecutor;
+            import java.util.concurrent.TimeUnit;
+            class Test {
+                void test(ThreadFactory tf) {
+                    Executors.newFixedThreadPool(10, tf);
+                    Executors.newCachedThreadPool();
+                    new ThreadPoolExecutor(
+                        2,
+                        Runtime.getRuntime().availableProcessors() * 2,
+                        60,
+                        TimeUnit.SECONDS,
+                        new ArrayBlockingQueue<>(100),
+                        tf,
+                        new ThreadPoolExecutor.CallerRunsPolicy());
+                    new ThreadPoolExecutor(
+                        0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<>());
+                    new ForkJoinPool();
+                }
+            }
+            """)
+        .doTest();
+
+    String json = Files.readString(outputDirectory.resolve("executors.json"));
+    assertTrue(json.contains("\"assumedCores\": 8"), json);
+    // 10 + 16 + 8
+    assertTrue(json.contains("\"totalMaxThreads\": 34"), json);
+    assertTrue(json.contains("\"unboundedOrUnknownPools\": 2"), json);
+    assertTrue(
+        json.contains(
+            "\"line\": 10, \"creation\": \"Executors.newFixedThreadPool\","
+                + " \"corePoolSize\": \"10\", \"maxPoolSize\": \"10\", \"maxThreads\": 10,"
+                + " \"queue\": \"LinkedBlockingQueue\","
+                + " \"queueCapacity\": \"unbounded\", \"threadFactory\": \"tf\","
+                + " \"rejectionPolicy\": \"AbortPolicy\""),
+        json);
+    assertTrue(
+        json.contains(
+            "\"creation\": \"ThreadPoolExecutor\", \"corePoolSize\": \"2\","
+                + " \"maxPoolSize\": \"2 * cores\", \"maxThreads\": 16,"
+                + " \"queue\": \"ArrayBlockingQueue\", \"queueCapacity\": \"100\","
+                + " \"threadFactory\": \"tf\","
+                + " \"rejectionPolicy\": \"new ThreadPoolExecutor.CallerRunsPolicy()\""),
+        json);
+    assertTrue(
+        json.contains(
+            "\"maxPoolSize\": \"unbounded\", \"maxThreads\": null,"
+                + " \"queue\": \"SynchronousQueue\", \"queueCapacity\": \"0\""),
+        json);
+
+    List<String> csv = Files.readAllLines(outputDirectory.resolve("executors.csv"));
+    assertEquals(6, csv.size());
+    assertTrue(csv.get(0).startsWith("file,line,creation,"), csv.get(0));
+    assertTrue(csv.get(1).contains(",10,Executors.newFixedThreadPool,10,10,10,"), csv.get(1));
+    assertTrue(
+        csv.get(3).endsWith(",tf,new ThreadPoolExecutor.CallerRunsPolicy()"), csv.get(3));
+  }
+
+  @Test
+  void testMergesPreviousInventory() throws IOException {
+    Path kept = Files.createFile(outputDirectory.resolve("Kept.java"));
+    Path deleted = outputDirectory.resolve("Deleted.java");
+    Files.writeString(
+        outputDirectory.resolve("executors.csv"),
+        "file,line,creation,corePoolSize,maxPoolSize,maxThreads,queue,queueCapacity,threadFactory,rejectionPolicy\n"
+            + kept.toUri().getPath()
+            + ",3,Executors.newFixedThreadPool,4,4,4,LinkedBlockingQueue,unbounded,\"factory(\"\"a,b\"\")\",AbortPolicy\n"
+            + deleted.toUri().getPath()
+            + ",5,Executors.newFixedThreadPool,100,100,100,LinkedBlockingQueue,unbounded,default,AbortPolicy\n");
+
+    newHelper()
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.concurrent.Executors;
+            class Test {
+                void test() {
+                    Executors.newFixedThreadPool(10);
+                }
+            }
+            """)
+        .doTest();
+
+    String json = Files.readString(outputDirectory.resolve("executors.json"));
+    // 4 in the file which is not recompiled, and 10 in Test.java
+    assertTrue(json.contains("\"totalMaxThreads\": 14"), json);
+    assertTrue(json.contains("\"threadFactory\": \"factory(\\\"a,b\\\")\""), json);
+    assertFalse(json.contains("Deleted.java"), json);
+
+    List<String> csv = Files.readAllLines(outputDirectory.resolve("executors.csv"));
+    assertEquals(3, csv.size());
+    assertTrue(csv.get(1).startsWith(kept.toUri().getPath() + ",3,"), csv.get(1));
+    assertTrue(csv.get(2).contains(",Executors.newFixedThreadPool,10,10,10,"), csv.get(2));
+  }
+
+  @Test
+  void testNoOutputDirectory() {
+    CompilationTestHelper.newInstance(ExecutorInventory.class, getClass())
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.concurrent.Executors;
+            class Test {
+                void test() {
+                    Executors.newCachedThreadPool();
+                }
+            }
+            """)
+        .doTest();
+
+    assertFalse(Files.exists(outputDirectory.resolve("executors.json")));
+  }
+}
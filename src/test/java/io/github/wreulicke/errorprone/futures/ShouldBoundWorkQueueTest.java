@@ -0,0 +1,187 @@
+package io.github.wreulicke.errorprone.futures;
+
+import com.google.errorprone.BugCheckerRefactoringTestHelper;
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.jupiter.api.Test;
+
+class ShouldBoundWorkQueueTest {
+
+  @Test
+  void testValid() {
+    CompilationTestHelper compilationHelper =
+        CompilationTestHelper.newInstance(ShouldBoundWorkQueue.class, getClass());
+    compilationHelper
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.concurrent.ArrayBlockingQueue;
+            import java.util.concurrent.Executors;
+            import java.util.concurrent.LinkedBlockingQueue;
+            import java.util.concurrent.SynchronousQueue;
+            import java.util.concurrent.ThreadPoolExecutor;
+            import java.util.concurrent.TimeUnit;
+            class Test {
+                void test() {
+                    new ThreadPoolExecutor(10, 10, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(100));
+
+                    new ThreadPoolExecutor(10, 10, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>(100));
+
+                    new ThreadPoolExecutor(10, 10, 0, TimeUnit.SECONDS, new SynchronousQueue<>());
+
+                    Executors.newScheduledThreadPool(10);
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testInvalid() {
+    CompilationTestHelper compilationHelper =
+        CompilationTestHelper.newInstance(ShouldBoundWorkQueue.class, getClass());
+    compilationHelper
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.concurrent.Executors;
+            import java.util.concurrent.LinkedBlockingQueue;
+            import java.util.concurrent.LinkedTransferQueue;
+            import java.util.concurrent.PriorityBlockingQueue;
+            import java.util.concurrent.ThreadPoolExecutor;
+            import java.util.concurrent.TimeUnit;
+            class Test {
+                void test() {
+                    // BUG: Diagnostic contains: Executors.newFixedThreadPool uses an unbounded LinkedBlockingQueue.
+                    Executors.newFixedThreadPool(10);
+
+                    // BUG: Diagnostic contains: Executors.newSingleThreadExecutor uses an unbounded LinkedBlockingQueue.
+                    Executors.newSingleThreadExecutor();
+
+                    // BUG: Diagnostic contains: Do not use an unbounded work queue for thread pools.
+                    new ThreadPoolExecutor(10, 10, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+
+                    // BUG: Diagnostic contains: Do not use an unbounded work queue for thread pools.
+                    new ThreadPoolExecutor(10, 10, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>(Integer.MAX_VALUE));
+
+                    // BUG: Diagnostic contains: Do not use an unbounded work queue for thread pools.
+                    new ThreadPoolExecutor(10, 10, 0, TimeUnit.SECONDS, new LinkedTransferQueue<>());
+
+                    // BUG: Diagnostic contains: Do not use an unbounded work queue for thread pools.
+                    new ThreadPoolExecutor(10, 10, 0, TimeUnit.SECONDS, new PriorityBlockingQueue<>());
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testFix() {
+    BugCheckerRefactoringTestHelper.newInstance(ShouldBoundWorkQueue.class, getClass())
+        .addInputLines(
+            "Test.java",
+            """
+            import java.util.concurrent.ArrayBlockingQueue;
+            import java.util.concurrent.ExecutorService;
+            import java.util.concurrent.Executors;
+            import java.util.concurrent.LinkedBlockingQueue;
+            import java.util.concurrent.LinkedTransferQueue;
+            import java.util.concurrent.PriorityBlockingQueue;
+            import java.util.concurrent.ThreadFactory;
+            import java.util.concurrent.ThreadPoolExecutor;
+            import java.util.concurrent.TimeUnit;
+            class Test {
+                private static final int SIZE = 4;
+
+                void test(ThreadFactory tf, int size, PriorityBlockingQueue<Runnable> priority, LinkedTransferQueue<Runnable> transfer) {
+                    ExecutorService a = Executors.newFixedThreadPool(10, tf);
+                    ExecutorService b = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), tf);
+                    ExecutorService c = Executors.newFixedThreadPool(size);
+                    ExecutorService d = Executors.newFixedThreadPool(SIZE);
+                    // computeSize() would be called twice
+                    ExecutorService e = Executors.newFixedThreadPool(computeSize());
+                    // the tasks would lose the priority order
+                    ExecutorService f = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, priority);
+                    ExecutorService g = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new PriorityBlockingQueue<>());
+                    // the queue may still be used through the variable
+                    ExecutorService h = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, transfer);
+                }
+
+                int computeSize() {
+                    return Runtime.getRuntime().availableProcessors();
+                }
+            }
+            """)
+        .addOutputLines(
+            "Test.java",
+            """
+            import java.util.concurrent.ArrayBlockingQueue;
+            import java.util.concurrent.ExecutorService;
+            import java.util.concurrent.Executors;
+            import java.util.concurrent.LinkedBlockingQueue;
+            import java.util.concurrent.LinkedTransferQueue;
+            import java.util.concurrent.PriorityBlockingQueue;
+            import java.util.concurrent.ThreadFactory;
+            import java.util.concurrent.ThreadPoolExecutor;
+            import java.util.concurrent.TimeUnit;
+            class Test {
+                private static final int SIZE = 4;
+
+                void test(ThreadFactory tf, int size, PriorityBlockingQueue<Runnable> priority, LinkedTransferQueue<Runnable> transfer) {
+                    ExecutorService a = new ThreadPoolExecutor(10, 10, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1024), tf, new ThreadPoolExecutor.AbortPolicy());
+                    ExecutorService b = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(1024), tf, new ThreadPoolExecutor.AbortPolicy());
+                    ExecutorService c = new ThreadPoolExecutor(size, size, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1024), new ThreadPoolExecutor.AbortPolicy());
+                    ExecutorService d = new ThreadPoolExecutor(SIZE, SIZE, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1024), new ThreadPoolExecutor.AbortPolicy());
+                    // computeSize() would be called twice
+                    ExecutorService e = Executors.newFixedThreadPool(computeSize());
+                    // the tasks would lose the priority order
+                    ExecutorService f = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, priority);
+                    ExecutorService g = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new PriorityBlockingQueue<>());
+                    // the queue may still be used through the variable
+                    ExecutorService h = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, transfer);
+                }
+
+                int computeSize() {
+                    return Runtime.getRuntime().availableProcessors();
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testQueueCapacity() {
+    BugCheckerRefactoringTestHelper.newInstance(ShouldBoundWorkQueue.class, getClass())
+        .setArgs("-XepOpt:ShouldBoundWorkQueue:QueueCapacity=256")
+        .addInputLines(
+            "Test.java",
+            """
+            import java.util.concurrent.ArrayBlockingQueue;
+            import java.util.concurrent.ExecutorService;
+            import java.util.concurrent.LinkedBlockingQueue;
+            import java.util.concurrent.ThreadFactory;
+            import java.util.concurrent.ThreadPoolExecutor;
+            import java.util.concurrent.TimeUnit;
+            class Test {
+                void test(ThreadFactory tf) {
+                    ExecutorService b = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), tf);
+                }
+            }
+            """)
+        .addOutputLines(
+            "Test.java",
+            """
+            import java.util.concurrent.ArrayBlockingQueue;
+            import java.util.concurrent.ExecutorService;
+            import java.util.concurrent.LinkedBlockingQueue;
+            import java.util.concurrent.ThreadFactory;
+            import java.util.concurrent.ThreadPoolExecutor;
+            import java.util.concurrent.TimeUnit;
+            class Test {
+                void test(ThreadFactory tf) {
+                    ExecutorService b = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(256), tf, new ThreadPoolExecutor.AbortPolicy());
+                }
+            }
+            """)
+        .doTest();
+  }
+}
@@ -0,0 +1,154 @@
+package io.github.wreulicke.errorprone.futures;
+
+import com.google.errorprone.BugCheckerRefactoringTestHelper;
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.jupiter.api.Test;
+
+class ShouldChooseRejectionPolicyTest {
+
+  private CompilationTestHelper newHelper() {
+    return CompilationTestHelper.newInstance(ShouldChooseRejectionPolicy.class, getClass())
+        .addSourceLines(
+            "org/springframework/web/bind/annotation/GetMapping.java",
+            """
+            package org.springframework.web.bind.annotation;
+            public @interface GetMapping {
+                String[] value() default {};
+            }
+            """);
+  }
+
+  @Test
+  void testValid() {
+    newHelper()
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.concurrent.ArrayBlockingQueue;
+            import java.util.concurrent.LinkedBlockingQueue;
+            import java.util.concurrent.RejectedExecutionHandler;
+            import java.util.concurrent.ThreadPoolExecutor;
+            import java.util.concurrent.TimeUnit;
+            class Test {
+                private final ThreadPoolExecutor batch =
+                    new ThreadPoolExecutor(
+                        4,
+                        4,
+                        0,
+                        TimeUnit.SECONDS,
+                        new ArrayBlockingQueue<>(100),
+                        new ThreadPoolExecutor.CallerRunsPolicy());
+
+                void runBatch(Runnable task) {
+                    batch.execute(task);
+                }
+
+                void test(RejectedExecutionHandler handler) {
+                    new ThreadPoolExecutor(
+                        4,
+                        4,
+                        0,
+                        TimeUnit.SECONDS,
+                        new ArrayBlockingQueue<>(100),
+                        new ThreadPoolExecutor.AbortPolicy());
+                    new ThreadPoolExecutor(
+                        4, 4, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(100), handler);
+                    new ThreadPoolExecutor(
+                        4,
+                        4,
+                        0,
+                        TimeUnit.SECONDS,
+                        new ArrayBlockingQueue<>(100),
+                        new ThreadPoolExecutor.DiscardPolicy() {
+                            @Override
+                            public void rejectedExecution(Runnable r, ThreadPoolExecutor executor) {
+                                System.err.println("discarded " + r);
+                            }
+                        });
+                    // the unbounded queue is reported by ShouldBoundWorkQueue
+                    new ThreadPoolExecutor(4, 4, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testInvalid() {
+    newHelper()
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.concurrent.ArrayBlockingQueue;
+            import java.util.concurrent.CompletableFuture;
+            import java.util.concurrent.LinkedBlockingQueue;
+            import java.util.concurrent.SynchronousQueue;
+            import java.util.concurrent.ThreadPoolExecutor;
+            import java.util.concurrent.TimeUnit;
+            import org.springframework.web.bind.annotation.GetMapping;
+            class Test {
+                private final ThreadPoolExecutor pool =
+                    new ThreadPoolExecutor(
+                        4,
+                        4,
+                        0,
+                        TimeUnit.SECONDS,
+                        new ArrayBlockingQueue<>(100),
+                        // BUG: Diagnostic contains: CallerRunsPolicy runs the rejected tasks on the request thread, because the pool is fed from find.
+                        new ThreadPoolExecutor.CallerRunsPolicy());
+
+                @GetMapping("/items")
+                CompletableFuture<String> find() {
+                    return CompletableFuture.supplyAsync(() -> "item", pool);
+                }
+
+                void test() {
+                    // BUG: Diagnostic contains: ThreadPoolExecutor with a bounded queue should be given RejectedExecutionHandler explicitly.
+                    new ThreadPoolExecutor(4, 4, 0, TimeUnit.SECONDS, new SynchronousQueue<>());
+
+                    // BUG: Diagnostic contains: ThreadPoolExecutor with a bounded queue should be given RejectedExecutionHandler explicitly.
+                    new ThreadPoolExecutor(4, 4, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>(100));
+
+                    new ThreadPoolExecutor(
+                        4,
+                        4,
+                        0,
+                        TimeUnit.SECONDS,
+                        new ArrayBlockingQueue<>(100),
+                        // BUG: Diagnostic contains: DiscardPolicy drops the tasks silently, and hides the backpressure.
+                        new ThreadPoolExecutor.DiscardPolicy());
+
+                    new ThreadPoolExecutor(
+                        4,
+                        4,
+                        0,
+                        TimeUnit.SECONDS,
+                        new ArrayBlockingQueue<>(100),
+                        // BUG: Diagnostic contains: DiscardOldestPolicy drops the tasks silently, and hides the backpressure.
+                        new ThreadPoolExecutor.DiscardOldestPolicy());
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testNoFix() {
+    // AbortPolicy is already the default, so the rejection policy is left to the caller
+    BugCheckerRefactoringTestHelper.newInstance(ShouldChooseRejectionPolicy.class, getClass())
+        .addInputLines(
+            "Test.java",
+            """
+            import java.util.concurrent.ArrayBlockingQueue;
+            import java.util.concurrent.ThreadPoolExecutor;
+            import java.util.concurrent.TimeUnit;
+            class Test {
+                void test() {
+                    new ThreadPoolExecutor(4, 4, 0, TimeUnit.SECONDS, new ArrayBlockingQueue<>(100));
+                }
+            }
+            """)
+        .expectUnchanged()
+        .doTest();
+  }
+}
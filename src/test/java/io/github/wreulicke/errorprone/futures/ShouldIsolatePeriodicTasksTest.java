@@ -0,0 +1,134 @@
+package io.github.wreulicke.errorprone.futures;
+
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.jupiter.api.Test;
+
+class ShouldIsolatePeriodicTasksTest {
+
+  @Test
+  void testValid() {
+    CompilationTestHelper.newInstance(ShouldIsolatePeriodicTasks.class, getClass())
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.concurrent.Executors;
+            import java.util.concurrent.ScheduledExecutorService;
+            import java.util.concurrent.TimeUnit;
+            class Test {
+                private final ScheduledExecutorService single = Executors.newSingleThreadScheduledExecutor();
+                private final ScheduledExecutorService pool = Executors.newScheduledThreadPool(4);
+
+                void start(Runnable external) {
+                    single.scheduleAtFixedRate(() -> {
+                        try {
+                            poll();
+                        } catch (Throwable e) {
+                            // should write log
+                        }
+                    }, 0, 1, TimeUnit.SECONDS);
+
+                    pool.scheduleAtFixedRate(this::safePoll, 0, 1, TimeUnit.SECONDS);
+                    pool.scheduleWithFixedDelay(() -> safePoll(), 0, 1, TimeUnit.SECONDS);
+                    pool.scheduleWithFixedDelay(external, 0, 1, TimeUnit.SECONDS);
+                }
+
+                private void poll() {}
+
+                private void safePoll() {
+                    try {
+                        poll();
+                    } catch (Throwable e) {
+                        // should write log
+                    }
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testInvalid() {
+    CompilationTestHelper.newInstance(ShouldIsolatePeriodicTasks.class, getClass())
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.concurrent.Executors;
+            import java.util.concurrent.ScheduledExecutorService;
+            import java.util.concurrent.ScheduledThreadPoolExecutor;
+            import java.util.concurrent.TimeUnit;
+            class Test {
+                // BUG: Diagnostic contains: Scheduler scheduler runs 2 periodic tasks on one thread.
+                private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(1);
+                private ScheduledExecutorService other;
+
+                void start() {
+                    // BUG: Diagnostic contains: Scheduler other runs 2 periodic tasks on one thread.
+                    other = new ScheduledThreadPoolExecutor(1);
+                    scheduler.scheduleAtFixedRate(this::safePoll, 0, 1, TimeUnit.SECONDS);
+                    scheduler.scheduleWithFixedDelay(this::safePoll, 0, 1, TimeUnit.SECONDS);
+                    other.scheduleAtFixedRate(this::safePoll, 0, 1, TimeUnit.SECONDS);
+                    other.scheduleAtFixedRate(this::safePoll, 0, 1, TimeUnit.SECONDS);
+
+                    // BUG: Diagnostic contains: Periodic task should catch Throwable at the top level.
+                    other.scheduleAtFixedRate(this::poll, 0, 1, TimeUnit.SECONDS);
+
+                    other.scheduleAtFixedRate(
+                        // BUG: Diagnostic contains: Periodic task should catch Throwable at the top level.
+                        () -> {
+                            try {
+                                poll();
+                            } catch (RuntimeException e) {
+                                // Error cancels the schedule
+                            }
+                        },
+                        0,
+                        1,
+                        TimeUnit.SECONDS);
+                }
+
+                private void poll() {
+                    throw new IllegalStateException();
+                }
+
+                private void safePoll() {
+                    try {
+                        poll();
+                    } catch (Throwable e) {
+                        // should write log
+                    }
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testMaxPeriodicTasks() {
+    CompilationTestHelper.newInstance(ShouldIsolatePeriodicTasks.class, getClass())
+        .setArgs("-XepOpt:ShouldIsolatePeriodicTasks:MaxPeriodicTasks=2")
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.concurrent.Executors;
+            import java.util.concurrent.ScheduledExecutorService;
+            import java.util.concurrent.TimeUnit;
+            class Test {
+                private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+                void start() {
+                    scheduler.scheduleAtFixedRate(this::safePoll, 0, 1, TimeUnit.SECONDS);
+                    scheduler.scheduleWithFixedDelay(this::safePoll, 0, 1, TimeUnit.SECONDS);
+                }
+
+                private void safePoll() {
+                    try {
+                        Thread.sleep(10);
+                    } catch (Throwable e) {
+                        // should write log
+                    }
+                }
+            }
+            """)
+        .doTest();
+  }
+}
@@ -0,0 +1,158 @@
+package io.github.wreulicke.errorprone.futures;
+
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.jupiter.api.Test;
+
+class ShouldLimitTaskFanOutTest {
+
+  @Test
+  void testValid() {
+    CompilationTestHelper compilationHelper =
+        CompilationTestHelper.newInstance(ShouldLimitTaskFanOut.class, getClass());
+    compilationHelper
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.ArrayList;
+            import java.util.List;
+            import java.util.concurrent.ArrayBlockingQueue;
+            import java.util.concurrent.CompletableFuture;
+            import java.util.concurrent.ExecutorService;
+            import java.util.concurrent.Semaphore;
+            import java.util.concurrent.ThreadPoolExecutor;
+            import java.util.concurrent.TimeUnit;
+            import java.util.stream.IntStream;
+            class Test {
+                enum Region { EU, US }
+
+                private static final List<String> SHARDS = List.of("a", "b", "c");
+
+                private final ThreadPoolExecutor bounded =
+                    new ThreadPoolExecutor(
+                        4,
+                        4,
+                        0,
+                        TimeUnit.SECONDS,
+                        new ArrayBlockingQueue<>(100),
+                        new ThreadPoolExecutor.CallerRunsPolicy());
+
+                private final Semaphore permits = new Semaphore(100);
+
+                void constantSources(ExecutorService executor) {
+                    for (String shard : SHARDS) {
+                        executor.submit(() -> shard);
+                    }
+                    for (Region region : Region.values()) {
+                        CompletableFuture.runAsync(() -> {}, executor);
+                    }
+                    for (int i = 0; i < 8; i++) {
+                        executor.execute(() -> {});
+                    }
+                    IntStream.range(0, 8).forEach(i -> executor.execute(() -> {}));
+                    List.of(1, 2, 3).forEach(i -> executor.submit(() -> i));
+                }
+
+                void chunked(List<String> items, ExecutorService executor) {
+                    List<CompletableFuture<String>> chunk = new ArrayList<>();
+                    for (String item : items) {
+                        chunk.add(CompletableFuture.supplyAsync(() -> item, executor));
+                        if (chunk.size() == 100) {
+                            CompletableFuture.allOf(chunk.toArray(new CompletableFuture[0])).join();
+                            chunk.clear();
+                        }
+                    }
+                }
+
+                void nestedChunks(List<List<String>> chunks, ExecutorService executor) {
+                    for (List<String> chunk : chunks) {
+                        List<CompletableFuture<String>> futures = new ArrayList<>();
+                        for (String item : chunk) {
+                            futures.add(CompletableFuture.supplyAsync(() -> item, executor));
+                        }
+                        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+                    }
+                }
+
+                void semaphore(List<String> items, ExecutorService executor) throws InterruptedException {
+                    for (String item : items) {
+                        permits.acquire();
+                        executor.execute(
+                            () -> {
+                                try {
+                                    System.out.println(item);
+                                } finally {
+                                    permits.release();
+                                }
+                            });
+                    }
+                }
+
+                void boundedPool(List<String> items) {
+                    for (String item : items) {
+                        bounded.execute(() -> System.out.println(item));
+                    }
+                }
+
+                void notInLoop(ExecutorService executor) {
+                    executor.submit(() -> {});
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testInvalid() {
+    CompilationTestHelper compilationHelper =
+        CompilationTestHelper.newInstance(ShouldLimitTaskFanOut.class, getClass());
+    compilationHelper
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.ArrayList;
+            import java.util.Iterator;
+            import java.util.List;
+            import java.util.concurrent.CompletableFuture;
+            import java.util.concurrent.ExecutorService;
+            class Test {
+                List<CompletableFuture<String>> loop(List<String> items, ExecutorService executor) {
+                    List<CompletableFuture<String>> futures = new ArrayList<>();
+                    for (String item : items) {
+                        // BUG: Diagnostic contains: The task is submitted for each element of a source of unknown size
+                        futures.add(CompletableFuture.supplyAsync(() -> item, executor));
+                    }
+                    // waiting after the loop does not limit the pending tasks
+                    CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+                    return futures;
+                }
+
+                void indexed(List<String> items, ExecutorService executor) {
+                    for (int i = 0; i < items.size(); i++) {
+                        String item = items.get(i);
+                        // BUG: Diagnostic contains: Submit the tasks in chunks and wait for each chunk
+                        executor.submit(() -> item);
+                    }
+                }
+
+                void iterator(Iterator<String> items, ExecutorService executor) {
+                    while (items.hasNext()) {
+                        String item = items.next();
+                        // BUG: Diagnostic contains: The task is submitted for each element of a source of unknown size
+                        executor.execute(() -> System.out.println(item));
+                    }
+                }
+
+                void forEach(List<String> items, ExecutorService executor) {
+                    // BUG: Diagnostic contains: The task is submitted for each element of a source of unknown size
+                    items.forEach(item -> executor.submit(() -> item));
+
+                    items.stream()
+                        // BUG: Diagnostic contains: The task is submitted for each element of a source of unknown size
+                        .map(item -> CompletableFuture.supplyAsync(() -> item, executor))
+                        .toList();
+                }
+            }
+            """)
+        .doTest();
+  }
+}
@@ -41,4 +41,67 @@ class ShouldRestrictThreadPoolSizeTest {
                 """)
         .doTest();
   }
+
+  @Test
+  void testAllowCachedThreadPool() {
+    CompilationTestHelper compilationHelper =
+        CompilationTestHelper.newInstance(ShouldRestrictThreadPoolSize.class, getClass());
+    compilationHelper
+        .setArgs("-XepOpt:ShouldRestrictThreadPoolSize:AllowCachedThreadPool=true")
+        .addSourceLines(
+            "Test.java",
+            """
+                import java.util.concurrent.Executors;
+                class Test {
+                    void test() {
+                        Executors.newCachedThreadPool();
+                    }
+                }
+                """)
+        .doTest();
+  }
+
+  @Test
+  void testMaxPoolSize() {
+    CompilationTestHelper compilationHelper =
+        CompilationTestHelper.newInstance(ShouldRestrictThreadPoolSize.class, getClass());
+    compilationHelper
+        .setArgs(
+            "-XepOpt:ShouldRestrictThreadPoolSize:MaxPoolSize=256",
+            "-XepOpt:ShouldRestrictThreadPoolSize:MaxPoolSizePerCore=4",
+            "-XepOpt:ShouldRestrictThreadPoolSize:AssumedCores=16")
+        .addSourceLines(
+            "Test.java",
+            """
+                import java.util.concurrent.Executors;
+                import java.util.concurrent.ForkJoinPool;
+                import java.util.concurrent.LinkedBlockingQueue;
+                import java.util.concurrent.ThreadPoolExecutor;
+                import java.util.concurrent.TimeUnit;
+                class Test {
+                    private static final int SIZE = 512;
+
+                    void test(int size) {
+                        Executors.newFixedThreadPool(256);
+                        Executors.newFixedThreadPool(size);
+                        Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors() * 16);
+                        Executors.newWorkStealingPool();
+                        new ThreadPoolExecutor(1, 100, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>(10));
+
+                        // BUG: Diagnostic contains: Thread pool size 512 exceeds the ceiling 256 with 16 cores.
+                        Executors.newFixedThreadPool(SIZE);
+
+                        // BUG: Diagnostic contains: Thread pool size 32 * cores + 1 exceeds the ceiling 256 with 16 cores.
+                        Executors.newScheduledThreadPool((Runtime.getRuntime().availableProcessors() * 32) + 1);
+
+                        // BUG: Diagnostic contains: Thread pool size 1000 exceeds the ceiling 256 with 16 cores.
+                        new ThreadPoolExecutor(1, 1000, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>(10));
+
+                        // BUG: Diagnostic contains: Thread pool size 300 exceeds the ceiling 256 with 16 cores.
+                        new ForkJoinPool(300);
+                    }
+                }
+                """)
+        .doTest();
+  }
 }
@@ -0,0 +1,113 @@
+package io.github.wreulicke.errorprone.futures;
+
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.jupiter.api.Test;
+
+class ShouldShutdownExecutorTest {
+
+  @Test
+  void testValid() {
+    CompilationTestHelper.newInstance(ShouldShutdownExecutor.class, getClass())
+        .addSourceLines(
+            "Worker.java",
+            """
+            import java.util.concurrent.ExecutorService;
+            class Worker {
+                Worker(ExecutorService executor) {}
+            }
+            """)
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.concurrent.CompletableFuture;
+            import java.util.concurrent.ExecutorService;
+            import java.util.concurrent.Executors;
+            import java.util.concurrent.ForkJoinPool;
+            import java.util.concurrent.LinkedBlockingQueue;
+            import java.util.concurrent.ThreadPoolExecutor;
+            import java.util.concurrent.TimeUnit;
+            class Test implements AutoCloseable {
+                private static final ExecutorService SHARED = Executors.newFixedThreadPool(10);
+                private final ExecutorService executor = Executors.newFixedThreadPool(10);
+                private final ThreadPoolExecutor pool;
+
+                Test() {
+                    this.pool = new ThreadPoolExecutor(1, 1, 0, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+                }
+
+                void shutdown() {
+                    ExecutorService e = Executors.newFixedThreadPool(10);
+                    try {
+                        CompletableFuture.runAsync(() -> {}, e).join();
+                    } finally {
+                        e.shutdown();
+                    }
+                }
+
+                void alias() {
+                    ExecutorService e = new ForkJoinPool(4);
+                    ExecutorService alias = e;
+                    alias.shutdownNow();
+                }
+
+                void tryWithResources() {
+                    ExecutorService e = Executors.newVirtualThreadPerTaskExecutor();
+                    try (e) {
+                        e.submit(() -> {});
+                    }
+                    try (ExecutorService v = Executors.newVirtualThreadPerTaskExecutor()) {
+                        v.submit(() -> {});
+                    }
+                }
+
+                ExecutorService create() {
+                    ExecutorService e = Executors.newFixedThreadPool(10);
+                    return e;
+                }
+
+                Worker worker() {
+                    ExecutorService e = Executors.newFixedThreadPool(10);
+                    return new Worker(e);
+                }
+
+                @Override
+                public void close() {
+                    executor.close();
+                    pool.shutdown();
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testInvalid() {
+    CompilationTestHelper.newInstance(ShouldShutdownExecutor.class, getClass())
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.concurrent.CompletableFuture;
+            import java.util.concurrent.ExecutorService;
+            import java.util.concurrent.Executors;
+            import java.util.concurrent.ScheduledExecutorService;
+            class Test {
+                // BUG: Diagnostic contains: Should shut down ExecutorService assigned to executor.
+                private final ExecutorService executor = Executors.newFixedThreadPool(10);
+                private ScheduledExecutorService scheduler;
+
+                void start() {
+                    // BUG: Diagnostic contains: Should shut down ExecutorService assigned to scheduler.
+                    scheduler = Executors.newSingleThreadScheduledExecutor();
+                }
+
+                void test() {
+                    // BUG: Diagnostic contains: Should shut down ExecutorService assigned to e.
+                    ExecutorService e = Executors.newFixedThreadPool(10);
+                    ExecutorService alias = e;
+                    CompletableFuture.runAsync(() -> {}, alias).join();
+                }
+            }
+            """)
+        .doTest();
+  }
+}
@@ -0,0 +1,161 @@
+package io.github.wreulicke.errorprone.futures;
+
+import com.google.errorprone.BugCheckerRefactoringTestHelper;
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.jupiter.api.Test;
+
+class ShouldWaitWithTimeoutTest {
+
+  @Test
+  void testValid() {
+    CompilationTestHelper.newInstance(ShouldWaitWithTimeout.class, getClass())
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.concurrent.CompletableFuture;
+            import java.util.concurrent.CountDownLatch;
+            import java.util.concurrent.Future;
+            import java.util.concurrent.Semaphore;
+            import java.util.concurrent.TimeUnit;
+            class Test {
+                void test(CompletableFuture<String> a, Future<String> b, CountDownLatch latch, Semaphore semaphore) throws Exception {
+                    a.orTimeout(1, TimeUnit.SECONDS).join();
+                    a.getNow("default");
+                    b.get(1, TimeUnit.SECONDS);
+                    latch.await(1, TimeUnit.SECONDS);
+                    semaphore.tryAcquire(1, TimeUnit.SECONDS);
+                }
+
+                public static void main(String[] args) throws Exception {
+                    new CountDownLatch(1).await();
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testInvalid() {
+    CompilationTestHelper.newInstance(ShouldWaitWithTimeout.class, getClass())
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.concurrent.CompletableFuture;
+            import java.util.concurrent.CountDownLatch;
+            import java.util.concurrent.Future;
+            import java.util.concurrent.Semaphore;
+            class Test {
+                void test(CompletableFuture<String> a, Future<String> b, CountDownLatch latch, Semaphore semaphore) throws Exception {
+                    // BUG: Diagnostic contains: Should wait with timeout instead of CompletableFuture.join().
+                    a.join();
+                    // BUG: Diagnostic contains: Should wait with timeout instead of CompletableFuture.get().
+                    a.get();
+                    // BUG: Diagnostic contains: Should wait with timeout instead of Future.get().
+                    b.get();
+                    // BUG: Diagnostic contains: Should wait with timeout instead of CountDownLatch.await().
+                    latch.await();
+                    // BUG: Diagnostic contains: Should wait with timeout instead of Semaphore.acquire().
+                    semaphore.acquire();
+                    // BUG: Diagnostic contains: Should wait with timeout instead of Semaphore.acquireUninterruptibly().
+                    semaphore.acquireUninterruptibly(2);
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testFix() {
+    BugCheckerRefactoringTestHelper.newInstance(ShouldWaitWithTimeout.class, getClass())
+        .setArgs("-XepOpt:ShouldWaitWithTimeout:TimeoutMillis=5000")
+        .addInputLines(
+            "Test.java",
+            """
+            import java.util.concurrent.CompletableFuture;
+            import java.util.concurrent.CountDownLatch;
+            import java.util.concurrent.Future;
+            class Test {
+                void test(CompletableFuture<String> a, Future<String> b, CountDownLatch latch) throws Exception {
+                    a.join();
+                    b.get();
+                    latch.await();
+                }
+            }
+            """)
+        .addOutputLines(
+            "Test.java",
+            """
+            import java.util.concurrent.CompletableFuture;
+            import java.util.concurrent.CountDownLatch;
+            import java.util.concurrent.Future;
+            import java.util.concurrent.TimeUnit;
+            import java.util.concurrent.TimeoutException;
+            class Test {
+                void test(CompletableFuture<String> a, Future<String> b, CountDownLatch latch) throws Exception {
+                    a.orTimeout(5000, TimeUnit.MILLISECONDS).join();
+                    b.get(5000, TimeUnit.MILLISECONDS);
+                    if (!latch.await(5000, TimeUnit.MILLISECONDS)) {
+                        throw new TimeoutException("Timed out after 5000 ms");
+                    }
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testFixWithoutTimeoutException() {
+    BugCheckerRefactoringTestHelper.newInstance(ShouldWaitWithTimeout.class, getClass())
+        .setArgs("-XepOpt:ShouldWaitWithTimeout:TimeoutMillis=5000")
+        .addInputLines(
+            "Test.java",
+            """
+            import java.util.concurrent.CompletableFuture;
+            import java.util.concurrent.CountDownLatch;
+            import java.util.concurrent.ExecutionException;
+            import java.util.concurrent.Future;
+            class Test {
+                void test(CompletableFuture<String> a, Future<String> b, CountDownLatch latch)
+                    throws InterruptedException, ExecutionException {
+                    a.join();
+                    b.get();
+                    latch.await();
+                }
+
+                void caught(Future<String> b) throws InterruptedException, ExecutionException {
+                    try {
+                        b.get();
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }
+            """)
+        .addOutputLines(
+            "Test.java",
+            """
+            import java.util.concurrent.CompletableFuture;
+            import java.util.concurrent.CountDownLatch;
+            import java.util.concurrent.ExecutionException;
+            import java.util.concurrent.Future;
+            import java.util.concurrent.TimeUnit;
+            class Test {
+                void test(CompletableFuture<String> a, Future<String> b, CountDownLatch latch)
+                    throws InterruptedException, ExecutionException {
+                    a.orTimeout(5000, TimeUnit.MILLISECONDS).join();
+                    b.get();
+                    latch.await();
+                }
+
+                void caught(Future<String> b) throws InterruptedException, ExecutionException {
+                    try {
+                        b.get(5000, TimeUnit.MILLISECONDS);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            }
+            """)
+        .doTest();
+  }
+}
@@ -0,0 +1,175 @@
+package io.github.wreulicke.errorprone.locks;
+
+import com.google.errorprone.BugCheckerRefactoringTestHelper;
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.jupiter.api.Test;
+
+class ShouldUseConcurrentCollectionTest {
+
+  @Test
+  void testValid() {
+    CompilationTestHelper.newInstance(ShouldUseConcurrentCollection.class, getClass())
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.Collections;
+            import java.util.HashMap;
+            import java.util.Hashtable;
+            import java.util.Map;
+            class Test {
+                // not shared between threads
+                private final Map<String, String> cache = Collections.synchronizedMap(new HashMap<>());
+                private final Map<String, String> table = new Hashtable<>();
+
+                void run() {
+                    Map<String, String> local = Collections.synchronizedMap(new HashMap<>());
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testInvalid() {
+    CompilationTestHelper.newInstance(ShouldUseConcurrentCollection.class, getClass())
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.ArrayList;
+            import java.util.Collections;
+            import java.util.HashMap;
+            import java.util.Hashtable;
+            import java.util.List;
+            import java.util.Map;
+            import java.util.Vector;
+            import java.util.concurrent.ExecutorService;
+            class Test {
+                // BUG: Diagnostic contains: Should use ConcurrentHashMap instead of synchronized collection
+                private final Map<String, String> cache = Collections.synchronizedMap(new HashMap<>());
+                // BUG: Diagnostic contains: Should use ConcurrentHashMap instead of synchronized collection
+                private final Hashtable<String, String> table = new Hashtable<>();
+                // BUG: Diagnostic contains: Should use CopyOnWriteArrayList instead of synchronized collection
+                private final List<String> listeners = Collections.synchronizedList(new ArrayList<>());
+                // BUG: Diagnostic contains: Should use CopyOnWriteArrayList instead of synchronized collection
+                private final List<String> vector = new Vector<>();
+
+                void start(ExecutorService executor) {
+                    executor.submit(() -> cache.put("key", "value"));
+                }
+            }
+            """)
+        .addSourceLines(
+            "Task.java",
+            """
+            import java.util.Collections;
+            import java.util.HashMap;
+            import java.util.Map;
+            class Task implements Runnable {
+                // BUG: Diagnostic contains: Should use ConcurrentHashMap instead of synchronized collection
+                private final Map<String, String> cache = Collections.synchronizedMap(new HashMap<>());
+
+                public void run() {
+                    cache.put("key", "value");
+                }
+            }
+            """)
+        .addSourceLines(
+            "ThreadSafe.java",
+            """
+            package javax.annotation.concurrent;
+            public @interface ThreadSafe {}
+            """)
+        .addSourceLines(
+            "Registry.java",
+            """
+            import java.util.Collections;
+            import java.util.HashMap;
+            import java.util.Map;
+            import javax.annotation.concurrent.ThreadSafe;
+            @ThreadSafe
+            class Registry {
+                // BUG: Diagnostic contains: Should use ConcurrentHashMap instead of synchronized collection
+                private final Map<String, String> entries = Collections.synchronizedMap(new HashMap<>());
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testFix() {
+    BugCheckerRefactoringTestHelper.newInstance(ShouldUseConcurrentCollection.class, getClass())
+        .addInputLines(
+            "Test.java",
+            """
+            import java.util.ArrayList;
+            import java.util.Collections;
+            import java.util.HashMap;
+            import java.util.Hashtable;
+            import java.util.LinkedHashMap;
+            import java.util.List;
+            import java.util.Map;
+            import java.util.TreeMap;
+            class Test implements Runnable {
+                private final Map<String, String> table = new Hashtable<>(16);
+                private final Map<String, String> empty = new Hashtable<>();
+                private final List<String> listeners = Collections.synchronizedList(new ArrayList<>(List.of("a")));
+                private final Hashtable<String, String> concrete = new Hashtable<>();
+                // ConcurrentHashMap rejects null keys and values, and loses the order
+                private final Map<String, String> cache = Collections.synchronizedMap(new HashMap<>());
+                private final Map<String, String> ordered = Collections.synchronizedMap(new LinkedHashMap<>());
+                private final Map<String, String> sorted = Collections.synchronizedMap(new TreeMap<>());
+                // the block locking the field is not atomic with ConcurrentHashMap
+                private final Map<String, String> locked = new Hashtable<>();
+                // CopyOnWriteArrayList copies the array on every write
+                private final List<String> written = Collections.synchronizedList(new ArrayList<>());
+
+                public void run() {
+                    synchronized (locked) {
+                        if (!locked.containsKey("a")) {
+                            locked.put("a", "b");
+                        }
+                    }
+                    written.add("a");
+                }
+            }
+            """)
+        .addOutputLines(
+            "Test.java",
+            """
+            import java.util.ArrayList;
+            import java.util.Collections;
+            import java.util.HashMap;
+            import java.util.Hashtable;
+            import java.util.LinkedHashMap;
+            import java.util.List;
+            import java.util.Map;
+            import java.util.TreeMap;
+            import java.util.concurrent.ConcurrentHashMap;
+            import java.util.concurrent.CopyOnWriteArrayList;
+            class Test implements Runnable {
+                private final Map<String, String> table = new ConcurrentHashMap<>(16);
+                private final Map<String, String> empty = new ConcurrentHashMap<>();
+                private final List<String> listeners = new CopyOnWriteArrayList<>(new ArrayList<>(List.of("a")));
+                private final Hashtable<String, String> concrete = new Hashtable<>();
+                // ConcurrentHashMap rejects null keys and values, and loses the order
+                private final Map<String, String> cache = Collections.synchronizedMap(new HashMap<>());
+                private final Map<String, String> ordered = Collections.synchronizedMap(new LinkedHashMap<>());
+                private final Map<String, String> sorted = Collections.synchronizedMap(new TreeMap<>());
+                // the block locking the field is not atomic with ConcurrentHashMap
+                private final Map<String, String> locked = new Hashtable<>();
+                // CopyOnWriteArrayList copies the array on every write
+                private final List<String> written = Collections.synchronizedList(new ArrayList<>());
+
+                public void run() {
+                    synchronized (locked) {
+                        if (!locked.containsKey("a")) {
+                            locked.put("a", "b");
+                        }
+                    }
+                    written.add("a");
+                }
+            }
+            """)
+        .doTest();
+  }
+}
@@ -0,0 +1,175 @@
+package io.github.wreulicke.errorprone.locks;
+
+import com.google.errorprone.BugCheckerRefactoringTestHelper;
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.jupiter.api.Test;
+
+class ShouldUseLongAdderTest {
+
+  @Test
+  void testValid() {
+    CompilationTestHelper.newInstance(ShouldUseLongAdder.class, getClass())
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.concurrent.atomic.AtomicInteger;
+            import java.util.concurrent.atomic.AtomicLong;
+            class Test {
+                // used as an id generator
+                private static final AtomicLong ids = new AtomicLong();
+                // compareAndSet is not supported by LongAdder
+                private static final AtomicLong flags = new AtomicLong();
+                // starts from non-zero
+                private static final AtomicLong offset = new AtomicLong(100);
+                // not shared between requests
+                private final AtomicLong local = new AtomicLong();
+                // read in too many places
+                private static final AtomicInteger hits = new AtomicInteger();
+
+                long next() {
+                    local.incrementAndGet();
+                    hits.incrementAndGet();
+                    flags.compareAndSet(0, 1);
+                    offset.incrementAndGet();
+                    return ids.incrementAndGet();
+                }
+
+                int a() {
+                    return hits.get();
+                }
+
+                int b() {
+                    return hits.get();
+                }
+
+                int c() {
+                    return hits.get();
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testInvalid() {
+    CompilationTestHelper.newInstance(ShouldUseLongAdder.class, getClass())
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.concurrent.atomic.AtomicInteger;
+            import java.util.concurrent.atomic.AtomicLong;
+            class Test {
+                // BUG: Diagnostic contains: Should use LongAdder for requests. The counter is updated by many threads and read in 1 places
+                private static final AtomicLong requests = new AtomicLong();
+                // BUG: Diagnostic contains: Should use LongAdder for bytes.
+                private static final AtomicLong bytes = new AtomicLong(0);
+                // BUG: Diagnostic contains: threads updating AtomicInteger contend on one cache line
+                private static final AtomicInteger errors = new AtomicInteger();
+
+                void handle(int size) {
+                    requests.incrementAndGet();
+                    Test.bytes.addAndGet(size);
+                    errors.getAndIncrement();
+                }
+
+                long requests() {
+                    return requests.get();
+                }
+            }
+            """)
+        .addSourceLines(
+            "Metrics.java",
+            """
+            import java.util.concurrent.atomic.AtomicLong;
+            enum Metrics {
+                INSTANCE;
+
+                // BUG: Diagnostic contains: Should use LongAdder for hits.
+                private final AtomicLong hits = new AtomicLong();
+
+                void hit() {
+                    hits.getAndIncrement();
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testMaxReads() {
+    CompilationTestHelper.newInstance(ShouldUseLongAdder.class, getClass())
+        .setArgs("-XepOpt:ShouldUseLongAdder:MaxReads=0")
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.concurrent.atomic.AtomicLong;
+            class Test {
+                private static final AtomicLong requests = new AtomicLong();
+
+                void handle() {
+                    requests.incrementAndGet();
+                }
+
+                long requests() {
+                    return requests.get();
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testFix() {
+    BugCheckerRefactoringTestHelper.newInstance(ShouldUseLongAdder.class, getClass())
+        .addInputLines(
+            "Test.java",
+            """
+            import java.util.concurrent.atomic.AtomicInteger;
+            import java.util.concurrent.atomic.AtomicLong;
+            class Test {
+                private static final AtomicLong requests = new AtomicLong();
+                private static final AtomicInteger errors = new AtomicInteger();
+
+                void handle(int size) {
+                    requests.incrementAndGet();
+                    Test.requests.addAndGet(size);
+                    errors.getAndDecrement();
+                }
+
+                long requests() {
+                    return requests.get();
+                }
+
+                int errors() {
+                    return errors.get();
+                }
+            }
+            """)
+        .addOutputLines(
+            "Test.java",
+            """
+            import java.util.concurrent.atomic.AtomicInteger;
+            import java.util.concurrent.atomic.AtomicLong;
+            import java.util.concurrent.atomic.LongAdder;
+            class Test {
+                private static final LongAdder requests = new LongAdder();
+                private static final LongAdder errors = new LongAdder();
+
+                void handle(int size) {
+                    requests.increment();
+                    Test.requests.add(size);
+                    errors.decrement();
+                }
+
+                long requests() {
+                    return requests.sum();
+                }
+
+                int errors() {
+                    return errors.intValue();
+                }
+            }
+            """)
+        .doTest();
+  }
+}
@@ -0,0 +1,174 @@
+package io.github.wreulicke.errorprone.locks;
+
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.jupiter.api.Test;
+
+class ShouldUseReadWriteLockTest {
+
+  @Test
+  void testValid() {
+    CompilationTestHelper.newInstance(ShouldUseReadWriteLock.class, getClass())
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.HashMap;
+            import java.util.Map;
+            class Test {
+                private final Map<String, String> entries = new HashMap<>();
+                private int count;
+
+                synchronized void put(String key, String value) {
+                    entries.put(key, value);
+                    count++;
+                }
+
+                synchronized String computeIfAbsent(String key) {
+                    return entries.computeIfAbsent(key, k -> k);
+                }
+
+                String unsynchronized(String key) {
+                    return entries.get(key);
+                }
+            }
+            """)
+        .addSourceLines(
+            "Lru.java",
+            """
+            import java.util.LinkedHashMap;
+            import java.util.Map;
+            class Lru {
+                // get moves the entry to the end in access order
+                private final Map<String, String> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+                synchronized void put(String key, String value) {
+                    entries.put(key, value);
+                }
+
+                synchronized String get(String key) {
+                    return entries.get(key);
+                }
+            }
+            """)
+        .addSourceLines(
+            "Loader.java",
+            """
+            class Loader {
+                interface Source {
+                    String get(String key);
+                }
+
+                private final Source source;
+                private int count;
+
+                Loader(Source source) {
+                    this.source = source;
+                }
+
+                synchronized void increment() {
+                    count++;
+                }
+
+                // the method of the other type may modify the state
+                synchronized String load(String key) {
+                    return source.get(key);
+                }
+
+                synchronized String first(Iterable<String> keys) {
+                    return keys.iterator().next();
+                }
+            }
+            """)
+        .addSourceLines(
+            "OtherMonitor.java",
+            """
+            import java.util.HashMap;
+            import java.util.Map;
+            class OtherMonitor {
+                private final Object lock = new Object();
+                private final Map<String, String> entries = new HashMap<>();
+
+                void put(String key, String value) {
+                    synchronized (lock) {
+                        entries.put(key, value);
+                    }
+                }
+
+                synchronized String get(String key) {
+                    return entries.get(key);
+                }
+            }
+            """)
+        .addSourceLines(
+            "ReadOnly.java",
+            """
+            class ReadOnly {
+                private final String value = "value";
+
+                // no writer contends with the reader
+                synchronized String get() {
+                    return value;
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testInvalid() {
+    CompilationTestHelper.newInstance(ShouldUseReadWriteLock.class, getClass())
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.ArrayList;
+            import java.util.HashMap;
+            import java.util.List;
+            import java.util.Map;
+            class Test {
+                private final Map<String, String> entries = new HashMap<>();
+                private int count;
+
+                synchronized void put(String key, String value) {
+                    entries.put(key, value);
+                    count++;
+                }
+
+                // BUG: Diagnostic contains: Synchronized method get only reads the state
+                synchronized String get(String key) {
+                    String value = entries.get(key);
+                    return value == null ? "" : value;
+                }
+
+                // the monitor is faster than ReadWriteLock for a single field read
+                synchronized int size() {
+                    return count;
+                }
+
+                // BUG: Diagnostic contains: Synchronized method keys only reads the state
+                synchronized List<String> keys() {
+                    return new ArrayList<>(entries.keySet());
+                }
+            }
+            """)
+        .addSourceLines(
+            "Block.java",
+            """
+            import java.util.HashMap;
+            import java.util.Map;
+            class Block {
+                private final Map<String, String> entries = new HashMap<>();
+
+                void put(String key, String value) {
+                    synchronized (this) {
+                        entries.put(key, value);
+                    }
+                }
+
+                // BUG: Diagnostic contains: Synchronized method get only reads the state
+                synchronized String get(String key) {
+                    return entries.get(key);
+                }
+            }
+            """)
+        .doTest();
+  }
+}
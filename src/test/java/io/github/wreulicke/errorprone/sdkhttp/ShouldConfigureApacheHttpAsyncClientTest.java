@@ -0,0 +1,107 @@
+package io.github.wreulicke.errorprone.sdkhttp;
+
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.jupiter.api.Test;
+
+class ShouldConfigureApacheHttpAsyncClientTest {
+
+  private CompilationTestHelper newHelper() {
+    return CompilationTestHelper.newInstance(ShouldConfigureApacheHttpAsyncClient.class, getClass())
+        .addSourceLines(
+            "org/apache/hc/client5/http/impl/async/HttpAsyncClients.java",
+            """
+            package org.apache.hc.client5.http.impl.async;
+            public class HttpAsyncClients {
+                public static HttpAsyncClientBuilder custom() {
+                    return null;
+                }
+
+                public static Object createDefault() {
+                    return null;
+                }
+            }
+            """)
+        .addSourceLines(
+            "org/apache/hc/client5/http/impl/async/HttpAsyncClientBuilder.java",
+            """
+            package org.apache.hc.client5.http.impl.async;
+            import java.util.concurrent.ThreadFactory;
+            public class HttpAsyncClientBuilder {
+                public static HttpAsyncClientBuilder create() {
+                    return null;
+                }
+
+                public HttpAsyncClientBuilder setIOReactorConfig(Object config) {
+                    return this;
+                }
+
+                public HttpAsyncClientBuilder setThreadFactory(ThreadFactory threadFactory) {
+                    return this;
+                }
+
+                public HttpAsyncClientBuilder setConnectionManager(Object connectionManager) {
+                    return this;
+                }
+
+                public Object build() {
+                    return null;
+                }
+            }
+            """);
+  }
+
+  @Test
+  void testValid() {
+    newHelper()
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.concurrent.ThreadFactory;
+            import org.apache.hc.client5.http.impl.async.HttpAsyncClientBuilder;
+            import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+            class Test {
+                void test(Object config, ThreadFactory tf, Object connectionManager) {
+                    HttpAsyncClients.custom()
+                        .setIOReactorConfig(config)
+                        .setThreadFactory(tf)
+                        .setConnectionManager(connectionManager)
+                        .build();
+                    HttpAsyncClientBuilder.create()
+                        .setIOReactorConfig(config)
+                        .setThreadFactory(tf)
+                        .setConnectionManager(connectionManager)
+                        .build();
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testInvalid() {
+    newHelper()
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.concurrent.ThreadFactory;
+            import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+            class Test {
+                void test(Object config, ThreadFactory tf) {
+                    // BUG: Diagnostic contains: Should build HttpAsyncClient with HttpAsyncClients.custom()
+                    HttpAsyncClients.createDefault();
+
+                    HttpAsyncClients.custom()
+                        .setIOReactorConfig(config)
+                        // BUG: Diagnostic contains: Should configure max connections of HttpAsyncClient.
+                        .build();
+
+                    HttpAsyncClients.custom()
+                        .setIOReactorConfig(config)
+                        // BUG: Diagnostic contains: Should set ThreadFactory to HttpAsyncClient.
+                        .build();
+                }
+            }
+            """)
+        .doTest();
+  }
+}
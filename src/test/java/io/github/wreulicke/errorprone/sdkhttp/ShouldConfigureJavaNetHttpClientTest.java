@@ -0,0 +1,93 @@
+package io.github.wreulicke.errorprone.sdkhttp;
+
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.jupiter.api.Test;
+
+class ShouldConfigureJavaNetHttpClientTest {
+
+  @Test
+  void testValid() {
+    CompilationTestHelper.newInstance(ShouldConfigureJavaNetHttpClient.class, getClass())
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.net.URI;
+            import java.net.http.HttpClient;
+            import java.net.http.HttpRequest;
+            import java.net.http.HttpResponse;
+            import java.time.Duration;
+            class Test {
+                void test(HttpClient.Builder builder) throws Exception {
+                    HttpClient client = HttpClient.newBuilder()
+                        .connectTimeout(Duration.ofSeconds(1))
+                        .version(HttpClient.Version.HTTP_2)
+                        .build();
+                    HttpRequest request = HttpRequest.newBuilder(URI.create("https://example.com"))
+                        .timeout(Duration.ofSeconds(3))
+                        .GET()
+                        .build();
+                    client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+
+                    // the chain does not start from the factory
+                    builder.build();
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testInvalid() {
+    CompilationTestHelper.newInstance(ShouldConfigureJavaNetHttpClient.class, getClass())
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.net.URI;
+            import java.net.http.HttpClient;
+            import java.net.http.HttpRequest;
+            import java.time.Duration;
+            class Test {
+                void test() {
+                    // BUG: Diagnostic contains: Should set connectTimeout to java.net.http.HttpClient.
+                    HttpClient.newHttpClient();
+                    // BUG: Diagnostic contains: Should set connectTimeout to java.net.http.HttpClient.
+                    HttpClient.newBuilder().build();
+                    HttpClient.newBuilder()
+                        .connectTimeout(Duration.ofSeconds(1))
+                        // BUG: Diagnostic contains: Do not force HTTP/1.1.
+                        .version(HttpClient.Version.HTTP_1_1)
+                        .build();
+
+                    // BUG: Diagnostic contains: Should set timeout to java.net.http.HttpRequest.
+                    HttpRequest.newBuilder(URI.create("https://example.com")).GET().build();
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testRequireStreamingBodyHandler() {
+    CompilationTestHelper.newInstance(ShouldConfigureJavaNetHttpClient.class, getClass())
+        .setArgs("-XepOpt:ShouldConfigureJavaNetHttpClient:RequireStreamingBodyHandler=true")
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.net.http.HttpClient;
+            import java.net.http.HttpRequest;
+            import java.net.http.HttpResponse;
+            class Test {
+                void test(HttpClient client, HttpRequest request) throws Exception {
+                    client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+                    client.send(request, HttpResponse.BodyHandlers.ofLines());
+
+                    // BUG: Diagnostic contains: BodyHandlers.ofString buffers the whole response in memory.
+                    client.sendAsync(request, HttpResponse.BodyHandlers.ofString());
+                    // BUG: Diagnostic contains: BodyHandlers.ofByteArray buffers the whole response in memory.
+                    client.send(request, HttpResponse.BodyHandlers.ofByteArray());
+                }
+            }
+            """)
+        .doTest();
+  }
+}
@@ -0,0 +1,70 @@
+package io.github.wreulicke.errorprone.sdkhttp;
+
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.jupiter.api.Test;
+
+class ShouldConfigureNettyEventLoopGroupTest {
+
+  private CompilationTestHelper newHelper() {
+    return CompilationTestHelper.newInstance(ShouldConfigureNettyEventLoopGroup.class, getClass())
+        .addSourceLines(
+            "io/netty/channel/nio/NioEventLoopGroup.java",
+            """
+            package io.netty.channel.nio;
+            import java.util.concurrent.Executor;
+            import java.util.concurrent.ThreadFactory;
+            public class NioEventLoopGroup {
+                public NioEventLoopGroup() {}
+
+                public NioEventLoopGroup(int nThreads) {}
+
+                public NioEventLoopGroup(ThreadFactory threadFactory) {}
+
+                public NioEventLoopGroup(int nThreads, ThreadFactory threadFactory) {}
+
+                public NioEventLoopGroup(int nThreads, Executor executor) {}
+            }
+            """);
+  }
+
+  @Test
+  void testValid() {
+    newHelper()
+        .addSourceLines(
+            "Test.java",
+            """
+            import io.netty.channel.nio.NioEventLoopGroup;
+            import java.util.concurrent.Executor;
+            import java.util.concurrent.ThreadFactory;
+            class Test {
+                void test(ThreadFactory tf, Executor executor) {
+                    new NioEventLoopGroup(4, tf);
+                    new NioEventLoopGroup(4, executor);
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testInvalid() {
+    newHelper()
+        .addSourceLines(
+            "Test.java",
+            """
+            import io.netty.channel.nio.NioEventLoopGroup;
+            import java.util.concurrent.ThreadFactory;
+            class Test {
+                void test(ThreadFactory tf) {
+                    // BUG: Diagnostic contains: Should pass the number of threads and ThreadFactory to NioEventLoopGroup.
+                    new NioEventLoopGroup();
+                    // BUG: Diagnostic contains: Should pass ThreadFactory to NioEventLoopGroup.
+                    new NioEventLoopGroup(4);
+                    // BUG: Diagnostic contains: Should pass the number of threads to NioEventLoopGroup.
+                    new NioEventLoopGroup(tf);
+                }
+            }
+            """)
+        .doTest();
+  }
+}
@@ -0,0 +1,113 @@
+package io.github.wreulicke.errorprone.sdkhttp;
+
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.jupiter.api.Test;
+
+class ShouldConfigureOkHttpClientTest {
+
+  private CompilationTestHelper newHelper() {
+    return CompilationTestHelper.newInstance(ShouldConfigureOkHttpClient.class, getClass())
+        .addSourceLines(
+            "okhttp3/OkHttpClient.java",
+            """
+            package okhttp3;
+            public class OkHttpClient {
+                public OkHttpClient() {}
+
+                public Builder newBuilder() {
+                    return new Builder();
+                }
+
+                public static class Builder {
+                    public Builder dispatcher(Dispatcher dispatcher) {
+                        return this;
+                    }
+
+                    public Builder connectionPool(ConnectionPool pool) {
+                        return this;
+                    }
+
+                    public OkHttpClient build() {
+                        return null;
+                    }
+                }
+            }
+            """)
+        .addSourceLines(
+            "okhttp3/Dispatcher.java",
+            """
+            package okhttp3;
+            import java.util.concurrent.ExecutorService;
+            public class Dispatcher {
+                public Dispatcher() {}
+
+                public Dispatcher(ExecutorService executorService) {}
+            }
+            """)
+        .addSourceLines(
+            "okhttp3/ConnectionPool.java",
+            """
+            package okhttp3;
+            import java.util.concurrent.TimeUnit;
+            public class ConnectionPool {
+                public ConnectionPool() {}
+
+                public ConnectionPool(int maxIdleConnections, long keepAliveDuration, TimeUnit timeUnit) {}
+            }
+            """);
+  }
+
+  @Test
+  void testValid() {
+    newHelper()
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.concurrent.ExecutorService;
+            import java.util.concurrent.TimeUnit;
+            import okhttp3.ConnectionPool;
+            import okhttp3.Dispatcher;
+            import okhttp3.OkHttpClient;
+            class Test {
+                void test(ExecutorService executor, OkHttpClient base) {
+                    new OkHttpClient.Builder()
+                        .dispatcher(new Dispatcher(executor))
+                        .connectionPool(new ConnectionPool(20, 5, TimeUnit.MINUTES))
+                        .build();
+
+                    // shares the dispatcher and the connection pool of the base client
+                    base.newBuilder().build();
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testInvalid() {
+    newHelper()
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.concurrent.ExecutorService;
+            import okhttp3.Dispatcher;
+            import okhttp3.OkHttpClient;
+            class Test {
+                void test(ExecutorService executor) {
+                    // BUG: Diagnostic contains: Should set Dispatcher with a bounded executor to OkHttpClient.
+                    new OkHttpClient();
+
+                    new OkHttpClient.Builder()
+                        // BUG: Diagnostic contains: Should pass a bounded ExecutorService to Dispatcher.
+                        .dispatcher(new Dispatcher())
+                        // BUG: Diagnostic contains: Should set ConnectionPool to OkHttpClient.
+                        .build();
+
+                    // BUG: Diagnostic contains: Should set Dispatcher with a bounded executor to OkHttpClient.
+                    new OkHttpClient.Builder().build();
+                }
+            }
+            """)
+        .doTest();
+  }
+}
@@ -0,0 +1,259 @@
+package io.github.wreulicke.errorprone.streams;
+
+import com.google.errorprone.BugCheckerRefactoringTestHelper;
+import com.google.errorprone.BugCheckerRefactoringTestHelper.FixChoosers;
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.jupiter.api.Test;
+
+class DoNotMisuseParallelStreamTest {
+
+  @Test
+  void testValid() {
+    CompilationTestHelper compilationHelper =
+        CompilationTestHelper.newInstance(DoNotMisuseParallelStream.class, getClass());
+    compilationHelper
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.ArrayList;
+            import java.util.Collections;
+            import java.util.List;
+            import java.util.Map;
+            import java.util.concurrent.CompletableFuture;
+            import java.util.concurrent.ConcurrentHashMap;
+            import java.util.concurrent.ForkJoinPool;
+            import java.util.stream.Collectors;
+            import java.util.stream.IntStream;
+            class Test {
+                int sum(List<Integer> values) {
+                    return values.parallelStream().mapToInt(Integer::intValue).sum();
+                }
+
+                long large() {
+                    return IntStream.range(0, 1_000_000).parallel().filter(i -> i % 3 == 0).count();
+                }
+
+                List<String> collect(List<String> values) {
+                    return values.parallelStream().map(String::trim).collect(Collectors.toList());
+                }
+
+                void concurrent(List<String> values) {
+                    Map<String, Integer> lengths = new ConcurrentHashMap<>();
+                    List<String> synchronizedList = Collections.synchronizedList(new ArrayList<>());
+                    values.parallelStream().forEach(v -> lengths.put(v, v.length()));
+                    values.parallelStream().forEach(synchronizedList::add);
+                }
+
+                void local(List<List<String>> values) {
+                    values.parallelStream()
+                        .forEach(
+                            v -> {
+                                List<String> copy = new ArrayList<>(v);
+                                copy.add("x");
+                            });
+                }
+
+                void sequential(List<String> values) {
+                    List<String> result = new ArrayList<>();
+                    List.of("a", "b").stream().forEach(result::add);
+                    values.parallelStream().sequential().sorted().forEach(result::add);
+                }
+
+                List<String> unorderedLimit(List<String> values) {
+                    return values.parallelStream().unordered().limit(10).toList();
+                }
+
+                void customPool(ForkJoinPool pool, List<String> values) {
+                    pool.submit(() -> values.parallelStream().map(String::trim).toList());
+                    CompletableFuture.supplyAsync(
+                            () -> values.parallelStream().map(String::trim).toList(), pool)
+                        .thenApplyAsync(v -> v.parallelStream().map(String::trim).toList(), pool);
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testInvalid() {
+    CompilationTestHelper compilationHelper =
+        CompilationTestHelper.newInstance(DoNotMisuseParallelStream.class, getClass());
+    compilationHelper
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.ArrayList;
+            import java.util.HashMap;
+            import java.util.Iterator;
+            import java.util.LinkedList;
+            import java.util.List;
+            import java.util.Map;
+            import java.util.Spliterators;
+            import java.util.concurrent.CompletableFuture;
+            import java.util.concurrent.ExecutorService;
+            import java.util.concurrent.ForkJoinPool;
+            import java.util.stream.IntStream;
+            import java.util.stream.Stream;
+            import java.util.stream.StreamSupport;
+            class Test {
+                private static final List<String> NAMES = List.of("a", "b", "c");
+
+                int smallSources() {
+                    // BUG: Diagnostic contains: The parallel stream has only 3 elements, fewer than 10000
+                    int a = NAMES.parallelStream().mapToInt(String::length).sum();
+                    // BUG: Diagnostic contains: The parallel stream has only 100 elements
+                    int b = IntStream.range(0, 100).parallel().sum();
+                    return a + b;
+                }
+
+                void poorSplitting(LinkedList<String> linked, Iterator<String> iterator) {
+                    // BUG: Diagnostic contains: LinkedList is split by walking its nodes
+                    linked.parallelStream().map(String::trim).toList();
+                    // BUG: Diagnostic contains: iterate() computes each element from the previous one
+                    Stream.iterate(1, i -> i < 1000, i -> i * 2).parallel().mapToInt(i -> i).sum();
+                    StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, 0), false)
+                        // BUG: Diagnostic contains: the spliterator of an Iterator is split by copying
+                        .parallel()
+                        .map(String::trim)
+                        .toList();
+                }
+
+                List<String> barriers(List<String> values) {
+                    return values.parallelStream()
+                        // BUG: Diagnostic contains: sorted() is a barrier in the parallel stream
+                        .sorted()
+                        // BUG: Diagnostic contains: limit() keeps the encounter order in the parallel stream
+                        .limit(10)
+                        .toList();
+                }
+
+                List<String> writes(List<String> values) {
+                    List<String> result = new ArrayList<>();
+                    Map<String, Integer> lengths = new HashMap<>();
+                    // BUG: Diagnostic contains: The parallel stream writes to result, which is not thread-safe
+                    values.parallelStream().forEach(result::add);
+                    // BUG: Diagnostic contains: The parallel stream writes to lengths, which is not thread-safe
+                    values.parallelStream().forEach(v -> lengths.put(v, v.length()));
+                    return result;
+                }
+
+                void nested(ExecutorService executor, List<String> values) {
+                    executor.submit(
+                        () -> {
+                            // BUG: Diagnostic contains: The parallel stream runs in a task passed to submit
+                            values.parallelStream().map(String::trim).toList();
+                        });
+                    CompletableFuture.supplyAsync(
+                        // BUG: Diagnostic contains: The parallel stream runs in a task passed to supplyAsync
+                        () -> values.parallelStream().map(String::trim).toList(), executor);
+                    CompletableFuture.supplyAsync(
+                        // BUG: Diagnostic contains: The parallel stream runs in a task passed to supplyAsync
+                        () -> values.parallelStream().map(String::trim).toList(), ForkJoinPool.commonPool());
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testCustomMinimumSize() {
+    CompilationTestHelper compilationHelper =
+        CompilationTestHelper.newInstance(DoNotMisuseParallelStream.class, getClass());
+    compilationHelper
+        .setArgs("-XepOpt:DoNotMisuseParallelStream:MinimumSize=10")
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.stream.IntStream;
+            class Test {
+                int test() {
+                    int a = IntStream.range(0, 100).parallel().sum();
+                    // BUG: Diagnostic contains: The parallel stream has only 5 elements, fewer than 10
+                    int b = IntStream.rangeClosed(1, 5).parallel().sum();
+                    return a + b;
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testFix() {
+    BugCheckerRefactoringTestHelper.newInstance(DoNotMisuseParallelStream.class, getClass())
+        .addInputLines(
+            "Test.java",
+            """
+            import java.util.ArrayList;
+            import java.util.List;
+            import java.util.stream.IntStream;
+            class Test {
+                int small() {
+                    return IntStream.range(0, 100).parallel().sum();
+                }
+
+                List<String> writes(List<String> values) {
+                    List<String> result = new ArrayList<>();
+                    values.parallelStream().forEach(result::add);
+                    values.parallelStream().forEach(v -> result.add(v.trim()));
+                    return result;
+                }
+            }
+            """)
+        .addOutputLines(
+            "Test.java",
+            """
+            import java.util.ArrayList;
+            import java.util.List;
+            import java.util.stream.Collectors;
+            import java.util.stream.IntStream;
+            class Test {
+                int small() {
+                    return IntStream.range(0, 100).sum();
+                }
+
+                List<String> writes(List<String> values) {
+                    List<String> result = new ArrayList<>();
+                    result.addAll(values.parallelStream().collect(Collectors.toList()));
+                    result.addAll(values.parallelStream().map(v -> v.trim()).collect(Collectors.toList()));
+                    return result;
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testSequentialFix() {
+    BugCheckerRefactoringTestHelper.newInstance(DoNotMisuseParallelStream.class, getClass())
+        .setFixChooser(FixChoosers.SECOND)
+        .addInputLines(
+            "Test.java",
+            """
+            import java.util.ArrayList;
+            import java.util.List;
+            class Test {
+                List<String> writes(List<String> values) {
+                    List<String> result = new ArrayList<>();
+                    values.parallelStream().forEach(result::add);
+                    values.stream().parallel().forEach(v -> result.add(v.trim()));
+                    return result;
+                }
+            }
+            """)
+        .addOutputLines(
+            "Test.java",
+            """
+            import java.util.ArrayList;
+            import java.util.List;
+            class Test {
+                List<String> writes(List<String> values) {
+                    List<String> result = new ArrayList<>();
+                    values.stream().forEach(result::add);
+                    values.stream().forEach(v -> result.add(v.trim()));
+                    return result;
+                }
+            }
+            """)
+        .doTest();
+  }
+}
@@ -0,0 +1,157 @@
+package io.github.wreulicke.errorprone.threads;
+
+import com.google.errorprone.BugCheckerRefactoringTestHelper;
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.jupiter.api.Test;
+
+class DoNotBlockInSynchronizedTest {
+
+  @Test
+  void testValid() {
+    CompilationTestHelper compilationHelper =
+        CompilationTestHelper.newInstance(DoNotBlockInSynchronized.class, getClass());
+    compilationHelper
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.io.ByteArrayOutputStream;
+            import java.io.StringWriter;
+            import java.util.concurrent.CompletableFuture;
+            import java.util.concurrent.locks.ReentrantLock;
+            class Test {
+                private final ReentrantLock lock = new ReentrantLock();
+                private int count;
+
+                synchronized void increment() {
+                    count++;
+                }
+
+                void sleep() throws InterruptedException {
+                    lock.lock();
+                    try {
+                        Thread.sleep(10);
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+
+                void later(CompletableFuture<String> f) {
+                    synchronized (this) {
+                        f.thenRun(() -> f.join());
+                    }
+                }
+
+                // the streams in memory do not block
+                synchronized String write(ByteArrayOutputStream out, StringWriter writer) {
+                    out.write(1);
+                    writer.write("a");
+                    writer.flush();
+                    return writer.toString();
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testInvalid() {
+    CompilationTestHelper compilationHelper =
+        CompilationTestHelper.newInstance(DoNotBlockInSynchronized.class, getClass());
+    compilationHelper
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.io.IOException;
+            import java.io.InputStream;
+            class Test {
+                void sleep() throws InterruptedException {
+                    // BUG: Diagnostic contains: Thread.sleep pins the carrier thread of virtual threads.
+                    synchronized (this) {
+                        Thread.sleep(10);
+                    }
+                }
+
+                // BUG: Diagnostic contains: InputStream.read pins the carrier thread of virtual threads.
+                synchronized int read(InputStream in) throws IOException {
+                    return doRead(in);
+                }
+
+                private int doRead(InputStream in) throws IOException {
+                    return in.read();
+                }
+
+                // BUG: Diagnostic contains: Object.wait pins the carrier thread of virtual threads.
+                synchronized void await() throws InterruptedException {
+                    wait();
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testFix() {
+    BugCheckerRefactoringTestHelper.newInstance(DoNotBlockInSynchronized.class, getClass())
+        .addInputLines(
+            "Test.java",
+            """
+            import java.util.concurrent.locks.ReentrantLock;
+            class Test {
+                void sleep() throws InterruptedException {
+                    synchronized (this) {
+                        Thread.sleep(10);
+                    }
+                }
+            }
+            """)
+        .addOutputLines(
+            "Test.java",
+            """
+            import java.util.concurrent.locks.ReentrantLock;
+            class Test {
+                private final ReentrantLock lock = new ReentrantLock();
+                void sleep() throws InterruptedException {
+                    lock.lock();
+                    try {
+                        Thread.sleep(10);
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testFixSynchronizedMethod() {
+    BugCheckerRefactoringTestHelper.newInstance(DoNotBlockInSynchronized.class, getClass())
+        .addInputLines(
+            "Test.java",
+            """
+            import java.util.concurrent.locks.ReentrantLock;
+            class Test {
+                static synchronized void sleep() throws InterruptedException {
+                    Thread.sleep(10);
+                }
+            }
+            """)
+        .addOutputLines(
+            "Test.java",
+            """
+            import java.util.concurrent.locks.ReentrantLock;
+            class Test {
+                private static final ReentrantLock LOCK = new ReentrantLock();
+                static void sleep() throws InterruptedException {
+                    LOCK.lock();
+                    try {
+                        Thread.sleep(10);
+                    } finally {
+                        LOCK.unlock();
+                    }
+                }
+            }
+            """)
+        .doTest();
+  }
+}
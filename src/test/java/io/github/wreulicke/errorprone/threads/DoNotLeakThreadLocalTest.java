@@ -0,0 +1,154 @@
+package io.github.wreulicke.errorprone.threads;
+
+import com.google.errorprone.BugCheckerRefactoringTestHelper;
+import com.google.errorprone.CompilationTestHelper;
+import org.junit.jupiter.api.Test;
+
+class DoNotLeakThreadLocalTest {
+
+  @Test
+  void testValid() {
+    CompilationTestHelper compilationHelper =
+        CompilationTestHelper.newInstance(DoNotLeakThreadLocal.class, getClass());
+    compilationHelper
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.time.format.DateTimeFormatter;
+            import java.util.concurrent.ExecutorService;
+            import java.util.concurrent.Executors;
+            class Test {
+                private static final ThreadLocal<String> REQUEST_ID = new ThreadLocal<>();
+                private static final ThreadLocal<DateTimeFormatter> FORMATTER =
+                    ThreadLocal.withInitial(() -> DateTimeFormatter.ISO_DATE);
+                private static final ThreadLocal<int[]> DEFAULTS =
+                    ThreadLocal.withInitial(() -> new int[] {1, 2});
+
+                void test(ExecutorService executor, String id) {
+                    executor.submit(() -> {
+                        REQUEST_ID.set(id);
+                        try {
+                            return REQUEST_ID.get();
+                        } finally {
+                            REQUEST_ID.remove();
+                        }
+                    });
+                    // not a task
+                    REQUEST_ID.set(id);
+                }
+
+                String cached(ExecutorService executor) {
+                    return FORMATTER.get().toString();
+                }
+
+                void propagate() {
+                    // the context does not create the values
+                    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                        executor.submit(() -> REQUEST_ID.get());
+                    }
+                    Thread.startVirtualThread(this::log);
+                }
+
+                private void log() {
+                    System.out.println(REQUEST_ID.get());
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testInvalid() {
+    CompilationTestHelper compilationHelper =
+        CompilationTestHelper.newInstance(DoNotLeakThreadLocal.class, getClass());
+    compilationHelper
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.text.SimpleDateFormat;
+            import java.util.concurrent.ExecutorService;
+            import java.util.concurrent.Executors;
+            class Test {
+                // BUG: Diagnostic contains: ThreadLocal field context should be static.
+                private final ThreadLocal<String> context = new ThreadLocal<>();
+
+                private static final ThreadLocal<SimpleDateFormat> FORMAT =
+                    // BUG: Diagnostic contains: ThreadLocal.withInitial allocates SimpleDateFormat for each thread.
+                    ThreadLocal.withInitial(() -> new SimpleDateFormat("yyyy-MM-dd"));
+
+                private static final ThreadLocal<byte[]> BUFFER =
+                    // BUG: Diagnostic contains: ThreadLocal.withInitial allocates byte[] for each thread.
+                    ThreadLocal.withInitial(() -> new byte[8192]);
+
+                private static final ThreadLocal<StringBuilder> BUILDER =
+                    // BUG: Diagnostic contains: ThreadLocal.withInitial allocates StringBuilder for each thread.
+                    ThreadLocal.withInitial(StringBuilder::new);
+
+                private static final ThreadLocal<String> REQUEST_ID = new ThreadLocal<>();
+
+                void test(ExecutorService executor, String id) {
+                    executor.execute(() -> {
+                        // BUG: Diagnostic contains: ThreadLocal REQUEST_ID is set in the task without remove() in finally.
+                        REQUEST_ID.set(id);
+                        System.out.println(REQUEST_ID.get());
+                    });
+                }
+
+                static class Task implements Runnable {
+                    @Override
+                    public void run() {
+                        // BUG: Diagnostic contains: ThreadLocal REQUEST_ID is set in the task without remove() in finally.
+                        REQUEST_ID.set("task");
+                    }
+                }
+
+                void virtual() {
+                    try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                        // BUG: Diagnostic contains: The task runs on a virtual thread, so ThreadLocal FORMAT caches nothing.
+                        executor.submit(() -> format());
+                    }
+                    // BUG: Diagnostic contains: The task runs on a virtual thread, so ThreadLocal FORMAT caches nothing.
+                    Thread.ofVirtual().start(this::format);
+                }
+
+                private String format() {
+                    return FORMAT.get().format(new java.util.Date());
+                }
+
+                private static final ThreadLocal<StringBuilder> SCRATCH = new ThreadLocal<>();
+
+                void idiom() {
+                    // BUG: Diagnostic contains: The task runs on a virtual thread, so ThreadLocal SCRATCH caches nothing.
+                    Thread.startVirtualThread(() -> scratch().append("a"));
+                }
+
+                private StringBuilder scratch() {
+                    StringBuilder builder = SCRATCH.get();
+                    if (builder == null) {
+                        builder = new StringBuilder();
+                        SCRATCH.set(builder);
+                    }
+                    return builder;
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testNoFix() {
+    // making the field static merges the values of all the instances
+    BugCheckerRefactoringTestHelper refactoringHelper =
+        BugCheckerRefactoringTestHelper.newInstance(DoNotLeakThreadLocal.class, getClass());
+    refactoringHelper
+        .addInputLines(
+            "Test.java",
+            """
+            class Test {
+                private final ThreadLocal<String> context = new ThreadLocal<>();
+            }
+            """)
+        .expectUnchanged()
+        .doTest();
+  }
+}
@@ -1,5 +1,6 @@
 package io.github.wreulicke.errorprone.threads;
 
+import com.google.errorprone.BugCheckerRefactoringTestHelper;
 import com.google.errorprone.CompilationTestHelper;
 import org.junit.jupiter.api.Test;
 
@@ -134,6 +135,199 @@ class ShouldUseThreadFactoryTest {
         .doTest();
   }
 
+  @Test
+  void testWithThreadFactory_ConfiguredOutsideTopLevelStatements() {
+    CompilationTestHelper compilationHelper =
+        CompilationTestHelper.newInstance(ShouldUseThreadFactory.class, getClass());
+    compilationHelper
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.concurrent.Executors;
+            import java.util.concurrent.ThreadFactory;
+            import java.util.concurrent.atomic.AtomicInteger;
+            class Test {
+                private static final AtomicInteger COUNTER = new AtomicInteger();
+
+                static void configure(Thread thread) {
+                    name(thread);
+                    thread.setUncaughtExceptionHandler((t, e) -> {});
+                }
+
+                static void name(Thread thread) {
+                    thread.setName("helper-" + COUNTER.incrementAndGet());
+                }
+
+                static class Helper implements ThreadFactory {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r);
+                        configure(t);
+                        return t;
+                    }
+                }
+
+                static class Conditional implements ThreadFactory {
+                    private final boolean daemon;
+
+                    Conditional(boolean daemon) {
+                        this.daemon = daemon;
+                    }
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(r);
+                        Thread t = thread;
+                        if (daemon) {
+                            t.setDaemon(true);
+                            t.setName("daemon-" + COUNTER.incrementAndGet());
+                        } else {
+                            t.setName("worker-" + COUNTER.incrementAndGet());
+                        }
+                        try {
+                            t.setUncaughtExceptionHandler((t1, e) -> {});
+                        } finally {
+                            COUNTER.getAndIncrement();
+                        }
+                        return t;
+                    }
+                }
+
+                static class Named implements ThreadFactory {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "named-" + COUNTER.incrementAndGet());
+                        t.setUncaughtExceptionHandler((t1, e) -> {});
+                        return t;
+                    }
+                }
+
+                static class Delegating implements ThreadFactory {
+                    private final ThreadFactory delegate = Executors.defaultThreadFactory();
+
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = delegate.newThread(r);
+                        t.setName("delegating-" + COUNTER.incrementAndGet());
+                        t.setUncaughtExceptionHandler((t1, e) -> {});
+                        return t;
+                    }
+                }
+
+                static class Recursive implements ThreadFactory {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r);
+                        configure(t, 3);
+                        return t;
+                    }
+
+                    void configure(Thread t, int depth) {
+                        if (depth > 0) {
+                            configure(t, depth - 1);
+                        } else {
+                            Test.configure(t);
+                        }
+                    }
+                }
+
+                static void nameThenHandle(Thread t, int depth) {
+                    t.setName("mutual-" + COUNTER.incrementAndGet());
+                    handleThenName(t, depth);
+                }
+
+                static void handleThenName(Thread t, int depth) {
+                    t.setUncaughtExceptionHandler((t1, e) -> {});
+                    if (depth > 0) {
+                        nameThenHandle(t, depth - 1);
+                    }
+                }
+
+                static class MutuallyRecursive implements ThreadFactory {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r);
+                        nameThenHandle(t, 3);
+                        return t;
+                    }
+                }
+
+                // handleThenName was summarized while nameThenHandle was in progress
+                static class MutuallyRecursiveCallee implements ThreadFactory {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r);
+                        handleThenName(t, 3);
+                        return t;
+                    }
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testWithThreadFactory_NotConfiguredOutsideTopLevelStatements() {
+    CompilationTestHelper compilationHelper =
+        CompilationTestHelper.newInstance(ShouldUseThreadFactory.class, getClass());
+    compilationHelper
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.concurrent.Executors;
+            import java.util.concurrent.ThreadFactory;
+            import java.util.concurrent.atomic.AtomicInteger;
+            class Test {
+                private static final AtomicInteger COUNTER = new AtomicInteger();
+
+                static void name(Thread thread) {
+                    thread.setName("helper-" + COUNTER.incrementAndGet());
+                }
+
+                static class Helper implements ThreadFactory {
+                    @Override // BUG: Diagnostic contains: Should set thread name and uncaught exception handler.
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r);
+                        name(t);
+                        return t;
+                    }
+                }
+
+                static class Delegating implements ThreadFactory {
+                    @Override // BUG: Diagnostic contains: Should set thread name and uncaught exception handler.
+                    public Thread newThread(Runnable r) {
+                        Thread t = Executors.defaultThreadFactory().newThread(r);
+                        t.setName("delegating-" + COUNTER.incrementAndGet());
+                        return t;
+                    }
+                }
+
+                static class Other implements ThreadFactory {
+                    @Override // BUG: Diagnostic contains: Should set thread name and uncaught exception handler.
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r);
+                        // another thread is configured
+                        Thread current = Thread.currentThread();
+                        current.setName("other-" + COUNTER.incrementAndGet());
+                        current.setUncaughtExceptionHandler((t1, e) -> {});
+                        return t;
+                    }
+                }
+
+                static class Constant implements ThreadFactory {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        // BUG: Diagnostic contains: Should generate thread name dynamically.
+                        Thread t = new Thread(r, "constant");
+                        t.setUncaughtExceptionHandler((t1, e) -> {});
+                        return t;
+                    }
+                }
+            }
+            """)
+        .doTest();
+  }
+
   @Test
   void testField() {
     CompilationTestHelper compilationHelper =
@@ -150,4 +344,146 @@ class ShouldUseThreadFactoryTest {
             """)
         .doTest();
   }
+
+  @Test
+  void testThreadBuilder() {
+    CompilationTestHelper compilationHelper =
+        CompilationTestHelper.newInstance(ShouldUseThreadFactory.class, getClass());
+    compilationHelper
+        .addSourceLines(
+            "Test.java",
+            """
+            import java.util.concurrent.Executors;
+            import java.util.concurrent.ThreadFactory;
+            class Test {
+                void test(Thread.Builder builder) {
+                    Thread.ofPlatform().name("worker-", 0).uncaughtExceptionHandler((t, e) -> {}).factory();
+                    Executors.newThreadPerTaskExecutor(
+                        Thread.ofVirtual().uncaughtExceptionHandler((t, e) -> {}).name("virtual-", 0).factory());
+
+                    // configured elsewhere
+                    builder.factory();
+
+                    // BUG: Diagnostic contains: Should set thread name and uncaught exception handler.
+                    ThreadFactory virtual = Thread.ofVirtual().factory();
+
+                    // BUG: Diagnostic contains: Should set thread name and uncaught exception handler.
+                    ThreadFactory platform = Thread.ofPlatform().name("worker-", 0).factory();
+
+                    ThreadFactory constant =
+                        // BUG: Diagnostic contains: Should generate thread name dynamically.
+                        Thread.ofPlatform().name("worker").uncaughtExceptionHandler((t, e) -> {}).factory();
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testThreadFactoryFix() {
+    BugCheckerRefactoringTestHelper.newInstance(ShouldUseThreadFactory.class, getClass())
+        .setArgs(
+            "-XepOpt:Concurrency:ThreadFactoryDaemon=true",
+            "-XepOpt:Concurrency:ThreadFactoryPriority=8")
+        .addInputLines(
+            "Test.java",
+            """
+            class Test {
+                void start(Runnable task) {
+                    new Thread(task).start();
+                }
+
+                static class Worker {
+                    Thread create() {
+                        return new Thread(() -> {});
+                    }
+                }
+            }
+            """)
+        .addOutputLines(
+            "Test.java",
+            """
+            import java.util.concurrent.ThreadFactory;
+            class Test {
+                private static final ThreadFactory THREAD_FACTORY =
+                    Thread.ofPlatform()
+                        .name("Test-", 1)
+                        .daemon(true)
+                        .priority(8)
+                        .uncaughtExceptionHandler(
+                            (t, e) ->
+                                System.getLogger(Test.class.getName())
+                                    .log(System.Logger.Level.ERROR, "Uncaught exception in " + t.getName(), e))
+                        .factory();
+
+                void start(Runnable task) {
+                    THREAD_FACTORY.newThread(task).start();
+                }
+
+                static class Worker {
+                    Thread create() {
+                        return THREAD_FACTORY.newThread(() -> {});
+                    }
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testThreadFactoryFixReusesField() {
+    BugCheckerRefactoringTestHelper.newInstance(ShouldUseThreadFactory.class, getClass())
+        .addInputLines(
+            "Test.java",
+            """
+            import java.util.concurrent.ThreadFactory;
+            class Test {
+                private static final ThreadFactory THREAD_FACTORY =
+                    Thread.ofPlatform().name("test-", 1).uncaughtExceptionHandler((t, e) -> {}).factory();
+
+                void start(Runnable task) {
+                    new Thread(task).start();
+                }
+            }
+            """)
+        .addOutputLines(
+            "Test.java",
+            """
+            import java.util.concurrent.ThreadFactory;
+            class Test {
+                private static final ThreadFactory THREAD_FACTORY =
+                    Thread.ofPlatform().name("test-", 1).uncaughtExceptionHandler((t, e) -> {}).factory();
+
+                void start(Runnable task) {
+                    THREAD_FACTORY.newThread(task).start();
+                }
+            }
+            """)
+        .doTest();
+  }
+
+  @Test
+  void testThreadFactoryTypes() {
+    CompilationTestHelper compilationHelper =
+        CompilationTestHelper.newInstance(ShouldUseThreadFactory.class, getClass());
+    compilationHelper
+        .setArgs("-XepOpt:ShouldUseThreadFactory:ThreadFactoryTypes=com.acme.concurrent.Threads")
+        .addSourceLines(
+            "com/acme/concurrent/Threads.java",
+            """
+            package com.acme.concurrent;
+            import java.util.concurrent.atomic.AtomicInteger;
+            public class Threads {
+                private final AtomicInteger counter = new AtomicInteger();
+
+                public Thread create(Runnable r) {
+                    Thread t = new Thread(r);
+                    t.setName(String.format("acme-%d", counter.incrementAndGet()));
+                    t.setUncaughtExceptionHandler((t1, e) -> {});
+                    return t;
+                }
+            }
+            """)
+        .doTest();
+  }
 }